@@ -97,6 +97,11 @@ public class Parameters {
         public static final String U_TURN_COSTS = "u_turn_costs";
         public static final String MAX_VISITED_NODES = "max_visited_nodes";
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
+        /**
+         * true or false. If the routing algorithms should keep the entries that are not settled yet in a 4-ary heap
+         * with decrease-key instead of a java.util.PriorityQueue.
+         */
+        public static final String QUATERNARY_HEAP = "quaternary_heap";
         /**
          * if true the response will contain turn instructions
          */
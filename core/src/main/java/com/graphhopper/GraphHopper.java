@@ -17,13 +17,17 @@
  */
 package com.graphhopper;
 
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
 import com.graphhopper.reader.dem.*;
+import com.graphhopper.reader.osm.OSMChangeUpdater;
 import com.graphhopper.reader.osm.OSMReader;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.DefaultWeightingFactory;
+import com.graphhopper.routing.ManyToManyCH;
 import com.graphhopper.routing.Router;
 import com.graphhopper.routing.RouterConfig;
 import com.graphhopper.routing.WeightingFactory;
@@ -44,6 +48,8 @@ import com.graphhopper.routing.util.parsers.TagParserFactory;
 import com.graphhopper.routing.util.spatialrules.AbstractSpatialRule;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookup;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookupBuilder;
+import com.graphhopper.routing.weighting.TrafficOverlay;
+import com.graphhopper.routing.weighting.TrafficWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
@@ -55,6 +61,7 @@ import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,6 +69,8 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.graphhopper.util.Helper.*;
 import static com.graphhopper.util.Parameters.Algorithms.RoundTrip;
@@ -87,20 +96,27 @@ public class GraphHopper implements GraphHopperAPI {
     private String ghLocation = "";
     private DAType dataAccessType = DAType.RAM_STORE;
     private boolean sortGraph = false;
+    private boolean compactAdjacency = false;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
     private boolean fullyLoaded = false;
+    private TrafficOverlay trafficOverlay;
     private boolean smoothElevation = false;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
+    private int legThreads = 1;
+    private ExecutorService legExecutor;
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private int snapThreads = 1;
     // for prepare
     private int minNetworkSize = 200;
+    private int subnetworkThreads = 1;
+    private boolean subnetworkParallelSCC = false;
     // for LM
     private final JsonFeatureCollection landmarkSplittingFeatureCollection;
 
@@ -112,6 +128,8 @@ public class GraphHopper implements GraphHopperAPI {
     private String osmFile;
     private double dataReaderWayPointMaxDistance = 1;
     private int dataReaderWorkerThreads = 2;
+    private String dataReaderNodeMap = "btree";
+    private int dataReaderWayThreads = 1;
     private ElevationProvider eleProvider = ElevationProvider.NOOP;
     private FlagEncoderFactory flagEncoderFactory = new DefaultFlagEncoderFactory();
     private EncodedValueFactory encodedValueFactory = new DefaultEncodedValueFactory();
@@ -192,6 +210,36 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Sets the map from OSM node ids to internal node ids that is used during the import: btree (the default), ram or
+     * mmap, see OSMReader.setNodeMap
+     */
+    public GraphHopper setDataReaderNodeMap(String dataReaderNodeMap) {
+        ensureNotLoaded();
+        this.dataReaderNodeMap = dataReaderNodeMap;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads that parse the tags of the ways during the import, see OSMReader.setWayThreads
+     */
+    public GraphHopper setDataReaderWayThreads(int dataReaderWayThreads) {
+        ensureNotLoaded();
+        this.dataReaderWayThreads = dataReaderWayThreads;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads that calculate the legs of via routes concurrently. They are shared by all requests.
+     */
+    public GraphHopper setLegThreads(int legThreads) {
+        ensureNotLoaded();
+        if (legThreads < 1)
+            throw new IllegalArgumentException("legThreads must be positive, but was: " + legThreads);
+        this.legThreads = legThreads;
+        return this;
+    }
+
     public GraphHopper setMinNetworkSize(int minNetworkSize) {
         ensureNotLoaded();
         this.minNetworkSize = minNetworkSize;
@@ -367,7 +415,8 @@ public class GraphHopper implements GraphHopperAPI {
     }
 
     /**
-     * Sorts the graph which requires more RAM while import. See #12
+     * Renumbers the nodes and edges along a Hilbert curve after the import, such that nodes and edges that are close
+     * to each other on the map are also close to each other in memory. See #12
      */
     public GraphHopper setSortGraph(boolean sortGraph) {
         ensureNotLoaded();
@@ -375,6 +424,16 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Keeps a compact copy of the adjacency lists in memory once the graph is frozen, which speeds up the routing
+     * queries but requires more RAM.
+     */
+    public GraphHopper setCompactAdjacency(boolean compactAdjacency) {
+        ensureNotLoaded();
+        this.compactAdjacency = compactAdjacency;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -448,6 +507,7 @@ public class GraphHopper implements GraphHopperAPI {
         dataAccessType = DAType.fromString(graphDATypeStr);
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
+        compactAdjacency = ghConfig.getBool("graph.compact_adjacency", compactAdjacency);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
 
         if (encodingManager != null)
@@ -477,6 +537,8 @@ public class GraphHopper implements GraphHopperAPI {
 
         // optimizable prepare
         minNetworkSize = ghConfig.getInt("prepare.min_network_size", minNetworkSize);
+        subnetworkThreads = ghConfig.getInt("prepare.subnetworks.threads", subnetworkThreads);
+        subnetworkParallelSCC = ghConfig.getBool("prepare.subnetworks.parallel_scc", subnetworkParallelSCC);
 
         // prepare CH&LM
         chPreparationHandler.init(ghConfig);
@@ -486,14 +548,18 @@ public class GraphHopper implements GraphHopperAPI {
         dataReaderWayPointMaxDistance = ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, dataReaderWayPointMaxDistance);
 
         dataReaderWorkerThreads = ghConfig.getInt("datareader.worker_threads", dataReaderWorkerThreads);
+        dataReaderNodeMap = ghConfig.getString("datareader.node_map", dataReaderNodeMap);
+        dataReaderWayThreads = ghConfig.getInt("datareader.way_threads", dataReaderWayThreads);
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = ghConfig.getInt("index.max_region_search", maxRegionSearch);
+        snapThreads = ghConfig.getInt("index.snap_threads", snapThreads);
 
         // routing
         routerConfig.setMaxVisitedNodes(ghConfig.getInt(Routing.INIT_MAX_VISITED_NODES, routerConfig.getMaxVisitedNodes()));
         routerConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routerConfig.getMaxRoundTripRetries()));
+        legThreads = ghConfig.getInt("routing.leg_threads", legThreads);
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         int activeLandmarkCount = ghConfig.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, lmPreparationHandler.getLandmarks()));
         if (activeLandmarkCount > lmPreparationHandler.getLandmarks())
@@ -632,6 +698,7 @@ public class GraphHopper implements GraphHopperAPI {
             ensureWriteAccess();
             importOSM();
             cleanUp();
+            sortGraph();
             postProcessing(closeEarly);
             flush();
         } finally {
@@ -649,6 +716,8 @@ public class GraphHopper implements GraphHopperAPI {
         OSMReader reader = new OSMReader(ghStorage).setFile(_getOSMFile()).
                 setElevationProvider(eleProvider).
                 setWorkerThreads(dataReaderWorkerThreads).
+                setNodeMap(dataReaderNodeMap).
+                setWayThreads(dataReaderWayThreads).
                 setWayPointMaxDistance(dataReaderWayPointMaxDistance).
                 setWayPointElevationMaxDistance(routerConfig.getElevationWayPointMaxDistance()).
                 setSmoothElevation(smoothElevation).
@@ -665,6 +734,53 @@ public class GraphHopper implements GraphHopperAPI {
             ghStorage.getProperties().put("datareader.data.date", f.format(reader.getDataDate()));
     }
 
+    /**
+     * Applies the specified OSM change file to the loaded graph without importing it again, see OSMChangeUpdater for
+     * the supported changes. Afterwards the preparations are updated: the CH graphs are contracted again with their
+     * previous node ordering and the landmarks are only calculated again if the weight of a changed edge decreased
+     * for their profile, because otherwise the stored landmark weights are still a lower bound. Finally the graph is
+     * flushed. Do not call this method while requests are processed.
+     *
+     * @return the number of edges that changed
+     */
+    public int applyChanges(File changeFile) {
+        if (ghStorage == null || !fullyLoaded)
+            throw new IllegalStateException("Do a successful call to load or importOrLoad before applying changes");
+        ensureWriteAccess();
+        IntObjectMap<IntsRef> changedEdges = new OSMChangeUpdater(ghStorage).apply(changeFile).getChangedEdges();
+        if (changedEdges.isEmpty())
+            return 0;
+
+        ghStorage.getProperties().put("datareader.update.date", createFormatter().format(new Date()));
+        if (lmPreparationHandler.isEnabled()) {
+            for (LMConfig lmConfig : lmPreparationHandler.getLMConfigs()) {
+                if (hasDecreasedWeight(lmConfig.getWeighting(), changedEdges))
+                    lmPreparationHandler.prepareAgain(ghStorage, locationIndex, lmConfig.getName());
+            }
+        }
+        if (chPreparationHandler.isEnabled()) {
+            for (CHConfig chConfig : chPreparationHandler.getCHConfigs()) {
+                chPreparationHandler.prepareAgain(ghStorage, chConfig.getName());
+            }
+        }
+        ghStorage.flush();
+        return changedEdges.size();
+    }
+
+    private boolean hasDecreasedWeight(Weighting weighting, IntObjectMap<IntsRef> changedEdges) {
+        for (IntObjectCursor<IntsRef> cursor : changedEdges) {
+            EdgeIteratorState edge = ghStorage.getEdgeIteratorState(cursor.key, Integer.MIN_VALUE);
+            IntsRef flags = IntsRef.deepCopyOf(edge.getFlags());
+            double weight = weighting.calcEdgeWeight(edge, false), reverseWeight = weighting.calcEdgeWeight(edge, true);
+            edge.setFlags(cursor.value);
+            boolean decreased = weight < weighting.calcEdgeWeight(edge, false) || reverseWeight < weighting.calcEdgeWeight(edge, true);
+            edge.setFlags(flags);
+            if (decreased)
+                return true;
+        }
+        return false;
+    }
+
     /**
      * Currently we use this for a few tests where the dataReaderFile is loaded from the classpath
      */
@@ -714,6 +830,7 @@ public class GraphHopper implements GraphHopperAPI {
 
         GHDirectory dir = new GHDirectory(ghLocation, dataAccessType);
         ghStorage = new GraphHopperStorage(dir, encodingManager, hasElevation(), encodingManager.needsTurnCostsSupport(), defaultSegmentSize);
+        ghStorage.setCompactAdjacency(compactAdjacency);
         checkProfilesConsistency();
 
         if (lmPreparationHandler.isEnabled())
@@ -872,19 +989,6 @@ public class GraphHopper implements GraphHopperAPI {
      * @param closeEarly release resources as early as possible
      */
     protected void postProcessing(boolean closeEarly) {
-        // Later: move this into the GraphStorage.optimize method
-        // Or: Doing it after preparation to optimize shortcuts too. But not possible yet #12
-
-        if (sortGraph) {
-            if (ghStorage.isCHPossible() && isCHPrepared())
-                throw new IllegalArgumentException("Sorting a prepared CHGraph is not possible yet. See #12");
-
-            GraphHopperStorage newGraph = GHUtility.newStorage(ghStorage);
-            GHUtility.sortDFS(ghStorage, newGraph);
-            logger.info("graph sorted (" + getMemInfo() + ")");
-            ghStorage = newGraph;
-        }
-
         if (!hasInterpolated() && hasElevation()) {
             interpolateBridgesTunnelsAndFerries();
         }
@@ -954,6 +1058,16 @@ public class GraphHopper implements GraphHopperAPI {
         return createRouter().route(request);
     }
 
+    /**
+     * Calculates the weights, times and distances between all from- and to-points for the given profile. This
+     * requires a CH preparation for this profile.
+     *
+     * @see Router#matrix
+     */
+    public ManyToManyCH.Result matrix(String profile, List<GHPoint> fromPoints, List<GHPoint> toPoints, List<String> snapPreventions) {
+        return createRouter().matrix(profile, fromPoints, toPoints, snapPreventions);
+    }
+
     private Router createRouter() {
         if (ghStorage == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
@@ -975,8 +1089,16 @@ public class GraphHopper implements GraphHopperAPI {
                             ? lmPreparationHandler.getPreparation(lmp.getPreparationProfile()).getLandmarkStorage()
                             : lmPreparationHandler.getPreparation(lmp.getProfile()).getLandmarkStorage());
         }
+        WeightingFactory weightingFactory = createWeightingFactory();
+        // CH ignores the traffic speeds as the shortcuts cannot change per request
+        TrafficOverlay.Speeds trafficSpeeds = trafficOverlay.getSpeeds();
+        if (!trafficSpeeds.isEmpty()) {
+            WeightingFactory baseFactory = weightingFactory;
+            weightingFactory = (profile, hints, disableTurnCosts) ->
+                    new TrafficWeighting(baseFactory.createWeighting(profile, hints, disableTurnCosts), trafficSpeeds);
+        }
         return doCreateRouter(ghStorage, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+                trMap, routerConfig, weightingFactory, chGraphs, landmarks).setLegExecutor(legExecutor);
     }
 
     protected Router doCreateRouter(GraphHopperStorage ghStorage, LocationIndex locationIndex, Map<String, Profile> profilesByName,
@@ -991,6 +1113,7 @@ public class GraphHopper implements GraphHopperAPI {
         LocationIndexTree tmpIndex = new LocationIndexTree(ghStorage, dir);
         tmpIndex.setResolution(preciseIndexResolution);
         tmpIndex.setMaxRegionSearch(maxRegionSearch);
+        tmpIndex.setSnapThreads(snapThreads);
         if (!tmpIndex.loadExisting()) {
             ensureWriteAccess();
             tmpIndex.prepareIndex();
@@ -1098,6 +1221,8 @@ public class GraphHopper implements GraphHopperAPI {
     protected void cleanUp() {
         PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(ghStorage, buildSubnetworkRemovalJobs());
         preparation.setMinNetworkSize(minNetworkSize);
+        preparation.setThreads(subnetworkThreads);
+        preparation.setParallelSCC(subnetworkParallelSCC);
         preparation.doWork();
         logger.info("nodes: " + Helper.nf(ghStorage.getNodes()) + ", edges: " + Helper.nf(ghStorage.getEdges()));
     }
@@ -1112,6 +1237,17 @@ public class GraphHopper implements GraphHopperAPI {
         return jobs;
     }
 
+    /**
+     * Renumbers the nodes and edges of the freshly imported graph. This has to happen before the location index is
+     * created and before the CH and LM preparations, because they all refer to the node and edge ids. See #12
+     */
+    protected void sortGraph() {
+        if (!sortGraph)
+            return;
+        GHUtility.sortGraphAlongHilbertCurve(ghStorage);
+        logger.info("graph sorted (" + getMemInfo() + ")");
+    }
+
     protected void flush() {
         logger.info("flushing graph " + ghStorage.toString() + ", details:" + ghStorage.toDetailsString() + ", "
                 + getMemInfo() + ")");
@@ -1131,6 +1267,11 @@ public class GraphHopper implements GraphHopperAPI {
         if (locationIndex != null)
             locationIndex.close();
 
+        if (legExecutor != null) {
+            legExecutor.shutdownNow();
+            legExecutor = null;
+        }
+
         try {
             lockFactory.forceRemove(fileLockName, true);
         } catch (Exception ex) {
@@ -1161,9 +1302,25 @@ public class GraphHopper implements GraphHopperAPI {
     }
 
     private void setFullyLoaded() {
+        trafficOverlay = new TrafficOverlay(ghStorage.getEdges());
+        if (legThreads > 1 && legExecutor == null)
+            legExecutor = Executors.newFixedThreadPool(legThreads, r -> {
+                Thread thread = new Thread(r, "leg");
+                thread.setDaemon(true);
+                return thread;
+            });
         fullyLoaded = true;
     }
 
+    /**
+     * @return the traffic speeds that are used for flexible and hybrid routing requests
+     */
+    public TrafficOverlay getTrafficOverlay() {
+        if (trafficOverlay == null)
+            throw new IllegalStateException("Do a successful call to load or importOrLoad before using the traffic overlay");
+        return trafficOverlay;
+    }
+
     public boolean getFullyLoaded() {
         return fullyLoaded;
     }
@@ -0,0 +1,128 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * A map from long to int for (mostly) positive keys that are not inserted in a particular order, like the OSM node
+ * ids that are read from the ways. The values are stored in a dense array that is indexed by the key and split into
+ * pages, which are only allocated once a key of the page is used. The pages are stored in a {@link DataAccess}, so
+ * with a memory mapped DataAccess the map uses almost no heap, and as OSM ids are assigned in increasing order the
+ * entries of nodes that are close to each other are usually stored close to each other as well.
+ * <p>
+ * Negative keys, like the ids OSMReader creates for barrier nodes, are rare and stored in a {@link GHLongIntBTree}.
+ * The map returns -1 for keys that are not contained.
+ */
+public class PagedLongIntMap implements LongIntMap {
+    private static final int NO_ENTRY = -1;
+    // 1024 ids per page, so every page is 4KB
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_BYTES = 4 * PAGE_SIZE;
+    private final Directory dir;
+    private final DataAccess values;
+    private final GHLongIntBTree negativeKeys = new GHLongIntBTree(200);
+    // the index of every allocated page plus one, or 0 if the page is not allocated yet
+    private int[] pageTable = new int[0];
+    private int pages;
+    private long size;
+
+    public PagedLongIntMap(Directory dir, DataAccess values) {
+        this.dir = dir;
+        this.values = values;
+        values.create(PAGE_BYTES);
+    }
+
+    @Override
+    public int put(long key, int value) {
+        if (key < 0)
+            return negativeKeys.put(key, value);
+        long pointer = getPointer(key, true);
+        // we store value + 1, so the zeros of newly allocated pages are empty entries
+        int oldValue = values.getInt(pointer) - 1;
+        values.setInt(pointer, value + 1);
+        if (oldValue == NO_ENTRY && value != NO_ENTRY)
+            size++;
+        else if (oldValue != NO_ENTRY && value == NO_ENTRY)
+            size--;
+        return oldValue;
+    }
+
+    @Override
+    public int get(long key) {
+        if (key < 0)
+            return negativeKeys.get(key);
+        long pointer = getPointer(key, false);
+        return pointer < 0 ? NO_ENTRY : values.getInt(pointer) - 1;
+    }
+
+    private long getPointer(long key, boolean allocate) {
+        long pageKey = key >>> PAGE_BITS;
+        if (pageKey >= Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Key is too big: " + key);
+        if (pageKey >= pageTable.length) {
+            if (!allocate)
+                return -1;
+            pageTable = Arrays.copyOf(pageTable, (int) Math.min(Integer.MAX_VALUE, Math.max(pageKey + 1, pageTable.length + (pageTable.length >> 1))));
+        }
+        int page = pageTable[(int) pageKey] - 1;
+        if (page < 0) {
+            if (!allocate)
+                return -1;
+            page = pages++;
+            pageTable[(int) pageKey] = page + 1;
+            values.ensureCapacity((long) pages * PAGE_BYTES);
+        }
+        return (long) page * PAGE_BYTES + 4 * (key & (PAGE_SIZE - 1));
+    }
+
+    @Override
+    public long getSize() {
+        return size + negativeKeys.getSize();
+    }
+
+    @Override
+    public void optimize() {
+        negativeKeys.optimize();
+    }
+
+    @Override
+    public int getMemoryUsage() {
+        return Math.round((values.getCapacity() + 4L * pageTable.length) / Helper.MB) + negativeKeys.getMemoryUsage();
+    }
+
+    /**
+     * Removes the pages of this map, also from disk.
+     */
+    public void clear() {
+        dir.remove(values);
+        pageTable = new int[0];
+        pages = 0;
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "size: " + getSize() + ", pages: " + pages + ", " + getMemoryUsage() + "MB";
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import java.util.Arrays;
+
+/**
+ * A minimum heap of int ids with double keys that is implemented as a 4-ary tree. Like {@link MinHeapWithUpdate} it
+ * keeps track of the positions of the ids in the tree, so the key of an id can be updated and ids can be removed in
+ * O(log(N)). Compared to a binary heap the tree is only half as deep, which makes pushes and updates cheaper and the
+ * four children of a node are usually in the same cache line.
+ * <p>
+ * Unlike {@link MinHeapWithUpdate} this heap grows as needed, so it can also be used if the number of ids is not known
+ * in advance. The memory needed for the positions is proportional to the largest id, so ids should be dense.
+ */
+public class QuaternaryMinHeap {
+    private static final int NOT_PRESENT = -1;
+    private int[] tree;
+    private double[] keys;
+    private int[] positions;
+    private int size;
+
+    public QuaternaryMinHeap() {
+        this(16);
+    }
+
+    public QuaternaryMinHeap(int initialCapacity) {
+        initialCapacity = Math.max(4, initialCapacity);
+        tree = new int[initialCapacity];
+        keys = new double[initialCapacity];
+        positions = new int[initialCapacity];
+        Arrays.fill(positions, NOT_PRESENT);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds an id to the heap. It is illegal to push the same id twice unless it was polled or removed before, use
+     * {@link #update} to change its key.
+     */
+    public void push(int id, double key) {
+        if (id < 0)
+            throw new IllegalArgumentException("Illegal id: " + id + ", ids must not be negative");
+        if (id >= positions.length) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(id + 1, oldLength + (oldLength >> 1)));
+            Arrays.fill(positions, oldLength, positions.length, NOT_PRESENT);
+        } else if (positions[id] != NOT_PRESENT) {
+            throw new IllegalStateException("Element with id: " + id + " was pushed already, you need to use the update method if you want to change its value");
+        }
+        if (size == tree.length) {
+            tree = Arrays.copyOf(tree, size + (size >> 1));
+            keys = Arrays.copyOf(keys, tree.length);
+        }
+        percolateUp(size++, id, key);
+    }
+
+    /**
+     * @return true if the heap contains an element with the given id
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < positions.length && positions[id] != NOT_PRESENT;
+    }
+
+    /**
+     * Changes the key of the given id, which must be contained in the heap.
+     */
+    public void update(int id, double key) {
+        int index = getIndex(id);
+        if (key < keys[index])
+            percolateUp(index, id, key);
+        else
+            percolateDown(index, id, key);
+    }
+
+    /**
+     * Removes the given id, which must be contained in the heap.
+     */
+    public void remove(int id) {
+        int index = getIndex(id);
+        positions[id] = NOT_PRESENT;
+        size--;
+        if (index == size)
+            return;
+        // move the last element into the gap and restore the heap property in the direction it is violated
+        int lastId = tree[size];
+        double lastKey = keys[size];
+        if (lastKey < keys[index])
+            percolateUp(index, lastId, lastKey);
+        else
+            percolateDown(index, lastId, lastKey);
+    }
+
+    /**
+     * @return the id of the next element to be polled, i.e. the same as calling poll() without removing the element
+     */
+    public int peekId() {
+        checkNotEmpty();
+        return tree[0];
+    }
+
+    /**
+     * @return the key of the next element to be polled
+     */
+    public double peekKey() {
+        checkNotEmpty();
+        return keys[0];
+    }
+
+    /**
+     * Extracts the element with minimum key from the heap
+     */
+    public int poll() {
+        int id = peekId();
+        positions[id] = NOT_PRESENT;
+        size--;
+        if (size > 0)
+            percolateDown(0, tree[size], keys[size]);
+        return id;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            positions[tree[i]] = NOT_PRESENT;
+        size = 0;
+    }
+
+    private int getIndex(int id) {
+        if (!contains(id))
+            throw new IllegalStateException("The heap does not contain: " + id + ". Use the contains method to check this first");
+        return positions[id];
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0)
+            throw new IllegalStateException("The heap is empty");
+    }
+
+    private void percolateUp(int index, int id, double key) {
+        while (index > 0) {
+            int parent = (index - 1) >> 2;
+            if (keys[parent] <= key)
+                break;
+            move(parent, index);
+            index = parent;
+        }
+        set(index, id, key);
+    }
+
+    private void percolateDown(int index, int id, double key) {
+        while (true) {
+            int firstChild = (index << 2) + 1;
+            if (firstChild >= size)
+                break;
+            int lastChild = Math.min(firstChild + 4, size);
+            int minChild = firstChild;
+            for (int child = firstChild + 1; child < lastChild; child++)
+                if (keys[child] < keys[minChild])
+                    minChild = child;
+            if (keys[minChild] >= key)
+                break;
+            move(minChild, index);
+            index = minChild;
+        }
+        set(index, id, key);
+    }
+
+    private void move(int from, int to) {
+        tree[to] = tree[from];
+        keys[to] = keys[from];
+        positions[tree[to]] = to;
+    }
+
+    private void set(int index, int id, double key) {
+        tree[index] = id;
+        keys[index] = key;
+        positions[id] = index;
+    }
+}
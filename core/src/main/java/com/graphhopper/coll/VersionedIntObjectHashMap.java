@@ -0,0 +1,311 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.*;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.carrotsearch.hppc.predicates.IntObjectPredicate;
+import com.carrotsearch.hppc.predicates.IntPredicate;
+import com.carrotsearch.hppc.procedures.IntObjectProcedure;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An open addressing hash map from int to object that can be cleared in constant time: every slot stores the version
+ * it was written in and only slots of the current version are considered as used. Clearing the map just increments
+ * the version, which makes this map suitable to be reused for many searches that each only touch a small part of the
+ * map. The capacity of the map is never reduced, except by {@link #release()}.
+ * <p>
+ * Removing single entries is not supported.
+ */
+public class VersionedIntObjectHashMap<T> implements IntObjectMap<T> {
+    private static final double LOAD_FACTOR = 0.75;
+    private int[] keys;
+    private Object[] values;
+    private int[] versions;
+    // slots with version 0 are never used, so a new (or reset) versions array has no used slots
+    private int version = 1;
+    private int mask;
+    private int resizeAt;
+    private int size;
+
+    public VersionedIntObjectHashMap() {
+        this(16);
+    }
+
+    public VersionedIntObjectHashMap(int expectedElements) {
+        allocate(minCapacity(expectedElements));
+    }
+
+    private static int minCapacity(int expectedElements) {
+        if (expectedElements < 0)
+            throw new IllegalArgumentException("expectedElements must not be negative, but was: " + expectedElements);
+        long capacity = Math.max(4, (long) Math.ceil(expectedElements / LOAD_FACTOR));
+        if (capacity > 1 << 30)
+            throw new IllegalArgumentException("Too many elements: " + expectedElements);
+        return Integer.highestOneBit((int) capacity - 1) << 1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        versions = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        version = 1;
+        size = 0;
+    }
+
+    /**
+     * @return the number of slots, which is the memory this map currently occupies
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    @Override
+    public int indexOf(int key) {
+        int slot = BitMixer.mixPhi(key) & mask;
+        while (versions[slot] == version) {
+            if (keys[slot] == key)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return ~slot;
+    }
+
+    @Override
+    public boolean indexExists(int index) {
+        return index >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T indexGet(int index) {
+        return (T) values[index];
+    }
+
+    @Override
+    public T indexReplace(int index, T value) {
+        T previous = indexGet(index);
+        values[index] = value;
+        return previous;
+    }
+
+    @Override
+    public void indexInsert(int index, int key, T value) {
+        int slot = ~index;
+        if (size == resizeAt) {
+            grow();
+            slot = ~indexOf(key);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        versions[slot] = version;
+        size++;
+    }
+
+    @Override
+    public T get(int key) {
+        int index = indexOf(key);
+        return index >= 0 ? indexGet(index) : null;
+    }
+
+    @Override
+    public T getOrDefault(int key, T defaultValue) {
+        int index = indexOf(key);
+        return index >= 0 ? indexGet(index) : defaultValue;
+    }
+
+    @Override
+    public T put(int key, T value) {
+        int index = indexOf(key);
+        if (index >= 0)
+            return indexReplace(index, value);
+        indexInsert(index, key, value);
+        return null;
+    }
+
+    @Override
+    public int putAll(IntObjectAssociativeContainer<? extends T> container) {
+        return putAll((Iterable<? extends IntObjectCursor<? extends T>>) container);
+    }
+
+    @Override
+    public int putAll(Iterable<? extends IntObjectCursor<? extends T>> iterable) {
+        int count = size;
+        for (IntObjectCursor<? extends T> c : iterable)
+            put(c.key, c.value);
+        return size - count;
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries in constant time. The values are not dereferenced before the slots are used again, so they
+     * are not garbage collected until then.
+     */
+    @Override
+    public void clear() {
+        size = 0;
+        version++;
+        if (version == 0) {
+            // after an overflow old slots could be mistaken as used
+            Arrays.fill(versions, 0);
+            Arrays.fill(values, null);
+            version = 1;
+        }
+    }
+
+    /**
+     * Removes all entries and reduces the capacity to the default.
+     */
+    @Override
+    public void release() {
+        allocate(minCapacity(16));
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldVersions = versions;
+        int oldVersion = version;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldVersions[i] != oldVersion)
+                continue;
+            int slot = BitMixer.mixPhi(oldKeys[i]) & mask;
+            while (versions[slot] == version)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            versions[slot] = version;
+            size++;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <P extends IntObjectProcedure<? super T>> P forEach(P procedure) {
+        for (int i = 0; i < keys.length; i++)
+            if (versions[i] == version)
+                procedure.apply(keys[i], (T) values[i]);
+        return procedure;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <P extends IntObjectPredicate<? super T>> P forEach(P predicate) {
+        for (int i = 0; i < keys.length; i++)
+            if (versions[i] == version && !predicate.apply(keys[i], (T) values[i]))
+                break;
+        return predicate;
+    }
+
+    @Override
+    public Iterator<IntObjectCursor<T>> iterator() {
+        return new Iterator<IntObjectCursor<T>>() {
+            private final IntObjectCursor<T> cursor = new IntObjectCursor<>();
+            private int next = findNext(0);
+
+            private int findNext(int from) {
+                for (int i = from; i < keys.length; i++)
+                    if (versions[i] == version)
+                        return i;
+                return -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public IntObjectCursor<T> next() {
+                if (next < 0)
+                    throw new NoSuchElementException();
+                cursor.index = next;
+                cursor.key = keys[next];
+                cursor.value = indexGet(next);
+                next = findNext(next + 1);
+                return cursor;
+            }
+        };
+    }
+
+    @Override
+    public IntCollection keys() {
+        IntArrayList result = new IntArrayList(size);
+        forEach((IntObjectProcedure<T>) (key, value) -> result.add(key));
+        return result;
+    }
+
+    @Override
+    public ObjectContainer<T> values() {
+        ObjectArrayList<T> result = new ObjectArrayList<>(size);
+        forEach((IntObjectProcedure<T>) (key, value) -> result.add(value));
+        return result;
+    }
+
+    @Override
+    public T remove(int key) {
+        throw new UnsupportedOperationException("Removing entries is not supported");
+    }
+
+    @Override
+    public int removeAll(IntContainer container) {
+        throw new UnsupportedOperationException("Removing entries is not supported");
+    }
+
+    @Override
+    public int removeAll(IntPredicate predicate) {
+        throw new UnsupportedOperationException("Removing entries is not supported");
+    }
+
+    @Override
+    public int removeAll(IntObjectPredicate<? super T> predicate) {
+        throw new UnsupportedOperationException("Removing entries is not supported");
+    }
+
+    @Override
+    public String visualizeKeyDistribution(int characters) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        forEach((IntObjectProcedure<T>) (key, value) -> sb.append(sb.length() > 1 ? ", " : "").append(key).append("=>").append(value));
+        return sb.append("]").toString();
+    }
+}
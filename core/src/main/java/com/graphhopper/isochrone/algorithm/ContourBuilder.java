@@ -19,6 +19,7 @@ import org.locationtech.jts.geom.prep.PreparedPolygon;
 import org.locationtech.jts.triangulate.quadedge.Vertex;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  *
@@ -43,6 +44,15 @@ public class ContourBuilder {
     }
 
     public MultiPolygon computeIsoline(double z0, Collection<ReadableQuadEdge> seedEdges) {
+        return computeIsoline(z0, seedEdges, v -> true);
+    }
+
+    /**
+     * Like {@link #computeIsoline(double, Collection)}, but all vertices that are not accepted by the given filter are
+     * treated as if their z-value was above z0. This can be used to compute the isoline of a part of the vertices,
+     * like the ones reached from a certain start point, see {@link Triangulator#getOrigin(Vertex)}.
+     */
+    public MultiPolygon computeIsoline(double z0, Collection<ReadableQuadEdge> seedEdges, Predicate<Vertex> vertexFilter) {
         Set<ReadableQuadEdge> processed = new HashSet<>();
         List<LinearRing> rings = new ArrayList<>();
 
@@ -51,7 +61,7 @@ public class ContourBuilder {
             if (processed.contains(e))
                 continue;
             processed.add(e);
-            int cut = cut(e.orig().getZ(), e.dest().getZ(), z0);
+            int cut = cut(e.orig(), e.dest(), z0, vertexFilter);
             if (cut == 0) {
                 continue; // While, next edge
             }
@@ -72,8 +82,8 @@ public class ContourBuilder {
                 processed.add(e);
                 ReadableQuadEdge E1 = ccw ? e.oNext().getPrimary() : e.oPrev().getPrimary();
                 ReadableQuadEdge E2 = ccw ? e.dPrev().getPrimary() : e.dNext().getPrimary();
-                int cut1 = E1 == null ? 0 : cut(E1.orig().getZ(), E1.dest().getZ(), z0);
-                int cut2 = E2 == null ? 0 : cut(E2.orig().getZ(), E2.dest().getZ(), z0);
+                int cut1 = E1 == null ? 0 : cut(E1.orig(), E1.dest(), z0, vertexFilter);
+                int cut2 = E2 == null ? 0 : cut(E2.orig(), E2.dest(), z0, vertexFilter);
                 boolean ok1 = cut1 != 0 && !processed.contains(E1);
                 boolean ok2 = cut2 != 0 && !processed.contains(E2);
                 if (ok1) {
@@ -107,6 +117,10 @@ public class ContourBuilder {
         return new Coordinate(coordinate.x + EPSILON * (distantFrameCoordinate.x - coordinate.x), coordinate.y + EPSILON * (distantFrameCoordinate.y - coordinate.y));
     }
 
+    private int cut(Vertex a, Vertex b, double z0, Predicate<Vertex> vertexFilter) {
+        return cut(vertexFilter.test(a) ? a.getZ() : Double.MAX_VALUE, vertexFilter.test(b) ? b.getZ() : Double.MAX_VALUE, z0);
+    }
+
     private int cut(double za, double zb, double z0) {
         if (za <= z0 && zb > z0) return 1;
         if (za > z0 && zb <= z0) return -1;
@@ -0,0 +1,210 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.isochrone.algorithm;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.triangulate.ConstraintVertex;
+import org.locationtech.jts.triangulate.quadedge.Vertex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A regular grid of vertices where every cell is split into two triangles along its south-west to north-east
+ * diagonal. The edges are not stored, but derived from the vertex index and one of the six directions of the edges
+ * around a vertex, so walking along the isolines of the grid is like marching squares.
+ * <p>
+ * The vertices are identified by {@code row * width + column}. Vertices that were not reached have an infinite
+ * z-value, the vertices on the border of the grid form the frame and have a z-value of {@link Double#MAX_VALUE}.
+ */
+class GridTriangulation implements ReadableTriangulation {
+
+    // the directions of the edges around a vertex in counter-clockwise order: E, NE, N, W, SW, S
+    private static final int[] DX = {1, 1, 0, -1, -1, 0};
+    private static final int[] DY = {0, 1, 1, 0, -1, -1};
+
+    private final int width;
+    private final int height;
+    private final double minLon;
+    private final double minLat;
+    private final double cellLon;
+    private final double cellLat;
+    private final double[] z;
+    private final int[] origins;
+    private final Vertex[] vertices;
+
+    GridTriangulation(int width, int height, double minLon, double minLat, double cellLon, double cellLat, double[] z, int[] origins) {
+        this.width = width;
+        this.height = height;
+        this.minLon = minLon;
+        this.minLat = minLat;
+        this.cellLon = cellLon;
+        this.cellLat = cellLat;
+        this.z = z;
+        this.origins = origins;
+        this.vertices = new Vertex[width * height];
+    }
+
+    /**
+     * @return the edges around all reached vertices, the other edges cannot be crossed by an isoline
+     */
+    @Override
+    public Collection<ReadableQuadEdge> getEdges() {
+        List<ReadableQuadEdge> edges = new ArrayList<>();
+        for (int v = 0; v < z.length; v++) {
+            if (!isReached(v))
+                continue;
+            for (int dir = 0; dir < 6; dir++) {
+                int adj = getAdj(v, dir);
+                // the edges to reached vertices in the other directions are added by these vertices
+                if (adj >= 0 && (dir < 3 || !isReached(adj)))
+                    edges.add(new Edge(v, dir).getPrimary());
+            }
+        }
+        return edges;
+    }
+
+    @Override
+    public ReadableQuadEdge getEdge(int v1, int v2) {
+        for (int dir = 0; dir < 6; dir++)
+            if (getAdj(v1, dir) == v2)
+                return new Edge(v1, dir);
+        return null;
+    }
+
+    @Override
+    public ReadableQuadEdge getVertexQuadEdge(int v) {
+        for (int dir = 0; dir < 6; dir++)
+            if (getAdj(v, dir) >= 0)
+                return new Edge(v, dir);
+        return null;
+    }
+
+    private boolean isReached(int v) {
+        return z[v] < Double.MAX_VALUE;
+    }
+
+    /**
+     * @return the vertex next to v in the given direction or -1 if v is on the border of the grid
+     */
+    private int getAdj(int v, int dir) {
+        int x = v % width + DX[dir];
+        int y = v / width + DY[dir];
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return -1;
+        return y * width + x;
+    }
+
+    private Vertex getVertex(int v) {
+        Vertex vertex = vertices[v];
+        if (vertex == null) {
+            Coordinate coordinate = new Coordinate(minLon + (v % width) * cellLon, minLat + (v / width) * cellLat, z[v]);
+            ConstraintVertex constraintVertex = new ConstraintVertex(coordinate);
+            if (origins[v] >= 0)
+                constraintVertex.setConstraint(origins[v]);
+            vertex = vertices[v] = constraintVertex;
+        }
+        return vertex;
+    }
+
+    private class Edge implements ReadableQuadEdge {
+        private final int v;
+        private final int dir;
+
+        Edge(int v, int dir) {
+            this.v = v;
+            this.dir = dir;
+        }
+
+        private int adj() {
+            return getAdj(v, dir);
+        }
+
+        private Edge next(int step) {
+            // there is at least one other edge around every vertex as the grid has at least two rows and columns
+            for (int d = (dir + step + 6) % 6; ; d = (d + step + 6) % 6)
+                if (getAdj(v, d) >= 0)
+                    return new Edge(v, d);
+        }
+
+        @Override
+        public ReadableQuadEdge getPrimary() {
+            return dir < 3 ? this : sym();
+        }
+
+        @Override
+        public Vertex orig() {
+            return getVertex(v);
+        }
+
+        @Override
+        public Vertex dest() {
+            return getVertex(adj());
+        }
+
+        @Override
+        public Edge oNext() {
+            return next(1);
+        }
+
+        @Override
+        public Edge oPrev() {
+            return next(-1);
+        }
+
+        @Override
+        public ReadableQuadEdge dPrev() {
+            return sym().oPrev().sym();
+        }
+
+        @Override
+        public ReadableQuadEdge dNext() {
+            return sym().oNext().sym();
+        }
+
+        @Override
+        public ReadableQuadEdge lNext() {
+            return sym().oPrev();
+        }
+
+        @Override
+        public Edge sym() {
+            return new Edge(adj(), (dir + 3) % 6);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Edge that = (Edge) o;
+            return v == that.v && dir == that.dir;
+        }
+
+        @Override
+        public int hashCode() {
+            return 6 * v + dir;
+        }
+
+        @Override
+        public String toString() {
+            return v + "->" + adj();
+        }
+    }
+}
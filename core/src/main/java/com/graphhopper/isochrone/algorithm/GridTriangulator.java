@@ -0,0 +1,223 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PointList;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A fast alternative to the {@link JTSTriangulator} for coarse polygons. Instead of a Delaunay triangulation of all
+ * reached nodes it draws the edges of the shortest path tree onto a regular grid with the given resolution. Every grid
+ * vertex gets the smallest value of the nodes and edges close to it and the vertices next to the reached vertices get
+ * the value of their smallest neighbour, which closes the small gaps between the roads. The isolines are then traced
+ * through the cells of the grid, see {@link GridTriangulation}.
+ */
+public class GridTriangulator implements Triangulator {
+
+    // one cell for the neighbours of the reached vertices and one for the frame
+    private static final int MARGIN = 2;
+    private final double resolutionInMeter;
+    private final long maxGridSize;
+
+    /**
+     * @param resolutionInMeter the distance between two vertices of the grid
+     * @param maxGridSize       the maximum number of grid vertices, larger grids are rejected
+     */
+    public GridTriangulator(double resolutionInMeter, long maxGridSize) {
+        if (resolutionInMeter <= 0)
+            throw new IllegalArgumentException("resolution must be positive, but was: " + resolutionInMeter);
+        this.resolutionInMeter = resolutionInMeter;
+        this.maxGridSize = maxGridSize;
+    }
+
+    public double getResolution() {
+        return resolutionInMeter;
+    }
+
+    /**
+     * @return a triangulator with the same maximum grid size, but the given resolution
+     */
+    public GridTriangulator withResolution(double resolutionInMeter) {
+        return new GridTriangulator(resolutionInMeter, maxGridSize);
+    }
+
+    /**
+     * The tolerance is ignored, the precision of the polygons depends on the resolution of the grid.
+     */
+    @Override
+    public Result triangulate(List<Snap> snaps, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance) {
+        final NodeAccess na = queryGraph.getNodeAccess();
+        // the geometries of all edges of the tree, every line starts with the parent node and ends with the node
+        DoubleArrayList lats = new DoubleArrayList(), lons = new DoubleArrayList(), values = new DoubleArrayList();
+        IntArrayList origins = new IntArrayList(), lineStarts = new IntArrayList();
+        IntArrayList startNodes = new IntArrayList(snaps.size());
+        for (Snap snap : snaps)
+            startNodes.add(snap.getClosestNode());
+        shortestPathTree.search(startNodes, label -> {
+            double value = fz.applyAsDouble(label);
+            lineStarts.add(lats.size());
+            if (label.parent == null) {
+                addPoint(lats, lons, values, origins, na.getLat(label.node), na.getLon(label.node), value, label.origin);
+                return;
+            }
+            double parentValue = fz.applyAsDouble(label.parent);
+            EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edge, label.node);
+            PointList points = edge.fetchWayGeometry(FetchMode.ALL);
+            double length = 0;
+            for (int i = 1; i < points.size(); i++)
+                length += DistanceCalcEarth.DIST_EARTH.calcDist(points.getLat(i - 1), points.getLon(i - 1), points.getLat(i), points.getLon(i));
+            double distance = 0;
+            for (int i = 0; i < points.size(); i++) {
+                if (i > 0)
+                    distance += DistanceCalcEarth.DIST_EARTH.calcDist(points.getLat(i - 1), points.getLon(i - 1), points.getLat(i), points.getLon(i));
+                double factor = length > 0 ? distance / length : 1;
+                addPoint(lats, lons, values, origins, points.getLat(i), points.getLon(i), parentValue + factor * (value - parentValue), label.origin);
+            }
+        });
+        lineStarts.add(lats.size());
+
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = 0; i < lats.size(); i++) {
+            minLat = Math.min(minLat, lats.get(i));
+            maxLat = Math.max(maxLat, lats.get(i));
+            minLon = Math.min(minLon, lons.get(i));
+            maxLon = Math.max(maxLon, lons.get(i));
+        }
+        double cellLat = resolutionInMeter / DistanceCalcEarth.METERS_PER_DEGREE;
+        double cellLon = cellLat / Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        long width = (long) Math.ceil((maxLon - minLon) / cellLon) + 1 + 2 * MARGIN;
+        long height = (long) Math.ceil((maxLat - minLat) / cellLat) + 1 + 2 * MARGIN;
+        if (width * height > maxGridSize)
+            throw new IllegalArgumentException("The grid would be too large (" + width + "x" + height + "). Please try a larger grid resolution than " + resolutionInMeter + "m.");
+        Grid grid = new Grid((int) width, (int) height, minLon - MARGIN * cellLon, minLat - MARGIN * cellLat, cellLon, cellLat);
+        for (int line = 0; line < lineStarts.size() - 1; line++) {
+            int start = lineStarts.get(line), end = lineStarts.get(line + 1);
+            grid.set(lons.get(start), lats.get(start), values.get(start), origins.get(start));
+            for (int i = start + 1; i < end; i++)
+                grid.setSegment(lons.get(i - 1), lats.get(i - 1), values.get(i - 1), lons.get(i), lats.get(i), values.get(i), origins.get(i));
+        }
+        return grid.toResult();
+    }
+
+    private static void addPoint(DoubleArrayList lats, DoubleArrayList lons, DoubleArrayList values, IntArrayList origins,
+                                 double lat, double lon, double value, int origin) {
+        lats.add(lat);
+        lons.add(lon);
+        values.add(value);
+        origins.add(origin);
+    }
+
+    private static class Grid {
+        final int width, height;
+        final double minLon, minLat, cellLon, cellLat;
+        final double[] z;
+        final int[] origins;
+
+        Grid(int width, int height, double minLon, double minLat, double cellLon, double cellLat) {
+            this.width = width;
+            this.height = height;
+            this.minLon = minLon;
+            this.minLat = minLat;
+            this.cellLon = cellLon;
+            this.cellLat = cellLat;
+            this.z = new double[width * height];
+            this.origins = new int[width * height];
+            Arrays.fill(z, Double.POSITIVE_INFINITY);
+            Arrays.fill(origins, -1);
+        }
+
+        void set(double lon, double lat, double value, int origin) {
+            set((int) Math.round((lon - minLon) / cellLon), (int) Math.round((lat - minLat) / cellLat), value, origin);
+        }
+
+        void set(int x, int y, double value, int origin) {
+            int v = y * width + x;
+            if (value < z[v]) {
+                z[v] = value;
+                origins[v] = origin;
+            }
+        }
+
+        /**
+         * Sets the vertices along the given segment, including the end but not the start. Consecutive vertices share
+         * at least one edge, so the grid vertices of a road are always connected.
+         */
+        void setSegment(double lon1, double lat1, double value1, double lon2, double lat2, double value2, int origin) {
+            double x1 = (lon1 - minLon) / cellLon, y1 = (lat1 - minLat) / cellLat;
+            double x2 = (lon2 - minLon) / cellLon, y2 = (lat2 - minLat) / cellLat;
+            int steps = (int) Math.ceil(2 * Math.max(Math.abs(x2 - x1), Math.abs(y2 - y1)));
+            int prevX = (int) Math.round(x1), prevY = (int) Math.round(y1);
+            for (int i = 1; i <= steps; i++) {
+                double factor = (double) i / steps;
+                int x = (int) Math.round(x1 + factor * (x2 - x1));
+                int y = (int) Math.round(y1 + factor * (y2 - y1));
+                double value = value1 + factor * (value2 - value1);
+                // there is no edge between the diagonal neighbours in north-west and south-east direction
+                if (x != prevX && y != prevY && (x - prevX) != (y - prevY))
+                    set(x, prevY, value, origin);
+                set(x, y, value, origin);
+                prevX = x;
+                prevY = y;
+            }
+        }
+
+        Result toResult() {
+            // every vertex next to a reached vertex gets the smallest value of its neighbours
+            double[] dilated = z.clone();
+            int[] dilatedOrigins = origins.clone();
+            for (int y = 1; y < height - 1; y++) {
+                for (int x = 1; x < width - 1; x++) {
+                    int v = y * width + x;
+                    if (z[v] != Double.POSITIVE_INFINITY)
+                        continue;
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dx = -1; dx <= 1; dx++) {
+                            int adj = v + dy * width + dx;
+                            if (z[adj] < dilated[v]) {
+                                dilated[v] = z[adj];
+                                dilatedOrigins[v] = origins[adj];
+                            }
+                        }
+                    }
+                }
+            }
+            for (int x = 0; x < width; x++) {
+                dilated[x] = Double.MAX_VALUE;
+                dilated[(height - 1) * width + x] = Double.MAX_VALUE;
+            }
+            for (int y = 0; y < height; y++) {
+                dilated[y * width] = Double.MAX_VALUE;
+                dilated[y * width + width - 1] = Double.MAX_VALUE;
+            }
+            GridTriangulation triangulation = new GridTriangulation(width, height, minLon, minLat, cellLon, cellLat, dilated, dilatedOrigins);
+            return new Result(triangulation, triangulation.getEdges());
+        }
+    }
+}
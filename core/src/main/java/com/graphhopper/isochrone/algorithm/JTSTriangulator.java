@@ -18,6 +18,7 @@
 
 package com.graphhopper.isochrone.algorithm;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.RouterConfig;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.storage.NodeAccess;
@@ -35,8 +36,8 @@ import org.locationtech.jts.triangulate.quadedge.Vertex;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.function.ToDoubleFunction;
-import java.util.stream.Collectors;
 
 public class JTSTriangulator implements Triangulator {
 
@@ -46,16 +47,19 @@ public class JTSTriangulator implements Triangulator {
         this.routerConfig = routerConfig;
     }
 
-    public Result triangulate(Snap snap, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance) {
+    public Result triangulate(List<Snap> snaps, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance) {
         final NodeAccess na = queryGraph.getNodeAccess();
-        Collection<Coordinate> sites = new ArrayList<>();
-        shortestPathTree.search(snap.getClosestNode(), label -> {
+        Collection<ConstraintVertex> sites = new ArrayList<>();
+        IntArrayList startNodes = new IntArrayList(snaps.size());
+        for (Snap snap : snaps)
+            startNodes.add(snap.getClosestNode());
+        shortestPathTree.search(startNodes, label -> {
             double exploreValue = fz.applyAsDouble(label);
             double lat = na.getLat(label.node);
             double lon = na.getLon(label.node);
             Coordinate site = new Coordinate(lon, lat);
             site.z = exploreValue;
-            sites.add(site);
+            sites.add(createVertex(site, label.origin));
 
             // add a pillar node to increase precision a bit for longer roads
             if (label.parent != null) {
@@ -67,7 +71,7 @@ public class JTSTriangulator implements Triangulator {
                     double lon2 = innerPoints.getLon(midIndex);
                     Coordinate site2 = new Coordinate(lon2, lat2);
                     site2.z = exploreValue;
-                    sites.add(site2);
+                    sites.add(createVertex(site2, label.origin));
                 }
             }
         });
@@ -80,8 +84,7 @@ public class JTSTriangulator implements Triangulator {
         // But that's okay, the triangulator de-dupes by itself, and it keeps the first z-value it sees, which is
         // what we want.
 
-        Collection<ConstraintVertex> constraintVertices = sites.stream().map(ConstraintVertex::new).collect(Collectors.toList());
-        ConformingDelaunayTriangulator conformingDelaunayTriangulator = new ConformingDelaunayTriangulator(constraintVertices, tolerance);
+        ConformingDelaunayTriangulator conformingDelaunayTriangulator = new ConformingDelaunayTriangulator(sites, tolerance);
         conformingDelaunayTriangulator.setConstraints(new ArrayList<>(), new ArrayList<>());
         conformingDelaunayTriangulator.formInitialDelaunay();
         conformingDelaunayTriangulator.enforceConstraints();
@@ -111,4 +114,10 @@ public class JTSTriangulator implements Triangulator {
         ReadableTriangulation triangulation = ReadableTriangulation.wrap(tin);
         return new Result(triangulation, triangulation.getEdges());
     }
+
+    private static ConstraintVertex createVertex(Coordinate site, int origin) {
+        ConstraintVertex vertex = new ConstraintVertex(site);
+        vertex.setConstraint(origin);
+        return vertex;
+    }
 }
@@ -17,9 +17,10 @@
  */
 package com.graphhopper.isochrone.algorithm;
 
-import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.*;
 import com.carrotsearch.hppc.cursors.ObjectCursor;
 import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.coll.QuaternaryMinHeap;
 import com.graphhopper.routing.AbstractRoutingAlgorithm;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.util.TraversalMode;
@@ -32,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.PriorityQueue;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.*;
 import static java.util.Comparator.comparingDouble;
@@ -45,6 +47,8 @@ import static java.util.Comparator.comparingDouble;
  * a deleted flag, not remove()ing them, and popping deleted elements off both queues.
  * Note to self/others: If you think this optimization is not needed, please test it with a scenario
  * where updates actually occur a lot, such as using finite, non-zero u-turn costs.
+ * Alternatively a {@link QuaternaryMinHeap} can be used, which supports updates, so the labels are updated in place
+ * and no deleted labels are kept in the queue, see {@link #setQuaternaryHeap(boolean)}.
  *
  * @author Peter Karich
  * @author Michael Zilske
@@ -71,6 +75,10 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
         public long time;
         public double distance;
         public IsoLabel parent;
+        // the index of the start node this label was reached from, see search(IntIndexedContainer, Consumer)
+        public int origin;
+        // the id of this label in the quaternary heap
+        int heapId = -1;
 
         @Override
         public String toString() {
@@ -80,16 +88,27 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
                     ", weight=" + weight +
                     ", time=" + time +
                     ", distance=" + distance +
+                    ", origin=" + origin +
                     '}';
         }
     }
 
     private final IntObjectHashMap<IsoLabel> fromMap;
     private final PriorityQueue<IsoLabel> queueByWeighting;
+    private QuaternaryMinHeap heap;
+    private ObjectArrayList<IsoLabel> heapLabels;
     private int visitedNodes;
     private double limit = -1;
     private ExploreType exploreType = TIME;
     private final boolean reverseFlow;
+    // the labels of searchLabelIds are stored in these lists instead of IsoLabel objects, the index is the label id
+    private IntArrayList labelNodes;
+    private IntArrayList labelEdges;
+    private IntArrayList labelParents;
+    private IntArrayList labelOrigins;
+    private DoubleArrayList labelWeights;
+    private LongArrayList labelTimes;
+    private DoubleArrayList labelDistances;
 
     public ShortestPathTree(Graph g, Weighting weighting, boolean reverseFlow, TraversalMode traversalMode) {
         super(g, weighting, traversalMode);
@@ -124,15 +143,47 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
         this.limit = limit;
     }
 
+    /**
+     * Uses a {@link QuaternaryMinHeap} instead of a java.util.PriorityQueue for the labels that are not settled yet.
+     * This must be called before the search starts.
+     */
+    public ShortestPathTree setQuaternaryHeap(boolean enabled) {
+        if (!finished())
+            throw new IllegalStateException("The queue must be chosen before the search starts");
+        heap = enabled ? new QuaternaryMinHeap(1000) : null;
+        heapLabels = enabled ? new ObjectArrayList<>(1000) : null;
+        return this;
+    }
+
     public void search(int from, final Consumer<IsoLabel> consumer) {
+        search(IntArrayList.from(from), consumer);
+    }
+
+    /**
+     * Explores the graph from all the given nodes at once, so every node is reached from the start node it is
+     * closest to. The origin of every label is the index of this start node, so the labels partition the graph into
+     * the service areas of the start nodes (like a Voronoi diagram, but for the travel time, distance or weight). If
+     * a node is given twice only its first index is used.
+     */
+    public void search(IntIndexedContainer from, final Consumer<IsoLabel> consumer) {
         checkAlreadyRun();
-        IsoLabel currentLabel = new IsoLabel(from, -1, 0, 0, 0, null);
-        queueByWeighting.add(currentLabel);
-        if (traversalMode == TraversalMode.NODE_BASED) {
-            fromMap.put(from, currentLabel);
+        if (from.isEmpty())
+            throw new IllegalArgumentException("At least one start node is required");
+        IntHashSet startNodes = new IntHashSet(from.size());
+        for (int i = 0; i < from.size(); i++) {
+            int node = from.get(i);
+            if (!startNodes.add(node))
+                continue;
+            IsoLabel startLabel = new IsoLabel(node, -1, 0, 0, 0, null);
+            startLabel.origin = i;
+            add(startLabel);
+            if (traversalMode == TraversalMode.NODE_BASED) {
+                fromMap.put(node, startLabel);
+            }
         }
+        IsoLabel currentLabel;
         while (!finished()) {
-            currentLabel = queueByWeighting.poll();
+            currentLabel = poll();
             if (currentLabel.deleted)
                 continue;
             consumer.accept(currentLabel);
@@ -155,22 +206,190 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
                 IsoLabel label = fromMap.get(nextTraversalId);
                 if (label == null) {
                     label = new IsoLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
+                    label.origin = currentLabel.origin;
                     fromMap.put(nextTraversalId, label);
                     if (getExploreValue(label) <= limit) {
-                        queueByWeighting.add(label);
+                        add(label);
+                    }
+                } else if (label.weight > nextWeight && heap != null) {
+                    label.edge = iter.getEdge();
+                    label.weight = nextWeight;
+                    label.time = nextTime;
+                    label.distance = nextDistance;
+                    label.parent = currentLabel;
+                    label.origin = currentLabel.origin;
+                    boolean queued = heap.contains(label.heapId);
+                    if (getExploreValue(label) <= limit) {
+                        if (queued)
+                            heap.update(label.heapId, nextWeight);
+                        else
+                            add(label);
+                    } else if (queued) {
+                        heap.remove(label.heapId);
                     }
                 } else if (label.weight > nextWeight) {
                     label.deleted = true;
                     label = new IsoLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
+                    label.origin = currentLabel.origin;
                     fromMap.put(nextTraversalId, label);
                     if (getExploreValue(label) <= limit) {
-                        queueByWeighting.add(label);
+                        add(label);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Like {@link #search(IntIndexedContainer, Consumer)}, but the labels are not created as {@link IsoLabel} objects.
+     * Instead they are stored in primitive arrays and only their ids are passed to the consumer, which can then read
+     * them with {@link #getNode(int)}, {@link #getParent(int)} etc. This needs a lot less memory and creates no
+     * garbage per label, which is useful if the labels are only written somewhere, like for the /spt endpoint.
+     * {@link #getIsochroneEdges()} cannot be used after this search.
+     */
+    public void searchLabelIds(IntIndexedContainer from, final IntConsumer consumer) {
+        checkAlreadyRun();
+        if (from.isEmpty())
+            throw new IllegalArgumentException("At least one start node is required");
+        labelNodes = new IntArrayList(1000);
+        labelEdges = new IntArrayList(1000);
+        labelParents = new IntArrayList(1000);
+        labelOrigins = new IntArrayList(1000);
+        labelWeights = new DoubleArrayList(1000);
+        labelTimes = new LongArrayList(1000);
+        labelDistances = new DoubleArrayList(1000);
+        // maps the traversal ids to the label ids
+        IntIntHashMap labelIds = new IntIntHashMap(1000);
+        QuaternaryMinHeap queue = new QuaternaryMinHeap(1000);
+        IntHashSet startNodes = new IntHashSet(from.size());
+        for (int i = 0; i < from.size(); i++) {
+            int node = from.get(i);
+            if (!startNodes.add(node))
+                continue;
+            int id = addLabel(node, -1, 0, 0, 0, -1, i);
+            if (traversalMode == TraversalMode.NODE_BASED)
+                labelIds.put(node, id);
+            queue.push(id, 0);
+        }
+        while (!queue.isEmpty()) {
+            int id = queue.poll();
+            consumer.accept(id);
+            visitedNodes++;
+
+            int edge = labelEdges.get(id);
+            double weight = labelWeights.get(id);
+            long time = labelTimes.get(id);
+            double distance = labelDistances.get(id);
+            int origin = labelOrigins.get(id);
+            EdgeIterator iter = edgeExplorer.setBaseNode(labelNodes.get(id));
+            while (iter.next()) {
+                if (!accept(iter, edge))
+                    continue;
+
+                double nextWeight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, reverseFlow, edge) + weight;
+                if (Double.isInfinite(nextWeight))
+                    continue;
+
+                double nextDistance = iter.getDistance() + distance;
+                long nextTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, edge) + time;
+                int nextTraversalId = traversalMode.createTraversalId(iter, reverseFlow);
+                int index = labelIds.indexOf(nextTraversalId);
+                if (!labelIds.indexExists(index)) {
+                    int nextId = addLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, id, origin);
+                    labelIds.indexInsert(index, nextTraversalId, nextId);
+                    if (getExploreValue(nextWeight, nextTime, nextDistance) <= limit)
+                        queue.push(nextId, nextWeight);
+                } else {
+                    int nextId = labelIds.indexGet(index);
+                    if (labelWeights.get(nextId) <= nextWeight)
+                        continue;
+                    labelEdges.set(nextId, iter.getEdge());
+                    labelParents.set(nextId, id);
+                    labelOrigins.set(nextId, origin);
+                    labelWeights.set(nextId, nextWeight);
+                    labelTimes.set(nextId, nextTime);
+                    labelDistances.set(nextId, nextDistance);
+                    boolean queued = queue.contains(nextId);
+                    if (getExploreValue(nextWeight, nextTime, nextDistance) <= limit) {
+                        if (queued)
+                            queue.update(nextId, nextWeight);
+                        else
+                            queue.push(nextId, nextWeight);
+                    } else if (queued) {
+                        queue.remove(nextId);
                     }
                 }
             }
         }
     }
 
+    private int addLabel(int node, int edge, double weight, long time, double distance, int parent, int origin) {
+        labelNodes.add(node);
+        labelEdges.add(edge);
+        labelParents.add(parent);
+        labelOrigins.add(origin);
+        labelWeights.add(weight);
+        labelTimes.add(time);
+        labelDistances.add(distance);
+        return labelNodes.size() - 1;
+    }
+
+    /**
+     * @return the node of the given label of {@link #searchLabelIds(IntIndexedContainer, IntConsumer)}
+     */
+    public int getNode(int labelId) {
+        return labelNodes.get(labelId);
+    }
+
+    /**
+     * @return the edge the given label was reached with or -1 for the labels of the start nodes
+     */
+    public int getEdge(int labelId) {
+        return labelEdges.get(labelId);
+    }
+
+    /**
+     * @return the id of the label the given label was reached from or -1 for the labels of the start nodes
+     */
+    public int getParent(int labelId) {
+        return labelParents.get(labelId);
+    }
+
+    /**
+     * @return the index of the start node the given label was reached from
+     */
+    public int getOrigin(int labelId) {
+        return labelOrigins.get(labelId);
+    }
+
+    public double getWeight(int labelId) {
+        return labelWeights.get(labelId);
+    }
+
+    public long getTime(int labelId) {
+        return labelTimes.get(labelId);
+    }
+
+    public double getDistance(int labelId) {
+        return labelDistances.get(labelId);
+    }
+
+    private void add(IsoLabel label) {
+        if (heap == null) {
+            queueByWeighting.add(label);
+            return;
+        }
+        if (label.heapId < 0) {
+            label.heapId = heapLabels.size();
+            heapLabels.add(label);
+        }
+        heap.push(label.heapId, label.weight);
+    }
+
+    private IsoLabel poll() {
+        return heap == null ? queueByWeighting.poll() : heapLabels.get(heap.poll());
+    }
+
     public Collection<IsoLabel> getIsochroneEdges() {
         // assert alreadyRun
         ArrayList<IsoLabel> result = new ArrayList<>();
@@ -184,16 +403,20 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
     }
 
     private double getExploreValue(IsoLabel label) {
+        return getExploreValue(label.weight, label.time, label.distance);
+    }
+
+    private double getExploreValue(double weight, long time, double distance) {
         if (exploreType == TIME)
-            return label.time;
+            return time;
         if (exploreType == WEIGHT)
-            return label.weight;
-        return label.distance;
+            return weight;
+        return distance;
     }
 
     @Override
     protected boolean finished() {
-        return queueByWeighting.isEmpty();
+        return heap == null ? queueByWeighting.isEmpty() : heap.isEmpty();
     }
 
     @Override
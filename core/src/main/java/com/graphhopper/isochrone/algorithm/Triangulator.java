@@ -20,8 +20,12 @@ package com.graphhopper.isochrone.algorithm;
 
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.storage.index.Snap;
+import org.locationtech.jts.triangulate.ConstraintVertex;
+import org.locationtech.jts.triangulate.quadedge.Vertex;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.ToDoubleFunction;
 
 public interface Triangulator {
@@ -38,6 +42,25 @@ public interface Triangulator {
 
     }
 
-    Result triangulate(Snap snap, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance);
+    default Result triangulate(Snap snap, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance) {
+        return triangulate(Collections.singletonList(snap), queryGraph, shortestPathTree, fz, tolerance);
+    }
+
+    /**
+     * Runs the shortest path tree search from all the given snaps at once and triangulates the reached nodes. The
+     * vertices created for the reached nodes are {@link ConstraintVertex}es with the origin of their label as
+     * constraint, see {@link #getOrigin(Vertex)}.
+     */
+    Result triangulate(List<Snap> snaps, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance);
+
+    /**
+     * @return the index of the snap the node of the given vertex was reached from or -1 if the vertex does not
+     * belong to a node, e.g. for the frame of the triangulation
+     */
+    static int getOrigin(Vertex vertex) {
+        if (vertex instanceof ConstraintVertex && ((ConstraintVertex) vertex).getConstraint() instanceof Integer)
+            return (Integer) ((ConstraintVertex) vertex).getConstraint();
+        return -1;
+    }
 
 }
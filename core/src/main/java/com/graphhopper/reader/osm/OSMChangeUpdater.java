@@ -0,0 +1,257 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.coll.GHLongObjectHashMap;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.EncodedValue;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.OSMWayID;
+import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Applies an OSM change file (.osc) to an existing graph without importing it again. Only the attributes of the edges
+ * are updated: for every modified way the tags are parsed again and the flags of its edges, i.e. the access, speed and
+ * all other encoded values, are overwritten. The edges of deleted ways become inaccessible. Everything that changes the
+ * geometry or the topology of the graph, like created ways, changed nodes or changed node lists of ways, cannot be
+ * applied this way and requires a new import. Such elements are skipped and only counted, see
+ * {@link #getIgnoredElements()}.
+ * <p>
+ * The edges of a way are found via the {@link OSMWayID} encoded value, so the graph must have been imported with
+ * osm_way_id in graph.encoded_values. The hash of the node ids that is stored with the way id tells if the node list
+ * of a modified way changed. Route relations are not contained in change files and therefore the relation flags of
+ * modified ways are empty. Barriers and the subnetworks that were removed during the import are kept.
+ * <p>
+ * The CH and LM preparations of the graph are not updated here, see GraphHopper.applyChanges.
+ */
+public class OSMChangeUpdater {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OSMChangeUpdater.class);
+    private final GraphHopperStorage graph;
+    private final EncodingManager encodingManager;
+    private final IntEncodedValue osmWayIdEnc;
+    private final IntEncodedValue osmWayNodesEnc;
+    private final BooleanEncodedValue barrierEnc;
+    private final List<BooleanEncodedValue> keptEncodedValues = new ArrayList<>();
+    private final GHIntObjectHashMap<IntsRef> changedEdges = new GHIntObjectHashMap<>();
+    private int updatedWays;
+    private int ignoredElements;
+
+    public OSMChangeUpdater(GraphHopperStorage graph) {
+        this.graph = graph;
+        this.encodingManager = graph.getEncodingManager();
+        if (!encodingManager.hasEncodedValue(OSMWayID.KEY))
+            throw new IllegalArgumentException("Applying OSM change files requires " + OSMWayID.KEY + " in graph.encoded_values");
+        this.osmWayIdEnc = encodingManager.getIntEncodedValue(OSMWayID.KEY);
+        if (!encodingManager.hasEncodedValue(OSMWayID.NODES_KEY) || !encodingManager.hasEncodedValue(OSMWayID.BARRIER_KEY))
+            throw new IllegalArgumentException("The graph was imported with an older version of " + OSMWayID.KEY + ", import it again");
+        this.osmWayNodesEnc = encodingManager.getIntEncodedValue(OSMWayID.NODES_KEY);
+        this.barrierEnc = encodingManager.getBooleanEncodedValue(OSMWayID.BARRIER_KEY);
+        for (EncodedValue ev : encodingManager.getEncodedValues())
+            if (ev.getName().endsWith(Subnetwork.key("")))
+                keptEncodedValues.add((BooleanEncodedValue) ev);
+    }
+
+    /**
+     * Reads the given change file, which can also be gzipped, and updates the edges of all modified and deleted ways.
+     */
+    public OSMChangeUpdater apply(File changeFile) {
+        List<ReaderWay> modifiedWays = new ArrayList<>();
+        List<ReaderWay> deletedWays = new ArrayList<>();
+        try (InputStream in = openInputStream(changeFile)) {
+            XMLStreamReader parser = XMLInputFactory.newInstance().createXMLStreamReader(in, "UTF-8");
+            if (parser.nextTag() != XMLStreamConstants.START_ELEMENT || !parser.getLocalName().equals("osmChange"))
+                throw new IllegalArgumentException("File is not an OSM change file: " + changeFile);
+            String action = null;
+            for (int event = parser.next(); event != XMLStreamConstants.END_DOCUMENT; event = parser.next()) {
+                if (event != XMLStreamConstants.START_ELEMENT)
+                    continue;
+                String name = parser.getLocalName();
+                if (name.equals("create") || name.equals("modify") || name.equals("delete")) {
+                    action = name;
+                } else if (name.equals("way") && !"create".equals(action)) {
+                    ReaderWay way = OSMXMLHelper.createWay(Long.parseLong(parser.getAttributeValue(null, "id")), parser);
+                    ("modify".equals(action) ? modifiedWays : deletedWays).add(way);
+                } else if (name.equals("node") || name.equals("way") || name.equals("relation")) {
+                    ignoredElements++;
+                }
+            }
+            parser.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read OSM change file " + changeFile, ex);
+        } catch (XMLStreamException ex) {
+            throw new IllegalArgumentException("Cannot parse OSM change file " + changeFile, ex);
+        }
+
+        GHLongObjectHashMap<IntArrayList> edgesByWay = new GHLongObjectHashMap<>(modifiedWays.size() + deletedWays.size());
+        for (ReaderWay way : modifiedWays)
+            edgesByWay.put(way.getId(), new IntArrayList(2));
+        for (ReaderWay way : deletedWays)
+            edgesByWay.put(way.getId(), new IntArrayList(2));
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            IntArrayList edges = edgesByWay.get(iter.get(osmWayIdEnc));
+            if (edges != null)
+                edges.add(iter.getEdge());
+        }
+
+        for (ReaderWay way : modifiedWays)
+            updateWay(way, edgesByWay.get(way.getId()), false);
+        for (ReaderWay way : deletedWays)
+            updateWay(way, edgesByWay.get(way.getId()), true);
+        LOGGER.info("Updated " + updatedWays + " ways with " + changedEdges.size() + " edges from " + changeFile
+                + ", ignored " + ignoredElements + " elements");
+        return this;
+    }
+
+    private void updateWay(ReaderWay way, IntArrayList edges, boolean delete) {
+        if (edges.isEmpty()) {
+            // e.g. a way that was not routable before and needs a new import
+            ignoredElements++;
+            return;
+        }
+        if (!delete && !hasSameNodes(way, edges)) {
+            // the edges of a split, shortened or rerouted way no longer match its new node list
+            ignoredElements++;
+            return;
+        }
+        IntsRef wayFlags = delete ? null : createEdgeFlags(way, edges);
+        for (int i = 0; i < edges.size(); i++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(edges.get(i), Integer.MIN_VALUE);
+            IntsRef oldFlags = IntsRef.deepCopyOf(edge.getFlags());
+            IntsRef flags = wayFlags == null ? encodingManager.createEdgeFlags() : IntsRef.deepCopyOf(wayFlags);
+            osmWayIdEnc.setInt(false, flags, (int) way.getId());
+            osmWayNodesEnc.setInt(false, flags, osmWayNodesEnc.getInt(false, oldFlags));
+            for (BooleanEncodedValue ev : keptEncodedValues)
+                ev.setBool(false, flags, ev.getBool(false, oldFlags));
+            if (barrierEnc.getBool(false, oldFlags)) {
+                barrierEnc.setBool(false, flags, true);
+                keepBarrier(oldFlags, flags);
+            }
+            edge.setFlags(flags);
+            if (wayFlags != null)
+                encodingManager.applyWayTags(way, edge);
+            if (!edge.getFlags().equals(oldFlags) && !changedEdges.containsKey(edge.getEdge()))
+                changedEdges.put(edge.getEdge(), oldFlags);
+        }
+        updatedWays++;
+    }
+
+    private boolean hasSameNodes(ReaderWay way, IntArrayList edges) {
+        int hash = OSMWayID.hashNodes(way.getNodes());
+        for (int i = 0; i < edges.size(); i++)
+            if (graph.getEdgeIteratorState(edges.get(i), Integer.MIN_VALUE).get(osmWayNodesEnc) != hash)
+                return false;
+        return true;
+    }
+
+    /**
+     * @return the new flags of the way or empty flags if the way is no longer accepted by any encoder
+     */
+    private IntsRef createEdgeFlags(ReaderWay way, IntArrayList edges) {
+        // the artificial tags that OSMReader derives from the coordinates of the first and last node are estimated
+        // from the edges here, because change files only contain the coordinates of changed nodes
+        NodeAccess nodeAccess = graph.getNodeAccess();
+        double distance = 0, minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = 0; i < edges.size(); i++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(edges.get(i), Integer.MIN_VALUE);
+            distance += edge.getDistance();
+            for (int node : new int[]{edge.getBaseNode(), edge.getAdjNode()}) {
+                minLat = Math.min(minLat, nodeAccess.getLat(node));
+                minLon = Math.min(minLon, nodeAccess.getLon(node));
+                maxLat = Math.max(maxLat, nodeAccess.getLat(node));
+                maxLon = Math.max(maxLon, nodeAccess.getLon(node));
+            }
+        }
+        way.setTag("estimated_distance", distance);
+        way.setTag("estimated_center", new GHPoint((minLat + maxLat) / 2, (minLon + maxLon) / 2));
+        if (way.getTag("duration") != null) {
+            try {
+                way.setTag("duration:seconds", Long.toString(OSMReaderUtility.parseDuration(way.getTag("duration"))));
+            } catch (Exception ex) {
+                LOGGER.warn("Parsing error in way with OSMID=" + way.getId() + " : " + ex.getMessage());
+            }
+        }
+
+        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
+        if (!encodingManager.acceptWay(way, acceptWay))
+            return null;
+        return encodingManager.handleWayTags(way, acceptWay, encodingManager.createRelationFlags());
+    }
+
+    /**
+     * The edges that OSMReader creates for barriers are blocked for some encoders, which must stay so
+     */
+    private void keepBarrier(IntsRef oldFlags, IntsRef flags) {
+        for (FlagEncoder encoder : encodingManager.fetchEdgeEncoders()) {
+            BooleanEncodedValue accessEnc = encoder.getAccessEnc();
+            if (!accessEnc.getBool(false, oldFlags) && !accessEnc.getBool(true, oldFlags)) {
+                accessEnc.setBool(false, flags, false);
+                accessEnc.setBool(true, flags, false);
+            }
+        }
+    }
+
+    private static InputStream openInputStream(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+        return file.getName().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    /**
+     * @return the ids of the edges whose flags changed, mapped to their flags before the update
+     */
+    public IntObjectMap<IntsRef> getChangedEdges() {
+        return changedEdges;
+    }
+
+    /**
+     * @return the number of ways whose edges were updated
+     */
+    public int getUpdatedWays() {
+        return updatedWays;
+    }
+
+    /**
+     * @return the number of created or changed elements that cannot be applied without a new import
+     */
+    public int getIgnoredElements() {
+        return ignoredElements;
+    }
+}
@@ -25,6 +25,7 @@ import com.graphhopper.reader.dem.EdgeSampling;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.reader.dem.GraphElevationSmoothing;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.OSMWayID;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.parsers.TurnCostParser;
 import com.graphhopper.storage.*;
@@ -37,6 +38,10 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -83,7 +88,14 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
     protected PillarInfo pillarInfo;
     private long locations;
     private final EncodingManager encodingManager;
+    // marks the edges created for barriers, if the graph stores the OSM way ids
+    private final BooleanEncodedValue barrierEnc;
     private int workerThreads = 2;
+    private static final int WAY_BATCH_SIZE = 1000;
+    private int wayThreads = 1;
+    private ExecutorService wayExecutor;
+    private List<ReaderWay> wayBatch;
+    private final Deque<Map.Entry<List<ReaderWay>, Future<IntsRef[]>>> pendingWayBatches = new ArrayDeque<>();
     // Choosing the best Map<Long, Integer> is hard. We need a memory efficient and fast solution for big data sets!
     //
     // very slow: new SparseLongLongArray
@@ -115,6 +127,7 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         this.graph = ghStorage;
         this.nodeAccess = graph.getNodeAccess();
         this.encodingManager = ghStorage.getEncodingManager();
+        this.barrierEnc = encodingManager.hasEncodedValue(OSMWayID.BARRIER_KEY) ? encodingManager.getBooleanEncodedValue(OSMWayID.BARRIER_KEY) : null;
 
         osmNodeIdToInternalNodeMap = new GHLongIntBTree(200);
         osmNodeIdToNodeFlagsMap = new GHLongLongHashMap(200, .5f);
@@ -250,6 +263,10 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
+        if (wayThreads > 1) {
+            wayExecutor = Executors.newFixedThreadPool(wayThreads);
+            wayBatch = new ArrayList<>(WAY_BATCH_SIZE);
+        }
         try (OSMInput in = openOsmInputFile(osmFile)) {
             LongIntMap nodeFilter = getNodeMap();
 
@@ -258,6 +275,8 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
                 switch (item.getType()) {
                     case ReaderElement.NODE:
                         if (nodeFilter.get(item.getId()) != EMPTY_NODE) {
+                            if (wayStart >= 0)
+                                finishWays();
                             processNode((ReaderNode) item);
                         }
                         break;
@@ -267,12 +286,13 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
                             LOGGER.info(nf(counter) + ", now parsing ways");
                             wayStart = counter;
                         }
-                        processWay((ReaderWay) item);
+                        processWayInBatch((ReaderWay) item);
                         break;
                     case ReaderElement.RELATION:
                         if (relationStart < 0) {
                             LOGGER.info(nf(counter) + ", now parsing relations");
                             relationStart = counter;
+                            finishWays();
                         }
                         processRelation((ReaderRelation) item);
                         break;
@@ -286,12 +306,19 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
                 }
             }
 
+            finishWays();
             if (in.getUnprocessedElements() > 0)
                 throw new IllegalStateException("Still unprocessed elements in reader queue " + in.getUnprocessedElements());
 
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't process file " + osmFile + ", error: " + ex.getMessage(), ex);
+        } finally {
+            if (wayExecutor != null) {
+                wayExecutor.shutdownNow();
+                wayExecutor = null;
+                pendingWayBatches.clear();
+            }
         }
 
         finishedReading();
@@ -307,20 +334,86 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
      * Process properties, encode flags and create edges for the way.
      */
     protected void processWay(ReaderWay way) {
-        if (way.getNodes().size() < 2)
+        if (!prepareWay(way))
             return;
+        IntsRef edgeFlags = createEdgeFlags(way);
+        if (edgeFlags != null)
+            addWay(way, edgeFlags);
+    }
 
-        // ignore multipolygon geometry
-        if (!way.hasTags())
+    /**
+     * Adds the way to the batch that is processed by the way workers or processes it directly if there is only one
+     * way thread. The ways are always added to the graph in the order they were read.
+     */
+    private void processWayInBatch(ReaderWay way) {
+        if (wayExecutor == null) {
+            processWay(way);
             return;
+        }
+        if (!prepareWay(way))
+            return;
+        wayBatch.add(way);
+        if (wayBatch.size() == WAY_BATCH_SIZE)
+            submitWayBatch();
+    }
 
-        long wayOsmId = way.getId();
+    private void submitWayBatch() {
+        if (wayBatch.isEmpty())
+            return;
+        // keep a few batches in flight so the workers do not have to wait for the thread that writes the graph
+        if (pendingWayBatches.size() == 2 * wayThreads)
+            finishWayBatch();
+        final List<ReaderWay> ways = wayBatch;
+        Future<IntsRef[]> edgeFlags = wayExecutor.submit(() -> {
+            IntsRef[] result = new IntsRef[ways.size()];
+            for (int i = 0; i < ways.size(); i++)
+                result[i] = createEdgeFlags(ways.get(i));
+            return result;
+        });
+        pendingWayBatches.add(new AbstractMap.SimpleEntry<>(ways, edgeFlags));
+        wayBatch = new ArrayList<>(WAY_BATCH_SIZE);
+    }
 
-        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
-        if (!encodingManager.acceptWay(way, acceptWay))
+    private void finishWayBatch() {
+        Map.Entry<List<ReaderWay>, Future<IntsRef[]>> batch = pendingWayBatches.poll();
+        IntsRef[] edgeFlags;
+        try {
+            edgeFlags = batch.getValue().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        }
+        for (int i = 0; i < edgeFlags.length; i++)
+            if (edgeFlags[i] != null)
+                addWay(batch.getKey().get(i), edgeFlags[i]);
+    }
+
+    /**
+     * Adds all ways that are still processed by the way workers to the graph
+     */
+    private void finishWays() {
+        if (wayExecutor == null)
             return;
+        submitWayBatch();
+        while (!pendingWayBatches.isEmpty())
+            finishWayBatch();
+    }
 
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
+    /**
+     * Checks if the way needs to be processed at all and adds the artificial tags that depend on the coordinates of
+     * its nodes. This needs to be called by the thread that writes the graph.
+     *
+     * @return false if the way can be skipped
+     */
+    private boolean prepareWay(ReaderWay way) {
+        if (way.getNodes().size() < 2)
+            return false;
+
+        // ignore multipolygon geometry
+        if (!way.hasTags())
+            return false;
 
         // TODO move this after we have created the edge and know the coordinates => encodingManager.applyWayTags
         LongArrayList osmNodeIds = way.getNodes();
@@ -335,7 +428,21 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
             way.setTag("estimated_distance", estimatedDist);
             way.setTag("estimated_center", new GHPoint((firstLat + lastLat) / 2, (firstLon + lastLon) / 2));
         }
+        return true;
+    }
 
+    /**
+     * Parses the tags of the way into the edge flags. This does not access the graph or the node maps, so it can be
+     * called for many ways concurrently.
+     *
+     * @return the edge flags or null if the way is not accepted by any encoder
+     */
+    private IntsRef createEdgeFlags(ReaderWay way) {
+        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
+        if (!encodingManager.acceptWay(way, acceptWay))
+            return null;
+
+        IntsRef relationFlags = getRelFlagsMap(way.getId());
         if (way.getTag("duration") != null) {
             try {
                 long dur = OSMReaderUtility.parseDuration(way.getTag("duration"));
@@ -347,9 +454,15 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         }
 
         IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, relationFlags);
-        if (edgeFlags.isEmpty())
-            return;
+        return edgeFlags.isEmpty() ? null : edgeFlags;
+    }
 
+    /**
+     * Creates the edges of the way, taking the barriers along the way into account.
+     */
+    private void addWay(ReaderWay way, IntsRef edgeFlags) {
+        long wayOsmId = way.getId();
+        LongArrayList osmNodeIds = way.getNodes();
         List<EdgeIteratorState> createdEdges = new ArrayList<>();
         // look for barriers along the way
         final int size = osmNodeIds.size();
@@ -778,6 +891,8 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         pillarInfo.clear();
         encodingManager.releaseParsers();
         eleProvider.release();
+        if (osmNodeIdToInternalNodeMap instanceof PagedLongIntMap)
+            ((PagedLongIntMap) osmNodeIdToInternalNodeMap).clear();
         osmNodeIdToInternalNodeMap = null;
         osmNodeIdToNodeFlagsMap = null;
         osmWayIdToRouteWeightMap = null;
@@ -819,6 +934,8 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
             accessEnc.setBool(false, edgeFlags, false);
             accessEnc.setBool(true, edgeFlags, false);
         }
+        if (barrierEnc != null)
+            barrierEnc.setBool(false, edgeFlags, true);
         // add edge
         barrierNodeIds.clear();
         barrierNodeIds.add(fromId);
@@ -938,11 +1055,48 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         return this;
     }
 
+    /**
+     * @param nodeMap "btree" to keep the map from OSM node ids to internal node ids on the heap (the default), "ram"
+     *                or "mmap" to store it in pages of a DataAccess of this type, see {@link PagedLongIntMap}. The
+     *                memory mapped map needs the graph to be stored on disk.
+     */
+    public OSMReader setNodeMap(String nodeMap) {
+        Directory dir = ghStorage.getDirectory();
+        switch (nodeMap) {
+            case "btree":
+                osmNodeIdToInternalNodeMap = new GHLongIntBTree(200);
+                break;
+            case "ram":
+                osmNodeIdToInternalNodeMap = new PagedLongIntMap(dir, dir.find("tmp_node_map", DAType.RAM_INT));
+                break;
+            case "mmap":
+                if (!dir.getDefaultType().isStoring())
+                    throw new IllegalArgumentException("The memory mapped node map requires a graph that is stored on disk");
+                osmNodeIdToInternalNodeMap = new PagedLongIntMap(dir, dir.find("tmp_node_map", DAType.MMAP));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown node map: " + nodeMap + ", use btree, ram or mmap");
+        }
+        return this;
+    }
+
     public OSMReader setWorkerThreads(int numOfWorkers) {
         this.workerThreads = numOfWorkers;
         return this;
     }
 
+    /**
+     * Sets the number of threads that parse the tags of the ways while the graph is created. The edges are still
+     * added by a single thread in the order of the file, so the graph does not depend on this setting. The default is
+     * 1, i.e. the ways are processed sequentially. Use a bigger value only if all tag parsers are thread-safe.
+     */
+    public OSMReader setWayThreads(int wayThreads) {
+        if (wayThreads < 1)
+            throw new IllegalArgumentException("wayThreads must be at least 1, but was: " + wayThreads);
+        this.wayThreads = wayThreads;
+        return this;
+    }
+
     public OSMReader setElevationProvider(ElevationProvider eleProvider) {
         if (eleProvider == null)
             throw new IllegalStateException("Use the NOOP elevation provider instead of null or don't call setElevationProvider");
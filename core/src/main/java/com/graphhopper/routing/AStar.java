@@ -26,6 +26,7 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.util.*;
 
 import java.util.PriorityQueue;
+import java.util.Queue;
 
 /**
  * This class implements the A* algorithm according to
@@ -38,11 +39,12 @@ import java.util.PriorityQueue;
  */
 public class AStar extends AbstractRoutingAlgorithm {
     private GHIntObjectHashMap<AStarEntry> fromMap;
-    private PriorityQueue<AStarEntry> fromHeap;
+    private Queue<AStarEntry> fromHeap;
     private AStarEntry currEdge;
     private int visitedNodes;
     private int to = -1;
     private WeightApproximator weightApprox;
+    private int collectionSize;
 
     public AStar(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
@@ -62,10 +64,22 @@ public class AStar extends AbstractRoutingAlgorithm {
     }
 
     protected void initCollections(int size) {
+        collectionSize = size;
         fromMap = new GHIntObjectHashMap<>();
         fromHeap = new PriorityQueue<>(size);
     }
 
+    /**
+     * Uses a {@link SPTEntryHeap} instead of a java.util.PriorityQueue for the entries that are not settled yet. This
+     * must be called before the search starts.
+     */
+    public AStar setQuaternaryHeap(boolean quaternaryHeap) {
+        if (!fromHeap.isEmpty())
+            throw new IllegalStateException("The queue must be chosen before the search starts");
+        fromHeap = quaternaryHeap ? new SPTEntryHeap<>(collectionSize) : new PriorityQueue<>(collectionSize);
+        return this;
+    }
+
     @Override
     public Path calcPath(int from, int to) {
         checkAlreadyRun();
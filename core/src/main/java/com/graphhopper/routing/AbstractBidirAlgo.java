@@ -25,6 +25,7 @@ import com.graphhopper.util.EdgeIterator;
 import java.util.Collections;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.Queue;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 
@@ -43,14 +44,18 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
     protected SPTEntry bestBwdEntry;
     protected double bestWeight = Double.MAX_VALUE;
     protected int maxVisitedNodes = Integer.MAX_VALUE;
-    PriorityQueue<SPTEntry> pqOpenSetFrom;
-    PriorityQueue<SPTEntry> pqOpenSetTo;
+    Queue<SPTEntry> pqOpenSetFrom;
+    Queue<SPTEntry> pqOpenSetTo;
     protected boolean updateBestPath = true;
     protected boolean finishedFrom;
     protected boolean finishedTo;
     int visitedCountFrom;
     int visitedCountTo;
     private boolean alreadyRun;
+    private int collectionSize;
+    private boolean quaternaryHeap;
+    private SearchStatePool searchStatePool;
+    private SearchStatePool.SearchState searchState;
 
     public AbstractBidirAlgo(TraversalMode traversalMode) {
         this.traversalMode = traversalMode;
@@ -58,12 +63,67 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
         toInEdge = ANY_EDGE;
     }
 
+    /**
+     * Sets the initial size of the priority queues and shortest path tree maps. They are only created when the search
+     * starts, so they can be taken from the search state pool instead, see {@link #setSearchStatePool}.
+     */
     protected void initCollections(int size) {
-        pqOpenSetFrom = new PriorityQueue<>(size);
-        bestWeightMapFrom = new GHIntObjectHashMap<>(size);
+        collectionSize = size;
+    }
 
-        pqOpenSetTo = new PriorityQueue<>(size);
-        bestWeightMapTo = new GHIntObjectHashMap<>(size);
+    /**
+     * Makes this algorithm take its priority queues and shortest path tree maps from the given pool instead of
+     * allocating them for every query. They are given back to the pool once the path is calculated, so this must not
+     * be used for algorithms that access them afterwards, like the alternative route algorithms.
+     */
+    public AbstractBidirAlgo setSearchStatePool(SearchStatePool searchStatePool) {
+        if (pqOpenSetFrom != null)
+            throw new IllegalStateException("The search state pool must be set before the search starts");
+        this.searchStatePool = searchStatePool;
+        return this;
+    }
+
+    /**
+     * Uses {@link SPTEntryHeap}s instead of java.util.PriorityQueues for the entries that are not settled yet. This
+     * must be called before the search starts.
+     */
+    public AbstractBidirAlgo setQuaternaryHeap(boolean quaternaryHeap) {
+        if (pqOpenSetFrom != null)
+            throw new IllegalStateException("The queues must be chosen before the search starts");
+        this.quaternaryHeap = quaternaryHeap;
+        return this;
+    }
+
+    private void ensureCollections() {
+        if (pqOpenSetFrom != null)
+            return;
+        if (searchStatePool != null) {
+            searchState = searchStatePool.lease(collectionSize, quaternaryHeap);
+            pqOpenSetFrom = searchState.pqOpenSetFrom;
+            bestWeightMapFrom = searchState.bestWeightMapFrom;
+            pqOpenSetTo = searchState.pqOpenSetTo;
+            bestWeightMapTo = searchState.bestWeightMapTo;
+        } else {
+            pqOpenSetFrom = createQueue(collectionSize, quaternaryHeap);
+            bestWeightMapFrom = new GHIntObjectHashMap<>(collectionSize);
+            pqOpenSetTo = createQueue(collectionSize, quaternaryHeap);
+            bestWeightMapTo = new GHIntObjectHashMap<>(collectionSize);
+        }
+    }
+
+    static Queue<SPTEntry> createQueue(int size, boolean quaternaryHeap) {
+        return quaternaryHeap ? new SPTEntryHeap<>(size) : new PriorityQueue<>(size);
+    }
+
+    private void releaseCollections() {
+        if (searchState == null)
+            return;
+        searchStatePool.release(searchState);
+        searchState = null;
+        // the entries belong to the next search now
+        currFrom = currTo = bestFwdEntry = bestBwdEntry = null;
+        pqOpenSetFrom = pqOpenSetTo = null;
+        bestWeightMapFrom = bestWeightMapTo = bestWeightMapOther = null;
     }
 
     /**
@@ -89,9 +149,13 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
         this.fromOutEdge = fromOutEdge;
         this.toInEdge = toInEdge;
         checkAlreadyRun();
-        init(from, 0, to, 0);
-        runAlgo();
-        return extractPath();
+        try {
+            init(from, 0, to, 0);
+            runAlgo();
+            return extractPath();
+        } finally {
+            releaseCollections();
+        }
     }
 
     void init(int from, double fromWeight, int to, double toWeight) {
@@ -101,6 +165,7 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
     }
 
     protected void initFrom(int from, double weight) {
+        ensureCollections();
         this.from = from;
         currFrom = createStartEntry(from, weight, false);
         pqOpenSetFrom.add(currFrom);
@@ -110,6 +175,7 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
     }
 
     protected void initTo(int to, double weight) {
+        ensureCollections();
         this.to = to;
         currTo = createStartEntry(to, weight, true);
         pqOpenSetTo.add(currTo);
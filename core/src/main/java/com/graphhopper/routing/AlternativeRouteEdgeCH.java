@@ -124,12 +124,14 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
             // Okay, now we want the s -> v -> t shortest via-path, so we route s -> v and v -> t
             // and glue them together.
             DijkstraBidirectionEdgeCHNoSOD svRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
+            svRouter.setSearchStatePool(SearchStatePool.getDefault());
             final Path suvPath = svRouter.calcPath(s, v, ANY_EDGE, tailSv);
             extraVisitedNodes += svRouter.getVisitedNodes();
 
             int u = graph.getBaseGraph().getEdgeIteratorState(tailSv, v).getBaseNode();
 
             DijkstraBidirectionEdgeCHNoSOD vtRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
+            vtRouter.setSearchStatePool(SearchStatePool.getDefault());
             final Path uvtPath = vtRouter.calcPath(u, t, tailSv, ANY_EDGE);
             Path path = concat(graph.getBaseGraph(), suvPath, uvtPath);
             extraVisitedNodes += vtRouter.getVisitedNodes();
@@ -204,6 +206,7 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         EdgeIteratorState fromNode = getPreviousNodeTMetersAway(path, vIndex, T);
         EdgeIteratorState toNode = getNextNodeTMetersAway(path, vIndex, T);
         DijkstraBidirectionEdgeCHNoSOD tRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
+        tRouter.setSearchStatePool(SearchStatePool.getDefault());
         Path tPath = tRouter.calcPath(fromNode.getBaseNode(), toNode.getAdjNode(), fromNode.getEdge(), toNode.getEdge());
         extraVisitedNodes += tRouter.getVisitedNodes();
         IntIndexedContainer tNodes = tPath.calcNodes();
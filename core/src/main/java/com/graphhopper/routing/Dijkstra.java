@@ -28,6 +28,7 @@ import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Parameters;
 
 import java.util.PriorityQueue;
+import java.util.Queue;
 
 /**
  * Implements a single source shortest path algorithm
@@ -38,10 +39,11 @@ import java.util.PriorityQueue;
  */
 public class Dijkstra extends AbstractRoutingAlgorithm {
     protected IntObjectMap<SPTEntry> fromMap;
-    protected PriorityQueue<SPTEntry> fromHeap;
+    protected Queue<SPTEntry> fromHeap;
     protected SPTEntry currEdge;
     private int visitedNodes;
     private int to = -1;
+    private int collectionSize;
 
     public Dijkstra(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
@@ -50,10 +52,22 @@ public class Dijkstra extends AbstractRoutingAlgorithm {
     }
 
     protected void initCollections(int size) {
+        collectionSize = size;
         fromHeap = new PriorityQueue<>(size);
         fromMap = new GHIntObjectHashMap<>(size);
     }
 
+    /**
+     * Uses a {@link SPTEntryHeap} instead of a java.util.PriorityQueue for the entries that are not settled yet. This
+     * must be called before the search starts.
+     */
+    public Dijkstra setQuaternaryHeap(boolean quaternaryHeap) {
+        if (!fromHeap.isEmpty())
+            throw new IllegalStateException("The queue must be chosen before the search starts");
+        fromHeap = quaternaryHeap ? new SPTEntryHeap<>(collectionSize) : new PriorityQueue<>(collectionSize);
+        return this;
+    }
+
     @Override
     public Path calcPath(int from, int to) {
         checkAlreadyRun();
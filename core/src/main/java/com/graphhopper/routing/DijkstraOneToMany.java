@@ -19,6 +19,7 @@ package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.coll.QuaternaryMinHeap;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
@@ -42,6 +43,8 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm {
     private int[] parents;
     private int[] edgeIds;
     private IntFloatBinaryHeap heap;
+    // if set this heap is used instead of the binary heap
+    private QuaternaryMinHeap quaternaryHeap;
     private int visitedNodes;
     private boolean doClear = true;
     private int endNode;
@@ -130,7 +133,7 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm {
                 edgeIds[n] = EdgeIterator.NO_EDGE;
             }
 
-            heap.clear();
+            heapClear();
 
             // changedNodes.clear();
             changedNodes.elementsCount = 0;
@@ -146,10 +149,10 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm {
             if (parentNode != EMPTY_PARENT && weights[to] <= weights[currNode])
                 return to;
 
-            if (heap.isEmpty() || isMaxVisitedNodesExceeded())
+            if (heapIsEmpty() || isMaxVisitedNodesExceeded())
                 return NOT_FOUND;
 
-            currNode = heap.poll();
+            currNode = heapPoll();
         }
 
         visitedNodes = 0;
@@ -157,7 +160,7 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm {
         // we call 'finished' before heap.peekElement but this would add unnecessary overhead for this special case so we do it outside of the loop
         if (finished()) {
             // then we need a small workaround for special cases see #707
-            if (heap.isEmpty())
+            if (heapIsEmpty())
                 doClear = true;
             return currNode;
         }
@@ -179,28 +182,28 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm {
                 if (w == Double.MAX_VALUE) {
                     parents[adjNode] = currNode;
                     weights[adjNode] = tmpWeight;
-                    heap.insert(tmpWeight, adjNode);
+                    heapInsert(adjNode, tmpWeight);
                     changedNodes.add(adjNode);
                     edgeIds[adjNode] = iter.getEdge();
 
                 } else if (w > tmpWeight) {
                     parents[adjNode] = currNode;
                     weights[adjNode] = tmpWeight;
-                    heap.update(tmpWeight, adjNode);
+                    heapUpdate(adjNode, tmpWeight);
                     changedNodes.add(adjNode);
                     edgeIds[adjNode] = iter.getEdge();
                 }
             }
 
-            if (heap.isEmpty() || isMaxVisitedNodesExceeded() || isWeightLimitExceeded())
+            if (heapIsEmpty() || isMaxVisitedNodesExceeded() || isWeightLimitExceeded())
                 return NOT_FOUND;
 
             // calling just peek and not poll is important if the next query is cached
-            currNode = heap.peekElement();
+            currNode = heapPeek();
             if (finished())
                 return currNode;
 
-            heap.poll();
+            heapPoll();
         }
     }
 
@@ -209,6 +212,51 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm {
         return currNode == to;
     }
 
+    /**
+     * Uses a {@link QuaternaryMinHeap} instead of the binary heap. Updating the weight of a node is O(log(N)) for this
+     * heap instead of O(N) and the weights are not rounded to floats. This must be called before the first search.
+     */
+    public DijkstraOneToMany setQuaternaryHeap(boolean enabled) {
+        if (!heapIsEmpty())
+            throw new IllegalStateException("The heap must be chosen before the search starts");
+        quaternaryHeap = enabled ? new QuaternaryMinHeap(1000) : null;
+        return this;
+    }
+
+    private boolean heapIsEmpty() {
+        return quaternaryHeap == null ? heap.isEmpty() : quaternaryHeap.isEmpty();
+    }
+
+    private void heapClear() {
+        if (quaternaryHeap == null)
+            heap.clear();
+        else
+            quaternaryHeap.clear();
+    }
+
+    private void heapInsert(int node, double weight) {
+        if (quaternaryHeap == null)
+            heap.insert(weight, node);
+        else
+            quaternaryHeap.push(node, weight);
+    }
+
+    private void heapUpdate(int node, double weight) {
+        if (quaternaryHeap == null)
+            heap.update(weight, node);
+        else if (quaternaryHeap.contains(node))
+            // like the binary heap we ignore nodes that were polled already
+            quaternaryHeap.update(node, weight);
+    }
+
+    private int heapPeek() {
+        return quaternaryHeap == null ? heap.peekElement() : quaternaryHeap.peekId();
+    }
+
+    private int heapPoll() {
+        return quaternaryHeap == null ? heap.poll() : quaternaryHeap.poll();
+    }
+
     public void setWeightLimit(double weightLimit) {
         this.weightLimit = weightLimit;
     }
@@ -222,6 +270,7 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm {
         parents = null;
         edgeIds = null;
         heap = null;
+        quaternaryHeap = null;
     }
 
     @Override
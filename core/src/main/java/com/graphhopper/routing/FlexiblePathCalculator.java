@@ -79,7 +79,9 @@ public class FlexiblePathCalculator implements PathCalculator {
         // reset all direction enforcements in queryGraph to avoid influencing next path
         // todo: is this correct? aren't we taking a second look at these edges later when we calc times or
         // instructions etc.?
-        queryGraph.clearUnfavoredStatus();
+        // without unfavored edges the query graph is not modified at all, so it can be shared by concurrent legs
+        if (!edgeRestrictions.getUnfavoredEdges().isEmpty())
+            queryGraph.clearUnfavoredStatus();
 
         if (paths.isEmpty())
             throw new IllegalStateException("Path list was empty for " + from + " -> " + to);
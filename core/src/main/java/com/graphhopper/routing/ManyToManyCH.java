@@ -0,0 +1,315 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.*;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.ch.ShortcutUnpacker;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Calculates the weights, times and distances between many sources and many targets using a node-based CH graph.
+ * Instead of running one bidirectional search per source/target pair we run one upward search per source and store
+ * the settled weights in per-node 'buckets'. Afterwards we run one backward upward search per target and scan the
+ * buckets of all settled nodes. This way only |sources| + |targets| CH searches are needed for the whole matrix.
+ * <p>
+ * See 'Computing Many-to-Many Shortest Paths Using Highway Hierarchies' by Knopp et al. for the idea.
+ *
+ * @see DijkstraBidirectionCH for the stall-on-demand implementation this class is based on
+ */
+public class ManyToManyCH {
+    private final RoutingCHGraph graph;
+    private final Weighting weighting;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final int maxNodes;
+    private final ShortcutUnpacker shortcutUnpacker;
+    // times and distances of shortcuts are calculated by unpacking them, so we remember them for the next search
+    private final LongLongHashMap shortcutTimes = new LongLongHashMap();
+    private final LongDoubleHashMap shortcutDistances = new LongDoubleHashMap();
+    private long unpackTime;
+    private double unpackDistance;
+    // the buckets form a linked list per node, bucketHeads points to the most recently added entry of every node
+    private final IntIntHashMap bucketHeads = new IntIntHashMap();
+    private final IntArrayList bucketNext = new IntArrayList();
+    private final IntArrayList bucketSource = new IntArrayList();
+    private final DoubleArrayList bucketWeight = new DoubleArrayList();
+    private final LongArrayList bucketTime = new LongArrayList();
+    private final DoubleArrayList bucketDistance = new DoubleArrayList();
+    private int visitedNodes;
+
+    public ManyToManyCH(RoutingCHGraph graph) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("Matrix calculation is only supported for node-based CH, but weighting "
+                    + graph.getWeighting() + " is edge-based");
+        this.graph = graph;
+        this.weighting = graph.getWeighting();
+        this.inEdgeExplorer = graph.createInEdgeExplorer();
+        this.outEdgeExplorer = graph.createOutEdgeExplorer();
+        this.maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        this.shortcutUnpacker = new ShortcutUnpacker(graph, (edge, reverse, prevOrNextEdgeId) -> {
+            unpackDistance += edge.getDistance();
+            unpackTime += weighting.calcEdgeMillis(edge, reverse);
+        }, false);
+    }
+
+    /**
+     * @return the weights, times and distances between all sources (rows) and targets (columns). Unreachable
+     * targets have an infinite weight and {@link Long#MAX_VALUE} as time and {@link Double#MAX_VALUE} as distance.
+     */
+    public Result calcMatrix(int[] sources, int[] targets) {
+        Result result = new Result(sources.length, targets.length);
+        clearBuckets();
+        for (int i = 0; i < sources.length; i++) {
+            final int sourceIdx = i;
+            search(sources[i], false, (node, label) -> addBucketEntry(node, sourceIdx, label));
+        }
+        for (int j = 0; j < targets.length; j++) {
+            final int targetIdx = j;
+            search(targets[j], true, (node, label) -> scanBucket(node, targetIdx, label, result));
+        }
+        result.visitedNodes = visitedNodes;
+        return result;
+    }
+
+    /**
+     * @return the number of nodes settled by all the searches of the last matrix calculation
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private void clearBuckets() {
+        bucketHeads.clear();
+        bucketNext.clear();
+        bucketSource.clear();
+        bucketWeight.clear();
+        bucketTime.clear();
+        bucketDistance.clear();
+        visitedNodes = 0;
+    }
+
+    private void addBucketEntry(int node, int sourceIdx, Label label) {
+        int entry = bucketSource.size();
+        bucketNext.add(bucketHeads.getOrDefault(node, -1));
+        bucketSource.add(sourceIdx);
+        bucketWeight.add(label.weight);
+        bucketTime.add(label.time);
+        bucketDistance.add(label.distance);
+        bucketHeads.put(node, entry);
+    }
+
+    private void scanBucket(int node, int targetIdx, Label label, Result result) {
+        int entry = bucketHeads.getOrDefault(node, -1);
+        while (entry >= 0) {
+            int sourceIdx = bucketSource.get(entry);
+            double weight = bucketWeight.get(entry) + label.weight;
+            if (weight < result.weights[sourceIdx][targetIdx]) {
+                result.weights[sourceIdx][targetIdx] = weight;
+                result.times[sourceIdx][targetIdx] = bucketTime.get(entry) + label.time;
+                result.distances[sourceIdx][targetIdx] = bucketDistance.get(entry) + label.distance;
+            }
+            entry = bucketNext.get(entry);
+        }
+    }
+
+    /**
+     * Runs a Dijkstra search from the given node that only goes 'upward' in the CH graph and calls the given visitor
+     * for every settled node that cannot be stalled.
+     */
+    private void search(int startNode, boolean reverse, SettledNodeVisitor visitor) {
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        RoutingCHEdgeExplorer stallExplorer = reverse ? outEdgeExplorer : inEdgeExplorer;
+        IntObjectMap<Label> labels = new GHIntObjectHashMap<>(64);
+        PriorityQueue<Label> queue = new PriorityQueue<>(64);
+        Label start = new Label(startNode, EdgeIterator.NO_EDGE, 0, 0, 0);
+        labels.put(startNode, start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            Label curr = queue.poll();
+            if (curr.settled)
+                continue;
+            curr.settled = true;
+            visitedNodes++;
+            if (isStallable(curr, labels, stallExplorer, reverse))
+                continue;
+            visitor.visit(curr.node, curr);
+
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(curr.node);
+            while (iter.next()) {
+                if (iter.getEdge() == curr.edge || !acceptUpward(iter))
+                    continue;
+                double weight = curr.weight + iter.getWeight(reverse);
+                if (Double.isInfinite(weight))
+                    continue;
+                Label label = labels.get(iter.getAdjNode());
+                if (label == null) {
+                    label = new Label(iter.getAdjNode(), iter.getEdge(), weight, 0, 0);
+                    labels.put(iter.getAdjNode(), label);
+                } else if (!label.settled && weight < label.weight) {
+                    // the old label stays in the queue but is skipped once it was settled
+                    label.settled = true;
+                    label = new Label(iter.getAdjNode(), iter.getEdge(), weight, 0, 0);
+                    labels.put(iter.getAdjNode(), label);
+                } else {
+                    continue;
+                }
+                calcTimeAndDistance(iter, reverse);
+                label.time = curr.time + unpackTime;
+                label.distance = curr.distance + unpackDistance;
+                queue.add(label);
+            }
+        }
+    }
+
+    private boolean acceptUpward(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        // shortcuts in wrong direction are disconnected, so no need to exclude them
+        if (edgeState.isShortcut())
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    private boolean isStallable(Label label, IntObjectMap<Label> labels, RoutingCHEdgeExplorer stallExplorer, boolean reverse) {
+        RoutingCHEdgeIterator iter = stallExplorer.setBaseNode(label.node);
+        while (iter.next()) {
+            if (iter.getEdge() == label.edge)
+                continue;
+            Label adjLabel = labels.get(iter.getAdjNode());
+            // we have to be careful because of rounded shortcut weights in combination with virtual via nodes, see #1574
+            if (adjLabel != null && adjLabel.weight + iter.getWeight(!reverse) - label.weight < -0.001)
+                return true;
+        }
+        return false;
+    }
+
+    private void calcTimeAndDistance(RoutingCHEdgeIteratorState edgeState, boolean reverse) {
+        if (edgeState.isShortcut()) {
+            long key = ((long) edgeState.getEdge() << 1) | (reverse ? 1 : 0);
+            if (shortcutTimes.containsKey(key)) {
+                unpackTime = shortcutTimes.get(key);
+                unpackDistance = shortcutDistances.get(key);
+                return;
+            }
+            unpack(edgeState, reverse);
+            shortcutTimes.put(key, unpackTime);
+            shortcutDistances.put(key, unpackDistance);
+        } else {
+            unpack(edgeState, reverse);
+        }
+    }
+
+    private void unpack(RoutingCHEdgeIteratorState edgeState, boolean reverse) {
+        unpackTime = 0;
+        unpackDistance = 0;
+        if (reverse)
+            shortcutUnpacker.visitOriginalEdgesBwd(edgeState.getEdge(), edgeState.getAdjNode(), false, EdgeIterator.NO_EDGE);
+        else
+            shortcutUnpacker.visitOriginalEdgesFwd(edgeState.getEdge(), edgeState.getAdjNode(), false, EdgeIterator.NO_EDGE);
+    }
+
+    private interface SettledNodeVisitor {
+        void visit(int node, Label label);
+    }
+
+    private static class Label implements Comparable<Label> {
+        final int node;
+        final int edge;
+        final double weight;
+        long time;
+        double distance;
+        boolean settled;
+
+        Label(int node, int edge, double weight, long time, double distance) {
+            this.node = node;
+            this.edge = edge;
+            this.weight = weight;
+            this.time = time;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Label o) {
+            return Double.compare(weight, o.weight);
+        }
+    }
+
+    public static class Result {
+        private final double[][] weights;
+        private final long[][] times;
+        private final double[][] distances;
+        private int visitedNodes;
+
+        Result(int sources, int targets) {
+            weights = new double[sources][targets];
+            times = new long[sources][targets];
+            distances = new double[sources][targets];
+            for (int i = 0; i < sources; i++) {
+                Arrays.fill(weights[i], Double.POSITIVE_INFINITY);
+                Arrays.fill(times[i], Long.MAX_VALUE);
+                Arrays.fill(distances[i], Double.MAX_VALUE);
+            }
+        }
+
+        public boolean isConnected(int from, int to) {
+            return !Double.isInfinite(weights[from][to]);
+        }
+
+        public double getWeight(int from, int to) {
+            return weights[from][to];
+        }
+
+        /**
+         * @return the time in milliseconds
+         */
+        public long getTime(int from, int to) {
+            return times[from][to];
+        }
+
+        /**
+         * @return the distance in meters
+         */
+        public double getDistance(int from, int to) {
+            return distances[from][to];
+        }
+
+        public int getSources() {
+            return weights.length;
+        }
+
+        public int getTargets() {
+            return weights.length == 0 ? 0 : weights[0].length;
+        }
+
+        public int getVisitedNodes() {
+            return visitedNodes;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.BlockAreaWeighting;
 import com.graphhopper.routing.weighting.Weighting;
@@ -45,6 +46,7 @@ import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static com.graphhopper.routing.weighting.Weighting.INFINITE_U_TURN_COSTS;
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
@@ -67,6 +69,7 @@ public class Router {
     private final Map<String, LandmarkStorage> landmarks;
     private final boolean chEnabled;
     private final boolean lmEnabled;
+    private ExecutorService legExecutor;
 
     public Router(GraphHopperStorage ghStorage, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
@@ -96,6 +99,15 @@ public class Router {
         }
     }
 
+    /**
+     * Sets the threads that calculate the legs of via routes concurrently or null to calculate them one after another.
+     * The legs are only calculated concurrently if the request uses no curbsides, headings or pass_through.
+     */
+    public Router setLegExecutor(ExecutorService legExecutor) {
+        this.legExecutor = legExecutor;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
         try {
             checkNoLegacyParameters(request);
@@ -132,6 +144,48 @@ public class Router {
         }
     }
 
+    /**
+     * Calculates the weights, times and distances between all from- and to-points using the CH preparation of the
+     * given profile, see {@link ManyToManyCH}.
+     *
+     * @throws PointNotFoundException if a point could not be found. The point index refers to the from-points
+     *                                followed by the to-points.
+     */
+    public ManyToManyCH.Result matrix(String profileName, List<GHPoint> fromPoints, List<GHPoint> toPoints, List<String> snapPreventions) {
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            throw new IllegalArgumentException("You have to pass at least one from-point and one to-point");
+        List<GHPoint> points = new ArrayList<>(fromPoints.size() + toPoints.size());
+        points.addAll(fromPoints);
+        points.addAll(toPoints);
+        checkIfPointsAreInBounds(points);
+        if (Helper.isEmpty(profileName))
+            throw new IllegalArgumentException("You need to specify a profile to calculate a matrix, see docs/core/profiles.md");
+        if (!profilesByName.containsKey(profileName))
+            throw new IllegalArgumentException("The requested profile '" + profileName + "' does not exist.\nAvailable profiles: " + profilesByName.keySet());
+        RoutingCHGraph chGraph = chGraphs.get(profileName);
+        if (chGraph == null)
+            throw new IllegalArgumentException("Cannot find CH preparation for the requested profile: '" + profileName + "'" +
+                    "\nThe matrix calculation requires CH, available CH profiles: " + chGraphs.keySet());
+
+        EdgeFilter snapFilter = new DefaultSnapFilter(chGraph.getWeighting(), encodingManager.getBooleanEncodedValue(Subnetwork.key(profileName)));
+        List<Snap> snaps;
+        try {
+            snaps = ViaRouting.lookup(encodingManager, points, snapFilter, locationIndex, snapPreventions, Collections.emptyList());
+        } catch (MultiplePointsNotFoundException ex) {
+            int p = ex.getPointsNotFound().get(0);
+            String pointStr = p < fromPoints.size() ? "from-point " + p : "to-point " + (p - fromPoints.size());
+            throw new PointNotFoundException("Cannot find " + pointStr + ": " + points.get(p), p);
+        }
+        QueryGraph queryGraph = QueryGraph.create(ghStorage, snaps);
+        int[] sources = new int[fromPoints.size()];
+        for (int i = 0; i < sources.length; i++)
+            sources[i] = snaps.get(i).getClosestNode();
+        int[] targets = new int[toPoints.size()];
+        for (int i = 0; i < targets.length; i++)
+            targets[i] = snaps.get(sources.length + i).getClosestNode();
+        return new ManyToManyCH(new QueryRoutingCHGraph(chGraph, queryGraph)).calcMatrix(sources, targets);
+    }
+
     private void checkNoLegacyParameters(GHRequest request) {
         if (request.getHints().has("vehicle"))
             throw new IllegalArgumentException("GHRequest may no longer contain a vehicle, use the profile parameter instead, see docs/core/profiles.md");
@@ -254,10 +308,13 @@ public class Router {
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
         QueryGraph queryGraph = QueryGraph.create(ghStorage, snaps);
-        PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         boolean forceCurbsides = getForceCurbsides(request.getHints());
-        ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, solver.weighting, pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+        ViaRouting.Result result;
+        if (legExecutor != null && snaps.size() > 2 && request.getCurbsides().isEmpty() && request.getHeadings().isEmpty() && !passThrough)
+            result = ViaRouting.calcPathsConcurrently(snaps, () -> solver.createPathCalculator(queryGraph), legExecutor);
+        else
+            result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, solver.weighting, solver.createPathCalculator(queryGraph), request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
@@ -29,6 +29,7 @@ import com.graphhopper.util.PMap;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
+import static com.graphhopper.util.Parameters.Routing.QUATERNARY_HEAP;
 
 /**
  * A simple factory creating normal algorithms (RoutingAlgorithm) without preparation.
@@ -37,28 +38,45 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
  * @author Peter Karich
  */
 public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
+    private SearchStatePool searchStatePool = SearchStatePool.getDefault();
+
+    /**
+     * @param searchStatePool the pool the bidirectional algorithms take their data structures from or null to
+     *                        allocate them for every algorithm
+     */
+    public RoutingAlgorithmFactorySimple setSearchStatePool(SearchStatePool searchStatePool) {
+        this.searchStatePool = searchStatePool;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
         Weighting weighting = g.wrapWeighting(w);
+        boolean quaternaryHeap = opts.getHints().getBool(QUATERNARY_HEAP, false);
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
-            ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
+            ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode())
+                    .setSearchStatePool(searchStatePool)
+                    .setQuaternaryHeap(quaternaryHeap);
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
-            ra = new Dijkstra(g, weighting, opts.getTraversalMode());
+            ra = new Dijkstra(g, weighting, opts.getTraversalMode()).setQuaternaryHeap(quaternaryHeap);
 
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
                     opts.getTraversalMode());
             aStarBi.setApproximation(getApproximation(ASTAR_BI, opts.getHints(), weighting, g.getNodeAccess()));
+            aStarBi.setSearchStatePool(searchStatePool);
+            aStarBi.setQuaternaryHeap(quaternaryHeap);
             ra = aStarBi;
 
         } else if (DIJKSTRA_ONE_TO_MANY.equalsIgnoreCase(algoStr)) {
-            ra = new DijkstraOneToMany(g, weighting, opts.getTraversalMode());
+            ra = new DijkstraOneToMany(g, weighting, opts.getTraversalMode()).setQuaternaryHeap(quaternaryHeap);
 
         } else if (ASTAR.equalsIgnoreCase(algoStr)) {
             AStar aStar = new AStar(g, weighting, opts.getTraversalMode());
             aStar.setApproximation(getApproximation(ASTAR, opts.getHints(), w, g.getNodeAccess()));
+            aStar.setQuaternaryHeap(quaternaryHeap);
             ra = aStar;
 
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
@@ -30,6 +30,8 @@ public class SPTEntry implements Cloneable, Comparable<SPTEntry> {
     public int adjNode;
     public double weight;
     public SPTEntry parent;
+    // the id of this entry in the SPTEntryHeap it was added to
+    int heapId = -1;
 
     public SPTEntry(int edgeId, int adjNode, double weight) {
         this.edge = edgeId;
@@ -0,0 +1,130 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.ObjectArrayList;
+import com.graphhopper.coll.QuaternaryMinHeap;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A priority queue of shortest path tree entries ordered by their weight that can be used instead of
+ * {@link java.util.PriorityQueue}. The entries are kept in a {@link QuaternaryMinHeap}, so the weights are compared
+ * as primitives and removing an entry, which the routing algorithms do whenever they find a better path to an entry,
+ * takes O(log(N)) instead of O(N).
+ * <p>
+ * The weight of an entry must not be changed while it is contained in this queue.
+ */
+public class SPTEntryHeap<T extends SPTEntry> extends AbstractQueue<T> {
+    private final QuaternaryMinHeap heap;
+    private final ObjectArrayList<T> entries;
+
+    public SPTEntryHeap(int initialCapacity) {
+        heap = new QuaternaryMinHeap(initialCapacity);
+        entries = new ObjectArrayList<>(initialCapacity);
+    }
+
+    private boolean isKnown(SPTEntry entry) {
+        return entry.heapId >= 0 && entry.heapId < entries.size() && entries.get(entry.heapId) == entry;
+    }
+
+    @Override
+    public boolean offer(T entry) {
+        if (!isKnown(entry)) {
+            entry.heapId = entries.size();
+            entries.add(entry);
+        }
+        heap.push(entry.heapId, entry.weight);
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        return heap.isEmpty() ? null : entries.get(heap.poll());
+    }
+
+    @Override
+    public T peek() {
+        return heap.isEmpty() ? null : entries.get(heap.peekId());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof SPTEntry))
+            return false;
+        SPTEntry entry = (SPTEntry) o;
+        if (!isKnown(entry) || !heap.contains(entry.heapId))
+            return false;
+        heap.remove(entry.heapId);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof SPTEntry && isKnown((SPTEntry) o) && heap.contains(((SPTEntry) o).heapId);
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+        entries.clear();
+    }
+
+    /**
+     * Iterates over the contained entries in no particular order.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int next = findNext(0);
+
+            private int findNext(int from) {
+                for (int i = from; i < entries.size(); i++)
+                    if (heap.contains(i))
+                        return i;
+                return -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public T next() {
+                if (next < 0)
+                    throw new NoSuchElementException();
+                T entry = entries.get(next);
+                next = findNext(next + 1);
+                return entry;
+            }
+        };
+    }
+}
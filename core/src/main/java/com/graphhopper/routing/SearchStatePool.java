@@ -0,0 +1,92 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.VersionedIntObjectHashMap;
+
+import java.util.Queue;
+
+/**
+ * Keeps the data structures of bidirectional searches per thread, so they can be reused for subsequent queries
+ * instead of being allocated again for every query. Clearing the shortest path tree maps takes constant time, see
+ * {@link VersionedIntObjectHashMap}. A state is leased when the search starts and given back once the path is
+ * extracted. If a thread needs more than one state at a time (e.g. for nested searches) new states are created.
+ * <p>
+ * States that grew beyond the configured capacity are not kept, so a single very long search does not occupy its
+ * memory forever.
+ *
+ * @see AbstractBidirAlgo#setSearchStatePool(SearchStatePool)
+ */
+public class SearchStatePool {
+    private static final SearchStatePool DEFAULT = new SearchStatePool(1 << 17);
+    private final ThreadLocal<SearchState> freeStates = new ThreadLocal<>();
+    private final int maxCapacity;
+
+    /**
+     * @param maxCapacity the maximum number of slots of the shortest path tree maps of a state that is kept for reuse
+     */
+    public SearchStatePool(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * @return the pool that is used by the routing algorithm factories by default
+     */
+    public static SearchStatePool getDefault() {
+        return DEFAULT;
+    }
+
+    SearchState lease(int size, boolean quaternaryHeap) {
+        SearchState state = freeStates.get();
+        if (state == null || state.quaternaryHeap != quaternaryHeap)
+            return new SearchState(size, quaternaryHeap);
+        freeStates.set(null);
+        return state;
+    }
+
+    void release(SearchState state) {
+        if (freeStates.get() != null || state.bestWeightMapFrom.getCapacity() > maxCapacity
+                || state.bestWeightMapTo.getCapacity() > maxCapacity)
+            return;
+        state.clear();
+        freeStates.set(state);
+    }
+
+    static class SearchState {
+        final boolean quaternaryHeap;
+        final Queue<SPTEntry> pqOpenSetFrom;
+        final Queue<SPTEntry> pqOpenSetTo;
+        final VersionedIntObjectHashMap<SPTEntry> bestWeightMapFrom;
+        final VersionedIntObjectHashMap<SPTEntry> bestWeightMapTo;
+
+        SearchState(int size, boolean quaternaryHeap) {
+            this.quaternaryHeap = quaternaryHeap;
+            pqOpenSetFrom = AbstractBidirAlgo.createQueue(size, quaternaryHeap);
+            pqOpenSetTo = AbstractBidirAlgo.createQueue(size, quaternaryHeap);
+            bestWeightMapFrom = new VersionedIntObjectHashMap<>(size);
+            bestWeightMapTo = new VersionedIntObjectHashMap<>(size);
+        }
+
+        void clear() {
+            pqOpenSetFrom.clear();
+            pqOpenSetTo.clear();
+            bestWeightMapFrom.clear();
+            bestWeightMapTo.clear();
+        }
+    }
+}
@@ -36,6 +36,10 @@ import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -63,24 +67,31 @@ public class ViaRouting {
         EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
                 ? edgeFilter
                 : new SnapPreventionEdgeFilter(edgeFilter, roadClassEnc, roadEnvEnc, snapPreventions);
-        List<Snap> snaps = new ArrayList<>(points.size());
+        List<Snap> snaps = locationIndex.findClosest(points, pointHints.isEmpty()
+                ? i -> strictEdgeFilter
+                : i -> new NameSimilarityEdgeFilter(strictEdgeFilter, pointHints.get(i), points.get(i), 100));
+        if (strictEdgeFilter != edgeFilter || !pointHints.isEmpty()) {
+            // snap the points without a result again, this time ignoring the point hints and snap preventions
+            IntArrayList retryIndices = new IntArrayList();
+            List<GHPoint> retryPoints = new ArrayList<>();
+            for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
+                if (!snaps.get(placeIndex).isValid()) {
+                    retryIndices.add(placeIndex);
+                    retryPoints.add(points.get(placeIndex));
+                }
+            }
+            if (!retryPoints.isEmpty()) {
+                List<Snap> retrySnaps = locationIndex.findClosest(retryPoints, i -> edgeFilter);
+                for (int i = 0; i < retryIndices.size(); i++)
+                    snaps.set(retryIndices.get(i), retrySnaps.get(i));
+            }
+        }
+
         IntArrayList pointsNotFound = new IntArrayList();
-        for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
-            GHPoint point = points.get(placeIndex);
-            Snap snap = null;
-            if (!pointHints.isEmpty())
-                snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
-                        pointHints.get(placeIndex), point, 100));
-            else if (!snapPreventions.isEmpty())
-                snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
-            if (snap == null || !snap.isValid())
-                snap = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
-            if (!snap.isValid())
+        for (int placeIndex = 0; placeIndex < points.size(); placeIndex++)
+            if (!snaps.get(placeIndex).isValid())
                 pointsNotFound.add(placeIndex);
 
-            snaps.add(snap);
-        }
-
         if (!pointsNotFound.isEmpty())
             throw new MultiplePointsNotFoundException(pointsNotFound);
 
@@ -150,6 +161,57 @@ public class ViaRouting {
         return result;
     }
 
+    /**
+     * Calculates the paths of all legs concurrently. This is only possible without curbsides, headings and
+     * pass_through, because these link every leg to the previous one. Every leg uses its own PathCalculator, but
+     * all of them search the same query graph. The first leg is calculated by the calling thread.
+     *
+     * @param pathCalculators creates a new PathCalculator for every leg
+     */
+    public static Result calcPathsConcurrently(List<Snap> snaps, Supplier<PathCalculator> pathCalculators, ExecutorService executor) {
+        final int legs = snaps.size() - 1;
+        List<Future<Result>> futures = new ArrayList<>(legs - 1);
+        try {
+            for (int leg = 1; leg < legs; ++leg) {
+                Snap fromSnap = snaps.get(leg);
+                Snap toSnap = snaps.get(leg + 1);
+                futures.add(executor.submit(() -> calcLeg(fromSnap, toSnap, pathCalculators.get())));
+            }
+            Result result = calcLeg(snaps.get(0), snaps.get(1), pathCalculators.get());
+            result.debug += "visited nodes sum: " + result.visitedNodes;
+            for (Future<Result> future : futures) {
+                Result legResult = future.get();
+                result.paths.addAll(legResult.paths);
+                result.visitedNodes += legResult.visitedNodes;
+                result.debug += legResult.debug + "visited nodes sum: " + result.visitedNodes;
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+        } finally {
+            // stop the remaining legs if one of them failed
+            for (Future<Result> future : futures)
+                future.cancel(true);
+        }
+    }
+
+    private static Result calcLeg(Snap fromSnap, Snap toSnap, PathCalculator pathCalculator) {
+        Result result = new Result(1);
+        List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), new EdgeRestrictions());
+        result.debug += pathCalculator.getDebugString();
+        for (Path path : paths) {
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for leg " + fromSnap.getQueryPoint() + " -> " + toSnap.getQueryPoint());
+            result.paths.add(path);
+            result.debug += ", " + path.getDebugInfo();
+        }
+        result.visitedNodes = pathCalculator.getVisitedNodes();
+        return result;
+    }
+
     public static class Result {
         public List<Path> paths;
         public long visitedNodes;
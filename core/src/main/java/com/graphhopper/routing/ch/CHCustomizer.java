@@ -0,0 +1,322 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.util.AccessFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Calculates the weights of the shortcuts of a CH graph that was contracted independent of the weighting, see
+ * {@link CHParameters#CUSTOMIZABLE}. This is the second phase of customizable contraction hierarchies: every shortcut
+ * v-w gets the weight of the best path v-u-w over all lower neighbors u, which are customized before. The shortcut
+ * gets an infinite weight if the original edge between v and w is better. Nodes whose lower neighbors are all
+ * customized already do not depend on each other, so they are customized in parallel.
+ * <p>
+ * The customization is much faster than a new contraction, so it can be used to update the CH graph after the
+ * weights of the edges changed or to use the CH graph with another weighting of the same flag encoder, see
+ * {@link com.graphhopper.storage.RoutingCHGraphImpl#RoutingCHGraphImpl(CHGraph, Weighting)}. Note that the weights of
+ * the shortcuts are changed in place, so queries must not run on the CH graph during the customization. Only
+ * node-based CH graphs are supported.
+ */
+public class CHCustomizer {
+    private static final Logger logger = LoggerFactory.getLogger(CHCustomizer.class);
+    // the smallest weight that can be stored for a shortcut
+    private static final double MIN_WEIGHT = 0.001;
+    // rounds with fewer nodes are customized by a single thread
+    private static final int MIN_PARALLEL_NODES = 256;
+    private final CHGraph chGraph;
+    private final BooleanEncodedValue accessEnc;
+    private final int nodes;
+    // the arcs to the higher neighbors of every node sorted by the neighbor id, with the shortcuts for both directions
+    private final int[] arcStart;
+    private final int[] arcTargets;
+    private final int[] fwdShortcuts;
+    private final int[] bwdShortcuts;
+    // the lower neighbors of every node
+    private final int[] lowerStart;
+    private final int[] lowerNodes;
+    // the nodes grouped by the round they can be customized in
+    private final int[] roundStart;
+    private final int[] roundNodes;
+
+    public CHCustomizer(CHGraph chGraph) {
+        if (chGraph.getCHConfig().isEdgeBased())
+            throw new IllegalArgumentException("Customization is only supported for node-based CH, but was used for " + chGraph.getCHConfig().getName());
+        this.chGraph = chGraph;
+        accessEnc = chGraph.getCHConfig().getWeighting().getFlagEncoder().getAccessEnc();
+        nodes = chGraph.getNodes();
+
+        arcStart = new int[nodes + 1];
+        IntArrayList targets = new IntArrayList();
+        IntArrayList fwd = new IntArrayList();
+        IntArrayList bwd = new IntArrayList();
+        IntHashSet nodeTargets = new IntHashSet();
+        IntIntHashMap nodeFwdShortcuts = new IntIntHashMap();
+        IntIntHashMap nodeBwdShortcuts = new IntIntHashMap();
+        CHEdgeExplorer explorer = chGraph.createEdgeExplorer(AccessFilter.allEdges(accessEnc));
+        for (int node = 0; node < nodes; node++) {
+            arcStart[node] = targets.size();
+            nodeTargets.clear();
+            nodeFwdShortcuts.clear();
+            nodeBwdShortcuts.clear();
+            int level = chGraph.getLevel(node);
+            CHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int adj = iter.getAdjNode();
+                if (chGraph.getLevel(adj) <= level)
+                    continue;
+                nodeTargets.add(adj);
+                if (iter.isShortcut()) {
+                    if (iter.getFwdAccess())
+                        nodeFwdShortcuts.put(adj, iter.getEdge());
+                    if (iter.getBwdAccess())
+                        nodeBwdShortcuts.put(adj, iter.getEdge());
+                }
+            }
+            int[] sortedTargets = nodeTargets.toArray();
+            Arrays.sort(sortedTargets);
+            for (int target : sortedTargets) {
+                targets.add(target);
+                fwd.add(nodeFwdShortcuts.getOrDefault(target, NO_EDGE));
+                bwd.add(nodeBwdShortcuts.getOrDefault(target, NO_EDGE));
+            }
+        }
+        arcStart[nodes] = targets.size();
+        arcTargets = targets.toArray();
+        fwdShortcuts = fwd.toArray();
+        bwdShortcuts = bwd.toArray();
+
+        lowerStart = new int[nodes + 1];
+        for (int target : arcTargets)
+            lowerStart[target + 1]++;
+        for (int node = 0; node < nodes; node++)
+            lowerStart[node + 1] += lowerStart[node];
+        lowerNodes = new int[arcTargets.length];
+        int[] lowerCount = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+            for (int arc = arcStart[node]; arc < arcStart[node + 1]; arc++) {
+                int target = arcTargets[arc];
+                lowerNodes[lowerStart[target] + lowerCount[target]++] = node;
+            }
+
+        // a node can be customized once all its lower neighbors are customized
+        int[] rounds = new int[nodes];
+        int maxRound = 0;
+        NodeOrderingProvider nodeOrdering = chGraph.getNodeOrderingProvider();
+        for (int level = 0; level < nodes; level++) {
+            int node = nodeOrdering.getNodeIdForLevel(level);
+            maxRound = Math.max(maxRound, rounds[node]);
+            for (int arc = arcStart[node]; arc < arcStart[node + 1]; arc++)
+                rounds[arcTargets[arc]] = Math.max(rounds[arcTargets[arc]], rounds[node] + 1);
+        }
+        roundStart = new int[maxRound + 2];
+        for (int node = 0; node < nodes; node++)
+            roundStart[rounds[node] + 1]++;
+        for (int round = 0; round <= maxRound; round++)
+            roundStart[round + 1] += roundStart[round];
+        roundNodes = new int[nodes];
+        int[] roundCount = new int[maxRound + 1];
+        for (int node = 0; node < nodes; node++)
+            roundNodes[roundStart[rounds[node]] + roundCount[rounds[node]]++] = node;
+    }
+
+    /**
+     * Calculates the weights of all shortcuts for the given weighting, which must use the flag encoder of the CH
+     * graph.
+     *
+     * @param threads the number of threads used to customize the nodes of one round
+     */
+    public void customize(Weighting weighting, int threads) {
+        if (weighting.getFlagEncoder().getAccessEnc() != accessEnc)
+            throw new IllegalArgumentException("The weighting " + weighting + " must use the flag encoder of the CH graph "
+                    + chGraph.getCHConfig().getName() + ": " + chGraph.getCHConfig().getWeighting().getFlagEncoder());
+        if (weighting.hasTurnCosts())
+            throw new IllegalArgumentException("Weighting has turn costs, but CHGraph is node-based");
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive, but was: " + threads);
+
+        StopWatch sw = new StopWatch().start();
+        Customization customization = new Customization(weighting);
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            for (int round = 0; round < roundStart.length - 1; round++) {
+                int from = roundStart[round], to = roundStart[round + 1];
+                if (executor == null || to - from < MIN_PARALLEL_NODES) {
+                    customization.customizeNodes(from, to);
+                    continue;
+                }
+                List<Future<?>> futures = new ArrayList<>(threads);
+                int chunkSize = (to - from + threads - 1) / threads;
+                for (int start = from; start < to; start += chunkSize) {
+                    final int chunkFrom = start, chunkTo = Math.min(to, start + chunkSize);
+                    futures.add(executor.submit(() -> customization.customizeNodes(chunkFrom, chunkTo)));
+                }
+                for (Future<?> future : futures)
+                    future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if (executor != null)
+                executor.shutdownNow();
+        }
+        int shortcuts = customization.writeShortcuts();
+        logger.info("Customized {} of {} shortcuts for {} in {} rounds, took: {}s", Helper.nf(shortcuts),
+                Helper.nf(chGraph.getEdges() - chGraph.getOriginalEdges()), weighting, roundStart.length - 1, sw.stop().getSeconds());
+    }
+
+    private int findArc(int node, int target) {
+        int arc = Arrays.binarySearch(arcTargets, arcStart[node], arcStart[node + 1], target);
+        return arc < 0 ? -1 : arc;
+    }
+
+    private class Customization {
+        private final Weighting weighting;
+        // the best weights from the lower node of an arc to the higher one (up) and back (down), and the edges
+        // that belong to these weights, i.e. either an original edge or a shortcut
+        private final double[] upWeights;
+        private final double[] downWeights;
+        private final int[] upEdges;
+        private final int[] downEdges;
+        private final int[] fwdSkippedEdges;
+        private final int[] bwdSkippedEdges;
+
+        Customization(Weighting weighting) {
+            this.weighting = weighting;
+            int arcs = arcTargets.length;
+            upWeights = new double[arcs];
+            downWeights = new double[arcs];
+            upEdges = new int[arcs];
+            downEdges = new int[arcs];
+            fwdSkippedEdges = new int[2 * arcs];
+            bwdSkippedEdges = new int[2 * arcs];
+        }
+
+        void customizeNodes(int from, int to) {
+            EdgeExplorer explorer = chGraph.getBaseGraph().createEdgeExplorer();
+            for (int i = from; i < to; i++)
+                customizeNode(roundNodes[i], explorer);
+        }
+
+        private void customizeNode(int node, EdgeExplorer explorer) {
+            int start = arcStart[node], end = arcStart[node + 1];
+            if (start == end)
+                return;
+            Arrays.fill(upWeights, start, end, Double.POSITIVE_INFINITY);
+            Arrays.fill(downWeights, start, end, Double.POSITIVE_INFINITY);
+            Arrays.fill(upEdges, start, end, NO_EDGE);
+            Arrays.fill(downEdges, start, end, NO_EDGE);
+
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int arc = findArc(node, iter.getAdjNode());
+                if (arc < 0)
+                    continue;
+                double weight = weighting.calcEdgeWeightWithAccess(iter, false);
+                if (weight < upWeights[arc]) {
+                    upWeights[arc] = weight;
+                    upEdges[arc] = iter.getEdge();
+                }
+                weight = weighting.calcEdgeWeightWithAccess(iter, true);
+                if (weight < downWeights[arc]) {
+                    downWeights[arc] = weight;
+                    downEdges[arc] = iter.getEdge();
+                }
+            }
+
+            // every lower neighbor that is connected to the same higher neighbor as this node forms a lower triangle
+            for (int i = lowerStart[node]; i < lowerStart[node + 1]; i++) {
+                int lower = lowerNodes[i];
+                int lowerArc = findArc(lower, node);
+                int lowerEnd = arcStart[lower + 1];
+                for (int a = arcStart[lower], b = start; a < lowerEnd && b < end; ) {
+                    if (arcTargets[a] < arcTargets[b]) {
+                        a++;
+                    } else if (arcTargets[a] > arcTargets[b]) {
+                        b++;
+                    } else {
+                        double fwdWeight = downWeights[lowerArc] + upWeights[a];
+                        if (fwdWeight < upWeights[b] && fwdShortcuts[b] != NO_EDGE) {
+                            upWeights[b] = fwdWeight;
+                            upEdges[b] = fwdShortcuts[b];
+                            fwdSkippedEdges[2 * b] = downEdges[lowerArc];
+                            fwdSkippedEdges[2 * b + 1] = upEdges[a];
+                        }
+                        double bwdWeight = downWeights[a] + upWeights[lowerArc];
+                        if (bwdWeight < downWeights[b] && bwdShortcuts[b] != NO_EDGE) {
+                            downWeights[b] = bwdWeight;
+                            downEdges[b] = bwdShortcuts[b];
+                            bwdSkippedEdges[2 * b] = downEdges[a];
+                            bwdSkippedEdges[2 * b + 1] = upEdges[lowerArc];
+                        }
+                        a++;
+                        b++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the number of shortcuts with a finite weight
+         */
+        int writeShortcuts() {
+            int count = 0;
+            for (int arc = 0; arc < arcTargets.length; arc++) {
+                if (fwdShortcuts[arc] != NO_EDGE)
+                    count += writeShortcut(fwdShortcuts[arc], arcTargets[arc], upEdges[arc] == fwdShortcuts[arc],
+                            upWeights[arc], fwdSkippedEdges[2 * arc], fwdSkippedEdges[2 * arc + 1]);
+                if (bwdShortcuts[arc] != NO_EDGE)
+                    count += writeShortcut(bwdShortcuts[arc], arcTargets[arc], downEdges[arc] == bwdShortcuts[arc],
+                            downWeights[arc], bwdSkippedEdges[2 * arc], bwdSkippedEdges[2 * arc + 1]);
+            }
+            return count;
+        }
+
+        private int writeShortcut(int shortcut, int adjNode, boolean used, double weight, int skippedEdge1, int skippedEdge2) {
+            CHEdgeIteratorState edgeState = chGraph.getEdgeIteratorState(shortcut, adjNode);
+            if (!used) {
+                // the original edge or no path at all is better, so the shortcut must not be used
+                edgeState.setWeight(Double.POSITIVE_INFINITY).setSkippedEdges(NO_EDGE, NO_EDGE);
+                return 0;
+            }
+            edgeState.setWeight(Math.max(MIN_WEIGHT, weight)).setSkippedEdges(skippedEdge1, skippedEdge2);
+            return 1;
+        }
+    }
+}
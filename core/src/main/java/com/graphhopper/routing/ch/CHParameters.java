@@ -9,6 +9,12 @@ public final class CHParameters {
     public static final String NEIGHBOR_UPDATES = Parameters.CH.PREPARE + "updates.neighbor";
     public static final String CONTRACTED_NODES = Parameters.CH.PREPARE + "contracted_nodes";
     public static final String LOG_MESSAGES = Parameters.CH.PREPARE + "log_messages";
+    // number of threads used to contract the nodes of a single CH profile
+    public static final String CONTRACTION_THREADS = Parameters.CH.PREPARE + "contraction_threads";
+    // contract the nodes independent of the weighting so the weights can be customized later, see CHCustomizer
+    public static final String CUSTOMIZABLE = Parameters.CH.PREPARE + "customizable";
+    // the customizable contraction fails if it creates more shortcuts than this number times the number of edges
+    public static final String CUSTOMIZABLE_MAX_SHORTCUTS_PER_EDGE = Parameters.CH.PREPARE + "customizable_max_shortcuts_per_edge";
     // node contraction, node-based
     public static final String EDGE_DIFFERENCE_WEIGHT = Parameters.CH.PREPARE + "node.edge_difference_weight";
     public static final String ORIGINAL_EDGE_COUNT_WEIGHT = Parameters.CH.PREPARE + "node.original_edge_count_weight";
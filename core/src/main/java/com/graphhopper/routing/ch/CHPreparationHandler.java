@@ -20,6 +20,7 @@ package com.graphhopper.routing.ch;
 import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.config.CHProfile;
 import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.CHGraph;
 import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.StorableProperties;
 import com.graphhopper.util.PMap;
@@ -193,6 +194,8 @@ public class CHPreparationHandler {
                     prepare.close();
 
                 properties.put(CH.PREPARE + "date." + name, createFormatter().format(new Date()));
+                if (prepare.isCustomizable())
+                    properties.put(CHParameters.CUSTOMIZABLE + "." + name, true);
             }, name);
         }
 
@@ -221,6 +224,29 @@ public class CHPreparationHandler {
         }
     }
 
+    /**
+     * Contracts the CH graph of the specified profile again, e.g. after the weights of the graph changed. The node
+     * ordering of the previous contraction is re-used, which is much faster than a new preparation, but the queries
+     * can become a bit slower. If the CH graph was contracted with {@link CHParameters#CUSTOMIZABLE} only the weights
+     * of the shortcuts are calculated again, which is faster still.
+     */
+    public void prepareAgain(GraphHopperStorage ghStorage, String profile) {
+        PrepareContractionHierarchies oldPreparation = getPreparation(profile);
+        CHGraph chGraph = ghStorage.getCHGraph(oldPreparation.getCHConfig().getName());
+        if (ghStorage.getProperties().get(CHParameters.CUSTOMIZABLE + "." + chGraph.getCHConfig().getName()).equals("true")) {
+            LOGGER.info("customizing CH again for profile '" + profile + "' ... (" + getMemInfo() + ")");
+            new CHCustomizer(chGraph).customize(chGraph.getCHConfig().getWeighting(), pMap.getInt(CHParameters.CONTRACTION_THREADS, 1));
+            return;
+        }
+        NodeOrderingProvider nodeOrdering = chGraph.getNodeOrderingProvider();
+        chGraph.removeShortcuts();
+        PrepareContractionHierarchies preparation = createCHPreparation(ghStorage, oldPreparation.getCHConfig()).
+                useFixedNodeOrdering(nodeOrdering);
+        LOGGER.info("calling CH prepare.doWork again for profile '" + profile + "' with the previous node ordering ... (" + getMemInfo() + ")");
+        preparation.doWork();
+        preparations.set(preparations.indexOf(oldPreparation), preparation);
+    }
+
     private PrepareContractionHierarchies createCHPreparation(GraphHopperStorage ghStorage, CHConfig chConfig) {
         PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, chConfig);
         pch.setParams(pMap);
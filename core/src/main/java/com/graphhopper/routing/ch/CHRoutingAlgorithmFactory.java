@@ -29,6 +29,7 @@ import com.graphhopper.util.PMap;
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Routing.ALGORITHM;
 import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
+import static com.graphhopper.util.Parameters.Routing.QUATERNARY_HEAP;
 
 /**
  * Given a {@link RoutingCHGraph} and possibly a {@link QueryGraph} this class sets up and creates routing
@@ -36,6 +37,7 @@ import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
  */
 public class CHRoutingAlgorithmFactory {
     private final RoutingCHGraph routingCHGraph;
+    private SearchStatePool searchStatePool = SearchStatePool.getDefault();
 
     public CHRoutingAlgorithmFactory(RoutingCHGraph routingCHGraph, QueryGraph queryGraph) {
         this(new QueryRoutingCHGraph(routingCHGraph, queryGraph));
@@ -45,12 +47,23 @@ public class CHRoutingAlgorithmFactory {
         this.routingCHGraph = routingCHGraph;
     }
 
+    /**
+     * @param searchStatePool the pool the algorithms take their data structures from or null to allocate them for
+     *                        every algorithm
+     */
+    public CHRoutingAlgorithmFactory setSearchStatePool(SearchStatePool searchStatePool) {
+        this.searchStatePool = searchStatePool;
+        return this;
+    }
+
     public BidirRoutingAlgorithm createAlgo(PMap opts) {
         BidirRoutingAlgorithm algo = routingCHGraph.isEdgeBased()
                 ? createAlgoEdgeBased(routingCHGraph, opts)
                 : createAlgoNodeBased(routingCHGraph, opts);
         if (opts.has(MAX_VISITED_NODES))
             algo.setMaxVisitedNodes(opts.getInt(MAX_VISITED_NODES, Integer.MAX_VALUE));
+        if (algo instanceof AbstractBidirAlgo)
+            ((AbstractBidirAlgo) algo).setQuaternaryHeap(opts.getBool(QUATERNARY_HEAP, false));
         return algo;
     }
 
@@ -61,9 +74,10 @@ public class CHRoutingAlgorithmFactory {
             algo = defaultAlgo;
         if (ASTAR_BI.equals(algo)) {
             return new AStarBidirectionEdgeCHNoSOD(g)
-                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()))
+                    .setSearchStatePool(searchStatePool);
         } else if (DIJKSTRA_BI.equals(algo)) {
-            return new DijkstraBidirectionEdgeCHNoSOD(g);
+            return new DijkstraBidirectionEdgeCHNoSOD(g).setSearchStatePool(searchStatePool);
         } else if (ALT_ROUTE.equalsIgnoreCase(algo)) {
             return new AlternativeRouteEdgeCH(g, opts);
         } else {
@@ -79,12 +93,13 @@ public class CHRoutingAlgorithmFactory {
             algo = defaultAlgo;
         if (ASTAR_BI.equals(algo)) {
             return new AStarBidirectionCH(g)
-                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()))
+                    .setSearchStatePool(searchStatePool);
         } else if (DIJKSTRA_BI.equals(algo) || Helper.isEmpty(algo)) {
             if (opts.getBool("stall_on_demand", true)) {
-                return new DijkstraBidirectionCH(g);
+                return new DijkstraBidirectionCH(g).setSearchStatePool(searchStatePool);
             } else {
-                return new DijkstraBidirectionCHNoSOD(g);
+                return new DijkstraBidirectionCHNoSOD(g).setSearchStatePool(searchStatePool);
             }
         } else if (ALT_ROUTE.equalsIgnoreCase(algo)) {
             return new AlternativeRouteCH(g, opts);
@@ -0,0 +1,117 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.util.AccessFilter;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+import static com.graphhopper.routing.ch.CHParameters.CUSTOMIZABLE;
+import static com.graphhopper.routing.ch.CHParameters.CUSTOMIZABLE_MAX_SHORTCUTS_PER_EDGE;
+
+/**
+ * Contracts the nodes of a CH graph without looking at the weights of the edges, which is the first phase of
+ * customizable contraction hierarchies. The nodes are contracted in the order of their current degree (minimum degree
+ * elimination) and every node is connected to all of its remaining neighbors. Shortcuts are only added between
+ * neighbors that are connected via a lower node, one for each direction and with an infinite weight. The weights and
+ * skipped edges of the shortcuts are calculated by the {@link CHCustomizer}.
+ * <p>
+ * Minimum degree elimination is cheap, but for some graphs it creates a lot of fill-in, especially for the last
+ * nodes, so the contraction stops with an error as soon as it exceeds the given maximum number of shortcuts.
+ */
+class CustomizableContractor {
+    private final CHGraph chGraph;
+    private final BooleanEncodedValue accessEnc;
+    private final long maxShortcuts;
+
+    CustomizableContractor(CHGraph chGraph, BooleanEncodedValue accessEnc, long maxShortcuts) {
+        this.chGraph = chGraph;
+        this.accessEnc = accessEnc;
+        this.maxShortcuts = maxShortcuts;
+    }
+
+    /**
+     * Contracts all nodes. The level of every node must be set to the number of nodes before.
+     *
+     * @return the number of added shortcuts
+     * @throws IllegalStateException if more than the maximum number of shortcuts would be needed
+     */
+    int contractNodes() {
+        int nodes = chGraph.getNodes();
+        // the neighbors of every node that are not contracted yet
+        IntHashSet[] neighbors = new IntHashSet[nodes];
+        // the neighbors of every node it shares a lower neighbor with
+        IntHashSet[] triangles = new IntHashSet[nodes];
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(nodes);
+        EdgeExplorer explorer = chGraph.getBaseGraph().createEdgeExplorer(AccessFilter.allEdges(accessEnc));
+        for (int node = 0; node < nodes; node++) {
+            IntHashSet set = new IntHashSet();
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                if (iter.getAdjNode() != node)
+                    set.add(iter.getAdjNode());
+            neighbors[node] = set;
+            heap.push(node, set.size());
+        }
+
+        int level = 0;
+        int shortcuts = 0;
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            chGraph.setLevel(node, level++);
+            int[] upperNeighbors = neighbors[node].toArray();
+            Arrays.sort(upperNeighbors);
+            IntHashSet lowerTriangles = triangles[node];
+            neighbors[node] = null;
+            triangles[node] = null;
+
+            if (lowerTriangles != null)
+                for (int neighbor : upperNeighbors)
+                    if (lowerTriangles.contains(neighbor)) {
+                        if (shortcuts + 2 > maxShortcuts)
+                            throw new IllegalStateException("The customizable contraction exceeded the maximum of " + maxShortcuts
+                                    + " shortcuts with " + (nodes - level) + " of " + nodes + " nodes left. The graph has too much "
+                                    + "fill-in for the minimum degree ordering, disable " + CUSTOMIZABLE + " or increase "
+                                    + CUSTOMIZABLE_MAX_SHORTCUTS_PER_EDGE);
+                        chGraph.shortcut(node, neighbor, PrepareEncoder.getScFwdDir(), Double.POSITIVE_INFINITY, EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE);
+                        chGraph.shortcut(node, neighbor, PrepareEncoder.getScBwdDir(), Double.POSITIVE_INFINITY, EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE);
+                        shortcuts += 2;
+                    }
+
+            for (int a : upperNeighbors) {
+                IntHashSet set = neighbors[a];
+                set.remove(node);
+                if (triangles[a] == null)
+                    triangles[a] = new IntHashSet();
+                for (int b : upperNeighbors)
+                    if (a != b) {
+                        set.add(b);
+                        triangles[a].add(b);
+                    }
+                heap.update(a, set.size());
+            }
+        }
+        return shortcuts;
+    }
+}
@@ -24,7 +24,13 @@ import com.graphhopper.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
@@ -47,36 +53,20 @@ class EdgeBasedNodeContractor implements NodeContractor {
     private PrepareGraphEdgeExplorer inEdgeExplorer;
     private PrepareGraphEdgeExplorer outEdgeExplorer;
     private PrepareGraphEdgeExplorer existingShortcutExplorer;
-    private PrepareGraphOrigEdgeExplorer sourceNodeOrigInEdgeExplorer;
-    private PrepareGraphOrigEdgeExplorer targetNodeOrigOutEdgeExplorer;
     private ShortcutHandler shortcutHandler;
     private final Params params = new Params();
     private final PMap pMap;
-    private final StopWatch dijkstraSW = new StopWatch();
-    // temporary data used during node contraction
-    private final IntSet sourceNodes = new IntHashSet(10);
-    private final IntSet targetNodes = new IntHashSet(10);
-    private final LongSet addedShortcuts = new LongHashSet();
-    private final Stats addingStats = new Stats();
-    private final Stats countingStats = new Stats();
-    private Stats activeStats;
+    // there is one shortcut finder per thread, the first one is also used for everything that is not done in parallel
+    private ShortcutFinder[] shortcutFinders;
+    private ExecutorService executor;
+    // the nodes that are currently contracted in parallel, none of them can be part of a witness path
+    private boolean[] contractingNodes;
 
     private int[] hierarchyDepths;
-    private EdgeBasedWitnessPathSearcher witnessPathSearcher;
 
     // counts the total number of added shortcuts
     private int addedShortcutsCount;
 
-    // edge counts used to calculate priority
-    private int numShortcuts;
-    private int numPrevEdges;
-    private int numOrigEdges;
-    private int numPrevOrigEdges;
-    private int numAllEdges;
-
-    // counters used for performance analysis
-    private int numPolledEdges;
-
     public EdgeBasedNodeContractor(CHPreparationGraph prepareGraph, ShortcutHandler shortcutHandler, PMap pMap) {
         this.prepareGraph = prepareGraph;
         this.shortcutHandler = shortcutHandler;
@@ -88,6 +78,7 @@ class EdgeBasedNodeContractor implements NodeContractor {
         params.edgeQuotientWeight = pMap.getFloat(EDGE_QUOTIENT_WEIGHT, params.edgeQuotientWeight);
         params.originalEdgeQuotientWeight = pMap.getFloat(ORIGINAL_EDGE_QUOTIENT_WEIGHT, params.originalEdgeQuotientWeight);
         params.hierarchyDepthWeight = pMap.getFloat(HIERARCHY_DEPTH_WEIGHT, params.hierarchyDepthWeight);
+        params.threads = Math.max(1, pMap.getInt(CONTRACTION_THREADS, params.threads));
     }
 
     @Override
@@ -95,10 +86,20 @@ class EdgeBasedNodeContractor implements NodeContractor {
         inEdgeExplorer = prepareGraph.createInEdgeExplorer();
         outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
         existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
-        sourceNodeOrigInEdgeExplorer = prepareGraph.createInOrigEdgeExplorer();
-        targetNodeOrigOutEdgeExplorer = prepareGraph.createOutOrigEdgeExplorer();
-        witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph, pMap);
+        shortcutFinders = new ShortcutFinder[params.threads];
+        for (int i = 0; i < shortcutFinders.length; i++)
+            shortcutFinders[i] = new ShortcutFinder();
         hierarchyDepths = new int[prepareGraph.getNodes()];
+        if (params.threads > 1) {
+            contractingNodes = new boolean[prepareGraph.getNodes()];
+            for (ShortcutFinder finder : shortcutFinders)
+                finder.witnessPathSearcher.setIgnoredNodes(contractingNodes);
+            executor = Executors.newFixedThreadPool(params.threads, r -> {
+                Thread thread = new Thread(r, "ch-contraction");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
 
     @Override
@@ -108,46 +109,127 @@ class EdgeBasedNodeContractor implements NodeContractor {
 
     @Override
     public float calculatePriority(int node) {
-        activeStats = countingStats;
-        resetEdgeCounters();
-        countPreviousEdges(node);
-        if (numAllEdges == 0)
-            // this node is isolated, maybe it belongs to a removed subnetwork, in any case we can quickly contract it
-            // no shortcuts will be introduced
-            return Float.NEGATIVE_INFINITY;
-        stats().stopWatch.start();
-        findAndHandlePrepareShortcuts(node, this::countShortcuts);
-        stats().stopWatch.stop();
-        // the higher the priority the later (!) this node will be contracted
-        float edgeQuotient = numShortcuts / (float) numPrevEdges;
-        float origEdgeQuotient = numOrigEdges / (float) numPrevOrigEdges;
-        int hierarchyDepth = hierarchyDepths[node];
-        float priority = params.edgeQuotientWeight * edgeQuotient +
-                params.originalEdgeQuotientWeight * origEdgeQuotient +
-                params.hierarchyDepthWeight * hierarchyDepth;
-        if (LOGGER.isTraceEnabled())
-            LOGGER.trace("node: {}, eq: {} / {} = {}, oeq: {} / {} = {}, depth: {} --> {}",
-                    node,
-                    numShortcuts, numPrevEdges, edgeQuotient,
-                    numOrigEdges, numPrevOrigEdges, origEdgeQuotient,
-                    hierarchyDepth, priority);
-        return priority;
+        return shortcutFinders[0].calculatePriority(node);
+    }
+
+    @Override
+    public float[] calculatePriorities(int[] nodes) {
+        float[] priorities = new float[nodes.length];
+        runInParallel(nodes.length, (finder, i) -> priorities[i] = finder.calculatePriority(nodes[i]));
+        return priorities;
     }
 
     @Override
     public IntContainer contractNode(int node) {
-        activeStats = addingStats;
-        stats().stopWatch.start();
-        findAndHandlePrepareShortcuts(node, this::addShortcutsToPrepareGraph);
+        Stats stats = shortcutFinders[0].addingStats;
+        stats.stopWatch.start();
+        shortcutFinders[0].findAndHandlePrepareShortcuts(node, stats, this::addShortcutsToPrepareGraph);
         insertShortcuts(node);
         IntContainer neighbors = prepareGraph.disconnect(node);
         updateHierarchyDepthsOfNeighbors(node, neighbors);
-        stats().stopWatch.stop();
+        stats.stopWatch.stop();
+        return neighbors;
+    }
+
+    /**
+     * Contracts the given (independent) nodes. The witness searches are run in parallel while the graph is not
+     * modified and witness paths must not lead via any of the given nodes, so each shortcut decision is still valid
+     * after all of them were removed. Afterwards the shortcuts are added and the nodes are disconnected one after
+     * another in the given order, so the result does not depend on the number of threads.
+     */
+    @Override
+    public IntContainer[] contractNodes(int[] nodes) {
+        if (executor == null)
+            return NodeContractor.super.contractNodes(nodes);
+        for (int node : nodes)
+            contractingNodes[node] = true;
+        FoundShortcuts[] foundShortcuts = new FoundShortcuts[nodes.length];
+        runInParallel(nodes.length, (finder, i) -> {
+            FoundShortcuts found = new FoundShortcuts();
+            finder.addingStats.stopWatch.start();
+            finder.findAndHandlePrepareShortcuts(nodes[i], finder.addingStats, found::add);
+            finder.addingStats.stopWatch.stop();
+            foundShortcuts[i] = found;
+        });
+        for (int node : nodes)
+            contractingNodes[node] = false;
+
+        Stats stats = shortcutFinders[0].addingStats;
+        stats.stopWatch.start();
+        IntContainer[] neighbors = new IntContainer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            FoundShortcuts found = foundShortcuts[i];
+            for (int j = 0; j < found.edgesTo.size(); j++)
+                addShortcutsToPrepareGraph(found.edgesFrom.get(j), found.edgesTo.get(j), found.origEdgeCounts.get(j));
+            insertShortcuts(nodes[i]);
+            neighbors[i] = prepareGraph.disconnect(nodes[i]);
+            updateHierarchyDepthsOfNeighbors(nodes[i], neighbors[i]);
+        }
+        stats.stopWatch.stop();
         return neighbors;
     }
 
+    /**
+     * Runs the given task for all indices from 0 to count - 1. Every thread always handles the same indices and all
+     * witness path searchers use the same limit of settled edges. The numbers of settled edges are added to the
+     * statistics of the first searcher in the order of the indices afterwards, so the result neither depends on the
+     * thread timing nor on the number of threads.
+     */
+    private void runInParallel(int count, ParallelTask task) {
+        if (executor == null) {
+            for (int i = 0; i < count; i++)
+                task.run(shortcutFinders[0], i);
+            return;
+        }
+        int maxSettledEdges = shortcutFinders[0].witnessPathSearcher.getMaxSettledEdges();
+        IntArrayList[] settledEdges = new IntArrayList[count];
+        ParallelTask recordingTask = (finder, i) -> {
+            settledEdges[i] = new IntArrayList();
+            finder.witnessPathSearcher.startRecordingSettledEdges(maxSettledEdges, settledEdges[i]);
+            task.run(finder, i);
+            finder.witnessPathSearcher.stopRecordingSettledEdges();
+        };
+        if (count < 2) {
+            for (int i = 0; i < count; i++)
+                recordingTask.run(shortcutFinders[0], i);
+        } else {
+            List<Future<?>> futures = new ArrayList<>(shortcutFinders.length);
+            for (int t = 0; t < Math.min(count, shortcutFinders.length); t++) {
+                final ShortcutFinder finder = shortcutFinders[t];
+                final int firstIndex = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = firstIndex; i < count; i += shortcutFinders.length)
+                        recordingTask.run(finder, i);
+                }));
+            }
+            try {
+                for (Future<?> future : futures)
+                    future.get();
+            } catch (InterruptedException e) {
+                for (Future<?> future : futures)
+                    future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", e);
+            } catch (ExecutionException e) {
+                for (Future<?> future : futures)
+                    future.cancel(true);
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        for (IntArrayList nodeSettledEdges : settledEdges)
+            shortcutFinders[0].witnessPathSearcher.addSettledEdges(nodeSettledEdges);
+    }
+
+    private void shutdownExecutor() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
     @Override
     public void finishContraction() {
+        shutdownExecutor();
         shortcutHandler.finishContraction();
     }
 
@@ -158,99 +240,44 @@ class EdgeBasedNodeContractor implements NodeContractor {
 
     @Override
     public long getDijkstraCount() {
-        return witnessPathSearcher.getTotalNumSearches();
+        long dijkstraCount = 0;
+        for (ShortcutFinder finder : shortcutFinders)
+            dijkstraCount += finder.witnessPathSearcher.getTotalNumSearches();
+        return dijkstraCount;
     }
 
     @Override
     public float getDijkstraSeconds() {
-        return dijkstraSW.getCurrentSeconds();
+        // when running in parallel this is the sum over all threads
+        float dijkstraSeconds = 0;
+        for (ShortcutFinder finder : shortcutFinders)
+            dijkstraSeconds += finder.dijkstraSW.getCurrentSeconds();
+        return dijkstraSeconds;
     }
 
     @Override
     public String getStatisticsString() {
-        String result = "sc-handler-count: " + countingStats + ", sc-handler-contract: " + addingStats + ", " +
-                witnessPathSearcher.getStatisticsString();
-        witnessPathSearcher.resetStats();
+        long countedNodes = 0, addedNodes = 0;
+        double countingSeconds = 0, addingSeconds = 0;
+        EdgeBasedWitnessPathSearcher[] witnessPathSearchers = new EdgeBasedWitnessPathSearcher[shortcutFinders.length];
+        for (int i = 0; i < shortcutFinders.length; i++) {
+            ShortcutFinder finder = shortcutFinders[i];
+            countedNodes += finder.countingStats.nodes;
+            countingSeconds += finder.countingStats.stopWatch.getCurrentSeconds();
+            addedNodes += finder.addingStats.nodes;
+            addingSeconds += finder.addingStats.stopWatch.getCurrentSeconds();
+            witnessPathSearchers[i] = finder.witnessPathSearcher;
+        }
+        String result = "sc-handler-count: " + Stats.toString(countingSeconds, countedNodes)
+                + ", sc-handler-contract: " + Stats.toString(addingSeconds, addedNodes) + ", "
+                + EdgeBasedWitnessPathSearcher.getStatisticsString(witnessPathSearchers);
+        for (EdgeBasedWitnessPathSearcher witnessPathSearcher : witnessPathSearchers)
+            witnessPathSearcher.resetStats();
         return result;
     }
 
     public int getNumPolledEdges() {
-        return numPolledEdges;
-    }
-
-    /**
-     * This method performs witness searches between all nodes adjacent to the given node and calls the
-     * given handler for all required shortcuts.
-     */
-    private void findAndHandlePrepareShortcuts(int node, PrepareShortcutHandler shortcutHandler) {
-        numPolledEdges = 0;
-        stats().nodes++;
-        addedShortcuts.clear();
-
-        // first we need to identify the possible source nodes from which we can reach the center node
-        sourceNodes.clear();
-        PrepareGraphEdgeIterator incomingEdges = inEdgeExplorer.setBaseNode(node);
-        while (incomingEdges.next()) {
-            int sourceNode = incomingEdges.getAdjNode();
-            if (sourceNode == node) {
-                continue;
-            }
-            boolean isNewSourceNode = sourceNodes.add(sourceNode);
-            if (!isNewSourceNode) {
-                continue;
-            }
-            // for each source node we need to look at every incoming original edge and find the initial entries
-            PrepareGraphOrigEdgeIterator origInIter = sourceNodeOrigInEdgeExplorer.setBaseNode(sourceNode);
-            while (origInIter.next()) {
-                int numInitialEntries = witnessPathSearcher.initSearch(node, sourceNode, GHUtility.getEdgeFromEdgeKey(origInIter.getOrigEdgeKeyLast()));
-                if (numInitialEntries < 1) {
-                    continue;
-                }
-
-                // now we need to identify all target nodes that can be reached from the center node
-                targetNodes.clear();
-                PrepareGraphEdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(node);
-                while (outgoingEdges.next()) {
-                    int targetNode = outgoingEdges.getAdjNode();
-                    if (targetNode == node) {
-                        continue;
-                    }
-                    boolean isNewTargetNode = targetNodes.add(targetNode);
-                    if (!isNewTargetNode) {
-                        continue;
-                    }
-                    // for each target edge outgoing from a target node we need to check if reaching it requires
-                    // a 'bridge-path'
-                    PrepareGraphOrigEdgeIterator targetEdgeIter = targetNodeOrigOutEdgeExplorer.setBaseNode(targetNode);
-                    while (targetEdgeIter.next()) {
-                        dijkstraSW.start();
-                        PrepareCHEntry entry = witnessPathSearcher.runSearch(targetNode, GHUtility.getEdgeFromEdgeKey(targetEdgeIter.getOrigEdgeKeyFirst()));
-                        dijkstraSW.stop();
-                        if (entry == null || Double.isInfinite(entry.weight)) {
-                            continue;
-                        }
-                        PrepareCHEntry root = entry.getParent();
-                        while (EdgeIterator.Edge.isValid(root.parent.prepareEdge)) {
-                            root = root.getParent();
-                        }
-                        // removing this 'optimization' improves contraction time, but introduces more
-                        // shortcuts (makes slower queries). note that we are not detecting 'duplicate' shortcuts at a later
-                        // stage again, especially when we are just running with the counting handler.
-                        long addedShortcutKey = BitUtil.LITTLE.combineIntsToLong(root.getParent().incEdgeKey, entry.incEdgeKey);
-                        if (!addedShortcuts.add(addedShortcutKey))
-                            continue;
-                        // root parent weight was misused to store initial turn cost here
-                        double initialTurnCost = root.getParent().weight;
-                        entry.weight -= initialTurnCost;
-                        LOGGER.trace("Adding shortcuts for target entry {}", entry);
-                        // todo: re-implement loop-avoidance heuristic as it existed in GH 1.0? it did not work the
-                        // way it was implemented so it was removed.
-                        shortcutHandler.handleShortcut(root, entry, incomingEdges.getOrigEdgeCount() + outgoingEdges.getOrigEdgeCount());
-                    }
-                }
-                numPolledEdges += witnessPathSearcher.getNumPolledEdges();
-            }
-        }
+        return shortcutFinders[0].numPolledEdges;
     }
 
     /**
@@ -286,26 +313,6 @@ class EdgeBasedNodeContractor implements NodeContractor {
         addedShortcutsCount += shortcutHandler.finishContractingNode();
     }
 
-    private void countPreviousEdges(int node) {
-        // todo: this edge counting can probably be simplified, but we might need to re-optimize heuristic parameters then
-        PrepareGraphEdgeIterator outIter = outEdgeExplorer.setBaseNode(node);
-        while (outIter.next()) {
-            numAllEdges++;
-            numPrevEdges++;
-            numPrevOrigEdges += outIter.getOrigEdgeCount();
-        }
-
-        PrepareGraphEdgeIterator inIter = inEdgeExplorer.setBaseNode(node);
-        while (inIter.next()) {
-            numAllEdges++;
-            // do not consider loop edges a second time
-            if (inIter.getBaseNode() == inIter.getAdjNode())
-                continue;
-            numPrevEdges++;
-            numPrevOrigEdges += inIter.getOrigEdgeCount();
-        }
-    }
-
     private void updateHierarchyDepthsOfNeighbors(int node, IntContainer neighbors) {
         int level = hierarchyDepths[node];
         for (IntCursor n : neighbors) {
@@ -373,58 +380,234 @@ class EdgeBasedNodeContractor implements NodeContractor {
                 && (iter.getOrigEdgeKeyLast() == lastOrigEdgeKey);
     }
 
-    private void resetEdgeCounters() {
-        numShortcuts = 0;
-        numPrevEdges = 0;
-        numOrigEdges = 0;
-        numPrevOrigEdges = 0;
-        numAllEdges = 0;
-    }
-
     @Override
     public void close() {
         prepareGraph.close();
         inEdgeExplorer = null;
         outEdgeExplorer = null;
         existingShortcutExplorer = null;
-        sourceNodeOrigInEdgeExplorer = null;
-        targetNodeOrigOutEdgeExplorer = null;
         shortcutHandler = null;
-        witnessPathSearcher.close();
-        sourceNodes.release();
-        targetNodes.release();
-        addedShortcuts.release();
+        for (ShortcutFinder finder : shortcutFinders)
+            finder.close();
+        contractingNodes = null;
         hierarchyDepths = null;
+        shutdownExecutor();
     }
 
-    private Stats stats() {
-        return activeStats;
-    }
+    /**
+     * Holds everything needed to run witness searches for one node, so several nodes can be processed in parallel.
+     */
+    private class ShortcutFinder {
+        private PrepareGraphEdgeExplorer inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        private PrepareGraphEdgeExplorer outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        private PrepareGraphEdgeExplorer existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
+        private PrepareGraphOrigEdgeExplorer sourceNodeOrigInEdgeExplorer = prepareGraph.createInOrigEdgeExplorer();
+        private PrepareGraphOrigEdgeExplorer targetNodeOrigOutEdgeExplorer = prepareGraph.createOutOrigEdgeExplorer();
+        private final EdgeBasedWitnessPathSearcher witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph, pMap);
+        private final StopWatch dijkstraSW = new StopWatch();
+        // temporary data used during node contraction
+        private final IntSet sourceNodes = new IntHashSet(10);
+        private final IntSet targetNodes = new IntHashSet(10);
+        private final LongSet addedShortcuts = new LongHashSet();
+        private final Stats addingStats = new Stats();
+        private final Stats countingStats = new Stats();
+
+        // edge counts used to calculate priority
+        private int numShortcuts;
+        private int numPrevEdges;
+        private int numOrigEdges;
+        private int numPrevOrigEdges;
+        private int numAllEdges;
+
+        // counters used for performance analysis
+        private int numPolledEdges;
+
+        float calculatePriority(int node) {
+            resetEdgeCounters();
+            countPreviousEdges(node);
+            if (numAllEdges == 0)
+                // this node is isolated, maybe it belongs to a removed subnetwork, in any case we can quickly contract it
+                // no shortcuts will be introduced
+                return Float.NEGATIVE_INFINITY;
+            countingStats.stopWatch.start();
+            findAndHandlePrepareShortcuts(node, countingStats, this::countShortcuts);
+            countingStats.stopWatch.stop();
+            // the higher the priority the later (!) this node will be contracted
+            float edgeQuotient = numShortcuts / (float) numPrevEdges;
+            float origEdgeQuotient = numOrigEdges / (float) numPrevOrigEdges;
+            int hierarchyDepth = hierarchyDepths[node];
+            float priority = params.edgeQuotientWeight * edgeQuotient +
+                    params.originalEdgeQuotientWeight * origEdgeQuotient +
+                    params.hierarchyDepthWeight * hierarchyDepth;
+            if (LOGGER.isTraceEnabled())
+                LOGGER.trace("node: {}, eq: {} / {} = {}, oeq: {} / {} = {}, depth: {} --> {}",
+                        node,
+                        numShortcuts, numPrevEdges, edgeQuotient,
+                        numOrigEdges, numPrevOrigEdges, origEdgeQuotient,
+                        hierarchyDepth, priority);
+            return priority;
+        }
 
-    @FunctionalInterface
-    private interface PrepareShortcutHandler {
-        void handleShortcut(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount);
-    }
+        /**
+         * This method performs witness searches between all nodes adjacent to the given node and calls the
+         * given handler for all required shortcuts. The graph is not changed by this method.
+         */
+        void findAndHandlePrepareShortcuts(int node, Stats stats, PrepareShortcutHandler shortcutHandler) {
+            numPolledEdges = 0;
+            stats.nodes++;
+            addedShortcuts.clear();
+
+            // first we need to identify the possible source nodes from which we can reach the center node
+            sourceNodes.clear();
+            PrepareGraphEdgeIterator incomingEdges = inEdgeExplorer.setBaseNode(node);
+            while (incomingEdges.next()) {
+                int sourceNode = incomingEdges.getAdjNode();
+                if (sourceNode == node) {
+                    continue;
+                }
+                boolean isNewSourceNode = sourceNodes.add(sourceNode);
+                if (!isNewSourceNode) {
+                    continue;
+                }
+                // for each source node we need to look at every incoming original edge and find the initial entries
+                PrepareGraphOrigEdgeIterator origInIter = sourceNodeOrigInEdgeExplorer.setBaseNode(sourceNode);
+                while (origInIter.next()) {
+                    int numInitialEntries = witnessPathSearcher.initSearch(node, sourceNode, GHUtility.getEdgeFromEdgeKey(origInIter.getOrigEdgeKeyLast()));
+                    if (numInitialEntries < 1) {
+                        continue;
+                    }
+
+                    // now we need to identify all target nodes that can be reached from the center node
+                    targetNodes.clear();
+                    PrepareGraphEdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(node);
+                    while (outgoingEdges.next()) {
+                        int targetNode = outgoingEdges.getAdjNode();
+                        if (targetNode == node) {
+                            continue;
+                        }
+                        boolean isNewTargetNode = targetNodes.add(targetNode);
+                        if (!isNewTargetNode) {
+                            continue;
+                        }
+                        // for each target edge outgoing from a target node we need to check if reaching it requires
+                        // a 'bridge-path'
+                        PrepareGraphOrigEdgeIterator targetEdgeIter = targetNodeOrigOutEdgeExplorer.setBaseNode(targetNode);
+                        while (targetEdgeIter.next()) {
+                            dijkstraSW.start();
+                            PrepareCHEntry entry = witnessPathSearcher.runSearch(targetNode, GHUtility.getEdgeFromEdgeKey(targetEdgeIter.getOrigEdgeKeyFirst()));
+                            dijkstraSW.stop();
+                            if (entry == null || Double.isInfinite(entry.weight)) {
+                                continue;
+                            }
+                            PrepareCHEntry root = entry.getParent();
+                            while (EdgeIterator.Edge.isValid(root.parent.prepareEdge)) {
+                                root = root.getParent();
+                            }
+                            // removing this 'optimization' improves contraction time, but introduces more
+                            // shortcuts (makes slower queries). note that we are not detecting 'duplicate' shortcuts at a later
+                            // stage again, especially when we are just running with the counting handler.
+                            long addedShortcutKey = BitUtil.LITTLE.combineIntsToLong(root.getParent().incEdgeKey, entry.incEdgeKey);
+                            if (!addedShortcuts.add(addedShortcutKey))
+                                continue;
+                            // root parent weight was misused to store initial turn cost here
+                            double initialTurnCost = root.getParent().weight;
+                            entry.weight -= initialTurnCost;
+                            LOGGER.trace("Adding shortcuts for target entry {}", entry);
+                            // todo: re-implement loop-avoidance heuristic as it existed in GH 1.0? it did not work the
+                            // way it was implemented so it was removed.
+                            shortcutHandler.handleShortcut(root, entry, incomingEdges.getOrigEdgeCount() + outgoingEdges.getOrigEdgeCount());
+                        }
+                    }
+                    numPolledEdges += witnessPathSearcher.getNumPolledEdges();
+                }
+            }
+        }
 
-    private void countShortcuts(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount) {
-        int fromNode = edgeFrom.parent.adjNode;
-        int toNode = edgeTo.adjNode;
-        int firstOrigEdgeKey = edgeFrom.getParent().incEdgeKey;
-        int lastOrigEdgeKey = edgeTo.incEdgeKey;
+        private void countPreviousEdges(int node) {
+            // todo: this edge counting can probably be simplified, but we might need to re-optimize heuristic parameters then
+            PrepareGraphEdgeIterator outIter = outEdgeExplorer.setBaseNode(node);
+            while (outIter.next()) {
+                numAllEdges++;
+                numPrevEdges++;
+                numPrevOrigEdges += outIter.getOrigEdgeCount();
+            }
 
-        // check if this shortcut already exists
-        final PrepareGraphEdgeIterator iter = existingShortcutExplorer.setBaseNode(fromNode);
-        while (iter.next()) {
-            if (isSameShortcut(iter, toNode, firstOrigEdgeKey, lastOrigEdgeKey)) {
-                // this shortcut exists already, maybe its weight will be updated but we should not count it as
-                // a new edge
-                return;
+            PrepareGraphEdgeIterator inIter = inEdgeExplorer.setBaseNode(node);
+            while (inIter.next()) {
+                numAllEdges++;
+                // do not consider loop edges a second time
+                if (inIter.getBaseNode() == inIter.getAdjNode())
+                    continue;
+                numPrevEdges++;
+                numPrevOrigEdges += inIter.getOrigEdgeCount();
+            }
+        }
+
+        private void countShortcuts(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount) {
+            int fromNode = edgeFrom.parent.adjNode;
+            int toNode = edgeTo.adjNode;
+            int firstOrigEdgeKey = edgeFrom.getParent().incEdgeKey;
+            int lastOrigEdgeKey = edgeTo.incEdgeKey;
+
+            // check if this shortcut already exists
+            final PrepareGraphEdgeIterator iter = existingShortcutExplorer.setBaseNode(fromNode);
+            while (iter.next()) {
+                if (isSameShortcut(iter, toNode, firstOrigEdgeKey, lastOrigEdgeKey)) {
+                    // this shortcut exists already, maybe its weight will be updated but we should not count it as
+                    // a new edge
+                    return;
+                }
             }
+
+            // this shortcut is new --> increase counts
+            numShortcuts++;
+            numOrigEdges += origEdgeCount;
         }
 
-        // this shortcut is new --> increase counts
-        numShortcuts++;
-        numOrigEdges += origEdgeCount;
+        private void resetEdgeCounters() {
+            numShortcuts = 0;
+            numPrevEdges = 0;
+            numOrigEdges = 0;
+            numPrevOrigEdges = 0;
+            numAllEdges = 0;
+        }
+
+        void close() {
+            inEdgeExplorer = null;
+            outEdgeExplorer = null;
+            existingShortcutExplorer = null;
+            sourceNodeOrigInEdgeExplorer = null;
+            targetNodeOrigOutEdgeExplorer = null;
+            witnessPathSearcher.close();
+            sourceNodes.release();
+            targetNodes.release();
+            addedShortcuts.release();
+        }
+    }
+
+    /**
+     * The shortcuts found for one node while the witness searches run in parallel. They are added to the graph later.
+     */
+    private static class FoundShortcuts {
+        private final List<PrepareCHEntry> edgesFrom = new ArrayList<>();
+        private final List<PrepareCHEntry> edgesTo = new ArrayList<>();
+        private final IntArrayList origEdgeCounts = new IntArrayList();
+
+        void add(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount) {
+            edgesFrom.add(edgeFrom);
+            edgesTo.add(edgeTo);
+            origEdgeCounts.add(origEdgeCount);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ParallelTask {
+        void run(ShortcutFinder finder, int index);
+    }
+
+    @FunctionalInterface
+    private interface PrepareShortcutHandler {
+        void handleShortcut(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount);
     }
 
     public static class Params {
@@ -432,16 +615,16 @@ class EdgeBasedNodeContractor implements NodeContractor {
         private float edgeQuotientWeight = 1;
         private float originalEdgeQuotientWeight = 3;
         private float hierarchyDepthWeight = 2;
+        private int threads = 1;
     }
 
     private static class Stats {
         int nodes;
         StopWatch stopWatch = new StopWatch();
 
-        @Override
-        public String toString() {
+        static String toString(double seconds, long nodes) {
             return String.format(Locale.ROOT,
-                    "time: %7.2fs, nodes-handled: %10s", stopWatch.getCurrentSeconds(), nf(nodes));
+                    "time: %7.2fs, nodes-handled: %10s", seconds, nf(nodes));
         }
     }
 
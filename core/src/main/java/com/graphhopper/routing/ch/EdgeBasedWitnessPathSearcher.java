@@ -67,6 +67,8 @@ public class EdgeBasedWitnessPathSearcher {
     private final CHPreparationGraph prepareGraph;
     private PrepareGraphEdgeExplorer outEdgeExplorer;
     private PrepareGraphOrigEdgeExplorer origInEdgeExplorer;
+    // nodes (other than the center node) that must not be part of a witness path
+    private boolean[] ignoredNodes;
 
     // general parameters affecting the number of found witnesses and the search time
     private final Params params = new Params();
@@ -96,6 +98,8 @@ public class EdgeBasedWitnessPathSearcher {
     // an appropriate maximum of settled edges for the next searches
     private int maxSettledEdges;
     private final OnFlyStatisticsCalculator settledEdgesStats = new OnFlyStatisticsCalculator();
+    // while this is set the numbers of settled edges are only recorded here and the limit is not adjusted
+    private IntArrayList recordedSettledEdges;
 
     // statistics to analyze performance
     private final Stats currentBatchStats = new Stats();
@@ -119,6 +123,14 @@ public class EdgeBasedWitnessPathSearcher {
         params.settledEdgeStatsResetInterval = pMap.getInt(SETTLED_EDGES_RESET_INTERVAL, params.settledEdgeStatsResetInterval);
     }
 
+    /**
+     * All nodes flagged in the given array will not be used for witness paths, except for the center node. The array
+     * is only read by this class, so it can be shared between several searchers.
+     */
+    public void setIgnoredNodes(boolean[] ignoredNodes) {
+        this.ignoredNodes = ignoredNodes;
+    }
+
     /**
      * Deletes the shortest path tree that has been found so far and initializes a new witness path search for a given
      * node to be contracted and search edge.
@@ -214,6 +226,8 @@ public class EdgeBasedWitnessPathSearcher {
             final int fromNode = getAdjNode(currKey);
             PrepareGraphEdgeIterator iter = outEdgeExplorer.setBaseNode(fromNode);
             while (iter.next()) {
+                if (isIgnored(iter.getAdjNode()))
+                    continue;
                 double edgeWeight = iter.getWeight() + calcTurnWeight(GHUtility.getEdgeFromEdgeKey(currKey),
                         iter.getBaseNode(), GHUtility.getEdgeFromEdgeKey(iter.getOrigEdgeKeyFirst()));
                 double weight = edgeWeight + weights[currKey];
@@ -289,10 +303,27 @@ public class EdgeBasedWitnessPathSearcher {
         return (adjNodesAndIsPathToCenters[key] & 0b01) == 0b01;
     }
 
+    private boolean isIgnored(int node) {
+        return ignoredNodes != null && node != centerNode && ignoredNodes[node];
+    }
+
     public String getStatisticsString() {
         return "last batch: " + currentBatchStats.toString() + " total: " + totalStats.toString();
     }
 
+    /**
+     * @return the statistics of all the given searchers combined, e.g. when they are used by different threads
+     */
+    static String getStatisticsString(EdgeBasedWitnessPathSearcher[] searchers) {
+        Stats currentBatchStats = new Stats();
+        Stats totalStats = new Stats();
+        for (EdgeBasedWitnessPathSearcher searcher : searchers) {
+            currentBatchStats.add(searcher.currentBatchStats);
+            totalStats.add(searcher.totalStats);
+        }
+        return "last batch: " + currentBatchStats.toString() + " total: " + totalStats.toString();
+    }
+
     public long getNumPolledEdges() {
         return numPolledEdges;
     }
@@ -343,6 +374,8 @@ public class EdgeBasedWitnessPathSearcher {
     private void setInitialEntries(int sourceNode, int sourceEdge, int centerNode) {
         PrepareGraphEdgeIterator outIter = outEdgeExplorer.setBaseNode(sourceNode);
         while (outIter.next()) {
+            if (isIgnored(outIter.getAdjNode()))
+                continue;
             double turnWeight = calcTurnWeight(sourceEdge, sourceNode, GHUtility.getEdgeFromEdgeKey(outIter.getOrigEdgeKeyFirst()));
             if (isInfinite(turnWeight)) {
                 continue;
@@ -396,10 +429,48 @@ public class EdgeBasedWitnessPathSearcher {
         resetShortestPathTree();
     }
 
+    /**
+     * From now on all searches use the given maximum number of settled edges and the numbers of settled edges of the
+     * searches are added to the given list instead of adjusting the maximum. This way several searchers running in
+     * parallel use the same limit and the numbers of settled edges can be added to the statistics of one of them in a
+     * fixed order later, see {@link #addSettledEdges(IntArrayList)}, so the result does not depend on which searcher
+     * ran which search.
+     */
+    void startRecordingSettledEdges(int maxSettledEdges, IntArrayList recordedSettledEdges) {
+        this.maxSettledEdges = maxSettledEdges;
+        this.recordedSettledEdges = recordedSettledEdges;
+        numSettledEdges = 0;
+    }
+
+    void stopRecordingSettledEdges() {
+        recordedSettledEdges.add(numSettledEdges);
+        recordedSettledEdges = null;
+        numSettledEdges = 0;
+    }
+
+    /**
+     * Adds the given numbers of settled edges to the statistics used to adjust the maximum number of settled edges
+     */
+    void addSettledEdges(IntArrayList settledEdges) {
+        for (int i = 0; i < settledEdges.size(); i++)
+            addSettledEdges(settledEdges.get(i));
+    }
+
+    int getMaxSettledEdges() {
+        return maxSettledEdges;
+    }
+
     private void updateMaxSettledEdges() {
+        if (recordedSettledEdges != null)
+            recordedSettledEdges.add(numSettledEdges);
+        else
+            addSettledEdges(numSettledEdges);
+    }
+
+    private void addSettledEdges(int settledEdges) {
         // we use the statistics of settled edges of a batch of previous witness path searches to dynamically 
         // approximate the number of settled edges in the next batch
-        settledEdgesStats.addObservation(numSettledEdges);
+        settledEdgesStats.addObservation(settledEdges);
         if (settledEdgesStats.getCount() == params.settledEdgeStatsResetInterval) {
             maxSettledEdges = Math.max(
                     params.minimumMaxSettledEdges,
@@ -510,6 +581,13 @@ public class EdgeBasedWitnessPathSearcher {
             return b == 0 ? "NaN" : String.format(Locale.ROOT, "%5.1f", a / ((double) b));
         }
 
+        void add(Stats other) {
+            numSearches += other.numSearches;
+            numPolledEdges += other.numPolledEdges;
+            numSettledEdges += other.numSettledEdges;
+            maxNumSettledEdges += other.maxNumSettledEdges;
+        }
+
         void reset() {
             numSearches = 0;
             numPolledEdges = 0;
@@ -17,14 +17,22 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static com.graphhopper.routing.ch.CHParameters.EDGE_DIFFERENCE_WEIGHT;
-import static com.graphhopper.routing.ch.CHParameters.ORIGINAL_EDGE_COUNT_WEIGHT;
+import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
 
 class NodeBasedNodeContractor implements NodeContractor {
@@ -34,16 +42,15 @@ class NodeBasedNodeContractor implements NodeContractor {
     private PrepareGraphEdgeExplorer inEdgeExplorer;
     private PrepareGraphEdgeExplorer outEdgeExplorer;
     private PrepareGraphEdgeExplorer existingShortcutExplorer;
-    private NodeBasedWitnessPathSearcher witnessPathSearcher;
+    // there is one shortcut finder per thread, the first one is also used for everything that is not done in parallel
+    private ShortcutFinder[] shortcutFinders;
+    private ExecutorService executor;
+    // the nodes that are currently contracted in parallel, none of them can be part of a witness path
+    private boolean[] contractingNodes;
     private int addedShortcutsCount;
-    private long dijkstraCount;
-    private final StopWatch dijkstraSW = new StopWatch();
     // meanDegree is the number of edges / number of nodes ratio of the graph, not really the average degree, because
     // each edge can exist in both directions
     private double meanDegree;
-    // temporary counters used for priority calculation
-    private int originalEdgesCount;
-    private int shortcutsCount;
 
     NodeBasedNodeContractor(CHPreparationGraph prepareGraph, ShortcutHandler shortcutHandler, PMap pMap) {
         this.prepareGraph = prepareGraph;
@@ -54,6 +61,7 @@ class NodeBasedNodeContractor implements NodeContractor {
     private void extractParams(PMap pMap) {
         params.edgeDifferenceWeight = pMap.getFloat(EDGE_DIFFERENCE_WEIGHT, params.edgeDifferenceWeight);
         params.originalEdgesCountWeight = pMap.getFloat(ORIGINAL_EDGE_COUNT_WEIGHT, params.originalEdgesCountWeight);
+        params.threads = Math.max(1, pMap.getInt(CONTRACTION_THREADS, params.threads));
     }
 
     @Override
@@ -61,7 +69,19 @@ class NodeBasedNodeContractor implements NodeContractor {
         inEdgeExplorer = prepareGraph.createInEdgeExplorer();
         outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
         existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
-        witnessPathSearcher = new NodeBasedWitnessPathSearcher(prepareGraph);
+        shortcutFinders = new ShortcutFinder[params.threads];
+        for (int i = 0; i < shortcutFinders.length; i++)
+            shortcutFinders[i] = new ShortcutFinder();
+        if (params.threads > 1) {
+            contractingNodes = new boolean[prepareGraph.getNodes()];
+            for (ShortcutFinder finder : shortcutFinders)
+                finder.witnessPathSearcher.setIgnoredNodes(contractingNodes);
+            executor = Executors.newFixedThreadPool(params.threads, r -> {
+                Thread thread = new Thread(r, "ch-contraction");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
 
     @Override
@@ -81,7 +101,10 @@ class NodeBasedNodeContractor implements NodeContractor {
         inEdgeExplorer = null;
         outEdgeExplorer = null;
         existingShortcutExplorer = null;
-        witnessPathSearcher.close();
+        for (ShortcutFinder finder : shortcutFinders)
+            finder.witnessPathSearcher.close();
+        contractingNodes = null;
+        shutdownExecutor();
     }
 
     /**
@@ -91,15 +114,102 @@ class NodeBasedNodeContractor implements NodeContractor {
      */
     @Override
     public float calculatePriority(int node) {
+        return shortcutFinders[0].calculatePriority(node);
+    }
+
+    @Override
+    public float[] calculatePriorities(int[] nodes) {
+        float[] priorities = new float[nodes.length];
+        runInParallel(nodes.length, (finder, i) -> priorities[i] = finder.calculatePriority(nodes[i]));
+        return priorities;
+    }
+
+    @Override
+    public IntContainer contractNode(int node) {
+        long degree = shortcutFinders[0].findAndHandleShortcuts(node, this::addOrUpdateShortcut);
+        insertShortcuts(node);
+        // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
+        meanDegree = (meanDegree * 2 + degree) / 3;
+        return prepareGraph.disconnect(node);
+    }
+
+    /**
+     * Contracts the given (independent) nodes. The witness searches, which take most of the time, are run in parallel
+     * while the graph is not modified. Witness paths must not lead via any of the given nodes, so each shortcut
+     * decision is still valid after all of them were removed. Afterwards the shortcuts are added and the nodes are
+     * disconnected one after another in the given order, so the result does not depend on the number of threads.
+     */
+    @Override
+    public IntContainer[] contractNodes(int[] nodes) {
+        if (executor == null)
+            return NodeContractor.super.contractNodes(nodes);
+        for (int node : nodes)
+            contractingNodes[node] = true;
+        FoundShortcuts[] foundShortcuts = new FoundShortcuts[nodes.length];
+        runInParallel(nodes.length, (finder, i) -> {
+            FoundShortcuts found = new FoundShortcuts();
+            found.degree = finder.findAndHandleShortcuts(nodes[i], found::add);
+            foundShortcuts[i] = found;
+        });
+        for (int node : nodes)
+            contractingNodes[node] = false;
+
+        IntContainer[] neighbors = new IntContainer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            FoundShortcuts found = foundShortcuts[i];
+            for (int j = 0; j < found.weights.size(); j++) {
+                int k = 6 * j;
+                addOrUpdateShortcut(found.ints.get(k), found.ints.get(k + 1), found.weights.get(j),
+                        found.ints.get(k + 2), found.ints.get(k + 3), found.ints.get(k + 4), found.ints.get(k + 5));
+            }
+            insertShortcuts(nodes[i]);
+            meanDegree = (meanDegree * 2 + found.degree) / 3;
+            neighbors[i] = prepareGraph.disconnect(nodes[i]);
+        }
+        return neighbors;
+    }
+
+    private void runInParallel(int count, ParallelTask task) {
+        if (executor == null || count < 2) {
+            for (int i = 0; i < count; i++)
+                task.run(shortcutFinders[0], i);
+            return;
+        }
+        AtomicInteger nextIndex = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(shortcutFinders.length);
+        for (ShortcutFinder finder : shortcutFinders)
+            futures.add(executor.submit(() -> {
+                for (int i = nextIndex.getAndIncrement(); i < count; i = nextIndex.getAndIncrement())
+                    task.run(finder, i);
+            }));
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void shutdownExecutor() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private float calculatePriority(ShortcutFinder finder, int node) {
         // # huge influence: the bigger the less shortcuts gets created and the faster is the preparation
         //
         // every adjNode has an 'original edge' number associated. initially it is r=1
         // when a new shortcut is introduced then r of the associated edges is summed up:
         // r(u,w)=r(u,v)+r(v,w) now we can define
         // originalEdgesCount = σ(v) := sum_{ (u,w) ∈ shortcuts(v) } of r(u, w)
-        shortcutsCount = 0;
-        originalEdgesCount = 0;
-        findAndHandleShortcuts(node, this::countShortcuts);
+        finder.shortcutsCount = 0;
+        finder.originalEdgesCount = 0;
+        finder.findAndHandleShortcuts(node, finder::countShortcuts);
 
         // from shortcuts we can compute the edgeDifference
         // # low influence: with it the shortcut creation is slightly faster
@@ -107,24 +217,15 @@ class NodeBasedNodeContractor implements NodeContractor {
         // |shortcuts(v)| − |{(u, v) | v uncontracted}| − |{(v, w) | v uncontracted}|
         // meanDegree is used instead of outDegree+inDegree as if one adjNode is in both directions
         // only one bucket memory is used. Additionally one shortcut could also stand for two directions.
-        int edgeDifference = shortcutsCount - prepareGraph.getDegree(node);
+        int edgeDifference = finder.shortcutsCount - prepareGraph.getDegree(node);
 
         // according to the paper do a simple linear combination of the properties to get the priority.
         return params.edgeDifferenceWeight * edgeDifference +
-                params.originalEdgesCountWeight * originalEdgesCount;
+                params.originalEdgesCountWeight * finder.originalEdgesCount;
         // todo: maybe use contracted-neighbors heuristic (contract nodes with lots of contracted neighbors later) as in GH 1.0 again?
         //       maybe use hierarchy-depths heuristic as in edge-based?
     }
 
-    @Override
-    public IntContainer contractNode(int node) {
-        long degree = findAndHandleShortcuts(node, this::addOrUpdateShortcut);
-        insertShortcuts(node);
-        // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
-        meanDegree = (meanDegree * 2 + degree) / 3;
-        return prepareGraph.disconnect(node);
-    }
-
     /**
      * Calls the shortcut handler for all edges and shortcuts adjacent to the given node. After this method is called
      * these edges and shortcuts will be removed from the prepare graph, so this method offers the last chance to deal
@@ -153,82 +254,14 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     @Override
     public void finishContraction() {
+        shutdownExecutor();
         shortcutHandler.finishContraction();
     }
 
     @Override
     public String getStatisticsString() {
         return String.format(Locale.ROOT, "meanDegree: %.2f, dijkstras: %10s, mem: %10s",
-                meanDegree, nf(dijkstraCount), witnessPathSearcher.getMemoryUsageAsString());
-    }
-
-    /**
-     * Searches for shortcuts and calls the given handler on each shortcut that is found. The graph is not directly
-     * changed by this method.
-     * Returns the 'degree' of the given node (disregarding edges from/to already contracted nodes).
-     * Note that here the degree is not the total number of adjacent edges, but only the number of incoming edges
-     */
-    private long findAndHandleShortcuts(int node, PrepareShortcutHandler handler) {
-        int maxVisitedNodes = getMaxVisitedNodesEstimate();
-        long degree = 0;
-        PrepareGraphEdgeIterator incomingEdges = inEdgeExplorer.setBaseNode(node);
-        // collect outgoing nodes (goal-nodes) only once
-        while (incomingEdges.next()) {
-            int fromNode = incomingEdges.getAdjNode();
-            // do not consider loops at the node that is being contracted
-            if (fromNode == node)
-                continue;
-
-            final double incomingEdgeWeight = incomingEdges.getWeight();
-            // this check is important to prevent calling calcMillis on inaccessible edges and also allows early exit
-            if (Double.isInfinite(incomingEdgeWeight)) {
-                continue;
-            }
-            // collect outgoing nodes (goal-nodes) only once
-            PrepareGraphEdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(node);
-            // force fresh maps etc as this cannot be determined by from node alone (e.g. same from node but different avoidNode)
-            witnessPathSearcher.clear();
-            degree++;
-            while (outgoingEdges.next()) {
-                int toNode = outgoingEdges.getAdjNode();
-                // do not consider loops at the node that is being contracted
-                if (toNode == node || fromNode == toNode)
-                    continue;
-
-                // Limit weight as ferries or forbidden edges can increase local search too much.
-                // If we decrease the correct weight we only explore less and introduce more shortcuts.
-                // I.e. no change to accuracy is made.
-                double existingDirectWeight = incomingEdgeWeight + outgoingEdges.getWeight();
-                if (Double.isInfinite(existingDirectWeight))
-                    continue;
-
-                witnessPathSearcher.setWeightLimit(existingDirectWeight);
-                witnessPathSearcher.setMaxVisitedNodes(maxVisitedNodes);
-                witnessPathSearcher.ignoreNode(node);
-
-                dijkstraSW.start();
-                dijkstraCount++;
-                int endNode = witnessPathSearcher.findEndNode(fromNode, toNode);
-                dijkstraSW.stop();
-
-                // compare end node as the limit could force dijkstra to finish earlier
-                if (endNode == toNode && witnessPathSearcher.getWeight(endNode) <= existingDirectWeight)
-                    // FOUND witness path, so do not add shortcut
-                    continue;
-
-                handler.handleShortcut(fromNode, toNode, existingDirectWeight,
-                        outgoingEdges.getPrepareEdge(), outgoingEdges.getOrigEdgeCount(),
-                        incomingEdges.getPrepareEdge(), incomingEdges.getOrigEdgeCount());
-            }
-        }
-        return degree;
-    }
-
-    private void countShortcuts(int fromNode, int toNode, double existingDirectWeight,
-                                int outgoingEdge, int outOrigEdgeCount,
-                                int incomingEdge, int inOrigEdgeCount) {
-        shortcutsCount++;
-        originalEdgesCount += inOrigEdgeCount + outOrigEdgeCount;
+                meanDegree, nf(getDijkstraCount()), shortcutFinders[0].witnessPathSearcher.getMemoryUsageAsString());
     }
 
     private void addOrUpdateShortcut(int fromNode, int toNode, double weight,
@@ -259,12 +292,19 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     @Override
     public long getDijkstraCount() {
+        long dijkstraCount = 0;
+        for (ShortcutFinder finder : shortcutFinders)
+            dijkstraCount += finder.dijkstraCount;
         return dijkstraCount;
     }
 
     @Override
     public float getDijkstraSeconds() {
-        return dijkstraSW.getCurrentSeconds();
+        // when running in parallel this is the sum over all threads
+        float dijkstraSeconds = 0;
+        for (ShortcutFinder finder : shortcutFinders)
+            dijkstraSeconds += finder.dijkstraSW.getCurrentSeconds();
+        return dijkstraSeconds;
     }
 
     private int getMaxVisitedNodesEstimate() {
@@ -273,6 +313,113 @@ class NodeBasedNodeContractor implements NodeContractor {
         return (int) meanDegree * 100;
     }
 
+    /**
+     * Holds everything needed to run witness searches for one node, so several nodes can be processed in parallel.
+     */
+    private class ShortcutFinder {
+        private final PrepareGraphEdgeExplorer inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        private final PrepareGraphEdgeExplorer outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        private final NodeBasedWitnessPathSearcher witnessPathSearcher = new NodeBasedWitnessPathSearcher(prepareGraph);
+        private final StopWatch dijkstraSW = new StopWatch();
+        private long dijkstraCount;
+        // temporary counters used for priority calculation
+        private int originalEdgesCount;
+        private int shortcutsCount;
+
+        float calculatePriority(int node) {
+            return NodeBasedNodeContractor.this.calculatePriority(this, node);
+        }
+
+        /**
+         * Searches for shortcuts and calls the given handler on each shortcut that is found. The graph is not directly
+         * changed by this method.
+         * Returns the 'degree' of the given node (disregarding edges from/to already contracted nodes).
+         * Note that here the degree is not the total number of adjacent edges, but only the number of incoming edges
+         */
+        long findAndHandleShortcuts(int node, PrepareShortcutHandler handler) {
+            int maxVisitedNodes = getMaxVisitedNodesEstimate();
+            long degree = 0;
+            PrepareGraphEdgeIterator incomingEdges = inEdgeExplorer.setBaseNode(node);
+            // collect outgoing nodes (goal-nodes) only once
+            while (incomingEdges.next()) {
+                int fromNode = incomingEdges.getAdjNode();
+                // do not consider loops at the node that is being contracted
+                if (fromNode == node)
+                    continue;
+
+                final double incomingEdgeWeight = incomingEdges.getWeight();
+                // this check is important to prevent calling calcMillis on inaccessible edges and also allows early exit
+                if (Double.isInfinite(incomingEdgeWeight)) {
+                    continue;
+                }
+                // collect outgoing nodes (goal-nodes) only once
+                PrepareGraphEdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(node);
+                // force fresh maps etc as this cannot be determined by from node alone (e.g. same from node but different avoidNode)
+                witnessPathSearcher.clear();
+                degree++;
+                while (outgoingEdges.next()) {
+                    int toNode = outgoingEdges.getAdjNode();
+                    // do not consider loops at the node that is being contracted
+                    if (toNode == node || fromNode == toNode)
+                        continue;
+
+                    // Limit weight as ferries or forbidden edges can increase local search too much.
+                    // If we decrease the correct weight we only explore less and introduce more shortcuts.
+                    // I.e. no change to accuracy is made.
+                    double existingDirectWeight = incomingEdgeWeight + outgoingEdges.getWeight();
+                    if (Double.isInfinite(existingDirectWeight))
+                        continue;
+
+                    witnessPathSearcher.setWeightLimit(existingDirectWeight);
+                    witnessPathSearcher.setMaxVisitedNodes(maxVisitedNodes);
+                    witnessPathSearcher.ignoreNode(node);
+
+                    dijkstraSW.start();
+                    dijkstraCount++;
+                    int endNode = witnessPathSearcher.findEndNode(fromNode, toNode);
+                    dijkstraSW.stop();
+
+                    // compare end node as the limit could force dijkstra to finish earlier
+                    if (endNode == toNode && witnessPathSearcher.getWeight(endNode) <= existingDirectWeight)
+                        // FOUND witness path, so do not add shortcut
+                        continue;
+
+                    handler.handleShortcut(fromNode, toNode, existingDirectWeight,
+                            outgoingEdges.getPrepareEdge(), outgoingEdges.getOrigEdgeCount(),
+                            incomingEdges.getPrepareEdge(), incomingEdges.getOrigEdgeCount());
+                }
+            }
+            return degree;
+        }
+
+        private void countShortcuts(int fromNode, int toNode, double existingDirectWeight,
+                                    int outgoingEdge, int outOrigEdgeCount,
+                                    int incomingEdge, int inOrigEdgeCount) {
+            shortcutsCount++;
+            originalEdgesCount += inOrigEdgeCount + outOrigEdgeCount;
+        }
+    }
+
+    /**
+     * The shortcuts found for one node while the witness searches run in parallel. They are added to the graph later.
+     */
+    private static class FoundShortcuts {
+        private final IntArrayList ints = new IntArrayList();
+        private final DoubleArrayList weights = new DoubleArrayList();
+        private long degree;
+
+        void add(int fromNode, int toNode, double weight, int outgoingEdge, int outOrigEdgeCount, int incomingEdge, int inOrigEdgeCount) {
+            ints.add(fromNode, toNode, outgoingEdge, outOrigEdgeCount, incomingEdge);
+            ints.add(inOrigEdgeCount);
+            weights.add(weight);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ParallelTask {
+        void run(ShortcutFinder finder, int index);
+    }
+
     @FunctionalInterface
     private interface PrepareShortcutHandler {
         void handleShortcut(int fromNode, int toNode, double existingDirectWeight,
@@ -284,6 +431,7 @@ class NodeBasedNodeContractor implements NodeContractor {
         // default values were optimized for Unterfranken
         private float edgeDifferenceWeight = 10;
         private float originalEdgesCountWeight = 1;
+        private int threads = 1;
     }
 
     /**
@@ -40,6 +40,7 @@ public class NodeBasedWitnessPathSearcher {
     protected double[] weights;
     private IntFloatBinaryHeap heap;
     private int ignoreNode = -1;
+    private boolean[] ignoredNodes;
     private int visitedNodes;
     private boolean doClear = true;
     private int currNode, to;
@@ -187,8 +188,17 @@ public class NodeBasedWitnessPathSearcher {
         ignoreNode = node;
     }
 
+    /**
+     * Additionally to the node set by {@link #ignoreNode(int)} all nodes flagged in the given array will be ignored.
+     * The array is only read by this class, so it can be shared between several searchers.
+     */
+    public void setIgnoredNodes(boolean[] ignoredNodes) {
+        this.ignoredNodes = ignoredNodes;
+    }
+
     private boolean accept(PrepareGraphEdgeIterator iter) {
-        return ignoreNode < 0 || iter.getAdjNode() != ignoreNode;
+        int adjNode = iter.getAdjNode();
+        return (ignoreNode < 0 || adjNode != ignoreNode) && (ignoredNodes == null || !ignoredNodes[adjNode]);
     }
 
     private boolean isMaxVisitedNodesExceeded() {
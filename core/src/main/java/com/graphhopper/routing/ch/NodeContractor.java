@@ -37,6 +37,30 @@ public interface NodeContractor {
      */
     IntContainer contractNode(int node);
 
+    /**
+     * Calculates the priorities of all the given nodes, see {@link #calculatePriority(int)}. Implementations may do this
+     * in parallel.
+     */
+    default float[] calculatePriorities(int[] nodes) {
+        float[] priorities = new float[nodes.length];
+        for (int i = 0; i < nodes.length; i++)
+            priorities[i] = calculatePriority(nodes[i]);
+        return priorities;
+    }
+
+    /**
+     * Contracts the given nodes in the given order. None of the given nodes must be adjacent to another, which allows
+     * implementations to run the witness searches for these nodes in parallel.
+     *
+     * @return the nodes adjacent to each of the given nodes (before contraction)
+     */
+    default IntContainer[] contractNodes(int[] nodes) {
+        IntContainer[] neighbors = new IntContainer[nodes.length];
+        for (int i = 0; i < nodes.length; i++)
+            neighbors[i] = contractNode(nodes[i]);
+        return neighbors;
+    }
+
     void finishContraction();
 
     long getAddedShortcutsCount();
@@ -17,7 +17,10 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.FloatArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.util.AbstractAlgoPreparation;
@@ -51,6 +54,8 @@ import static com.graphhopper.util.Helper.nf;
  * @author Peter Karich
  */
 public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
+    // the minimum number of nodes we look at when selecting an independent node set for parallel contraction
+    private static final int MIN_INDEPENDENT_SET_CANDIDATES = 32;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final CHConfig chConfig;
     private final CHGraph chGraph;
@@ -70,6 +75,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private MinHeapWithUpdate sortedNodes;
     private PMap pMap = new PMap();
     private int checkCounter;
+    // used to find independent sets of nodes when contracting in parallel
+    private PrepareGraphEdgeExplorer neighborOutExplorer;
+    private PrepareGraphEdgeExplorer neighborInExplorer;
+    private boolean customizable;
+    private long customizableShortcuts;
 
     public static PrepareContractionHierarchies fromGraphHopperStorage(GraphHopperStorage ghStorage, CHConfig chConfig) {
         return new PrepareContractionHierarchies(ghStorage, chConfig);
@@ -98,6 +108,9 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         params.setNeighborUpdatePercentage(pMap.getInt(NEIGHBOR_UPDATES, params.getNeighborUpdatePercentage()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        params.setContractionThreads(pMap.getInt(CONTRACTION_THREADS, params.getContractionThreads()));
+        customizable = pMap.getBool(CUSTOMIZABLE, customizable);
+        params.setMaxShortcutsPerEdge(pMap.getDouble(CUSTOMIZABLE_MAX_SHORTCUTS_PER_EDGE, params.getMaxShortcutsPerEdge()));
         return this;
     }
 
@@ -125,8 +138,12 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
             throw new IllegalStateException("Given CHGraph has been contracted already");
         }
         allSW.start();
-        initFromGraph();
-        runGraphContraction();
+        if (customizable) {
+            runCustomizableContraction();
+        } else {
+            initFromGraph();
+            runGraphContraction();
+        }
         allSW.stop();
         logFinalGraphStats();
     }
@@ -148,6 +165,32 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         }
     }
 
+    /**
+     * Contracts the nodes independent of the weighting and calculates the weights of the shortcuts afterwards, see
+     * {@link CHCustomizer}. Compared to the default contraction this creates more shortcuts and the queries are
+     * slower, but when the weights change later only the customization needs to run again.
+     */
+    private void runCustomizableContraction() {
+        if (isEdgeBased())
+            throw new IllegalArgumentException(CUSTOMIZABLE + " is only supported for node-based CH, but was enabled for " + chConfig.getName());
+        if (nodeOrderingProvider != null)
+            throw new IllegalArgumentException("A fixed node ordering cannot be used with " + CUSTOMIZABLE);
+        if (nodes < 1)
+            return;
+        maxLevel = nodes;
+        setMaxLevelOnAllNodes();
+        StopWatch sw = new StopWatch().start();
+        long maxShortcuts = (long) Math.ceil(params.getMaxShortcutsPerEdge() * chGraph.getOriginalEdges());
+        customizableShortcuts = new CustomizableContractor(chGraph, getWeighting().getFlagEncoder().getAccessEnc(), maxShortcuts).contractNodes();
+        logger.info("Finished weighting-independent contraction, shortcuts: {}, took: {}s, {}", nf(customizableShortcuts),
+                sw.stop().getSeconds(), getMemInfo());
+        new CHCustomizer(chGraph).customize(getWeighting(), params.getContractionThreads());
+    }
+
+    public boolean isCustomizable() {
+        return customizable;
+    }
+
     public boolean isEdgeBased() {
         return chConfig.isEdgeBased();
     }
@@ -184,6 +227,14 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         CHPreparationGraph.buildFromGraph(prepareGraph, graph, getWeighting());
         logger.info("Finished building CH prepare graph, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
         nodeContractor.initFromGraph();
+        if (params.getContractionThreads() > 1) {
+            neighborOutExplorer = prepareGraph.createOutEdgeExplorer();
+            neighborInExplorer = prepareGraph.createInEdgeExplorer();
+        }
+    }
+
+    private boolean isContractingInParallel() {
+        return neighborOutExplorer != null;
     }
 
     private void setMaxLevelOnAllNodes() {
@@ -195,12 +246,16 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private void updatePrioritiesOfRemainingNodes() {
         periodicUpdateSW.start();
         sortedNodes.clear();
+        IntArrayList remainingNodes = new IntArrayList();
         for (int node = 0; node < nodes; node++) {
             if (isContracted(node))
                 continue;
-            float priority = calculatePriority(node);
-            sortedNodes.push(node, priority);
+            remainingNodes.add(node);
         }
+        int[] remaining = remainingNodes.toArray();
+        float[] priorities = nodeContractor.calculatePriorities(remaining);
+        for (int i = 0; i < remaining.length; i++)
+            sortedNodes.push(remaining[i], priorities[i]);
         periodicUpdateSW.stop();
     }
 
@@ -241,6 +296,12 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         // reduces number of shortcuts.
         final boolean neighborUpdate = (params.getNeighborUpdatePercentage() != 0);
 
+        if (isContractingInParallel()) {
+            updateCounter = contractIndependentNodeSets(logSize, periodicUpdatesCount, lastNodesLazyUpdates, nodesToAvoidContract, neighborUpdate);
+            finishHeuristicContraction(initSize, updateCounter);
+            return;
+        }
+
         while (!sortedNodes.isEmpty()) {
             stopIfInterrupted();
             // periodically update priorities of ALL nodes
@@ -290,6 +351,133 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
             }
         }
 
+        finishHeuristicContraction(initSize, updateCounter);
+    }
+
+    /**
+     * Instead of contracting the nodes one by one we repeatedly take the nodes with the lowest priorities and contract
+     * those of them that are not adjacent to each other at once, which allows running their witness searches in
+     * parallel. The nodes are processed in a fixed order and the batch size does not depend on the number of threads,
+     * so for node-based CH the resulting graph is the same for any number of threads (but usually not the same as for
+     * sequential contraction).
+     *
+     * @return the number of periodic updates
+     */
+    private int contractIndependentNodeSets(long logSize, long periodicUpdatesCount, long lastNodesLazyUpdates,
+                                            long nodesToAvoidContract, boolean neighborUpdate) {
+        int level = 0;
+        int updateCounter = 0;
+        long nextPeriodicUpdate = periodicUpdatesCount;
+        long nextLog = 0;
+        IntHashSet blockedNodes = new IntHashSet();
+        IntArrayList independentNodes = new IntArrayList();
+        IntArrayList rejectedNodes = new IntArrayList();
+        FloatArrayList rejectedPriorities = new FloatArrayList();
+        IntArrayList neighborsToUpdate = new IntArrayList();
+        IntHashSet neighborSet = new IntHashSet();
+        while (!sortedNodes.isEmpty()) {
+            stopIfInterrupted();
+            // periodically update priorities of ALL nodes
+            if (checkCounter >= nextPeriodicUpdate) {
+                updatePrioritiesOfRemainingNodes();
+                updateCounter++;
+                nextPeriodicUpdate += periodicUpdatesCount;
+                if (sortedNodes.isEmpty())
+                    throw new IllegalStateException("Cannot prepare as no unprepared nodes where found. Called preparation twice?");
+            }
+
+            if (checkCounter >= nextLog) {
+                logHeuristicStats(updateCounter);
+                nextLog += logSize;
+            }
+
+            // select an independent set among the nodes with the lowest priorities, we never select more nodes than we
+            // are supposed to contract
+            long maxCandidates = Math.min(sortedNodes.size() - nodesToAvoidContract + 1,
+                    Math.max(MIN_INDEPENDENT_SET_CANDIDATES, sortedNodes.size() / 100));
+            blockedNodes.clear();
+            independentNodes.clear();
+            rejectedNodes.clear();
+            rejectedPriorities.clear();
+            for (long i = 0; i < Math.max(1, maxCandidates) && !sortedNodes.isEmpty(); i++) {
+                checkCounter++;
+                float priority = sortedNodes.peekValue();
+                int node = sortedNodes.poll();
+                if (blockedNodes.contains(node)) {
+                    rejectedNodes.add(node);
+                    rejectedPriorities.add(priority);
+                    continue;
+                }
+                independentNodes.add(node);
+                blockNeighbors(node, blockedNodes);
+            }
+            for (int i = 0; i < rejectedNodes.size(); i++)
+                sortedNodes.push(rejectedNodes.get(i), rejectedPriorities.get(i));
+
+            if (!sortedNodes.isEmpty() && sortedNodes.size() < lastNodesLazyUpdates) {
+                lazyUpdateSW.start();
+                int[] candidates = independentNodes.toArray();
+                float[] priorities = nodeContractor.calculatePriorities(candidates);
+                independentNodes.clear();
+                for (int i = 0; i < candidates.length; i++) {
+                    if (!sortedNodes.isEmpty() && priorities[i] > sortedNodes.peekValue())
+                        // current node got more important => insert as new value and contract it later
+                        sortedNodes.push(candidates[i], priorities[i]);
+                    else
+                        independentNodes.add(candidates[i]);
+                }
+                lazyUpdateSW.stop();
+                if (independentNodes.isEmpty())
+                    continue;
+            }
+
+            // contract nodes!
+            contractionSW.start();
+            int[] nodesToContract = independentNodes.toArray();
+            for (int node : nodesToContract) {
+                if (isContracted(node))
+                    throw new IllegalArgumentException("Node " + node + " was contracted already");
+                chGraph.setLevel(node, level);
+                level++;
+            }
+            IntContainer[] neighbors = nodeContractor.contractNodes(nodesToContract);
+            contractionSW.stop();
+
+            if (sortedNodes.size() < nodesToAvoidContract)
+                // skipped nodes are already set to maxLevel
+                break;
+
+            if (!neighborUpdate)
+                continue;
+            neighborUpdateSW.start();
+            neighborsToUpdate.clear();
+            neighborSet.clear();
+            for (IntContainer nodeNeighbors : neighbors) {
+                for (IntCursor neighbor : nodeNeighbors) {
+                    int nn = neighbor.value;
+                    if (rand.nextInt(100) < params.getNeighborUpdatePercentage() && !isContracted(nn) && neighborSet.add(nn))
+                        neighborsToUpdate.add(nn);
+                }
+            }
+            int[] updateNodes = neighborsToUpdate.toArray();
+            float[] priorities = nodeContractor.calculatePriorities(updateNodes);
+            for (int i = 0; i < updateNodes.length; i++)
+                sortedNodes.update(updateNodes[i], priorities[i]);
+            neighborUpdateSW.stop();
+        }
+        return updateCounter;
+    }
+
+    private void blockNeighbors(int node, IntHashSet blockedNodes) {
+        PrepareGraphEdgeIterator iter = neighborOutExplorer.setBaseNode(node);
+        while (iter.next())
+            blockedNodes.add(iter.getAdjNode());
+        iter = neighborInExplorer.setBaseNode(node);
+        while (iter.next())
+            blockedNodes.add(iter.getAdjNode());
+    }
+
+    private void finishHeuristicContraction(int initSize, int updateCounter) {
         nodeContractor.finishContraction();
 
         logHeuristicStats(updateCounter);
@@ -301,6 +489,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
                         + ", periodic:" + params.getPeriodicUpdatesPercentage()
                         + ", lazy:" + params.getLastNodesLazyUpdatePercentage()
                         + ", neighbor:" + params.getNeighborUpdatePercentage()
+                        + ", threads:" + (isContractingInParallel() ? params.getContractionThreads() : 1)
                         + ", " + getTimesAsString()
                         + ", lazy-overhead: " + (int) (100 * ((checkCounter / (double) initSize) - 1)) + "%"
                         + ", " + Helper.getMemInfo());
@@ -376,11 +565,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     }
 
     public long getDijkstraCount() {
-        return nodeContractor.getDijkstraCount();
+        return customizable ? 0 : nodeContractor.getDijkstraCount();
     }
 
     public long getShortcuts() {
-        return nodeContractor.getAddedShortcutsCount();
+        return customizable ? customizableShortcuts : nodeContractor.getAddedShortcutsCount();
     }
 
     public double getLazyTime() {
@@ -435,6 +624,8 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private void _close() {
         nodeContractor.close();
         sortedNodes = null;
+        neighborOutExplorer = null;
+        neighborInExplorer = null;
     }
 
     void close() {
@@ -444,6 +635,17 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     }
 
     private static class Params {
+        /**
+         * The number of threads used to run the witness searches of a single CH preparation. Values larger than one
+         * enable the contraction of independent node sets, see {@link #contractIndependentNodeSets}.
+         */
+        private int contractionThreads = 1;
+        /**
+         * The maximum number of shortcuts the customizable contraction may create per edge of the graph. The minimum
+         * degree ordering it uses can create a lot of fill-in for some graphs, in this case we rather stop the
+         * preparation than running out of memory.
+         */
+        private double maxShortcutsPerEdge = 10;
         /**
          * Specifies after how many contracted nodes a full refresh of the queue of remaining/not contracted nodes
          * is performed. For example for a graph with 1000 nodes a value of 20 means that a full refresh is performed
@@ -542,6 +744,26 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
             this.logMessagesPercentage = logMessagesPercentage;
         }
 
+        double getMaxShortcutsPerEdge() {
+            return maxShortcutsPerEdge;
+        }
+
+        void setMaxShortcutsPerEdge(double maxShortcutsPerEdge) {
+            if (maxShortcutsPerEdge < 0)
+                throw new IllegalArgumentException(CUSTOMIZABLE_MAX_SHORTCUTS_PER_EDGE + " must not be negative");
+            this.maxShortcutsPerEdge = maxShortcutsPerEdge;
+        }
+
+        int getContractionThreads() {
+            return contractionThreads;
+        }
+
+        void setContractionThreads(int contractionThreads) {
+            if (contractionThreads < 1)
+                throw new IllegalArgumentException(CONTRACTION_THREADS + " has to be at least 1");
+            this.contractionThreads = contractionThreads;
+        }
+
         private void checkPercentage(String name, int value) {
             if (value < 0 || value > 100) {
                 throw new IllegalArgumentException(name + " has to be in [0, 100], to disable it use 0");
@@ -71,6 +71,12 @@ public class DefaultEncodedValueFactory implements EncodedValueFactory {
             enc = new EnumEncodedValue<>(HazmatTunnel.KEY, HazmatTunnel.class);
         } else if (HazmatWater.KEY.equals(name)) {
             enc = new EnumEncodedValue<>(HazmatWater.KEY, HazmatWater.class);
+        } else if (OSMWayID.KEY.equals(name)) {
+            enc = OSMWayID.create();
+        } else if (OSMWayID.NODES_KEY.equals(name)) {
+            enc = OSMWayID.createNodes();
+        } else if (OSMWayID.BARRIER_KEY.equals(name)) {
+            enc = OSMWayID.createBarrier();
         } else if (name.endsWith(Subnetwork.key(""))) {
             enc = new SimpleBooleanEncodedValue(name);
         } else {
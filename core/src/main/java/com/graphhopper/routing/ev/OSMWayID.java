@@ -0,0 +1,53 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ev;
+
+import com.carrotsearch.hppc.LongIndexedContainer;
+
+/**
+ * Stores the id of the OSM way an edge was created from. This is e.g. required to apply OSM change files to an existing
+ * graph, see OSMChangeUpdater. Together with the id a hash of the node ids of the way is stored, so changed node lists
+ * can be detected, and a flag for the zero-length edges that are created for barriers.
+ */
+public class OSMWayID {
+    public static final String KEY = "osm_way_id";
+    public static final String NODES_KEY = "osm_way_nodes";
+    public static final String BARRIER_KEY = "osm_way_barrier";
+
+    public static IntEncodedValue create() {
+        return new UnsignedIntEncodedValue(KEY, 31, false);
+    }
+
+    public static IntEncodedValue createNodes() {
+        return new UnsignedIntEncodedValue(NODES_KEY, 31, false);
+    }
+
+    public static BooleanEncodedValue createBarrier() {
+        return new SimpleBooleanEncodedValue(BARRIER_KEY);
+    }
+
+    /**
+     * @return a hash of the given OSM node ids that fits into the encoded value created by {@link #createNodes()}
+     */
+    public static int hashNodes(LongIndexedContainer osmNodeIds) {
+        long hash = osmNodeIds.size();
+        for (int i = 0; i < osmNodeIds.size(); i++)
+            hash = hash * 0x9E3779B97F4A7C15L + osmNodeIds.get(i);
+        return (int) (hash ^ (hash >>> 32)) & Integer.MAX_VALUE;
+    }
+}
@@ -57,6 +57,7 @@ public class LMPreparationHandler {
     private int preparationThreads;
     private ExecutorService threadPool;
     private boolean logDetails = false;
+    private int explorationThreads = 1;
 
     public LMPreparationHandler() {
         setPreparationThreads(1);
@@ -73,6 +74,7 @@ public class LMPreparationHandler {
 
         landmarkCount = ghConfig.getInt(Parameters.Landmark.COUNT, landmarkCount);
         logDetails = ghConfig.getBool(Landmark.PREPARE + "log_details", false);
+        explorationThreads = ghConfig.getInt(Landmark.PREPARE + "exploration_threads", explorationThreads);
         minNodes = ghConfig.getInt(Landmark.PREPARE + "min_network_size", -1);
 
         for (String loc : ghConfig.getString(Landmark.PREPARE + "suggestions_location", "").split(",")) {
@@ -233,31 +235,51 @@ public class LMPreparationHandler {
             throw new IllegalStateException("No landmark weightings found");
 
         LOGGER.info("Creating LM preparations, {}", getMemInfo());
+        List<LandmarkSuggestion> lmSuggestions = readLandmarkSuggestions(locationIndex);
+        for (LMConfig lmConfig : lmConfigs) {
+            addPreparation(createPreparation(ghStorage, lmConfig, lmSuggestions));
+        }
+    }
+
+    /**
+     * Removes the landmarks of the specified profile and calculates them again. This is necessary if the weights of
+     * the graph decreased, because then the stored landmark weights are no longer a lower bound.
+     */
+    public void prepareAgain(GraphHopperStorage ghStorage, LocationIndex locationIndex, String profile) {
+        PrepareLandmarks oldPreparation = getPreparation(profile);
+        oldPreparation.getLandmarkStorage().remove(ghStorage.getDirectory());
+        PrepareLandmarks preparation = createPreparation(ghStorage, oldPreparation.getLMConfig(), readLandmarkSuggestions(locationIndex));
+        LOGGER.info("calling LM prepare.doWork again for " + preparation.getLMConfig().getWeighting() + " ... (" + getMemInfo() + ")");
+        preparation.doWork();
+        preparations.set(preparations.indexOf(oldPreparation), preparation);
+    }
+
+    private List<LandmarkSuggestion> readLandmarkSuggestions(LocationIndex locationIndex) {
         List<LandmarkSuggestion> lmSuggestions = new ArrayList<>(lmSuggestionsLocations.size());
-        if (!lmSuggestionsLocations.isEmpty()) {
-            try {
-                for (String loc : lmSuggestionsLocations) {
-                    lmSuggestions.add(LandmarkSuggestion.readLandmarks(loc, locationIndex));
-                }
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
+        try {
+            for (String loc : lmSuggestionsLocations) {
+                lmSuggestions.add(LandmarkSuggestion.readLandmarks(loc, locationIndex));
             }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
         }
+        return lmSuggestions;
+    }
 
-        for (LMConfig lmConfig : lmConfigs) {
-            Double maximumWeight = maximumWeights.get(lmConfig.getName());
-            if (maximumWeight == null)
-                throw new IllegalStateException("maximumWeight cannot be null. Default should be just negative. " +
-                        "Couldn't find " + lmConfig.getName() + " in " + maximumWeights);
-
-            PrepareLandmarks tmpPrepareLM = new PrepareLandmarks(ghStorage.getDirectory(), ghStorage,
-                    lmConfig, landmarkCount).
-                    setLandmarkSuggestions(lmSuggestions).
-                    setMaximumWeight(maximumWeight).
-                    setLogDetails(logDetails);
-            if (minNodes > 1)
-                tmpPrepareLM.setMinimumNodes(minNodes);
-            addPreparation(tmpPrepareLM);
-        }
+    private PrepareLandmarks createPreparation(GraphHopperStorage ghStorage, LMConfig lmConfig, List<LandmarkSuggestion> lmSuggestions) {
+        Double maximumWeight = maximumWeights.get(lmConfig.getName());
+        if (maximumWeight == null)
+            throw new IllegalStateException("maximumWeight cannot be null. Default should be just negative. " +
+                    "Couldn't find " + lmConfig.getName() + " in " + maximumWeights);
+
+        PrepareLandmarks tmpPrepareLM = new PrepareLandmarks(ghStorage.getDirectory(), ghStorage,
+                lmConfig, landmarkCount).
+                setLandmarkSuggestions(lmSuggestions).
+                setMaximumWeight(maximumWeight).
+                setLogDetails(logDetails).
+                setExplorationThreads(explorationThreads);
+        if (minNodes > 1)
+            tmpPrepareLM.setMinimumNodes(minNodes);
+        return tmpPrepareLM;
     }
 }
@@ -31,6 +31,7 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
 public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private final LandmarkStorage lms;
     private int defaultActiveLandmarks;
+    private SearchStatePool searchStatePool = SearchStatePool.getDefault();
 
     public LMRoutingAlgorithmFactory(LandmarkStorage lms) {
         this.lms = lms;
@@ -42,6 +43,15 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         return this;
     }
 
+    /**
+     * @param searchStatePool the pool the bidirectional algorithms take their data structures from or null to
+     *                        allocate them for every algorithm
+     */
+    public LMRoutingAlgorithmFactory setSearchStatePool(SearchStatePool searchStatePool) {
+        this.searchStatePool = searchStatePool;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         if (!lms.isInitialized())
@@ -49,17 +59,21 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         int activeLM = Math.max(1, opts.getHints().getInt(Parameters.Landmark.ACTIVE_COUNT, defaultActiveLandmarks));
         final String algoStr = opts.getAlgorithm();
         final Weighting weighting = g.wrapWeighting(w);
+        final boolean quaternaryHeap = opts.getHints().getBool(Parameters.Routing.QUATERNARY_HEAP, false);
         if (ASTAR.equalsIgnoreCase(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStar.EPSILON, 1);
             AStar algo = new AStar(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+            algo.setQuaternaryHeap(quaternaryHeap);
             return algo;
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
             AStarBidirection algo = new AStarBidirection(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+            algo.setSearchStatePool(searchStatePool);
+            algo.setQuaternaryHeap(quaternaryHeap);
             return algo;
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
@@ -50,6 +50,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -96,6 +100,8 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private SpatialRuleLookup ruleLookup;
     private boolean logDetails = false;
+    private int explorationThreads = 1;
+    private ExecutorService explorationExecutor;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -171,6 +177,17 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         this.logDetails = logDetails;
     }
 
+    /**
+     * Sets the number of threads used to run the forward and backward explorations of the different landmarks of a
+     * subnetwork concurrently. Every running exploration keeps its own shortest path tree, so make sure you have enough
+     * memory when increasing this number. Default is 1.
+     */
+    public void setExplorationThreads(int explorationThreads) {
+        if (explorationThreads < 1)
+            throw new IllegalArgumentException("exploration threads must be at least 1, but was " + explorationThreads);
+        this.explorationThreads = explorationThreads;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -227,6 +244,19 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
     public void createLandmarks() {
         if (isInitialized())
             throw new IllegalStateException("Initialize the landmark storage only once!");
+        if (explorationThreads > 1)
+            explorationExecutor = Executors.newFixedThreadPool(explorationThreads);
+        try {
+            doCreateLandmarks();
+        } finally {
+            if (explorationExecutor != null) {
+                explorationExecutor.shutdownNow();
+                explorationExecutor = null;
+            }
+        }
+    }
+
+    private void doCreateLandmarks() {
 
         // fill 'from' and 'to' weights with maximum value
         long maxBytes = (long) graph.getNodes() * LM_ROW_LENGTH;
@@ -443,35 +473,58 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
+        // the explorations of the first landmark also set the subnetwork id of all explored nodes
+        int firstLandmark = tmpLandmarkNodeIds[0];
+        if (exploreLandmark(0, firstLandmark, accessFilter, false).setSubnetworks(subnetworks, subnetworkId))
+            return false;
+        if (exploreLandmark(0, firstLandmark, accessFilter, true).setSubnetworks(subnetworks, subnetworkId))
+            return false;
 
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        if (explorationExecutor == null) {
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+                }
+                int lmNodeId = tmpLandmarkNodeIds[lmIdx];
+                exploreLandmark(lmIdx, lmNodeId, accessFilter, false);
+                exploreLandmark(lmIdx, lmNodeId, accessFilter, true);
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+                if (logDetails && lmIdx % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+            }
+        } else {
+            // the explorations are independent and every one of them writes its own column of landmarkWeightDA.
+            // we submit runnables, so the futures do not keep the explorers (and their shortest path trees) alive
+            List<Future<?>> futures = new ArrayList<>(2 * tmpLandmarkNodeIds.length);
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                final int idx = lmIdx;
+                final int lmNodeId = tmpLandmarkNodeIds[lmIdx];
+                futures.add(explorationExecutor.submit(() -> {
+                    exploreLandmark(idx, lmNodeId, accessFilter, false);
+                }));
+                futures.add(explorationExecutor.submit(() -> {
+                    exploreLandmark(idx, lmNodeId, accessFilter, true);
+                }));
+            }
+            try {
+                for (int i = 0; i < futures.size(); i++) {
+                    futures.get(i).get();
+                    int lmIdx = 1 + i / 2;
+                    if (logDetails && i % 2 == 1 && lmIdx % logOffset == 0)
+                        LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                                + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+                }
+            } catch (InterruptedException e) {
+                for (Future<?> future : futures)
+                    future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted while creating landmarks for subnetwork " + subnetworkId, e);
+            } catch (ExecutionException e) {
+                for (Future<?> future : futures)
+                    future.cancel(true);
+                throw new RuntimeException(e.getCause());
             }
-
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -479,6 +532,18 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         return true;
     }
 
+    /**
+     * Runs a forward (or backward) Dijkstra from the given landmark and stores the resulting weights in the 'from' (or
+     * 'to') column of the given landmark index.
+     */
+    private LandmarkExplorer exploreLandmark(int lmIdx, int lmNodeId, EdgeFilter accessFilter, boolean reverse) {
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, reverse);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, reverse ? TO_OFFSET : FROM_OFFSET);
+        return explorer;
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -729,6 +794,15 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         subnetworkStorage.close();
     }
 
+    /**
+     * Closes this storage and removes the landmark data from the specified directory, e.g. because the weights of
+     * the graph changed and the landmarks need to be created again.
+     */
+    public void remove(Directory dir) {
+        dir.remove(landmarkWeightDA);
+        subnetworkStorage.remove(dir);
+    }
+
     @Override
     public boolean isClosed() {
         return landmarkWeightDA.isClosed();
@@ -96,6 +96,14 @@ public class PrepareLandmarks extends AbstractAlgoPreparation {
         return this;
     }
 
+    /**
+     * @see LandmarkStorage#setExplorationThreads(int)
+     */
+    public PrepareLandmarks setExplorationThreads(int explorationThreads) {
+        lms.setExplorationThreads(explorationThreads);
+        return this;
+    }
+
     public LandmarkStorage getLandmarkStorage() {
         return lms;
     }
@@ -0,0 +1,356 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.subnetwork;
+
+import com.carrotsearch.hppc.IntArrayDeque;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.procedures.IntIntProcedure;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.ConnectedComponents;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.EdgeTransitionFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.createEdgeKey;
+import static com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.getEdgeFromKey;
+
+/**
+ * Finds the edge-based strongly connected components of a graph like {@link EdgeBasedTarjanSCC}, but uses multiple
+ * threads and only a single int per edge key. This is the forward-backward algorithm with trimming: First all edge
+ * keys without an incoming or outgoing transition are removed as single edge components. Then we pick a pivot edge key
+ * and search all edge keys that can be reached from it and all edge keys it can be reached from. The edge keys found
+ * by both searches form the component of the pivot. Every other component must be contained in one of the remaining
+ * parts (reached only forward, only backward or not at all), so these parts are searched independently and in
+ * parallel in the same way.
+ * <p>
+ * For road networks the first pivot usually finds the biggest component so the remaining parts are small. The result
+ * contains the same components as the one of {@link EdgeBasedTarjanSCC#findComponents}, but the order of the
+ * components and of the edge keys within a component differs. If there are multiple biggest components it is not
+ * defined which one is returned by {@link ConnectedComponents#getBiggestComponent()}.
+ */
+public class EdgeBasedParallelSCC {
+    private static final int DONE = -1;
+    private static final int TRIM_CHUNK_SIZE = 1 << 14;
+    private final Graph graph;
+    private final EdgeTransitionFilter edgeTransitionFilter;
+    private final int minForkEdgeKeys;
+    private final ConnectedComponents components;
+    // the part of the graph every edge key is currently assigned to or DONE if its component was found already
+    private final int[] parts;
+    private final AtomicInteger partIds = new AtomicInteger(0);
+
+    /**
+     * Runs the search with the threads of the given pool. The edgeTransitionFilter is called concurrently and needs
+     * to be thread-safe. Single edge components are always included in the result.
+     *
+     * @see EdgeBasedTarjanSCC#findComponents(Graph, EdgeTransitionFilter, boolean)
+     */
+    public static ConnectedComponents findComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter, ForkJoinPool pool) {
+        return findComponents(graph, edgeTransitionFilter, pool, 10_000);
+    }
+
+    /**
+     * @param minForkEdgeKeys parts of the graph with fewer edge keys are searched by the current thread
+     */
+    static ConnectedComponents findComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter, ForkJoinPool pool, int minForkEdgeKeys) {
+        EdgeBasedParallelSCC scc = new EdgeBasedParallelSCC(graph, edgeTransitionFilter, minForkEdgeKeys);
+        IntArrayList remaining = invoke(pool, scc.new TrimTask(0, 2 * graph.getEdges()));
+        invoke(pool, scc.new PartTask(remaining, scc.partIds.get()));
+        return scc.components;
+    }
+
+    private static <T> T invoke(ForkJoinPool pool, ForkJoinTask<T> task) {
+        // the job might already run in this pool, see PrepareRoutingSubnetworks
+        return ForkJoinTask.getPool() == pool ? task.invoke() : pool.invoke(task);
+    }
+
+    private EdgeBasedParallelSCC(Graph graph, EdgeTransitionFilter edgeTransitionFilter, int minForkEdgeKeys) {
+        this.graph = graph;
+        this.edgeTransitionFilter = edgeTransitionFilter;
+        this.minForkEdgeKeys = minForkEdgeKeys;
+        components = new ConnectedComponents(2 * graph.getEdges());
+        parts = new int[2 * graph.getEdges()];
+    }
+
+    /**
+     * Calls the procedure for every edge key (and its adjacent node) that can follow the given edge key
+     */
+    private void forEachSuccessor(EdgeExplorer explorer, int p, int adjNode, IntIntProcedure procedure) {
+        final int edge = getEdgeFromKey(p);
+        EdgeIterator iter = explorer.setBaseNode(adjNode);
+        while (iter.next()) {
+            if (!edgeTransitionFilter.accept(edge, iter))
+                continue;
+            int q = createEdgeKey(iter, false);
+            procedure.apply(q, iter.getAdjNode());
+            // loops are only seen once but can be travelled both ways, just like in EdgeBasedTarjanSCC
+            if (iter.getBaseNode() == iter.getAdjNode())
+                procedure.apply(q + 1, iter.getAdjNode());
+        }
+    }
+
+    /**
+     * Calls the procedure for every edge key (and its base node) that can precede the given edge key. This is the
+     * exact inverse of {@link #forEachSuccessor}.
+     */
+    private void forEachPredecessor(EdgeExplorer explorer, int q, int baseNode, IntIntProcedure procedure) {
+        EdgeIteratorState qState = graph.getEdgeIteratorStateForKey(q);
+        EdgeIterator iter = explorer.setBaseNode(baseNode);
+        while (iter.next()) {
+            int p = createEdgeKey(iter, true);
+            if (edgeTransitionFilter.accept(getEdgeFromKey(p), qState))
+                procedure.apply(p, iter.getAdjNode());
+            if (iter.getBaseNode() == iter.getAdjNode()) {
+                p = createEdgeKey(iter, false);
+                if (edgeTransitionFilter.accept(getEdgeFromKey(p), qState))
+                    procedure.apply(p, iter.getAdjNode());
+            }
+        }
+    }
+
+    private void addSingleEdgeComponents(IntArrayList edgeKeys) {
+        synchronized (components) {
+            for (IntCursor c : edgeKeys)
+                components.addSingleEdgeComponent(c.value, true);
+        }
+    }
+
+    private void addComponent(IntArrayList component) {
+        if (component.size() == 1) {
+            addSingleEdgeComponents(component);
+            return;
+        }
+        component.trimToSize();
+        synchronized (components) {
+            components.addComponent(component);
+        }
+    }
+
+    /**
+     * Removes all edge keys of the given range that have no incoming or no outgoing transition and returns the others.
+     */
+    private class TrimTask extends RecursiveTask<IntArrayList> {
+        private final int from;
+        private final int to;
+
+        TrimTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntArrayList compute() {
+            if (to - from > TRIM_CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                TrimTask right = new TrimTask(middle, to);
+                right.fork();
+                IntArrayList result = new TrimTask(from, middle).compute();
+                result.addAll(right.join());
+                return result;
+            }
+            EdgeExplorer explorer = graph.createEdgeExplorer();
+            IntArrayList remaining = new IntArrayList();
+            IntArrayList singleEdgeComponents = new IntArrayList();
+            boolean[] found = new boolean[1];
+            for (int key = from; key < to; key++) {
+                EdgeIteratorState edgeState = graph.getEdgeIteratorStateForKey(key);
+                found[0] = false;
+                forEachSuccessor(explorer, key, edgeState.getAdjNode(), (q, adj) -> found[0] |= parts[q] != DONE);
+                if (found[0]) {
+                    found[0] = false;
+                    forEachPredecessor(explorer, key, edgeState.getBaseNode(), (p, base) -> found[0] |= parts[p] != DONE);
+                }
+                if (found[0]) {
+                    remaining.add(key);
+                } else {
+                    // concurrently trimmed neighbors are fine, because they are single edge components as well
+                    parts[key] = DONE;
+                    singleEdgeComponents.add(key);
+                }
+            }
+            addSingleEdgeComponents(singleEdgeComponents);
+            return remaining;
+        }
+    }
+
+    /**
+     * Finds all components within a part of the graph. Every part is only modified by a single task, the edge keys
+     * of other parts are only read to compare them with the own part id.
+     */
+    private class PartTask extends RecursiveAction {
+        private final IntArrayList edgeKeys;
+        private final int part;
+
+        PartTask(IntArrayList edgeKeys, int part) {
+            this.edgeKeys = edgeKeys;
+            this.part = part;
+        }
+
+        @Override
+        protected void compute() {
+            EdgeExplorer explorer = graph.createEdgeExplorer();
+            IntArrayDeque stack = new IntArrayDeque();
+            List<PartTask> forked = new ArrayList<>();
+            // small parts are searched by this task to avoid the overhead of a task per (usually tiny) part
+            Deque<PartTask> pending = new ArrayDeque<>();
+            pending.add(this);
+            while (!pending.isEmpty()) {
+                PartTask task = pending.removeLast();
+                for (PartTask next : task.search(explorer, stack)) {
+                    if (next.edgeKeys.size() >= minForkEdgeKeys) {
+                        next.fork();
+                        forked.add(next);
+                    } else {
+                        pending.addLast(next);
+                    }
+                }
+            }
+            for (PartTask task : forked)
+                task.join();
+        }
+
+        /**
+         * Trims this part, finds the component of a pivot edge key and returns the up to three remaining parts.
+         */
+        private List<PartTask> search(EdgeExplorer explorer, IntArrayDeque stack) {
+            List<PartTask> result = new ArrayList<>(3);
+            IntArrayList remaining = trim(explorer, stack);
+            if (remaining.isEmpty())
+                return result;
+
+            int pivot = remaining.get(0);
+            EdgeIteratorState pivotState = graph.getEdgeIteratorStateForKey(pivot);
+            int fwdPart = partIds.incrementAndGet();
+            int bwdPart = partIds.incrementAndGet();
+
+            // forward search: mark everything that can be reached from the pivot
+            IntArrayList fwd = new IntArrayList();
+            parts[pivot] = fwdPart;
+            fwd.add(pivot);
+            stack.addLast(pivot);
+            stack.addLast(pivotState.getAdjNode());
+            while (!stack.isEmpty()) {
+                int adjNode = stack.removeLast();
+                int p = stack.removeLast();
+                forEachSuccessor(explorer, p, adjNode, (q, adj) -> {
+                    if (parts[q] == part) {
+                        parts[q] = fwdPart;
+                        fwd.add(q);
+                        stack.addLast(q);
+                        stack.addLast(adj);
+                    }
+                });
+            }
+
+            // backward search: everything that can reach the pivot and was reached by the forward search belongs to
+            // the component of the pivot
+            IntArrayList component = new IntArrayList();
+            IntArrayList bwd = new IntArrayList();
+            parts[pivot] = DONE;
+            component.add(pivot);
+            stack.addLast(pivot);
+            stack.addLast(pivotState.getBaseNode());
+            while (!stack.isEmpty()) {
+                int baseNode = stack.removeLast();
+                int q = stack.removeLast();
+                forEachPredecessor(explorer, q, baseNode, (p, base) -> {
+                    if (parts[p] == fwdPart) {
+                        parts[p] = DONE;
+                        component.add(p);
+                        stack.addLast(p);
+                        stack.addLast(base);
+                    } else if (parts[p] == part) {
+                        parts[p] = bwdPart;
+                        bwd.add(p);
+                        stack.addLast(p);
+                        stack.addLast(base);
+                    }
+                });
+            }
+            addComponent(component);
+
+            addPart(result, fwd, fwdPart);
+            addPart(result, bwd, bwdPart);
+            addPart(result, remaining, part);
+            return result;
+        }
+
+        private void addPart(List<PartTask> result, IntArrayList edgeKeys, int part) {
+            IntArrayList partEdgeKeys = new IntArrayList();
+            for (IntCursor c : edgeKeys)
+                if (parts[c.value] == part)
+                    partEdgeKeys.add(c.value);
+            if (!partEdgeKeys.isEmpty())
+                result.add(new PartTask(partEdgeKeys, part));
+        }
+
+        /**
+         * Repeatedly removes the edge keys without an incoming or outgoing transition within this part as single edge
+         * components and returns the remaining edge keys.
+         */
+        private IntArrayList trim(EdgeExplorer explorer, IntArrayDeque stack) {
+            IntArrayList singleEdgeComponents = new IntArrayList();
+            boolean[] found = new boolean[1];
+            for (IntCursor c : edgeKeys)
+                stack.addLast(c.value);
+            while (!stack.isEmpty()) {
+                int key = stack.removeLast();
+                if (parts[key] != part)
+                    continue;
+                EdgeIteratorState edgeState = graph.getEdgeIteratorStateForKey(key);
+                found[0] = false;
+                forEachSuccessor(explorer, key, edgeState.getAdjNode(), (q, adj) -> found[0] |= parts[q] == part && q != key);
+                if (found[0]) {
+                    found[0] = false;
+                    forEachPredecessor(explorer, key, edgeState.getBaseNode(), (p, base) -> found[0] |= parts[p] == part && p != key);
+                }
+                if (found[0])
+                    continue;
+                parts[key] = DONE;
+                singleEdgeComponents.add(key);
+                // the neighbors might have lost their last transition within this part now
+                forEachSuccessor(explorer, key, edgeState.getAdjNode(), (q, adj) -> {
+                    if (parts[q] == part)
+                        stack.addLast(q);
+                });
+                forEachPredecessor(explorer, key, edgeState.getBaseNode(), (p, base) -> {
+                    if (parts[p] == part)
+                        stack.addLast(p);
+                });
+            }
+            addSingleEdgeComponents(singleEdgeComponents);
+            IntArrayList remaining = new IntArrayList();
+            for (IntCursor c : edgeKeys)
+                if (parts[c.value] == part)
+                    remaining.add(c.value);
+            return remaining;
+        }
+    }
+}
@@ -140,7 +140,7 @@ public class EdgeBasedTarjanSCC {
                 findComponentForEdgeKey(edgeKeyFwd, iter.getAdjNode());
             int edgeKeyBwd = createEdgeKey(iter, true);
             if (!edgeKeyIndex.has(edgeKeyBwd))
-                findComponentForEdgeKey(edgeKeyBwd, iter.getAdjNode());
+                findComponentForEdgeKey(edgeKeyBwd, iter.getBaseNode());
         }
         return components;
     }
@@ -185,10 +185,7 @@ public class EdgeBasedTarjanSCC {
             if (tarjanStack.getLast() == p) {
                 tarjanStack.removeLast();
                 edgeKeyOnStack.remove(p);
-                components.numComponents++;
-                components.numEdgeKeys++;
-                if (!excludeSingleEdgeComponents)
-                    components.singleEdgeComponents.set(p);
+                components.addSingleEdgeComponent(p, !excludeSingleEdgeComponents);
             } else {
                 IntArrayList component = new IntArrayList();
                 while (true) {
@@ -199,12 +196,7 @@ public class EdgeBasedTarjanSCC {
                         break;
                 }
                 component.trimToSize();
-                assert component.size() > 1;
-                components.numComponents++;
-                components.numEdgeKeys += component.size();
-                components.components.add(component);
-                if (component.size() > components.biggestComponent.size())
-                    components.biggestComponent = component;
+                components.addComponent(component);
             }
         }
     }
@@ -239,7 +231,7 @@ public class EdgeBasedTarjanSCC {
         // has already been found by the first search. So we cannot simply push them both and start the search once.
         int edgeKeyBwd = createEdgeKey(edge, true);
         if (!edgeKeyIndex.has(edgeKeyBwd))
-            pushFindComponentForEdgeKey(edgeKeyBwd, edge.getAdjNode());
+            pushFindComponentForEdgeKey(edgeKeyBwd, edge.getBaseNode());
         startSearch();
     }
 
@@ -373,6 +365,22 @@ public class EdgeBasedTarjanSCC {
             biggestComponent = new IntArrayList();
         }
 
+        void addSingleEdgeComponent(int edgeKey, boolean store) {
+            numComponents++;
+            numEdgeKeys++;
+            if (store)
+                singleEdgeComponents.set(edgeKey);
+        }
+
+        void addComponent(IntArrayList component) {
+            assert component.size() > 1;
+            numComponents++;
+            numEdgeKeys += component.size();
+            components.add(component);
+            if (component.size() > biggestComponent.size())
+                biggestComponent = component;
+        }
+
         /**
          * A list of arrays each containing the edge keys of a strongly connected component. Components with only a single
          * edge key are not included here, but need to be obtained using {@link #getSingleEdgeComponents()}.
@@ -31,7 +31,10 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Detects and marks 'subnetworks' with a dedicated subnetwork encoded value. Subnetworks are parts of the road network
@@ -61,6 +64,8 @@ public class PrepareRoutingSubnetworks {
     private final GraphHopperStorage ghStorage;
     private final List<PrepareJob> prepareJobs;
     private int minNetworkSize = 200;
+    private int threads = 1;
+    private boolean parallelSCC;
 
     public PrepareRoutingSubnetworks(GraphHopperStorage ghStorage, List<PrepareJob> prepareJobs) {
         this.ghStorage = ghStorage;
@@ -76,6 +81,28 @@ public class PrepareRoutingSubnetworks {
         return this;
     }
 
+    /**
+     * Sets the number of threads used to run the jobs (for the different profiles) concurrently. Marking the
+     * subnetwork edges is still done by one job at a time, because the subnetwork encoded values of different jobs can
+     * share the same flags.
+     */
+    public PrepareRoutingSubnetworks setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive, but was: " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Use {@link EdgeBasedParallelSCC} instead of {@link EdgeBasedTarjanSCC} to find the components of every job.
+     * It uses the threads set with {@link #setThreads(int)} and needs less memory, which can be useful for very
+     * large graphs.
+     */
+    public PrepareRoutingSubnetworks setParallelSCC(boolean parallelSCC) {
+        this.parallelSCC = parallelSCC;
+        return this;
+    }
+
     /**
      * Finds and marks all subnetworks according to {@link #setMinNetworkSize(int)}
      *
@@ -88,30 +115,56 @@ public class PrepareRoutingSubnetworks {
         }
         StopWatch sw = new StopWatch().start();
         logger.info("Start marking subnetworks, prepare.min_network_size: " + minNetworkSize + ", nodes: " +
-                Helper.nf(ghStorage.getNodes()) + ", edges: " + Helper.nf(ghStorage.getEdges()) + ", jobs: " + prepareJobs + ", " + Helper.getMemInfo());
+                Helper.nf(ghStorage.getNodes()) + ", edges: " + Helper.nf(ghStorage.getEdges()) + ", jobs: " + prepareJobs
+                + ", threads: " + threads + ", parallel_scc: " + parallelSCC + ", " + Helper.getMemInfo());
         int total = 0;
-        for (PrepareJob job : prepareJobs)
-            total += setSubnetworks(job.weighting, job.subnetworkEnc);
+        if (threads == 1 && !parallelSCC) {
+            for (PrepareJob job : prepareJobs)
+                total += setSubnetworks(job.weighting, job.subnetworkEnc, null);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<ForkJoinTask<Integer>> tasks = new ArrayList<>(prepareJobs.size());
+                for (PrepareJob job : prepareJobs)
+                    tasks.add(pool.submit(() -> setSubnetworks(job.weighting, job.subnetworkEnc, pool)));
+                for (ForkJoinTask<Integer> task : tasks)
+                    total += task.join();
+            } finally {
+                pool.shutdownNow();
+            }
+        }
         logger.info("Finished finding and marking subnetworks for " + prepareJobs.size() + " jobs, took: " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
         return total;
     }
 
-    private int setSubnetworks(Weighting weighting, BooleanEncodedValue subnetworkEnc) {
-        // partition graph into strongly connected components using Tarjan's algorithm
+    private int setSubnetworks(Weighting weighting, BooleanEncodedValue subnetworkEnc, ForkJoinPool pool) {
+        // partition graph into strongly connected components using Tarjan's algorithm or the parallel forward-backward search
         StopWatch sw = new StopWatch().start();
-        EdgeBasedTarjanSCC.ConnectedComponents ccs = EdgeBasedTarjanSCC.findComponents(ghStorage,
-                (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeightWithAccess(weighting, edge, false, prev)),
-                false);
+        EdgeBasedTarjanSCC.EdgeTransitionFilter filter =
+                (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeightWithAccess(weighting, edge, false, prev));
+        EdgeBasedTarjanSCC.ConnectedComponents ccs = parallelSCC
+                ? EdgeBasedParallelSCC.findComponents(ghStorage, filter, pool)
+                : EdgeBasedTarjanSCC.findComponents(ghStorage, filter, false);
         List<IntArrayList> components = ccs.getComponents();
         BitSet singleEdgeComponents = ccs.getSingleEdgeComponents();
         long numSingleEdgeComponents = singleEdgeComponents.cardinality();
         logger.info(subnetworkEnc.getName().replaceAll("_subnetwork", "") + " - Found " + ccs.getTotalComponents() + " subnetworks (" + numSingleEdgeComponents + " single edges and "
                 + components.size() + " components with more than one edge, total nodes: " + ccs.getEdgeKeys() + "), took: " + sw.stop().getSeconds() + "s");
 
+        // the subnetwork encoded values of concurrent jobs might be stored in the same flags
+        synchronized (this) {
+            return markSubnetworks(ccs, weighting, subnetworkEnc);
+        }
+    }
+
+    private int markSubnetworks(EdgeBasedTarjanSCC.ConnectedComponents ccs, Weighting weighting, BooleanEncodedValue subnetworkEnc) {
+        List<IntArrayList> components = ccs.getComponents();
+        BitSet singleEdgeComponents = ccs.getSingleEdgeComponents();
+        long numSingleEdgeComponents = singleEdgeComponents.cardinality();
         final int minNetworkSizeEdgeKeys = 2 * minNetworkSize;
 
         // make all small components subnetworks, but keep the biggest (even when its smaller than the given min_network_size)
-        sw = new StopWatch().start();
+        StopWatch sw = new StopWatch().start();
         int subnetworks = 0;
         int markedEdges = 0;
         int smallestNonSubnetwork = ccs.getBiggestComponent().size();
@@ -78,6 +78,13 @@ public class SubnetworkStorage implements Storable<SubnetworkStorage> {
         da.close();
     }
 
+    /**
+     * Closes this storage and removes its data from the specified directory
+     */
+    public void remove(Directory dir) {
+        dir.remove(da);
+    }
+
     @Override
     public boolean isClosed() {
         return da.isClosed();
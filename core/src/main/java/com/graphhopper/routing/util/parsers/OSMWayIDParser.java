@@ -0,0 +1,59 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util.parsers;
+
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.EncodedValue;
+import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.OSMWayID;
+import com.graphhopper.storage.IntsRef;
+
+import java.util.List;
+
+/**
+ * Stores the id and the hash of the node ids of the OSM way. The barrier flag is set by the OSMReader.
+ */
+public class OSMWayIDParser implements TagParser {
+    private final IntEncodedValue osmWayIdEnc;
+    private final IntEncodedValue osmWayNodesEnc;
+    private final BooleanEncodedValue barrierEnc;
+
+    public OSMWayIDParser() {
+        this.osmWayIdEnc = OSMWayID.create();
+        this.osmWayNodesEnc = OSMWayID.createNodes();
+        this.barrierEnc = OSMWayID.createBarrier();
+    }
+
+    @Override
+    public void createEncodedValues(EncodedValueLookup lookup, List<EncodedValue> registerNewEncodedValue) {
+        registerNewEncodedValue.add(osmWayIdEnc);
+        registerNewEncodedValue.add(osmWayNodesEnc);
+        registerNewEncodedValue.add(barrierEnc);
+    }
+
+    @Override
+    public IntsRef handleWayTags(IntsRef edgeFlags, ReaderWay way, boolean ferry, IntsRef relationFlags) {
+        if (way.getId() < 0 || way.getId() > osmWayIdEnc.getMaxInt())
+            throw new IllegalArgumentException("Cannot store OSM way id " + way.getId() + " in " + OSMWayID.KEY);
+        osmWayIdEnc.setInt(false, edgeFlags, (int) way.getId());
+        osmWayNodesEnc.setInt(false, edgeFlags, OSMWayID.hashNodes(way.getNodes()));
+        return edgeFlags;
+    }
+}
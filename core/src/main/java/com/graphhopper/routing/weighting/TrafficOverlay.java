@@ -0,0 +1,184 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.util.GHUtility;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Holds the current traffic speeds of the edges, which are used for flexible and hybrid routing, see
+ * {@link TrafficWeighting}. The speeds are stored in a primitive array with one byte per edge and direction. Every
+ * update copies this array and replaces it afterwards, so the routing requests always see a consistent
+ * {@link Speeds} snapshot and never have to wait for an update. Updates are synchronized with each other.
+ */
+public class TrafficOverlay {
+    public static final int MAX_SPEED = 254;
+    private static final byte NO_SPEED = (byte) 0xFF;
+    private final int edges;
+    private volatile Speeds speeds;
+
+    public TrafficOverlay(int edges) {
+        this.edges = edges;
+        this.speeds = new Speeds(null, 0, edges, null);
+    }
+
+    /**
+     * @return the speeds of the latest update, which do not change anymore
+     */
+    public Speeds getSpeeds() {
+        return speeds;
+    }
+
+    /**
+     * Sets the traffic speeds of the given edge keys.
+     *
+     * @param edgeKeys the edge keys, i.e. the edge and its direction, see {@link GHUtility#createEdgeKey(int, boolean)}
+     * @param speeds   the traffic speeds in km/h, 0 closes the edge in this direction
+     * @param replace  true if all other traffic speeds should be removed, false to keep them
+     */
+    public synchronized void update(int[] edgeKeys, int[] speeds, boolean replace) {
+        if (edgeKeys.length != speeds.length)
+            throw new IllegalArgumentException("Number of edge keys and speeds must be equal, but was: " + edgeKeys.length + " and " + speeds.length);
+        byte[] current = this.speeds.array;
+        byte[] array;
+        if (replace || current == null) {
+            array = new byte[2 * edges];
+            Arrays.fill(array, NO_SPEED);
+        } else {
+            array = current.clone();
+        }
+        for (int i = 0; i < edgeKeys.length; i++) {
+            if (edgeKeys[i] < 0 || edgeKeys[i] >= array.length)
+                throw new IllegalArgumentException("Invalid edge key " + edgeKeys[i] + ", the graph has " + edges + " edges");
+            if (speeds[i] < 0 || speeds[i] > MAX_SPEED)
+                throw new IllegalArgumentException("Speed of edge key " + edgeKeys[i] + " must be between 0 and " + MAX_SPEED + ", but was: " + speeds[i]);
+            array[edgeKeys[i]] = (byte) speeds[i];
+        }
+        int count = 0;
+        for (byte speed : array)
+            if (speed != NO_SPEED)
+                count++;
+        this.speeds = count == 0 ? new Speeds(null, 0, edges, new Date()) : new Speeds(array, count, edges, new Date());
+    }
+
+    /**
+     * Reads the traffic speeds from lines like <code>edge_id,speed[,forward|backward]</code> and updates this
+     * overlay with them. The direction refers to the direction the edge is stored in, which is the direction of the
+     * OSM way for imported graphs. Without a direction the speed is used for both directions. Empty lines and lines
+     * starting with # are skipped.
+     *
+     * @return the number of updated edge keys
+     */
+    public int update(Reader reader, boolean replace) throws IOException {
+        IntArrayList edgeKeys = new IntArrayList();
+        IntArrayList speeds = new IntArrayList();
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        String line;
+        for (int lineNumber = 1; (line = bufferedReader.readLine()) != null; lineNumber++) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] values = line.split(",");
+            if (values.length < 2 || values.length > 3)
+                throw new IllegalArgumentException("Invalid traffic speed in line " + lineNumber + ", expected edge_id,speed[,forward|backward] but was: " + line);
+            int edge, speed;
+            try {
+                edge = Integer.parseInt(values[0].trim());
+                speed = (int) Math.round(Double.parseDouble(values[1].trim()));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid number in line " + lineNumber + ": " + line);
+            }
+            String direction = values.length == 3 ? values[2].trim() : "";
+            if (!direction.isEmpty() && !direction.equals("forward") && !direction.equals("backward"))
+                throw new IllegalArgumentException("Invalid direction in line " + lineNumber + ", use forward or backward: " + line);
+            if (direction.isEmpty() || direction.equals("forward")) {
+                edgeKeys.add(GHUtility.createEdgeKey(edge, false));
+                speeds.add(speed);
+            }
+            if (direction.isEmpty() || direction.equals("backward")) {
+                edgeKeys.add(GHUtility.createEdgeKey(edge, true));
+                speeds.add(speed);
+            }
+        }
+        update(edgeKeys.toArray(), speeds.toArray(), replace);
+        return edgeKeys.size();
+    }
+
+    public synchronized void clear() {
+        speeds = new Speeds(null, 0, edges, new Date());
+    }
+
+    /**
+     * An immutable snapshot of the traffic speeds.
+     */
+    public static class Speeds {
+        // null if there are no traffic speeds
+        private final byte[] array;
+        private final int count;
+        private final int edges;
+        private final Date date;
+
+        private Speeds(byte[] array, int count, int edges, Date date) {
+            this.array = array;
+            this.count = count;
+            this.edges = edges;
+            this.date = date;
+        }
+
+        /**
+         * @return the number of edges of the graph, all larger edge ids belong to virtual edges of a query graph
+         */
+        public int getEdges() {
+            return edges;
+        }
+
+        /**
+         * @return the traffic speed in km/h for the given edge key or -1 if there is none
+         */
+        public int getSpeed(int edgeKey) {
+            if (array == null || edgeKey >= array.length)
+                return -1;
+            byte speed = array[edgeKey];
+            return speed == NO_SPEED ? -1 : speed & 0xFF;
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * @return the number of edge keys with a traffic speed
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @return the time of the last update or null if there was none
+         */
+        public Date getDate() {
+            return date;
+        }
+    }
+}
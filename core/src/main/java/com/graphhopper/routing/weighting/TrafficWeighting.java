@@ -0,0 +1,77 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+/**
+ * This weighting is a wrapper for every weighting to support the traffic speeds of a {@link TrafficOverlay}. If the
+ * traffic speed of an edge is lower than the speed of the flag encoder the weight and time of the edge increase
+ * accordingly. Higher traffic speeds are ignored, so the weights never decrease and the landmarks stay valid.
+ */
+public class TrafficWeighting extends AbstractAdjustedWeighting {
+    private final TrafficOverlay.Speeds speeds;
+    private final DecimalEncodedValue avgSpeedEnc;
+
+    public TrafficWeighting(Weighting superWeighting, TrafficOverlay.Speeds speeds) {
+        super(superWeighting);
+        this.speeds = speeds;
+        this.avgSpeedEnc = superWeighting.getFlagEncoder().getAverageSpeedEnc();
+    }
+
+    @Override
+    public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        double weight = superWeighting.calcEdgeWeight(edgeState, reverse);
+        if (Double.isInfinite(weight))
+            return weight;
+        return weight * calcFactor(edgeState, reverse);
+    }
+
+    @Override
+    public long calcEdgeMillis(EdgeIteratorState edgeState, boolean reverse) {
+        long millis = superWeighting.calcEdgeMillis(edgeState, reverse);
+        double factor = calcFactor(edgeState, reverse);
+        return Double.isInfinite(factor) ? millis : Math.round(millis * factor);
+    }
+
+    private double calcFactor(EdgeIteratorState edgeState, boolean reverse) {
+        int edgeKey = edgeState.getEdgeKey();
+        if (edgeState.getEdge() >= speeds.getEdges()) {
+            // a virtual edge of the query graph, use the speed of the edge it was split from. detach is cheap here,
+            // because the iterator of the query graph returns its current virtual edge
+            EdgeIteratorState virtualEdge = edgeState.detach(false);
+            if (virtualEdge instanceof VirtualEdgeIteratorState)
+                edgeKey = ((VirtualEdgeIteratorState) virtualEdge).getOriginalEdgeKey();
+        }
+        int speed = speeds.getSpeed(reverse ? GHUtility.reverseEdgeKey(edgeKey) : edgeKey);
+        if (speed < 0)
+            return 1;
+        if (speed == 0)
+            return Double.POSITIVE_INFINITY;
+        double encoderSpeed = reverse ? edgeState.getReverse(avgSpeedEnc) : edgeState.get(avgSpeedEnc);
+        return speed >= encoderSpeed ? 1 : encoderSpeed / speed;
+    }
+
+    @Override
+    public String getName() {
+        return "traffic";
+    }
+}
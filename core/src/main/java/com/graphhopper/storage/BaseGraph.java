@@ -17,6 +17,8 @@
  */
 package com.graphhopper.storage;
 
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -28,6 +30,7 @@ import com.graphhopper.util.shapes.BBox;
 
 import java.util.Collections;
 import java.util.Locale;
+import java.util.function.IntUnaryOperator;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -89,6 +92,9 @@ class BaseGraph implements Graph {
     private int edgeEntryIndex, nodeEntryIndex;
     private long maxGeoRef;
     private boolean frozen = false;
+    private boolean useCompactAdjacency = false;
+    // only available when the graph is frozen and useCompactAdjacency is enabled
+    CompactAdjacency compactAdjacency;
 
     public BaseGraph(Directory dir, final EncodingManager encodingManager, boolean withElevation,
                      InternalGraphEventListener listener, boolean withTurnCosts, int segmentSize) {
@@ -104,7 +110,8 @@ class BaseGraph implements Graph {
         this.bounds = BBox.createInverse(withElevation);
         this.nodeAccess = new GHNodeAccess(this, withElevation);
         if (withTurnCosts) {
-            turnCostStorage = new TurnCostStorage(this, dir.find("turn_costs"));
+            turnCostStorage = new TurnCostStorage(this, dir.find("turn_costs"),
+                    dir.find("turn_costs_index", DAType.getPreferredInt(dir.getDefaultType())));
         } else {
             turnCostStorage = null;
         }
@@ -356,9 +363,55 @@ class BaseGraph implements Graph {
             throw new IllegalStateException("base graph already frozen");
 
         frozen = true;
+        if (useCompactAdjacency)
+            initCompactAdjacency();
+        if (supportsTurnCosts())
+            turnCostStorage.freeze();
         listener.freeze();
     }
 
+    /**
+     * Enables the compact (CSR) layout of the adjacency lists that is created once the graph is frozen, see
+     * {@link CompactAdjacency}. This needs additional memory (around 16 bytes per edge), but iterating the edges of a
+     * node becomes much more cache friendly.
+     */
+    void setUseCompactAdjacency(boolean useCompactAdjacency) {
+        checkNotInitialized();
+        this.useCompactAdjacency = useCompactAdjacency;
+    }
+
+    boolean isUsingCompactAdjacency() {
+        return compactAdjacency != null;
+    }
+
+    private void initCompactAdjacency() {
+        long entries = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int edge = getEdgeRef(node);
+            while (EdgeIterator.Edge.isValid(edge)) {
+                entries++;
+                long edgePointer = toPointer(edge);
+                edge = node == getNodeA(edgePointer) ? getLinkA(edgePointer) : getLinkB(edgePointer);
+            }
+        }
+        CompactAdjacency adjacency = new CompactAdjacency(dir, nodeCount, entries);
+        int entry = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            adjacency.setFirstEntry(node, entry);
+            int edge = getEdgeRef(node);
+            while (EdgeIterator.Edge.isValid(edge)) {
+                long edgePointer = toPointer(edge);
+                int nodeA = getNodeA(edgePointer);
+                boolean baseNodeIsNodeA = node == nodeA;
+                adjacency.setEntry(entry, baseNodeIsNodeA ? getNodeB(edgePointer) : nodeA, edge, !baseNodeIsNodeA);
+                entry++;
+                edge = baseNodeIsNodeA ? getLinkA(edgePointer) : getLinkB(edgePointer);
+            }
+        }
+        adjacency.setFirstEntry(nodeCount, entry);
+        compactAdjacency = adjacency;
+    }
+
     synchronized boolean isFrozen() {
         return frozen;
     }
@@ -368,6 +421,89 @@ class BaseGraph implements Graph {
             throw new IllegalStateException("Cannot add edge or node after baseGraph.freeze was called");
     }
 
+    /**
+     * Changes the ids of all edges. This is only possible as long as the graph is not frozen.
+     *
+     * @param getNewEdgeForOldEdge must be a permutation of the edge ids
+     */
+    void sortEdges(IntUnaryOperator getNewEdgeForOldEdge) {
+        checkFreeze();
+        for (int node = 0; node < nodeCount; node++) {
+            int edge = getEdgeRef(node);
+            if (EdgeIterator.Edge.isValid(edge))
+                setEdgeRef(node, getNewEdgeForOldEdge.applyAsInt(edge));
+        }
+        for (int edge = 0; edge < edgeCount; edge++) {
+            long edgePointer = toPointer(edge);
+            int linkA = getLinkA(edgePointer);
+            if (EdgeIterator.Edge.isValid(linkA))
+                edges.setInt(edgePointer + E_LINKA, getNewEdgeForOldEdge.applyAsInt(linkA));
+            int linkB = getLinkB(edgePointer);
+            if (EdgeIterator.Edge.isValid(linkB))
+                edges.setInt(edgePointer + E_LINKB, getNewEdgeForOldEdge.applyAsInt(linkB));
+        }
+        permuteEntries(edges, edgeEntryBytes, edgeCount, getNewEdgeForOldEdge);
+        if (supportsTurnCosts())
+            turnCostStorage.sortEdges(getNewEdgeForOldEdge);
+    }
+
+    /**
+     * Changes the ids of all nodes. This is only possible as long as the graph is not frozen.
+     *
+     * @param getNewNodeForOldNode must be a permutation of the node ids
+     */
+    void relabelNodes(IntUnaryOperator getNewNodeForOldNode) {
+        checkFreeze();
+        for (int edge = 0; edge < edgeCount; edge++) {
+            long edgePointer = toPointer(edge);
+            edges.setInt(edgePointer + E_NODEA, getNewNodeForOldNode.applyAsInt(getNodeA(edgePointer)));
+            edges.setInt(edgePointer + E_NODEB, getNewNodeForOldNode.applyAsInt(getNodeB(edgePointer)));
+        }
+        // the turn cost entries are referenced from the node entries, so they are moved along with them
+        permuteEntries(nodes, nodeEntryBytes, nodeCount, getNewNodeForOldNode);
+    }
+
+    /**
+     * Moves the entry at index i to index newIndexForOldIndex(i) for all entries, without copying the whole storage.
+     * We follow the cycles of the permutation and only keep the entry that is going to be overwritten next.
+     */
+    private static void permuteEntries(DataAccess da, int entryBytes, int count, IntUnaryOperator newIndexForOldIndex) {
+        int entryInts = entryBytes / 4;
+        int[] moving = new int[entryInts];
+        int[] replaced = new int[entryInts];
+        GHBitSet done = new GHBitSetImpl(count);
+        for (int start = 0; start < count; start++) {
+            if (done.contains(start))
+                continue;
+            readEntry(da, (long) start * entryBytes, moving);
+            int index = start;
+            while (true) {
+                done.add(index);
+                int newIndex = newIndexForOldIndex.applyAsInt(index);
+                if (newIndex == start) {
+                    writeEntry(da, (long) newIndex * entryBytes, moving);
+                    break;
+                }
+                readEntry(da, (long) newIndex * entryBytes, replaced);
+                writeEntry(da, (long) newIndex * entryBytes, moving);
+                int[] tmp = moving;
+                moving = replaced;
+                replaced = tmp;
+                index = newIndex;
+            }
+        }
+    }
+
+    private static void readEntry(DataAccess da, long pointer, int[] entry) {
+        for (int i = 0; i < entry.length; i++)
+            entry[i] = da.getInt(pointer + 4L * i);
+    }
+
+    private static void writeEntry(DataAccess da, long pointer, int[] entry) {
+        for (int i = 0; i < entry.length; i++)
+            da.setInt(pointer + 4L * i, entry[i]);
+    }
+
     void create(long initSize) {
         nodes.create(initSize);
         edges.create(initSize);
@@ -466,11 +602,16 @@ class BaseGraph implements Graph {
         if (supportsTurnCosts()) {
             turnCostStorage.close();
         }
+        if (compactAdjacency != null) {
+            compactAdjacency.close();
+            compactAdjacency = null;
+        }
     }
 
     long getCapacity() {
         return edges.getCapacity() + nodes.getCapacity() + stringIndex.getCapacity()
-                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0);
+                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0)
+                + (compactAdjacency != null ? compactAdjacency.getCapacity() : 0);
     }
 
     long getMaxGeoRef() {
@@ -504,6 +645,12 @@ class BaseGraph implements Graph {
         loadNodesHeader();
         loadEdgesHeader();
         loadWayGeometryHeader();
+
+        if (frozen && useCompactAdjacency)
+            initCompactAdjacency();
+        // graphs that were stored without the turn cost index get it now, unless we are not allowed to write
+        if (frozen && supportsTurnCosts() && dir.getDefaultType().isAllowWrites())
+            turnCostStorage.freeze();
     }
 
     /**
@@ -901,6 +1048,9 @@ class BaseGraph implements Graph {
     protected static class EdgeIteratorImpl extends EdgeIteratorStateImpl implements EdgeExplorer, EdgeIterator {
         final EdgeFilter filter;
         int nextEdgeId;
+        // used instead of the edge links if the base graph provides a compact adjacency
+        CompactAdjacency compactAdjacency;
+        int nextEntry, endEntry;
 
         public EdgeIteratorImpl(BaseGraph baseGraph, EdgeFilter filter) {
             super(baseGraph);
@@ -912,21 +1062,45 @@ class BaseGraph implements Graph {
 
         @Override
         public EdgeIterator setBaseNode(int baseNode) {
-            nextEdgeId = edgeId = baseGraph.getEdgeRef(baseNode);
             this.baseNode = baseNode;
+            compactAdjacency = baseGraph.compactAdjacency;
+            if (compactAdjacency != null) {
+                nextEntry = compactAdjacency.getFirstEntry(baseNode);
+                endEntry = compactAdjacency.getFirstEntry(baseNode + 1);
+                nextEdgeId = edgeId = EdgeIterator.NO_EDGE;
+                return this;
+            }
+            nextEdgeId = edgeId = baseGraph.getEdgeRef(baseNode);
             return this;
         }
 
         @Override
         public final boolean next() {
-            while (true) {
-                if (!EdgeIterator.Edge.isValid(nextEdgeId))
-                    return false;
-                goToNext();
+            while (goToNextEdge()) {
                 if (filter.accept(this)) {
                     return true;
                 }
             }
+            return false;
+        }
+
+        /**
+         * Moves to the next edge of the base node without applying the filter, either via the compact adjacency or
+         * via the edge links.
+         *
+         * @return false if there are no more edges
+         */
+        final boolean goToNextEdge() {
+            if (compactAdjacency != null) {
+                if (nextEntry >= endEntry)
+                    return false;
+                goToNextEntry();
+                return true;
+            }
+            if (!EdgeIterator.Edge.isValid(nextEdgeId))
+                return false;
+            goToNext();
+            return true;
         }
 
         void goToNext() {
@@ -944,6 +1118,16 @@ class BaseGraph implements Graph {
                     + ", edge pointer: " + edgePointer + ", edge: " + edgeId);
         }
 
+        void goToNextEntry() {
+            int signedEdge = compactAdjacency.getSignedEdge(nextEntry);
+            reverse = signedEdge < 0;
+            edgeId = reverse ? ~signedEdge : signedEdge;
+            adjNode = compactAdjacency.getAdjNode(nextEntry);
+            edgePointer = baseGraph.toPointer(edgeId);
+            freshFlags = false;
+            nextEntry++;
+        }
+
         @Override
         public EdgeIteratorState detach(boolean reverseArg) {
             if (edgeId == nextEdgeId)
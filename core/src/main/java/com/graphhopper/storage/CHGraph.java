@@ -91,6 +91,12 @@ public interface CHGraph {
      */
     boolean isReadyForContraction();
 
+    /**
+     * Removes all shortcuts so the graph can be contracted again, e.g. after the weights of the base graph changed.
+     * The levels of the nodes are kept and can be used as fixed node ordering for the new contraction.
+     */
+    void removeShortcuts();
+
     Graph getBaseGraph();
 
     int getNodes();
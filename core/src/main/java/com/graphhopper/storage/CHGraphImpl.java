@@ -326,6 +326,13 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         isReadyForContraction = true;
     }
 
+    @Override
+    public void removeShortcuts() {
+        shortcutCount = 0;
+        isReadyForContraction = false;
+        _prepareForContraction();
+    }
+
     /**
      * Writes plain edge information to the edges index
      */
@@ -515,8 +522,8 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         public final CHEdgeIterator setBaseNode(int baseNode) {
             assert baseIterator.baseGraph.isFrozen() : "Traversing CHGraph is only possible if BaseGraph is frozen";
 
-            baseIterator.nextEdgeId = baseIterator.edgeId = baseGraph.getEdgeRef(baseNode);
-            baseIterator.baseNode = baseNode;
+            // the base edges are iterated via the compact adjacency of the base graph if it is available
+            baseIterator.setBaseNode(baseNode);
 
             nextEdgeId = edgeId = CHGraphImpl.this.getEdgeRef(baseNode);
             return this;
@@ -542,15 +549,13 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
                     return true;
             }
 
-            while (true) {
-                if (!EdgeIterator.Edge.isValid(baseIterator.nextEdgeId))
-                    return false;
-                baseIterator.goToNext();
+            while (baseIterator.goToNextEdge()) {
                 // we update edgeId even when iterating base edges
                 edgeId = baseIterator.edgeId;
                 if (baseIterator.filter.accept(this))
                     return true;
             }
+            return false;
         }
 
         @Override
@@ -0,0 +1,83 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+/**
+ * A read-only 'compressed sparse row' copy of the adjacency lists of a frozen {@link BaseGraph}. The edges adjacent to
+ * a node are stored in one contiguous block of the adjacency array (in the same order as they appear in the linked
+ * lists of the base graph) and an offset array points to the first entry of every node. Iterating the edges of a node
+ * is then a sequential scan instead of following the edge links from one random edge record to the next.
+ * <p>
+ * Every adjacency entry uses 8 bytes: the adjacent node and the edge id. For edges that are traversed from node B to
+ * node A the (bitwise) complement of the edge id is stored.
+ * <p>
+ * The edge explorers of the base graph and the base edges of the CH explorers use this copy. The shortcuts are still
+ * read from their linked lists. The copy is always kept on the heap (RAM_INT), independent of the DAType of the graph,
+ * because it is never stored and has to be built again whenever the graph is loaded.
+ */
+class CompactAdjacency {
+    private final DataAccess offsets;
+    private final DataAccess adjacency;
+
+    CompactAdjacency(Directory dir, int nodes, long entries) {
+        if (entries > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many adjacency entries for compact adjacency: " + entries);
+        // these are only copies of the base graph, so we never store them
+        offsets = dir.find("compact_adjacency_offsets", DAType.RAM_INT);
+        adjacency = dir.find("compact_adjacency", DAType.RAM_INT);
+        offsets.create(4L * (nodes + 1));
+        adjacency.create(Math.max(8, 8 * entries));
+    }
+
+    void setFirstEntry(int node, int entry) {
+        offsets.setInt(4L * node, entry);
+    }
+
+    /**
+     * @return the index of the first adjacency entry of the given node, the entries of this node end at the first
+     * entry of node + 1
+     */
+    int getFirstEntry(int node) {
+        return offsets.getInt(4L * node);
+    }
+
+    void setEntry(int entry, int adjNode, int edge, boolean reverse) {
+        adjacency.setInt(8L * entry, adjNode);
+        adjacency.setInt(8L * entry + 4, reverse ? ~edge : edge);
+    }
+
+    int getAdjNode(int entry) {
+        return adjacency.getInt(8L * entry);
+    }
+
+    /**
+     * @return the edge id if the edge is traversed from node A to node B and its complement otherwise
+     */
+    int getSignedEdge(int entry) {
+        return adjacency.getInt(8L * entry + 4);
+    }
+
+    long getCapacity() {
+        return offsets.getCapacity() + adjacency.getCapacity();
+    }
+
+    void close() {
+        offsets.close();
+        adjacency.close();
+    }
+}
@@ -29,6 +29,7 @@ import com.graphhopper.util.shapes.BBox;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.IntUnaryOperator;
 
 /**
  * This class manages all storage related methods and delegates the calls to the associated graphs.
@@ -178,6 +179,16 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         return dir;
     }
 
+    /**
+     * Enables a compact read-only copy of the adjacency lists that is created once the graph is frozen. Iterating
+     * the edges of a node is faster then, but the copy requires additional memory. This needs to be called before
+     * {@link #create} or {@link #loadExisting}.
+     */
+    public GraphHopperStorage setCompactAdjacency(boolean compactAdjacency) {
+        baseGraph.setUseCompactAdjacency(compactAdjacency);
+        return this;
+    }
+
     /**
      * After configuring this storage you need to create it explicitly.
      */
@@ -331,6 +342,26 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         return baseGraph.isFrozen();
     }
 
+    /**
+     * Changes the ids of all edges, including the edge ids used by the turn cost storage. This is only possible
+     * before the graph is frozen, i.e. before the CH and LM preparations.
+     *
+     * @param getNewEdgeForOldEdge must be a permutation of the edge ids
+     */
+    public void sortEdges(IntUnaryOperator getNewEdgeForOldEdge) {
+        baseGraph.sortEdges(getNewEdgeForOldEdge);
+    }
+
+    /**
+     * Changes the ids of all nodes. This is only possible before the graph is frozen, i.e. before the CH and LM
+     * preparations. Any location index that was built for this graph needs to be created again afterwards.
+     *
+     * @param getNewNodeForOldNode must be a permutation of the node ids
+     */
+    public void relabelNodes(IntUnaryOperator getNewNodeForOldNode) {
+        baseGraph.relabelNodes(getNewNodeForOldNode);
+    }
+
     @Override
     public String toDetailsString() {
         String str = baseGraph.toDetailsString();
@@ -27,7 +27,14 @@ public class RoutingCHGraphImpl implements RoutingCHGraph {
     private final Weighting weighting;
 
     public RoutingCHGraphImpl(CHGraph chGraph) {
-        Weighting weighting = chGraph.getCHConfig().getWeighting();
+        this(chGraph, chGraph.getCHConfig().getWeighting());
+    }
+
+    /**
+     * Uses the given weighting for the original edges instead of the one of the CH config. This only yields correct
+     * results if the shortcuts were calculated for this weighting, see {@link com.graphhopper.routing.ch.CHCustomizer}.
+     */
+    public RoutingCHGraphImpl(CHGraph chGraph, Weighting weighting) {
         if (weighting.hasTurnCosts() && !chGraph.getCHConfig().isEdgeBased())
             throw new IllegalArgumentException("Weighting has turn costs, but CHGraph is node-based");
         this.chGraph = chGraph;
@@ -0,0 +1,196 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import java.util.Arrays;
+
+/**
+ * A read-optimized copy of the turn cost entries of the {@link TurnCostStorage} that is created once the graph is
+ * frozen. The entries are stored in an open addressing hash table with linear probing that is keyed by the turn
+ * relation (fromEdge, viaNode, toEdge), so looking up a turn cost needs a single hash probe in most cases instead of
+ * walking the linked list of entries of the via node. Additionally a bit set of all via nodes is kept in memory, so
+ * nodes without any turn costs are skipped without accessing the table at all.
+ * <p>
+ * Every slot uses 16 bytes: |from_edge|via_node|to_edge|flags|. Empty slots have a negative from_edge.
+ */
+class TurnCostIndex {
+    private static final int EMPTY = -1;
+    private static final int S_FROM = 0;
+    private static final int S_VIA = 4;
+    private static final int S_TO = 8;
+    private static final int S_FLAGS = 12;
+    private static final int BYTES_PER_SLOT = 16;
+    private final DataAccess slots;
+    private boolean initialized;
+    private int capacity;
+    private int mask;
+    private int entries;
+    private long[] viaNodes = new long[0];
+
+    TurnCostIndex(DataAccess slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Removes all entries and makes sure the table can hold the given number of entries
+     */
+    void init(int expectedEntries) {
+        capacity = 16;
+        while (capacity < Integer.MAX_VALUE / 4 && capacity < 2L * expectedEntries)
+            capacity <<= 1;
+        mask = capacity - 1;
+        entries = 0;
+        viaNodes = new long[0];
+        long bytes = (long) capacity * BYTES_PER_SLOT;
+        if (!initialized) {
+            slots.create(bytes);
+            initialized = true;
+        } else {
+            slots.ensureCapacity(bytes);
+        }
+        for (int slot = 0; slot < capacity; slot++)
+            slots.setInt((long) slot * BYTES_PER_SLOT + S_FROM, EMPTY);
+    }
+
+    boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Adds the given flags to the entry of the given turn relation (the flags are ORed into the existing flags like in
+     * {@link TurnCostStorage}).
+     *
+     * @return false if the entry was not added because the table is full. call {@link #init} and add all entries
+     * again in this case.
+     */
+    boolean merge(int fromEdge, int viaNode, int toEdge, int flags) {
+        long pointer = findSlot(fromEdge, viaNode, toEdge);
+        if (slots.getInt(pointer + S_FROM) != EMPTY) {
+            slots.setInt(pointer + S_FLAGS, slots.getInt(pointer + S_FLAGS) | flags);
+            return true;
+        }
+        // keep the load factor below 0.75, so unsuccessful lookups stay short
+        if (4L * (entries + 1) > 3L * capacity)
+            return false;
+        slots.setInt(pointer + S_FROM, fromEdge);
+        slots.setInt(pointer + S_VIA, viaNode);
+        slots.setInt(pointer + S_TO, toEdge);
+        slots.setInt(pointer + S_FLAGS, flags);
+        entries++;
+        addViaNode(viaNode);
+        return true;
+    }
+
+    /**
+     * @return the flags of the given turn relation or 0 if there is no entry for it
+     */
+    int getFlags(int fromEdge, int viaNode, int toEdge) {
+        int word = viaNode >>> 6;
+        if (word >= viaNodes.length || (viaNodes[word] & (1L << viaNode)) == 0)
+            return 0;
+        long pointer = findSlot(fromEdge, viaNode, toEdge);
+        return slots.getInt(pointer + S_FROM) == EMPTY ? 0 : slots.getInt(pointer + S_FLAGS);
+    }
+
+    /**
+     * @return the pointer to the slot of the given turn relation or to the empty slot where it needs to be inserted
+     */
+    private long findSlot(int fromEdge, int viaNode, int toEdge) {
+        int slot = hash(fromEdge, viaNode, toEdge) & mask;
+        while (true) {
+            long pointer = (long) slot * BYTES_PER_SLOT;
+            int from = slots.getInt(pointer + S_FROM);
+            if (from == EMPTY || from == fromEdge && slots.getInt(pointer + S_VIA) == viaNode
+                    && slots.getInt(pointer + S_TO) == toEdge)
+                return pointer;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(int fromEdge, int viaNode, int toEdge) {
+        int h = viaNode * 0x9E3779B1 + fromEdge * 0x85EBCA6B + toEdge * 0xC2B2AE35;
+        h ^= h >>> 16;
+        h *= 0x7FEB352D;
+        h ^= h >>> 15;
+        return h;
+    }
+
+    private void addViaNode(int viaNode) {
+        int word = viaNode >>> 6;
+        if (word >= viaNodes.length)
+            viaNodes = Arrays.copyOf(viaNodes, Math.max(word + 1, viaNodes.length + (viaNodes.length >> 1)));
+        viaNodes[word] |= 1L << viaNode;
+    }
+
+    int getEntries() {
+        return entries;
+    }
+
+    void flush() {
+        slots.setHeader(0, BYTES_PER_SLOT);
+        slots.setHeader(4, capacity);
+        slots.setHeader(2 * 4, entries);
+        slots.flush();
+    }
+
+    /**
+     * @return false if there is no stored index or if it does not contain the expected number of entries
+     */
+    boolean loadExisting(int expectedEntries) {
+        if (!slots.loadExisting())
+            return false;
+        initialized = true;
+        if (slots.getHeader(0) != BYTES_PER_SLOT || slots.getHeader(2 * 4) != expectedEntries)
+            return false;
+        capacity = slots.getHeader(4);
+        mask = capacity - 1;
+        entries = slots.getHeader(2 * 4);
+        viaNodes = new long[0];
+        for (int slot = 0; slot < capacity; slot++) {
+            long pointer = (long) slot * BYTES_PER_SLOT;
+            if (slots.getInt(pointer + S_FROM) != EMPTY)
+                addViaNode(slots.getInt(pointer + S_VIA));
+        }
+        return true;
+    }
+
+    void copyTo(TurnCostIndex index) {
+        if (!index.initialized) {
+            index.slots.create((long) capacity * BYTES_PER_SLOT);
+            index.initialized = true;
+        }
+        slots.copyTo(index.slots);
+        index.capacity = capacity;
+        index.mask = mask;
+        index.entries = entries;
+        index.viaNodes = viaNodes.clone();
+    }
+
+    void setSegmentSize(int bytes) {
+        slots.setSegmentSize(bytes);
+    }
+
+    long getCapacity() {
+        return initialized ? slots.getCapacity() : 0;
+    }
+
+    void close() {
+        if (initialized)
+            slots.close();
+    }
+}
@@ -21,6 +21,8 @@ import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.TurnCost;
 import com.graphhopper.util.EdgeIterator;
 
+import java.util.function.IntUnaryOperator;
+
 /**
  * A key/value store, where the unique keys are turn relations, and the values are IntRefs.
  * A turn relation is a triple (fromEdge, viaNode, toEdge),
@@ -48,14 +50,19 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
     private BaseGraph baseGraph;
     private DataAccess turnCosts;
     private int turnCostsCount;
+    // the read-optimized copy of the entries, only used after freeze was called
+    private final TurnCostIndex index;
+    private boolean useIndex;
 
-    public TurnCostStorage(BaseGraph baseGraph, DataAccess turnCosts) {
+    public TurnCostStorage(BaseGraph baseGraph, DataAccess turnCosts, DataAccess turnCostIndex) {
         this.baseGraph = baseGraph;
         this.turnCosts = turnCosts;
+        this.index = new TurnCostIndex(turnCostIndex);
     }
 
     public void setSegmentSize(int bytes) {
         turnCosts.setSegmentSize(bytes);
+        index.setSegmentSize(bytes);
     }
 
     @Override
@@ -69,16 +76,19 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
         turnCosts.setHeader(0, BYTES_PER_ENTRY);
         turnCosts.setHeader(1 * 4, turnCostsCount);
         turnCosts.flush();
+        if (useIndex)
+            index.flush();
     }
 
     @Override
     public void close() {
         turnCosts.close();
+        index.close();
     }
 
     @Override
     public long getCapacity() {
-        return turnCosts.getCapacity();
+        return turnCosts.getCapacity() + index.getCapacity();
     }
 
     @Override
@@ -90,9 +100,50 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
             throw new IllegalStateException("Number of bytes per turn cost entry does not match the current configuration: " + turnCosts.getHeader(0) + " vs. " + BYTES_PER_ENTRY);
         }
         turnCostsCount = turnCosts.getHeader(4);
+        useIndex = index.loadExisting(turnCostsCount);
         return true;
     }
 
+    /**
+     * Creates the {@link TurnCostIndex} that is used for all turn cost lookups from now on. This is called when the
+     * graph is frozen. If the index was already loaded from disk this does nothing.
+     */
+    void freeze() {
+        if (!useIndex)
+            buildIndex();
+    }
+
+    boolean isUsingIndex() {
+        return useIndex;
+    }
+
+    private void buildIndex() {
+        index.init(turnCostsCount);
+        for (int node = 0; node < baseGraph.getNodes(); node++) {
+            int turnCostIndex = baseGraph.getNodeAccess().getTurnCostIndex(node);
+            while (turnCostIndex != NO_TURN_ENTRY) {
+                long turnCostPtr = (long) turnCostIndex * BYTES_PER_ENTRY;
+                if (!index.merge(turnCosts.getInt(turnCostPtr + TC_FROM), node, turnCosts.getInt(turnCostPtr + TC_TO), turnCosts.getInt(turnCostPtr + TC_FLAGS)))
+                    throw new IllegalStateException("Turn cost index is too small for " + turnCostsCount + " entries");
+                turnCostIndex = turnCosts.getInt(turnCostPtr + TC_NEXT);
+            }
+        }
+        useIndex = true;
+    }
+
+    /**
+     * Updates the from and to edges of all turn cost entries after the edges of the graph were sorted
+     */
+    void sortEdges(IntUnaryOperator getNewEdgeForOldEdge) {
+        for (int i = 0; i < turnCostsCount; i++) {
+            long pointer = (long) i * BYTES_PER_ENTRY;
+            turnCosts.setInt(pointer + TC_FROM, getNewEdgeForOldEdge.applyAsInt(turnCosts.getInt(pointer + TC_FROM)));
+            turnCosts.setInt(pointer + TC_TO, getNewEdgeForOldEdge.applyAsInt(turnCosts.getInt(pointer + TC_TO)));
+        }
+        if (useIndex)
+            buildIndex();
+    }
+
     /**
      * Sets the turn cost at the viaNode when going from "fromEdge" to "toEdge"
      * WARNING: It is tacitly assumed that for every encoder, this method is only called once per turn relation.
@@ -158,6 +209,9 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
         turnCosts.setInt(costsBase + TC_TO, toEdge);
         turnCosts.setInt(costsBase + TC_FLAGS, newFlags);
         turnCosts.setInt(costsBase + TC_NEXT, next);
+        // keep the index up to date when turn costs are changed after the graph was frozen
+        if (useIndex && !index.merge(fromEdge, viaNode, toEdge, newFlags))
+            buildIndex();
     }
 
     /**
@@ -183,6 +237,10 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
     }
 
     private void readFlags(IntsRef tcFlags, int fromEdge, int viaNode, int toEdge) {
+        if (useIndex) {
+            tcFlags.ints[0] = index.getFlags(fromEdge, viaNode, toEdge);
+            return;
+        }
         int turnCostIndex = baseGraph.getNodeAccess().getTurnCostIndex(viaNode);
         int i = 0;
         for (; i < 1000; i++) {
@@ -215,6 +273,9 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
     public TurnCostStorage copyTo(TurnCostStorage turnCostStorage) {
         turnCosts.copyTo(turnCostStorage.turnCosts);
         turnCostStorage.turnCostsCount = turnCostsCount;
+        if (useIndex)
+            index.copyTo(turnCostStorage.index);
+        turnCostStorage.useIndex = useIndex;
         return turnCostStorage;
     }
 
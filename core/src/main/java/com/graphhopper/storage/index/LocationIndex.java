@@ -20,6 +20,11 @@ package com.graphhopper.storage.index;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.Storable;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
 
 /**
  * Provides a way to map real world data "lat,lon" to internal ids/indices of a memory efficient graph
@@ -47,6 +52,21 @@ public interface LocationIndex extends Storable<LocationIndex> {
      */
     Snap findClosest(double lat, double lon, EdgeFilter edgeFilter);
 
+    /**
+     * This method returns the closest Snap for every specified location. The Snaps are the same as the ones returned
+     * by {@link #findClosest(double, double, EdgeFilter)} and in the order of the points, but implementations can
+     * snap the points in a different order or concurrently.
+     *
+     * @param edgeFilters returns the edge filter for the point with the given index. The filters of different points
+     *                    can be used concurrently.
+     */
+    default List<Snap> findClosest(List<GHPoint> points, IntFunction<EdgeFilter> edgeFilters) {
+        List<Snap> snaps = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++)
+            snaps.add(findClosest(points.get(i).lat, points.get(i).lon, edgeFilters.apply(i)));
+        return snaps;
+    }
+
     /**
      * This method explores the LocationIndex with the specified Visitor. It visits only the stored edges (and only once)
      * and limited by the queryBBox. Also (a few) more edges slightly outside of queryBBox could be
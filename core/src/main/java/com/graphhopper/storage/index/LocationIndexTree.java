@@ -18,6 +18,8 @@
 package com.graphhopper.storage.index;
 
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.Directory;
@@ -25,10 +27,18 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -52,6 +62,8 @@ import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
  * @author Peter Karich
  */
 public class LocationIndexTree implements LocationIndex {
+    // snapping a point is fast, so smaller batches are not worth to be split between threads
+    private static final int MIN_POINTS_PER_THREAD = 8;
     private final Directory directory;
     private final Graph graph;
     private final Logger logger = LoggerFactory.getLogger(getClass());
@@ -59,6 +71,8 @@ public class LocationIndexTree implements LocationIndex {
     private int maxRegionSearch = 4;
     private int minResolutionInMeter = 300;
     private boolean initialized = false;
+    private int snapThreads = 1;
+    private ExecutorService snapExecutor;
 
     LineIntIndex lineIntIndex;
 
@@ -107,6 +121,25 @@ public class LocationIndexTree implements LocationIndex {
     }
 
 
+    /**
+     * Sets the number of threads that snap the points of a single {@link #findClosest(List, IntFunction)} call. The
+     * calling thread is one of them, the others are shared by all calls and stopped when this index is closed.
+     */
+    public LocationIndexTree setSnapThreads(int snapThreads) {
+        if (snapThreads < 1)
+            throw new IllegalArgumentException("snapThreads must be positive, but was: " + snapThreads);
+        if (snapExecutor != null)
+            throw new IllegalStateException("Cannot change the snap threads after they were started");
+        this.snapThreads = snapThreads;
+        if (snapThreads > 1)
+            snapExecutor = Executors.newFixedThreadPool(snapThreads - 1, r -> {
+                Thread thread = new Thread(r, "snap");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return this;
+    }
+
     public LocationIndex setResolution(int minResolutionInMeter) {
         if (minResolutionInMeter <= 0)
             throw new IllegalStateException("Negative precision is not allowed!");
@@ -231,6 +264,8 @@ public class LocationIndexTree implements LocationIndex {
 
     @Override
     public void close() {
+        if (snapExecutor != null)
+            snapExecutor.shutdownNow();
         lineIntIndex.close();
     }
 
@@ -319,6 +354,49 @@ public class LocationIndexTree implements LocationIndex {
         return closestMatch;
     }
 
+    /**
+     * Snaps the points in the order of their spatial keys, so points close to each other read the same cells of the
+     * index one after another. Larger batches are split between the snap threads, see {@link #setSnapThreads(int)}.
+     */
+    @Override
+    public List<Snap> findClosest(List<GHPoint> points, IntFunction<EdgeFilter> edgeFilters) {
+        if (points.size() < 2)
+            return LocationIndex.super.findClosest(points, edgeFilters);
+        SpatialKeyAlgo keyAlgo = indexStructureInfo.getKeyAlgo();
+        long[] keys = new long[points.size()];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = keyAlgo.encodeLatLon(points.get(i).lat, points.get(i).lon);
+        int[] order = IndirectSort.mergesort(0, keys.length, (i, j) -> Long.compare(keys[i], keys[j]));
+
+        Snap[] snaps = new Snap[points.size()];
+        int threads = snapExecutor == null ? 1 : Math.max(1, Math.min(snapThreads, points.size() / MIN_POINTS_PER_THREAD));
+        int pointsPerThread = (points.size() + threads - 1) / threads;
+        List<Future<?>> futures = new ArrayList<>(threads - 1);
+        for (int t = 1; t < threads; t++) {
+            int from = t * pointsPerThread, to = Math.min(from + pointsPerThread, points.size());
+            futures.add(snapExecutor.submit(() -> findClosest(points, edgeFilters, order, from, to, snaps)));
+        }
+        findClosest(points, edgeFilters, order, 0, pointsPerThread, snaps);
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+            }
+        }
+        return new ArrayList<>(Arrays.asList(snaps));
+    }
+
+    private void findClosest(List<GHPoint> points, IntFunction<EdgeFilter> edgeFilters, int[] order, int from, int to, Snap[] snaps) {
+        for (int i = from; i < to; i++) {
+            int index = order[i];
+            snaps[index] = findClosest(points.get(index).lat, points.get(index).lon, edgeFilters.apply(index));
+        }
+    }
+
     @Override
     public void query(BBox queryBBox, Visitor function) {
         lineIntIndex.query(queryBBox, function);
@@ -19,6 +19,7 @@ package com.graphhopper.util;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntIndexedContainer;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.GHTBitSet;
@@ -388,6 +389,81 @@ public class GHUtility {
         return createSortedGraph(g, sortedGraph, nodeList, edgeList);
     }
 
+    /**
+     * Renumbers the nodes of the given graph such that they follow a Hilbert curve. Edges are renumbered in the order
+     * they are first met when iterating the nodes in this new order. Nodes and edges that are close to each other on
+     * the map are then also close to each other in memory. Unlike {@link #sortDFS} this works in place and also
+     * supports turn costs. This must be done before the graph is frozen and before any location index is built.
+     */
+    public static void sortGraphAlongHilbertCurve(GraphHopperStorage graph) {
+        StopWatch sw = new StopWatch().start();
+        int nodes = graph.getNodes();
+        NodeAccess na = graph.getNodeAccess();
+        // order 31 keeps the curve index within a long and gives a resolution of about 1cm
+        final int order = 31;
+        final long[] curveIndices = new long[nodes];
+        for (int node = 0; node < nodes; node++)
+            curveIndices[node] = latLonToHilbertIndex(na.getLat(node), na.getLon(node), order);
+        int[] nodeOrder = IndirectSort.mergesort(0, nodes, (nodeA, nodeB) -> Long.compare(curveIndices[nodeA], curveIndices[nodeB]));
+
+        int edges = graph.getEdges();
+        int[] edgeOrder = new int[edges];
+        GHBitSet foundEdges = new GHBitSetImpl(edges);
+        int edgeCount = 0;
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int node : nodeOrder) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (!foundEdges.contains(iter.getEdge())) {
+                    foundEdges.add(iter.getEdge());
+                    edgeOrder[edgeCount++] = iter.getEdge();
+                }
+            }
+        }
+        if (edgeCount != edges)
+            throw new IllegalStateException("Not all edges are connected to a node: " + edgeCount + " vs. " + edges);
+
+        final int[] newNodeForOldNode = ArrayUtil.invert(nodeOrder);
+        final int[] newEdgeForOldEdge = ArrayUtil.invert(edgeOrder);
+        graph.sortEdges(edge -> newEdgeForOldEdge[edge]);
+        graph.relabelNodes(node -> newNodeForOldNode[node]);
+        LOGGER.info("sorted " + nodes + " nodes and " + edges + " edges along Hilbert curve, took: " + sw.stop().getSeconds() + "s");
+    }
+
+    /**
+     * @return the index of the given coordinate on a Hilbert curve of the given order that covers the whole world
+     */
+    public static long latLonToHilbertIndex(double lat, double lon, int order) {
+        double linearizedLat = ((lat + 90) / 180) * ((1L << order) - 1);
+        double linearizedLon = ((lon + 180) / 360) * ((1L << order) - 1);
+        return hilbertXYToIndex(order, (long) linearizedLon, (long) linearizedLat);
+    }
+
+    /**
+     * Converts the position (x, y) on a square grid of side length 2^order into the index of this position along a
+     * Hilbert curve, see https://en.wikipedia.org/wiki/Hilbert_curve
+     */
+    public static long hilbertXYToIndex(int order, long x, long y) {
+        long n = 1L << order;
+        long index = 0;
+        for (long s = n / 2; s > 0; s /= 2) {
+            long rx = (x & s) > 0 ? 1 : 0;
+            long ry = (y & s) > 0 ? 1 : 0;
+            index += s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                long tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return index;
+    }
+
     static Graph createSortedGraph(Graph fromGraph, Graph toSortedGraph, final IntIndexedContainer oldToNewNodeList, final IntIndexedContainer newToOldEdgeList) {
         if (fromGraph.getTurnCostStorage() != null) {
             throw new IllegalArgumentException("Sorting the graph is currently not supported in the presence of turn costs");
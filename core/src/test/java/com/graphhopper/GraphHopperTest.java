@@ -314,7 +314,9 @@ public class GraphHopperTest {
             ResponsePath bestPath = rsp.getBest();
             long sum = rsp.getHints().getLong("visited_nodes.sum", 0);
             assertNotEquals(sum, 0);
-            assertTrue(sum < 120, "Too many nodes visited " + sum);
+            // the start node of the landmark selection depends on the node ids, so for the sorted graph the landmarks
+            // (and the visited nodes of this single query) are slightly different
+            assertTrue(sum < (sort ? 125 : 120), "Too many nodes visited " + sum);
             assertEquals(3535, bestPath.getDistance(), 1);
             assertEquals(115, bestPath.getPoints().size());
         }
@@ -654,6 +656,45 @@ public class GraphHopperTest {
         assertEquals(expectedDistance, rsp.getBest().getDistance(), 1);
     }
 
+    @Test
+    public void testConcurrentLegs() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setLegThreads(3).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.importOrLoad();
+        GraphHopper serialHopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest"));
+        serialHopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        serialHopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        serialHopper.load(GH_LOCATION);
+
+        Random rand = new Random(42);
+        List<GHPoint> points = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            points.add(new GHPoint(43.729 + rand.nextDouble() * 0.015, 7.413 + rand.nextDouble() * 0.012));
+        for (String mode : asList("ch", "lm", "flex")) {
+            GHRequest request = new GHRequest(points).setProfile(profile).
+                    putHint(CH.DISABLE, !mode.equals("ch")).
+                    putHint(Landmark.DISABLE, !mode.equals("lm"));
+            GHResponse rsp = hopper.route(request);
+            GHResponse serialRsp = serialHopper.route(request);
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            assertFalse(serialRsp.hasErrors(), serialRsp.getErrors().toString());
+            assertEquals(serialRsp.getBest().getDistance(), rsp.getBest().getDistance(), 1.e-6, mode);
+            assertEquals(serialRsp.getBest().getTime(), rsp.getBest().getTime(), mode);
+            assertEquals(serialRsp.getBest().getPoints(), rsp.getBest().getPoints(), mode);
+        }
+        serialHopper.close();
+        hopper.close();
+    }
+
     @Test
     public void testMonacoVia() {
         final String profile = "profile";
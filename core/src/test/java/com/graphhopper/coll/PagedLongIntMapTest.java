@@ -0,0 +1,91 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.MMapDirectory;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class PagedLongIntMapTest {
+    @Test
+    public void testGet() {
+        RAMDirectory dir = new RAMDirectory();
+        PagedLongIntMap map = new PagedLongIntMap(dir, dir.find("map", DAType.RAM_INT));
+        assertEquals(-1, map.put(9, 0));
+        map.put(10, -50);
+        map.put(5_000_000_000L, 2);
+        map.put(-3, 7);
+        map.put(-4, -2);
+        assertEquals(5, map.getSize());
+        assertEquals(-1, map.get(8));
+        assertEquals(0, map.get(9));
+        assertEquals(-50, map.get(10));
+        assertEquals(2, map.get(5_000_000_000L));
+        assertEquals(-1, map.get(5_000_000_001L));
+        assertEquals(-1, map.get(6_000_000_000L));
+        assertEquals(7, map.get(-3));
+        assertEquals(-2, map.get(-4));
+        assertEquals(-1, map.get(-5));
+
+        assertEquals(-50, map.put(10, Integer.MAX_VALUE));
+        assertEquals(Integer.MAX_VALUE, map.get(10));
+        assertEquals(Integer.MAX_VALUE, map.put(10, Integer.MIN_VALUE));
+        assertEquals(Integer.MIN_VALUE, map.get(10));
+        assertEquals(5, map.getSize());
+    }
+
+    @Test
+    public void testRandom() {
+        String location = "./target/paged-long-int-map";
+        Helper.removeDir(new File(location));
+        Directory dir = new MMapDirectory(location).create();
+        PagedLongIntMap map = new PagedLongIntMap(dir, dir.find("map", DAType.MMAP));
+        Map<Long, Integer> reference = new HashMap<>();
+        Random rnd = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = (long) (rnd.nextDouble() * 10_000_000_000L);
+            int value = rnd.nextInt(1_000_000);
+            reference.put(key, value);
+            map.put(key, value);
+        }
+        assertEquals(reference.size(), map.getSize());
+        for (Map.Entry<Long, Integer> e : reference.entrySet())
+            assertEquals((int) e.getValue(), map.get(e.getKey()));
+        for (int i = 0; i < 1000; i++) {
+            long key = (long) (rnd.nextDouble() * 10_000_000_000L);
+            assertEquals((int) reference.getOrDefault(key, -1), map.get(key));
+        }
+
+        map.clear();
+        assertEquals(0, map.getSize());
+        assertFalse(new File(location, "map").exists());
+        dir.close();
+        Helper.removeDir(new File(location));
+    }
+}
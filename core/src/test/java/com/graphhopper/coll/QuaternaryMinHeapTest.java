@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuaternaryMinHeapTest implements BinaryHeapTestInterface {
+
+    private QuaternaryMinHeap heap;
+
+    @Override
+    public void create(int capacity) {
+        heap = new QuaternaryMinHeap(capacity);
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    public void push(int id, float val) {
+        heap.push(id, val);
+    }
+
+    @Override
+    public int peekId() {
+        return heap.peekId();
+    }
+
+    @Override
+    public float peekVal() {
+        return (float) heap.peekKey();
+    }
+
+    @Override
+    public void update(int id, float val) {
+        heap.update(id, val);
+    }
+
+    @Override
+    public int poll() {
+        return heap.poll();
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+    }
+
+    @Test
+    void growBeyondInitialCapacity() {
+        heap = new QuaternaryMinHeap(2);
+        for (int i = 0; i < 100; i++)
+            heap.push(1000 - i, i);
+        assertEquals(100, heap.size());
+        assertTrue(heap.contains(901));
+        assertFalse(heap.contains(900));
+        assertFalse(heap.contains(5000));
+        for (int i = 0; i < 100; i++)
+            assertEquals(1000 - i, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    void duplicateElements() {
+        heap = new QuaternaryMinHeap(4);
+        heap.push(1, 3.0);
+        assertThrows(IllegalStateException.class, () -> heap.push(1, 2.0));
+        assertThrows(IllegalArgumentException.class, () -> heap.push(-1, 2.0));
+        assertThrows(IllegalStateException.class, () -> heap.update(2, 2.0));
+        assertThrows(IllegalStateException.class, () -> heap.remove(2));
+        heap.poll();
+        assertThrows(IllegalStateException.class, () -> heap.poll());
+        heap.push(1, 2.0);
+        assertEquals(2.0, heap.peekKey());
+    }
+
+    @Test
+    void remove() {
+        heap = new QuaternaryMinHeap(4);
+        heap.push(3, 1.0);
+        heap.push(5, 0.5);
+        heap.push(7, 2.0);
+        heap.push(1, 3.0);
+        heap.remove(5);
+        assertFalse(heap.contains(5));
+        assertEquals(3, heap.size());
+        assertEquals(3, heap.poll());
+        heap.remove(1);
+        assertEquals(7, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    void randomUpdatesAndRemoves() {
+        final long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        int ids = 1 + rnd.nextInt(500);
+        double[] keys = new double[ids];
+        boolean[] contained = new boolean[ids];
+        heap = new QuaternaryMinHeap(4);
+        for (int i = 0; i < 10_000; i++) {
+            int id = rnd.nextInt(ids);
+            double key = rnd.nextDouble();
+            int action = rnd.nextInt(4);
+            if (!contained[id]) {
+                heap.push(id, key);
+                keys[id] = key;
+                contained[id] = true;
+            } else if (action == 0) {
+                heap.remove(id);
+                contained[id] = false;
+            } else if (action == 1) {
+                heap.update(id, key);
+                keys[id] = key;
+            } else if (action == 2) {
+                int minId = -1;
+                for (int j = 0; j < ids; j++)
+                    if (contained[j] && (minId < 0 || keys[j] < keys[minId]))
+                        minId = j;
+                assertEquals(keys[minId], heap.peekKey(), "seed: " + seed);
+                assertEquals(minId, heap.poll(), "seed: " + seed);
+                contained[minId] = false;
+            }
+            assertEquals(contained[id], heap.contains(id), "seed: " + seed);
+        }
+        double prevKey = Double.NEGATIVE_INFINITY;
+        while (!heap.isEmpty()) {
+            int id = heap.poll();
+            assertTrue(contained[id]);
+            assertTrue(keys[id] >= prevKey, "seed: " + seed);
+            prevKey = keys[id];
+        }
+    }
+}
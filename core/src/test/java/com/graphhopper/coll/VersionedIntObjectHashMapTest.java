@@ -0,0 +1,105 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.carrotsearch.hppc.procedures.IntObjectProcedure;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionedIntObjectHashMapTest {
+
+    @Test
+    public void testPutGet() {
+        VersionedIntObjectHashMap<String> map = new VersionedIntObjectHashMap<>(2);
+        assertTrue(map.isEmpty());
+        assertNull(map.put(0, "a"));
+        assertNull(map.put(-5, "b"));
+        assertEquals("a", map.put(0, "c"));
+        assertEquals(2, map.size());
+        assertEquals("c", map.get(0));
+        assertEquals("b", map.get(-5));
+        assertNull(map.get(3));
+        assertEquals("x", map.getOrDefault(3, "x"));
+        assertTrue(map.containsKey(-5));
+        assertFalse(map.containsKey(3));
+
+        int index = map.indexOf(7);
+        assertFalse(map.indexExists(index));
+        map.indexInsert(index, 7, "d");
+        assertEquals("d", map.indexGet(map.indexOf(7)));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    public void testClear() {
+        VersionedIntObjectHashMap<Integer> map = new VersionedIntObjectHashMap<>(10);
+        for (int i = 0; i < 100; i++)
+            map.put(i, i);
+        int capacity = map.getCapacity();
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(capacity, map.getCapacity());
+        for (int i = 0; i < 100; i++)
+            assertNull(map.get(i));
+        map.put(5, 10);
+        assertEquals(10, map.get(5));
+        assertEquals(1, map.size());
+        map.release();
+        assertTrue(map.getCapacity() < capacity);
+        assertNull(map.get(5));
+    }
+
+    @Test
+    public void testRandom() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        VersionedIntObjectHashMap<Integer> map = new VersionedIntObjectHashMap<>();
+        for (int run = 0; run < 20; run++) {
+            Map<Integer, Integer> expected = new HashMap<>();
+            int entries = rnd.nextInt(1000);
+            for (int i = 0; i < entries; i++) {
+                int key = rnd.nextInt(2000) - 1000;
+                int value = rnd.nextInt();
+                assertEquals(expected.put(key, value), map.put(key, value), "seed: " + seed);
+            }
+            assertEquals(expected.size(), map.size(), "seed: " + seed);
+            for (Map.Entry<Integer, Integer> e : expected.entrySet())
+                assertEquals(e.getValue(), map.get(e.getKey()), "seed: " + seed);
+
+            Map<Integer, Integer> iterated = new HashMap<>();
+            for (IntObjectCursor<Integer> c : map)
+                iterated.put(c.key, c.value);
+            assertEquals(expected, iterated, "seed: " + seed);
+            Map<Integer, Integer> visited = new HashMap<>();
+            map.forEach((IntObjectProcedure<Integer>) visited::put);
+            assertEquals(expected, visited, "seed: " + seed);
+
+            IntObjectHashMap<Integer> copy = new IntObjectHashMap<>();
+            copy.putAll(map);
+            assertEquals(expected.size(), copy.size());
+            map.clear();
+        }
+    }
+}
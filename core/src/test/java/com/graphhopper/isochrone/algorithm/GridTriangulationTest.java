@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.isochrone.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GridTriangulationTest {
+
+    private static GridTriangulation createGrid(int width, int height, double... reached) {
+        double[] z = new double[width * height];
+        int[] origins = new int[width * height];
+        Arrays.fill(z, Double.POSITIVE_INFINITY);
+        Arrays.fill(origins, -1);
+        for (int i = 0; i < reached.length; i += 2) {
+            z[(int) reached[i]] = reached[i + 1];
+            origins[(int) reached[i]] = 0;
+        }
+        for (int v = 0; v < z.length; v++)
+            if (v % width == 0 || v % width == width - 1 || v / width == 0 || v / width == height - 1)
+                z[v] = Double.MAX_VALUE;
+        return new GridTriangulation(width, height, 0, 0, 1, 1, z, origins);
+    }
+
+    @Test
+    public void testTopology() {
+        GridTriangulation triangulation = createGrid(4, 4);
+        // the lower triangle of the cell between the vertices 5, 6, 10 and 9
+        ReadableQuadEdge e = triangulation.getEdge(5, 6);
+        assertEquals(triangulation.getEdge(6, 10), e.lNext());
+        assertEquals(triangulation.getEdge(10, 5), e.lNext().lNext());
+        assertEquals(e, e.lNext().lNext().lNext());
+        // ... and the upper one
+        e = triangulation.getEdge(5, 10);
+        assertEquals(triangulation.getEdge(10, 9), e.lNext());
+        assertEquals(triangulation.getEdge(9, 5), e.lNext().lNext());
+
+        assertEquals(triangulation.getEdge(5, 10), triangulation.getEdge(5, 6).oNext());
+        assertEquals(triangulation.getEdge(5, 6), triangulation.getEdge(5, 1).oNext());
+        assertEquals(triangulation.getEdge(5, 1), triangulation.getEdge(5, 6).oPrev());
+        assertEquals(triangulation.getEdge(10, 6), triangulation.getEdge(5, 6).dPrev());
+        assertEquals(triangulation.getEdge(1, 6), triangulation.getEdge(5, 6).dNext());
+        assertEquals(triangulation.getEdge(6, 5), triangulation.getEdge(5, 6).sym());
+        assertEquals(triangulation.getEdge(5, 6), triangulation.getEdge(6, 5).getPrimary());
+        // there is no edge between the diagonal neighbours in north-west and south-east direction
+        assertNull(triangulation.getEdge(6, 9));
+        // the corner vertex only has three edges
+        assertEquals(triangulation.getEdge(0, 1), triangulation.getEdge(0, 4).oNext());
+    }
+
+    @Test
+    public void testIsoline() {
+        GridTriangulation triangulation = createGrid(6, 5, 14, 0, 15, 1);
+        // every reached vertex adds the edges around it
+        assertEquals(11, triangulation.getEdges().size());
+
+        ContourBuilder contourBuilder = new ContourBuilder(triangulation);
+        MultiPolygon isoline = contourBuilder.computeIsoline(0.5, triangulation.getEdges());
+        assertEquals(1, isoline.getNumGeometries());
+        // the isoline crosses the edges around the vertex 14 at (2, 2)
+        assertEquals(6, isoline.getCoordinates().length - 1);
+        assertEquals(0.75, isoline.getArea(), 1.e-6);
+        GeometryFactory geometryFactory = new GeometryFactory();
+        assertTrue(isoline.contains(geometryFactory.createPoint(new Coordinate(2, 2))));
+        assertFalse(isoline.contains(geometryFactory.createPoint(new Coordinate(3, 2))));
+
+        isoline = contourBuilder.computeIsoline(1.5, triangulation.getEdges());
+        assertEquals(1, isoline.getNumGeometries());
+        assertTrue(isoline.contains(geometryFactory.createPoint(new Coordinate(3, 2))));
+        assertEquals(1.75, isoline.getArea(), 1.e-6);
+    }
+}
@@ -1,5 +1,6 @@
 package com.graphhopper.isochrone.algorithm;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EncodingManager;
@@ -17,8 +18,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -326,4 +329,83 @@ public class ShortestPathTreeTest {
         );
     }
 
+    @Test
+    public void testQuaternaryHeap() {
+        for (double timeLimit : new double[]{25_000, 26_000, Double.MAX_VALUE}) {
+            List<ShortestPathTree.IsoLabel> expected = new ArrayList<>();
+            ShortestPathTree reference = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, TraversalMode.NODE_BASED);
+            reference.setTimeLimit(timeLimit);
+            reference.search(0, expected::add);
+
+            List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+            ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, TraversalMode.NODE_BASED);
+            instance.setQuaternaryHeap(true);
+            instance.setTimeLimit(timeLimit);
+            instance.search(0, result::add);
+            assertEquals(expected.stream().map(l -> l.node + ":" + l.time).collect(Collectors.toList()),
+                    result.stream().map(l -> l.node + ":" + l.time).collect(Collectors.toList()));
+            assertArrayEquals(reference.getIsochroneEdges().stream().mapToInt(l -> l.node).sorted().toArray(),
+                    instance.getIsochroneEdges().stream().mapToInt(l -> l.node).sorted().toArray());
+        }
+    }
+
+    @Test
+    public void testMultipleStartNodes() {
+        for (TraversalMode traversalMode : new TraversalMode[]{TraversalMode.NODE_BASED, TraversalMode.EDGE_BASED}) {
+            int[] startNodes = {0, 5, 0};
+            long[][] times = new long[startNodes.length][graph.getNodes()];
+            for (int i = 0; i < startNodes.length; i++) {
+                Arrays.fill(times[i], Long.MAX_VALUE);
+                ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, traversalMode);
+                instance.setTimeLimit(Double.MAX_VALUE);
+                long[] t = times[i];
+                instance.search(startNodes[i], l -> t[l.node] = Math.min(t[l.node], l.time));
+            }
+
+            long[] result = new long[graph.getNodes()];
+            int[] origins = new int[graph.getNodes()];
+            Arrays.fill(result, Long.MAX_VALUE);
+            ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, traversalMode);
+            instance.setTimeLimit(Double.MAX_VALUE);
+            instance.search(IntArrayList.from(startNodes), l -> {
+                if (l.time < result[l.node]) {
+                    result[l.node] = l.time;
+                    origins[l.node] = l.origin;
+                }
+            });
+            for (int node = 0; node < graph.getNodes(); node++) {
+                assertEquals(Math.min(times[0][node], times[1][node]), result[node], "node " + node);
+                // the start node that was given twice only gets its first index, ties can go either way
+                if (times[0][node] != times[1][node])
+                    assertEquals(times[0][node] < times[1][node] ? 0 : 1, origins[node], "node " + node);
+            }
+            assertEquals(1, origins[2]);
+            assertEquals(0, origins[4]);
+        }
+    }
+
+    @Test
+    public void testSearchLabelIds() {
+        for (TraversalMode traversalMode : new TraversalMode[]{TraversalMode.NODE_BASED, TraversalMode.EDGE_BASED}) {
+            for (double timeLimit : new double[]{25_000, 26_000, Double.MAX_VALUE}) {
+                List<ShortestPathTree.IsoLabel> expected = new ArrayList<>();
+                ShortestPathTree reference = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, traversalMode);
+                reference.setQuaternaryHeap(true);
+                reference.setTimeLimit(timeLimit);
+                reference.search(IntArrayList.from(0, 5), expected::add);
+
+                List<String> result = new ArrayList<>();
+                ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, traversalMode);
+                instance.setTimeLimit(timeLimit);
+                instance.searchLabelIds(IntArrayList.from(0, 5), id -> {
+                    int parent = instance.getParent(id);
+                    result.add(instance.getNode(id) + ":" + instance.getEdge(id) + ":" + instance.getTime(id) + ":" + instance.getDistance(id)
+                            + ":" + instance.getOrigin(id) + ":" + (parent < 0 ? -1 : instance.getNode(parent)));
+                });
+                assertEquals(expected.stream().map(l -> l.node + ":" + l.edge + ":" + l.time + ":" + l.distance + ":" + l.origin + ":" + (l.parent == null ? -1 : l.parent.node))
+                        .collect(Collectors.toList()), result);
+                assertEquals(reference.getVisitedNodes(), instance.getVisitedNodes());
+            }
+        }
+    }
 }
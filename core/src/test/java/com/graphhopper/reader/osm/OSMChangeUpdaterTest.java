@@ -0,0 +1,270 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ch.CHParameters;
+import com.graphhopper.routing.ev.OSMWayID;
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.routing.lm.PrepareLandmarks;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.parsers.OSMWayIDParser;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OSMChangeUpdaterTest {
+    private static final String DIR = "./target/tmp/osm-change-test";
+    private static final String MONACO = "../core/files/monaco.osm.gz";
+
+    @BeforeEach
+    @AfterEach
+    public void setup() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    private GraphHopper createHopper(boolean doImport) {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(DIR + "/graph").
+                setOSMFile(MONACO).
+                setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest")).
+                setStoreOnFlush(true).
+                setMinNetworkSize(0);
+        // when the graph is loaded the encoded values are read from the stored properties
+        if (doImport)
+            hopper.getEncodingManagerBuilder().add(new OSMWayIDParser());
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("car"));
+        return hopper;
+    }
+
+    @Test
+    public void testApplyChanges() throws IOException, XMLStreamException {
+        GraphHopper hopper = createHopper(true);
+        hopper.importOrLoad();
+        GraphHopperStorage graph = hopper.getGraphHopperStorage();
+        IntEncodedValue osmWayIdEnc = hopper.getEncodingManager().getIntEncodedValue(OSMWayID.KEY);
+        List<Integer> edges = getEdges(route(hopper, "ch"));
+        int edge = edges.get(edges.size() / 2);
+        int wayId = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).get(osmWayIdEnc);
+        assertTrue(wayId > 0);
+        LongArrayList nodes = readWayNodes(wayId);
+        double time = route(hopper, "ch").getBest().getTime();
+
+        // blocking a road only increases the weights, so the landmarks are kept
+        PrepareLandmarks lmPreparation = hopper.getLMPreparationHandler().getPreparation("car");
+        assertTrue(hopper.applyChanges(writeChangeFile("modify", wayId, nodes, "highway", "residential", "access", "no")) > 0);
+        assertSame(lmPreparation, hopper.getLMPreparationHandler().getPreparation("car"));
+        GHResponse chResponse = route(hopper, "ch");
+        assertFalse(getEdges(chResponse).contains(edge));
+        assertTrue(chResponse.getBest().getTime() > time);
+        assertEquals(chResponse.getBest().getTime(), route(hopper, "lm").getBest().getTime());
+        assertEquals(chResponse.getBest().getTime(), route(hopper, "flex").getBest().getTime());
+
+        // opening the road again decreases the weights, so the landmarks are calculated again
+        assertTrue(hopper.applyChanges(writeChangeFile("modify", wayId, nodes, "highway", "residential")) > 0);
+        assertNotSame(lmPreparation, hopper.getLMPreparationHandler().getPreparation("car"));
+        chResponse = route(hopper, "ch");
+        assertEquals(chResponse.getBest().getTime(), route(hopper, "lm").getBest().getTime());
+        assertEquals(chResponse.getBest().getTime(), route(hopper, "flex").getBest().getTime());
+        // unchanged ways do not change the graph
+        assertEquals(0, hopper.applyChanges(writeChangeFile("modify", wayId, nodes, "highway", "residential")));
+        hopper.close();
+
+        // the updated graph and preparations are stored
+        hopper = createHopper(false);
+        assertTrue(hopper.load(DIR + "/graph"));
+        assertEquals(chResponse.getBest().getTime(), route(hopper, "ch").getBest().getTime());
+        assertEquals(chResponse.getBest().getTime(), route(hopper, "lm").getBest().getTime());
+
+        OSMChangeUpdater updater = new OSMChangeUpdater(hopper.getGraphHopperStorage()).
+                apply(writeChangeFile("delete", wayId, nodes));
+        assertEquals(1, updater.getUpdatedWays());
+        // the node of the way is ignored
+        assertEquals(1, updater.getIgnoredElements());
+        BooleanEncodedValue accessEnc = hopper.getEncodingManager().getEncoder("car").getAccessEnc();
+        EdgeIteratorState edgeState = hopper.getGraphHopperStorage().getEdgeIteratorState(edge, Integer.MIN_VALUE);
+        assertFalse(edgeState.get(accessEnc) || edgeState.getReverse(accessEnc));
+        assertEquals(wayId, edgeState.get(osmWayIdEnc));
+        hopper.close();
+    }
+
+    @Test
+    public void testApplyChangesCustomizableCH() throws IOException, XMLStreamException {
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("graph.location", DIR + "/graph").
+                putObject("datareader.file", MONACO).
+                putObject("prepare.min_network_size", 0).
+                putObject("graph.encoded_values", OSMWayID.KEY).
+                putObject(CHParameters.CUSTOMIZABLE, true).
+                setProfiles(Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest"))).
+                setCHProfiles(Collections.singletonList(new CHProfile("car")));
+        GraphHopper hopper = new GraphHopper().init(config);
+        hopper.importOrLoad();
+        assertTrue(hopper.getCHPreparationHandler().getPreparation("car").isCustomizable());
+        IntEncodedValue osmWayIdEnc = hopper.getEncodingManager().getIntEncodedValue(OSMWayID.KEY);
+        List<Integer> edges = getEdges(route(hopper, "ch"));
+        int edge = edges.get(edges.size() / 2);
+        int wayId = hopper.getGraphHopperStorage().getEdgeIteratorState(edge, Integer.MIN_VALUE).get(osmWayIdEnc);
+        LongArrayList nodes = readWayNodes(wayId);
+        assertEquals(route(hopper, "flex").getBest().getTime(), route(hopper, "ch").getBest().getTime());
+
+        // the shortcuts are customized for the new weights
+        assertTrue(hopper.applyChanges(writeChangeFile("modify", wayId, nodes, "highway", "residential", "access", "no")) > 0);
+        GHResponse chResponse = route(hopper, "ch");
+        assertFalse(getEdges(chResponse).contains(edge));
+        assertEquals(route(hopper, "flex").getBest().getTime(), chResponse.getBest().getTime());
+        hopper.close();
+    }
+
+    @Test
+    public void testChangedNodeListIsIgnored() throws IOException, XMLStreamException {
+        GraphHopper hopper = createHopper(true);
+        hopper.importOrLoad();
+        IntEncodedValue osmWayIdEnc = hopper.getEncodingManager().getIntEncodedValue(OSMWayID.KEY);
+        List<Integer> edges = getEdges(route(hopper, "flex"));
+        int edge = edges.get(edges.size() / 2);
+        int wayId = hopper.getGraphHopperStorage().getEdgeIteratorState(edge, Integer.MIN_VALUE).get(osmWayIdEnc);
+        LongArrayList nodes = readWayNodes(wayId);
+        BooleanEncodedValue accessEnc = hopper.getEncodingManager().getEncoder("car").getAccessEnc();
+
+        // the way was shortened, so its edges must not get the new tags
+        LongArrayList shortened = new LongArrayList();
+        shortened.add(nodes.buffer, 0, nodes.size() - 1);
+        OSMChangeUpdater updater = new OSMChangeUpdater(hopper.getGraphHopperStorage()).
+                apply(writeChangeFile("modify", wayId, shortened, "highway", "residential", "access", "no"));
+        assertEquals(0, updater.getUpdatedWays());
+        assertEquals(2, updater.getIgnoredElements());
+        assertTrue(updater.getChangedEdges().isEmpty());
+        assertTrue(hopper.getGraphHopperStorage().getEdgeIteratorState(edge, Integer.MIN_VALUE).get(accessEnc));
+
+        // ... and the same for a way with replaced nodes
+        LongArrayList rerouted = new LongArrayList(nodes);
+        rerouted.set(nodes.size() / 2, 1);
+        updater = new OSMChangeUpdater(hopper.getGraphHopperStorage()).
+                apply(writeChangeFile("modify", wayId, rerouted, "highway", "residential", "access", "no"));
+        assertEquals(0, updater.getUpdatedWays());
+        assertTrue(hopper.getGraphHopperStorage().getEdgeIteratorState(edge, Integer.MIN_VALUE).get(accessEnc));
+        hopper.close();
+    }
+
+    @Test
+    public void testBarrierIsKept() throws IOException {
+        GraphHopper hopper = createHopper(true).setOSMFile("src/test/resources/com/graphhopper/reader/osm/test-barriers.xml");
+        hopper.getCHPreparationHandler().setCHProfiles();
+        hopper.getLMPreparationHandler().setLMProfiles();
+        hopper.importOrLoad();
+        GraphHopperStorage graph = hopper.getGraphHopperStorage();
+        EncodingManager em = hopper.getEncodingManager();
+        IntEncodedValue osmWayIdEnc = em.getIntEncodedValue(OSMWayID.KEY);
+        BooleanEncodedValue barrierEnc = em.getBooleanEncodedValue(OSMWayID.BARRIER_KEY);
+        BooleanEncodedValue accessEnc = em.getEncoder("car").getAccessEnc();
+        // way 10 has a fence on its pillar node 20
+        LongArrayList nodes = LongArrayList.from(10, 20, 30);
+        OSMChangeUpdater updater = new OSMChangeUpdater(graph).apply(writeChangeFile("modify", 10, nodes, "highway", "primary"));
+        assertEquals(1, updater.getUpdatedWays());
+
+        int barrierEdges = 0, otherEdges = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (iter.get(osmWayIdEnc) != 10)
+                continue;
+            if (iter.get(barrierEnc)) {
+                // the barrier still blocks the way
+                assertFalse(iter.get(accessEnc) || iter.getReverse(accessEnc));
+                barrierEdges++;
+            } else {
+                assertTrue(iter.get(accessEnc) && iter.getReverse(accessEnc));
+                otherEdges++;
+            }
+        }
+        assertEquals(1, barrierEdges);
+        assertEquals(2, otherEdges);
+        assertFalse(updater.getChangedEdges().isEmpty());
+        hopper.close();
+    }
+
+    private static GHResponse route(GraphHopper hopper, String mode) {
+        GHRequest request = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car").
+                setPathDetails(Arrays.asList(Parameters.Details.EDGE_ID));
+        request.putHint(Parameters.CH.DISABLE, !mode.equals("ch"));
+        request.putHint(Parameters.Landmark.DISABLE, !mode.equals("lm"));
+        GHResponse response = hopper.route(request);
+        assertFalse(response.hasErrors(), response.getErrors().toString());
+        return response;
+    }
+
+    private static List<Integer> getEdges(GHResponse response) {
+        return response.getBest().getPathDetails().get(Parameters.Details.EDGE_ID).stream().
+                map(PathDetail::getValue).map(Integer.class::cast).collect(Collectors.toList());
+    }
+
+    private static LongArrayList readWayNodes(long wayId) throws IOException, XMLStreamException {
+        try (OSMInputFile in = new OSMInputFile(new File(MONACO)).open()) {
+            ReaderElement element;
+            while ((element = in.getNext()) != null)
+                if (element.isType(ReaderElement.WAY) && element.getId() == wayId)
+                    return ((ReaderWay) element).getNodes();
+        }
+        throw new IllegalArgumentException("Way " + wayId + " not found");
+    }
+
+    private static File writeChangeFile(String action, int wayId, LongArrayList nodes, String... tags) throws IOException {
+        StringBuilder sb = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<osmChange version=\"0.6\">\n");
+        sb.append("<create><node id=\"-1\" lat=\"43.73\" lon=\"7.42\"/></create>\n");
+        sb.append("<").append(action).append(">\n<way id=\"").append(wayId).append("\" version=\"2\">\n");
+        for (int i = 0; i < nodes.size(); i++)
+            sb.append("<nd ref=\"").append(nodes.get(i)).append("\"/>");
+        sb.append("\n");
+        for (int i = 0; i < tags.length; i += 2)
+            sb.append("<tag k=\"").append(tags[i]).append("\" v=\"").append(tags[i + 1]).append("\"/>\n");
+        sb.append("</way>\n</").append(action).append(">\n</osmChange>\n");
+        File file = new File(DIR, "change.osc");
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
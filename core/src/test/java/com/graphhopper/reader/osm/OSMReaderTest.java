@@ -336,6 +336,60 @@ public class OSMReaderTest {
         assertEquals(88643, iter.getDistance(), 1);
     }
 
+    @Test
+    public void testPagedNodeMap() {
+        // the barrier nodes get negative ids, which the paged map stores separately
+        GraphHopper hopper = new GraphHopperFacade(fileBarriers).
+                setDataReaderNodeMap("ram").
+                setMinNetworkSize(0).
+                importOrLoad();
+        Graph graph = hopper.getGraphHopperStorage();
+        assertEquals(8, graph.getNodes());
+        int n10 = AbstractGraphStorageTester.getIdOf(graph, 51);
+        int n20 = AbstractGraphStorageTester.getIdOf(graph, 52);
+        int n30 = AbstractGraphStorageTester.getIdOf(graph, 53);
+        int n50 = AbstractGraphStorageTester.getIdOf(graph, 55);
+        assertEquals(GHUtility.asSet(n20, n30), GHUtility.getNeighbors(carOutExplorer.setBaseNode(n10)));
+        assertEquals(GHUtility.asSet(4, n10, n50), GHUtility.getNeighbors(carOutExplorer.setBaseNode(n30)));
+        hopper.close();
+
+        assertThrows(IllegalArgumentException.class, () -> new GraphHopperFacade(file1).setDataReaderNodeMap("mmap").importOrLoad());
+    }
+
+    @Test
+    public void testWayThreads() {
+        GraphHopperStorage sequential = importMonaco(1);
+        GraphHopperStorage parallel = importMonaco(3);
+        assertEquals(sequential.getNodes(), parallel.getNodes());
+        assertEquals(sequential.getEdges(), parallel.getEdges());
+        for (int node = 0; node < sequential.getNodes(); node++) {
+            assertEquals(sequential.getNodeAccess().getLat(node), parallel.getNodeAccess().getLat(node), 1e-6);
+            assertEquals(sequential.getNodeAccess().getLon(node), parallel.getNodeAccess().getLon(node), 1e-6);
+        }
+        AllEdgesIterator iter = sequential.getAllEdges();
+        while (iter.next()) {
+            EdgeIteratorState edge = parallel.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode());
+            assertEquals(iter.getBaseNode(), edge.getBaseNode());
+            assertEquals(iter.getFlags(), edge.getFlags());
+            assertEquals(iter.getName(), edge.getName());
+            assertEquals(iter.fetchWayGeometry(FetchMode.ALL), edge.fetchWayGeometry(FetchMode.ALL));
+        }
+        sequential.close();
+        parallel.close();
+    }
+
+    private GraphHopperStorage importMonaco(int wayThreads) {
+        GraphHopper hopper = new GraphHopper().
+                setStoreOnFlush(false).
+                setGraphHopperLocation(dir).
+                setOSMFile("../core/files/monaco.osm.gz").
+                setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest"), new Profile("bike").setVehicle("bike").setWeighting("fastest")).
+                setDataReaderWayThreads(wayThreads).
+                setMinNetworkSize(0);
+        hopper.importOrLoad();
+        return hopper.getGraphHopperStorage();
+    }
+
     @Test
     public void testBarriers() {
         GraphHopper hopper = new GraphHopperFacade(fileBarriers).
@@ -0,0 +1,113 @@
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManyToManyCHTest {
+    private CarFlagEncoder encoder;
+    private GraphHopperStorage graph;
+    private CHConfig chConfig;
+
+    @BeforeEach
+    public void setup() {
+        encoder = new CarFlagEncoder(5, 5, 0);
+        EncodingManager encodingManager = EncodingManager.create(encoder);
+        graph = new GraphBuilder(encodingManager).setCHConfigStrings("p|car|fastest|node").create();
+        chConfig = graph.getCHGraph().getCHConfig();
+    }
+
+    @Test
+    public void simpleMatrix() {
+        // 0-1-2-3
+        //   |   |
+        //   4---5
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(200));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(2, 3).setDistance(300));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 4).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(4, 5).setDistance(100));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(5, 3).setDistance(100));
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
+
+        ManyToManyCH.Result result = new ManyToManyCH(chGraph).calcMatrix(new int[]{0, 3}, new int[]{0, 3, 5});
+        assertEquals(2, result.getSources());
+        assertEquals(3, result.getTargets());
+        assertEquals(0, result.getDistance(0, 0), 1.e-6);
+        assertEquals(300, result.getDistance(0, 2), 1.e-6);
+        assertEquals(400, result.getDistance(0, 1), 1.e-6);
+        // 3->5 is a one-way in the other direction
+        assertEquals(600, result.getDistance(1, 0), 1.e-6);
+        assertEquals(700, result.getDistance(1, 2), 1.e-6);
+        assertEquals(24_000, result.getTime(0, 1));
+        assertTrue(result.isConnected(1, 2));
+    }
+
+    @Test
+    public void disconnected() {
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(2, 3).setDistance(100));
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
+
+        ManyToManyCH.Result result = new ManyToManyCH(chGraph).calcMatrix(new int[]{0}, new int[]{1, 3});
+        assertTrue(result.isConnected(0, 0));
+        assertFalse(result.isConnected(0, 1));
+        assertEquals(Long.MAX_VALUE, result.getTime(0, 1));
+    }
+
+    @Test
+    public void randomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
+        Weighting weighting = chConfig.getWeighting();
+
+        List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 20, false, EdgeFilter.ALL_EDGES);
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        int[] sources = new int[15];
+        int[] targets = new int[10];
+        for (int i = 0; i < sources.length; i++)
+            sources[i] = rnd.nextInt(queryGraph.getNodes());
+        for (int i = 0; i < targets.length; i++)
+            targets[i] = rnd.nextInt(queryGraph.getNodes());
+
+        ManyToManyCH.Result result = new ManyToManyCH(new QueryRoutingCHGraph(chGraph, queryGraph)).calcMatrix(sources, targets);
+        for (int i = 0; i < sources.length; i++) {
+            for (int j = 0; j < targets.length; j++) {
+                Path refPath = new Dijkstra(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED).calcPath(sources[i], targets[j]);
+                String msg = "seed: " + seed + ", " + sources[i] + "->" + targets[j];
+                assertEquals(refPath.isFound(), result.isConnected(i, j), msg);
+                if (!refPath.isFound())
+                    continue;
+                assertEquals(refPath.getWeight(), result.getWeight(i, j), 1.e-2, msg);
+            }
+        }
+    }
+}
@@ -60,6 +60,7 @@ import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
 import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
 import static com.graphhopper.util.Parameters.Routing.ALGORITHM;
 import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
+import static com.graphhopper.util.Parameters.Routing.QUATERNARY_HEAP;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -212,7 +213,13 @@ public class RoutingAlgorithmTest {
                     new Fixture(new CHAStarCalculator(), NODE_BASED),
                     new Fixture(new CHAStarCalculator(), EDGE_BASED),
                     new Fixture(new CHDijkstraCalculator(), NODE_BASED),
-                    new Fixture(new CHDijkstraCalculator(), EDGE_BASED)
+                    new Fixture(new CHDijkstraCalculator(), EDGE_BASED),
+                    new Fixture(new DijkstraCalculator().setQuaternaryHeap(true), EDGE_BASED),
+                    new Fixture(new BidirDijkstraCalculator().setQuaternaryHeap(true), EDGE_BASED),
+                    new Fixture(new AStarCalculator().setQuaternaryHeap(true), NODE_BASED),
+                    new Fixture(new BidirAStarCalculator().setQuaternaryHeap(true), EDGE_BASED),
+                    new Fixture(new DijkstraOneToManyCalculator().setQuaternaryHeap(true), NODE_BASED),
+                    new Fixture(new CHDijkstraCalculator().setQuaternaryHeap(true), EDGE_BASED)
             ).map(Arguments::of);
         }
     }
@@ -1117,6 +1124,13 @@ public class RoutingAlgorithmTest {
     }
 
     private static abstract class SimpleCalculator implements PathCalculator {
+        boolean quaternaryHeap;
+
+        SimpleCalculator setQuaternaryHeap(boolean quaternaryHeap) {
+            this.quaternaryHeap = quaternaryHeap;
+            return this;
+        }
+
         @Override
         public Path calcPath(GraphHopperStorage graph, Weighting weighting, TraversalMode traversalMode, int maxVisitedNodes, int from, int to) {
             RoutingAlgorithm algo = createAlgo(graph, weighting, traversalMode);
@@ -1147,64 +1161,71 @@ public class RoutingAlgorithmTest {
     private static class DijkstraCalculator extends SimpleCalculator {
         @Override
         RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
-            return new Dijkstra(graph, weighting, traversalMode);
+            return new Dijkstra(graph, weighting, traversalMode).setQuaternaryHeap(quaternaryHeap);
         }
 
         @Override
         public String toString() {
-            return "DIJKSTRA";
+            return "DIJKSTRA" + (quaternaryHeap ? "_QUATERNARY_HEAP" : "");
         }
     }
 
     private static class BidirDijkstraCalculator extends SimpleCalculator {
         @Override
         RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
-            return new DijkstraBidirectionRef(graph, weighting, traversalMode);
+            return new DijkstraBidirectionRef(graph, weighting, traversalMode).setQuaternaryHeap(quaternaryHeap);
         }
 
         @Override
         public String toString() {
-            return "DIJKSTRA_BIDIR";
+            return "DIJKSTRA_BIDIR" + (quaternaryHeap ? "_QUATERNARY_HEAP" : "");
         }
     }
 
     private static class AStarCalculator extends SimpleCalculator {
         @Override
         RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
-            return new AStar(graph, weighting, traversalMode);
+            return new AStar(graph, weighting, traversalMode).setQuaternaryHeap(quaternaryHeap);
         }
 
         @Override
         public String toString() {
-            return "ASTAR";
+            return "ASTAR" + (quaternaryHeap ? "_QUATERNARY_HEAP" : "");
         }
     }
 
     private static class BidirAStarCalculator extends SimpleCalculator {
         @Override
         RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
-            return new AStarBidirection(graph, weighting, traversalMode);
+            return new AStarBidirection(graph, weighting, traversalMode).setQuaternaryHeap(quaternaryHeap);
         }
 
         @Override
         public String toString() {
-            return "ASTAR_BIDIR";
+            return "ASTAR_BIDIR" + (quaternaryHeap ? "_QUATERNARY_HEAP" : "");
         }
     }
 
     private static class DijkstraOneToManyCalculator extends SimpleCalculator {
         @Override
         RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
-            return new DijkstraOneToMany(graph, weighting, traversalMode);
+            return new DijkstraOneToMany(graph, weighting, traversalMode).setQuaternaryHeap(quaternaryHeap);
         }
 
         @Override
         public String toString() {
-            return "DIJKSTRA_ONE_TO_MANY";
+            return "DIJKSTRA_ONE_TO_MANY" + (quaternaryHeap ? "_QUATERNARY_HEAP" : "");
         }
     }
 
     private static abstract class CHCalculator implements PathCalculator {
+        boolean quaternaryHeap;
+
+        CHCalculator setQuaternaryHeap(boolean quaternaryHeap) {
+            this.quaternaryHeap = quaternaryHeap;
+            return this;
+        }
+
         @Override
         public Path calcPath(GraphHopperStorage graph, Weighting weighting, TraversalMode traversalMode, int maxVisitedNodes, int from, int to) {
             CHConfig chConfig = new CHConfig(getCHGraphName(weighting), weighting, traversalMode.isEdgeBased());
@@ -1217,6 +1238,7 @@ public class RoutingAlgorithmTest {
             RoutingAlgorithm algo = new CHRoutingAlgorithmFactory(routingCHGraph).createAlgo(new PMap()
                     .putObject(ALGORITHM, getAlgorithm())
                     .putObject(MAX_VISITED_NODES, maxVisitedNodes)
+                    .putObject(QUATERNARY_HEAP, quaternaryHeap)
             );
             return algo.calcPath(from, to);
         }
@@ -1243,7 +1265,8 @@ public class RoutingAlgorithmTest {
             QueryRoutingCHGraph queryRoutingCHGraph = new QueryRoutingCHGraph(routingCHGraph, queryGraph);
             RoutingAlgorithm algo = new CHRoutingAlgorithmFactory(queryRoutingCHGraph).createAlgo(new PMap()
                     .putObject(ALGORITHM, getAlgorithm())
-                    .putObject(MAX_VISITED_NODES, maxVisitedNodes));
+                    .putObject(MAX_VISITED_NODES, maxVisitedNodes)
+                    .putObject(QUATERNARY_HEAP, quaternaryHeap));
             return algo.calcPath(from.getClosestNode(), to.getClosestNode());
 
         }
@@ -1259,7 +1282,7 @@ public class RoutingAlgorithmTest {
 
         @Override
         public String toString() {
-            return "CH_ASTAR";
+            return "CH_ASTAR" + (quaternaryHeap ? "_QUATERNARY_HEAP" : "");
         }
     }
 
@@ -1271,7 +1294,7 @@ public class RoutingAlgorithmTest {
 
         @Override
         public String toString() {
-            return "CH_DIJKSTRA";
+            return "CH_DIJKSTRA" + (quaternaryHeap ? "_QUATERNARY_HEAP" : "");
         }
     }
 }
@@ -0,0 +1,93 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Random;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchStatePoolTest {
+
+    @Test
+    public void testReuse() {
+        SearchStatePool pool = new SearchStatePool(1000);
+        SearchStatePool.SearchState state = pool.lease(10, false);
+        state.bestWeightMapFrom.put(3, new SPTEntry(3, 1));
+        state.pqOpenSetTo.add(new SPTEntry(3, 1));
+        pool.release(state);
+        SearchStatePool.SearchState reused = pool.lease(10, false);
+        assertSame(state, reused);
+        assertTrue(reused.bestWeightMapFrom.isEmpty());
+        assertTrue(reused.pqOpenSetTo.isEmpty());
+        // nested searches get a new state
+        SearchStatePool.SearchState nested = pool.lease(10, false);
+        assertNotSame(reused, nested);
+        pool.release(nested);
+        pool.release(reused);
+        assertSame(nested, pool.lease(10, false));
+
+        // states that grew too much are not kept
+        SearchStatePool.SearchState big = pool.lease(10, false);
+        for (int i = 0; i < 1000; i++)
+            big.bestWeightMapTo.put(i, new SPTEntry(i, 1));
+        pool.release(big);
+        assertNotSame(big, pool.lease(10, false));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TraversalMode.class, names = {"NODE_BASED", "EDGE_BASED"})
+    public void testSameResultsWithPool(TraversalMode traversalMode) {
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 0);
+        EncodingManager em = EncodingManager.create(encoder);
+        GraphHopperStorage graph = new GraphBuilder(em).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        Weighting weighting = new FastestWeighting(encoder);
+        RoutingAlgorithmFactorySimple pooledFactory = new RoutingAlgorithmFactorySimple().setSearchStatePool(new SearchStatePool(1 << 10));
+        RoutingAlgorithmFactorySimple factory = new RoutingAlgorithmFactorySimple().setSearchStatePool(null);
+        for (String algo : new String[]{DIJKSTRA_BI, ASTAR_BI}) {
+            AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm(algo).setTraversalMode(traversalMode);
+            for (int i = 0; i < 50; i++) {
+                int from = rnd.nextInt(graph.getNodes());
+                int to = rnd.nextInt(graph.getNodes());
+                Path expected = factory.createAlgo(graph, weighting, opts).calcPath(from, to);
+                Path path = pooledFactory.createAlgo(graph, weighting, opts).calcPath(from, to);
+                String msg = algo + ", " + from + "->" + to + ", seed: " + seed;
+                assertEquals(expected.isFound(), path.isFound(), msg);
+                assertEquals(expected.getWeight(), path.getWeight(), 1.e-6, msg);
+                assertEquals(expected.calcNodes(), path.calcNodes(), msg);
+            }
+        }
+    }
+}
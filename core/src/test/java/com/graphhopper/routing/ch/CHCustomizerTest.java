@@ -0,0 +1,149 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CHCustomizerTest {
+    private final CarFlagEncoder encoder = new CarFlagEncoder().setSpeedTwoDirections(true);
+    private final EncodingManager encodingManager = EncodingManager.create(encoder);
+    private final Weighting weighting = new FastestWeighting(encoder);
+    private final CHConfig chConfig = CHConfig.nodeBased("c", weighting);
+
+    private GraphHopperStorage createRandomGraph(Random rnd, int numNodes) {
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).setCHConfigs(chConfig).create();
+        GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0.8);
+        ghStorage.freeze();
+        return ghStorage;
+    }
+
+    private PrepareContractionHierarchies prepareCustomizable(GraphHopperStorage ghStorage, int threads) {
+        PrepareContractionHierarchies prepare = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, chConfig)
+                .setParams(new PMap().putObject(CHParameters.CUSTOMIZABLE, true).putObject(CHParameters.CONTRACTION_THREADS, threads));
+        prepare.doWork();
+        return prepare;
+    }
+
+    @Test
+    public void testCustomizableContraction() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        int numNodes = 1_000;
+        GraphHopperStorage ghStorage = createRandomGraph(rnd, numNodes);
+        PrepareContractionHierarchies prepare = prepareCustomizable(ghStorage, 1);
+        assertTrue(prepare.isCustomizable());
+        assertTrue(prepare.getShortcuts() > 0);
+        CHGraph chGraph = ghStorage.getCHGraph(chConfig.getName());
+        compareWithDijkstra(ghStorage, new RoutingCHGraphImpl(chGraph), weighting, rnd, numNodes, "seed: " + seed);
+    }
+
+    @Test
+    public void testCustomizeOtherWeighting() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        int numNodes = 1_000;
+        GraphHopperStorage ghStorage = createRandomGraph(rnd, numNodes);
+        prepareCustomizable(ghStorage, 1);
+        CHGraph chGraph = ghStorage.getCHGraph(chConfig.getName());
+
+        Weighting shortest = new ShortestWeighting(encoder);
+        new CHCustomizer(chGraph).customize(shortest, 1);
+        compareWithDijkstra(ghStorage, new RoutingCHGraphImpl(chGraph, shortest), shortest, rnd, numNodes, "seed: " + seed);
+
+        // customizing again with the original weighting restores the original shortcuts
+        new CHCustomizer(chGraph).customize(weighting, 1);
+        compareWithDijkstra(ghStorage, new RoutingCHGraphImpl(chGraph), weighting, rnd, numNodes, "seed: " + seed);
+    }
+
+    @Test
+    public void testCustomizeChangedSpeeds() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        int numNodes = 1_000;
+        GraphHopperStorage ghStorage = createRandomGraph(rnd, numNodes);
+        prepareCustomizable(ghStorage, 1);
+        CHGraph chGraph = ghStorage.getCHGraph(chConfig.getName());
+        CHCustomizer customizer = new CHCustomizer(chGraph);
+
+        // make some roads slower, some faster and block some of them
+        for (int i = 0; i < ghStorage.getEdges() / 5; i++) {
+            EdgeIteratorState edge = ghStorage.getEdgeIteratorState(rnd.nextInt(ghStorage.getEdges()), Integer.MIN_VALUE);
+            if (rnd.nextInt(10) == 0)
+                edge.set(encoder.getAccessEnc(), false, false);
+            else
+                edge.set(encoder.getAverageSpeedEnc(), 10 + 10 * rnd.nextInt(10));
+        }
+        // the result must not depend on the number of threads
+        for (int threads : new int[]{1, 4}) {
+            customizer.customize(weighting, threads);
+            compareWithDijkstra(ghStorage, new RoutingCHGraphImpl(chGraph), weighting, rnd, numNodes, "seed: " + seed + ", threads: " + threads);
+        }
+    }
+
+    @Test
+    public void testTooManyShortcuts() {
+        GraphHopperStorage ghStorage = createRandomGraph(new Random(123), 1_000);
+        PrepareContractionHierarchies prepare = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, chConfig)
+                .setParams(new PMap().putObject(CHParameters.CUSTOMIZABLE, true).putObject(CHParameters.CUSTOMIZABLE_MAX_SHORTCUTS_PER_EDGE, 0.1));
+        IllegalStateException e = assertThrows(IllegalStateException.class, prepare::doWork);
+        assertTrue(e.getMessage().contains(CHParameters.CUSTOMIZABLE_MAX_SHORTCUTS_PER_EDGE), e.getMessage());
+    }
+
+    @Test
+    public void testEdgeBasedNotSupported() {
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).setCHConfigs(CHConfig.edgeBased("e", weighting)).withTurnCosts(true).create();
+        ghStorage.freeze();
+        assertThrows(IllegalArgumentException.class, () -> new CHCustomizer(ghStorage.getCHGraph("e")));
+    }
+
+    private void compareWithDijkstra(GraphHopperStorage ghStorage, RoutingCHGraph routingCHGraph, Weighting weighting,
+                                     Random rnd, int numNodes, String message) {
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            Path dijkstraPath = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            Path chPath = new CHRoutingAlgorithmFactory(routingCHGraph).createAlgo(new PMap()).calcPath(from, to);
+            assertEquals(dijkstraPath.isFound(), chPath.isFound(), message + ", " + from + "->" + to);
+            assertEquals(dijkstraPath.getWeight(), chPath.getWeight(), 1.e-1, message + ", " + from + "->" + to);
+            if (!chPath.isFound())
+                continue;
+            // the unpacked shortcuts must yield the same weight
+            double unpackedWeight = 0;
+            for (EdgeIteratorState edge : chPath.calcEdges())
+                unpackedWeight += weighting.calcEdgeWeight(edge, false);
+            assertEquals(chPath.getWeight(), unpackedWeight, 1.e-1, message + ", " + from + "->" + to);
+        }
+    }
+}
@@ -1149,6 +1149,55 @@ public class CHTurnCostTest {
         automaticCompareCHWithDijkstra(100);
     }
 
+    /**
+     * same as {@link #testFindPath_heuristic_compareWithDijkstra()}, but contracting independent node sets in parallel
+     */
+    @RepeatedTest(10)
+    public void testFindPath_heuristic_compareWithDijkstra_parallel() {
+        long seed = System.nanoTime();
+        LOGGER.info("Seed for testFindPath_heuristic_compareWithDijkstra_parallel: {}", seed);
+        GHUtility.buildRandomGraph(graph, new Random(seed), 200, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, encodingManager, encoder, maxCost, turnCostStorage);
+        graph.freeze();
+        automaticCompareCHWithDijkstra(100, 4);
+    }
+
+    @Test
+    public void testParallelContraction_deterministic() {
+        long seed = System.nanoTime();
+        LOGGER.info("Seed for testParallelContraction_deterministic: {}", seed);
+        List<String> shortcuts = contractRandomGraphInParallel(seed, 2);
+        assertFalse(shortcuts.isEmpty());
+        assertEquals(shortcuts, contractRandomGraphInParallel(seed, 2));
+        // the result does not even depend on the number of threads
+        assertEquals(shortcuts, contractRandomGraphInParallel(seed, 4));
+    }
+
+    /**
+     * Contracts a new random graph created using the given seed and returns a description of the created shortcuts
+     * and the levels of all nodes
+     */
+    private List<String> contractRandomGraphInParallel(long seed, int threads) {
+        init();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 200, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, encodingManager, encoder, maxCost, turnCostStorage);
+        graph.freeze();
+        automaticPrepareCH(threads);
+        CHGraph lg = graph.getCHGraph(chConfig.getName());
+        List<String> result = new ArrayList<>();
+        AllCHEdgesIterator iter = lg.getAllEdges();
+        while (iter.next()) {
+            if (iter.isShortcut())
+                result.add(iter.getBaseNode() + "-" + iter.getAdjNode() + ", skip: " + iter.getSkippedEdge1() + "/" +
+                        iter.getSkippedEdge2() + ", weight: " + iter.getWeight());
+        }
+        for (int node = 0; node < lg.getNodes(); node++)
+            result.add(node + ": " + lg.getLevel(node));
+        return result;
+    }
+
     private int nextCost(Random rnd) {
         // choose bound above max cost such that turn restrictions are likely
         return rnd.nextInt(3 * maxCost);
@@ -1213,7 +1262,12 @@ public class CHTurnCostTest {
     }
 
     private void automaticPrepareCH() {
+        automaticPrepareCH(1);
+    }
+
+    private void automaticPrepareCH(int threads) {
         PMap pMap = new PMap();
+        pMap.putObject(CONTRACTION_THREADS, threads);
         pMap.putObject(PERIODIC_UPDATES, 20);
         pMap.putObject(LAST_LAZY_NODES_UPDATES, 100);
         pMap.putObject(NEIGHBOR_UPDATES, 4);
@@ -1225,10 +1279,14 @@ public class CHTurnCostTest {
     }
 
     private void automaticCompareCHWithDijkstra(int numQueries) {
+        automaticCompareCHWithDijkstra(numQueries, 1);
+    }
+
+    private void automaticCompareCHWithDijkstra(int numQueries, int threads) {
         long seed = System.nanoTime();
         LOGGER.info("Seed used to create random routing queries: {}", seed);
         final Random rnd = new Random(seed);
-        automaticPrepareCH();
+        automaticPrepareCH(threads);
         for (int i = 0; i < numQueries; ++i) {
             compareCHQueryWithDijkstra(rnd.nextInt(graph.getNodes()), rnd.nextInt(graph.getNodes()));
         }
@@ -1358,6 +1358,32 @@ public class EdgeBasedNodeContractorTest {
         assertTrue(nodeContractor.getNumPolledEdges() <= 8, "too many edges polled: " + nodeContractor.getNumPolledEdges());
     }
 
+    @Test
+    public void testContractNodes_parallel_noWitnessViaOtherContractedNode() {
+        // 4 -> 0 -> 1 -> 2 -> 5
+        //      |         ^
+        //      \--> 3 --/
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(4, 0).setDistance(1));
+        final EdgeIteratorState e0to1 = GHUtility.setSpeed(60, true, false, encoder, graph.edge(0, 1).setDistance(1));
+        final EdgeIteratorState e1to2 = GHUtility.setSpeed(60, true, false, encoder, graph.edge(1, 2).setDistance(1));
+        final EdgeIteratorState e0to3 = GHUtility.setSpeed(60, true, false, encoder, graph.edge(0, 3).setDistance(1));
+        final EdgeIteratorState e3to2 = GHUtility.setSpeed(60, true, false, encoder, graph.edge(3, 2).setDistance(1));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(2, 5).setDistance(1));
+        graph.freeze();
+        setMaxLevelOnAllNodes();
+        EdgeBasedNodeContractor nodeContractor = createNodeContractor(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 2));
+        chGraph.setLevel(1, 0);
+        chGraph.setLevel(3, 1);
+        // when contracting 1 and 3 at the same time the path via one of them cannot be a witness for the other one
+        nodeContractor.contractNodes(new int[]{1, 3});
+        contractNode(nodeContractor, 0, 2);
+        nodeContractor.finishContraction();
+        checkShortcuts(
+                createShortcut(0, 2, e0to1, e1to2, 2),
+                createShortcut(0, 2, e0to3, e3to2, 2)
+        );
+    }
+
     private void contractNode(NodeContractor nodeContractor, int node, int level) {
         chGraph.setLevel(node, level);
         nodeContractor.contractNode(node);
@@ -1386,11 +1412,15 @@ public class EdgeBasedNodeContractorTest {
     }
 
     private EdgeBasedNodeContractor createNodeContractor() {
+        return createNodeContractor(new PMap());
+    }
+
+    private EdgeBasedNodeContractor createNodeContractor(PMap pMap) {
         CHPreparationGraph.TurnCostFunction turnCostFunction = CHPreparationGraph.buildTurnCostFunctionFromTurnCostStorage(graph, weighting);
         CHPreparationGraph prepareGraph = CHPreparationGraph.edgeBased(graph.getNodes(), graph.getEdges(), turnCostFunction);
         CHPreparationGraph.buildFromGraph(prepareGraph, graph, weighting);
         EdgeBasedNodeContractor.ShortcutHandler shortcutInserter = new EdgeBasedShortcutInserter(chGraph);
-        EdgeBasedNodeContractor nodeContractor = new EdgeBasedNodeContractor(prepareGraph, shortcutInserter, new PMap());
+        EdgeBasedNodeContractor nodeContractor = new EdgeBasedNodeContractor(prepareGraph, shortcutInserter, pMap);
         nodeContractor.initFromGraph();
         return nodeContractor;
     }
@@ -566,6 +566,44 @@ public class PrepareContractionHierarchiesTest {
         assertTrue(timeMotorCycle < 0.5 * timeCar, "reusing node ordering should speed up ch contraction");
     }
 
+    @Test
+    public void testParallelContraction() {
+        long seed = System.nanoTime();
+        int numNodes = 2_000;
+        long expectedShortcuts = -1;
+        int[] expectedOrdering = null;
+        for (int threads : new int[]{2, 4, 8}) {
+            GraphHopperStorage ghStorage = createGHStorage();
+            Random rnd = new Random(seed);
+            GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true,
+                    carEncoder.getAccessEnc(), carEncoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0.8);
+            PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(ghStorage)
+                    .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, threads));
+            prepare.doWork();
+            CHGraph chGraph = ghStorage.getCHGraph(chConfig.getName());
+            int[] ordering = new int[numNodes];
+            for (int i = 0; i < numNodes; i++)
+                ordering[i] = chGraph.getLevel(i);
+            // the result must not depend on the number of threads
+            if (expectedOrdering == null) {
+                expectedShortcuts = prepare.getShortcuts();
+                expectedOrdering = ordering;
+            } else {
+                assertEquals(expectedShortcuts, prepare.getShortcuts(), "seed: " + seed + ", threads: " + threads);
+                assertArrayEquals(expectedOrdering, ordering, "seed: " + seed + ", threads: " + threads);
+            }
+
+            RoutingCHGraph routingCHGraph = ghStorage.getRoutingCHGraph(chConfig.getName());
+            for (int i = 0; i < 100; i++) {
+                int from = rnd.nextInt(numNodes);
+                int to = rnd.nextInt(numNodes);
+                double dijkstraWeight = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED).calcPath(from, to).getWeight();
+                double chWeight = new CHRoutingAlgorithmFactory(routingCHGraph).createAlgo(new PMap()).calcPath(from, to).getWeight();
+                assertEquals(dijkstraWeight, chWeight, 1.e-1, "seed: " + seed + ", threads: " + threads + ", " + from + "->" + to);
+            }
+        }
+    }
+
     private void checkPath(GraphHopperStorage g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         RoutingCHGraph lg = g.getRoutingCHGraph(c.getName());
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
@@ -45,6 +45,7 @@ import org.locationtech.jts.geom.Polygon;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -228,6 +229,30 @@ public class LandmarkStorageTest {
         assertEquals("[3, 2]", Arrays.toString(storage.getLandmarks(2)));
     }
 
+    @Test
+    public void testParallelExplorations() {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 500, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), 60d, 0.8, 0.8, 0.8);
+        LandmarkStorage sequential = new LandmarkStorage(graph, new RAMDirectory(), new LMConfig("car", new FastestWeighting(encoder)), 8);
+        sequential.setMinimumNodes(2);
+        sequential.createLandmarks();
+        LandmarkStorage parallel = new LandmarkStorage(graph, new RAMDirectory(), new LMConfig("car", new FastestWeighting(encoder)), 8);
+        parallel.setMinimumNodes(2);
+        parallel.setExplorationThreads(4);
+        parallel.createLandmarks();
+
+        assertEquals(sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks());
+        for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++)
+            assertArrayEquals(sequential.getLandmarks(subnetwork), parallel.getLandmarks(subnetwork), "seed: " + seed);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                assertEquals(sequential.getFromWeight(lmIdx, node), parallel.getFromWeight(lmIdx, node), "seed: " + seed);
+                assertEquals(sequential.getToWeight(lmIdx, node), parallel.getToWeight(lmIdx, node), "seed: " + seed);
+            }
+        }
+    }
+
     @Test
     public void testWithBorderBlocking() {
         RoutingAlgorithmTest.initBiGraph(graph, encoder);
@@ -0,0 +1,100 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing.subnetwork;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.ConnectedComponents;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.graphhopper.routing.subnetwork.TarjanSCCTest.buildComponentSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EdgeBasedParallelSCCTest {
+    private final FlagEncoder encoder = new CarFlagEncoder(5, 5, 1);
+    private final EncodingManager em = EncodingManager.create(encoder);
+    private final EdgeBasedTarjanSCC.EdgeTransitionFilter fwdAccessFilter = (prev, edge) -> edge.get(encoder.getAccessEnc());
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void withTurnRestriction() {
+        GraphHopperStorage g = new GraphBuilder(em).create();
+        // 0->1
+        // |  |
+        // 3<-2->4
+        GHUtility.setSpeed(60, true, false, encoder, g.edge(0, 1).setDistance(1)); // edge-keys 0,1
+        GHUtility.setSpeed(60, true, false, encoder, g.edge(1, 2).setDistance(1)); // edge-keys 2,3
+        GHUtility.setSpeed(60, true, false, encoder, g.edge(2, 3).setDistance(1)); // edge-keys 4,5
+        GHUtility.setSpeed(60, true, false, encoder, g.edge(3, 0).setDistance(1)); // edge-keys 6,7
+        GHUtility.setSpeed(60, true, false, encoder, g.edge(2, 4).setDistance(1)); // edge-keys 8,9
+
+        ConnectedComponents result = EdgeBasedParallelSCC.findComponents(g, fwdAccessFilter, pool);
+        assertEquals(7, result.getTotalComponents());
+        assertEquals(1, result.getComponents().size());
+        assertEquals(buildComponentSet(Collections.singletonList(IntArrayList.from(6, 4, 2, 0))),
+                buildComponentSet(result.getComponents()));
+        assertEquals(6, result.getSingleEdgeComponents().cardinality());
+        for (IntCursor c : IntArrayList.from(1, 3, 5, 7, 8, 9))
+            assertTrue(result.getSingleEdgeComponents().get(c.value));
+
+        // with a restricted turn none of the edges are strongly connected anymore
+        result = EdgeBasedParallelSCC.findComponents(g,
+                (prev, edge) -> fwdAccessFilter.accept(prev, edge) && !(prev == 1 && edge.getBaseNode() == 2 && edge.getEdge() == 2), pool);
+        assertEquals(10, result.getTotalComponents());
+        assertEquals(0, result.getComponents().size());
+        assertEquals(10, result.getSingleEdgeComponents().cardinality());
+    }
+
+    @RepeatedTest(20)
+    public void compareWithTarjan() {
+        GraphHopperStorage g = new GraphBuilder(em).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(g, rnd, 500, 2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), 60d, 0.8, 0.7, 0);
+        // add some turn restrictions to make sure they are considered in both search directions
+        EdgeBasedTarjanSCC.EdgeTransitionFilter filter = (prev, edge) -> fwdAccessFilter.accept(prev, edge) && (prev + edge.getEdge()) % 7 != 0;
+        ConnectedComponents expected = EdgeBasedTarjanSCC.findComponents(g, filter, false);
+        // a small threshold makes sure the parts are searched by different tasks
+        ConnectedComponents given = EdgeBasedParallelSCC.findComponents(g, filter, pool, 10);
+        assertEquals(buildComponentSet(expected.getComponents()), buildComponentSet(given.getComponents()), "seed: " + seed);
+        assertEquals(expected.getSingleEdgeComponents(), given.getSingleEdgeComponents(), "seed: " + seed);
+        assertEquals(expected.getBiggestComponent().size(), given.getBiggestComponent().size(), "seed: " + seed);
+        assertEquals(expected.getEdgeKeys(), given.getEdgeKeys(), "seed: " + seed);
+        assertEquals(expected.getTotalComponents(), given.getTotalComponents(), "seed: " + seed);
+    }
+}
@@ -244,6 +244,27 @@ class EdgeBasedTarjanSCCTest {
         }
     }
 
+    @Test
+    public void bwdEdgeKeyOfStartEdge() {
+        GraphHopperStorage g = new GraphBuilder(em).create();
+        // two one-way edges between the same nodes. without u-turns the only component is 1->0->1 and it has to be
+        // found when the search starts with the bwd edge key of the first edge
+        // 0 <- 1
+        // 0 -> 1
+        GHUtility.setSpeed(60, false, true, encoder, g.edge(0, 1).setDistance(1)); // edge-keys 0,1
+        GHUtility.setSpeed(60, true, false, encoder, g.edge(0, 1).setDistance(1)); // edge-keys 2,3
+        EdgeBasedTarjanSCC.EdgeTransitionFilter noUTurnFilter = (prev, edge) -> fwdAccessFilter.accept(prev, edge) && prev != edge.getEdge();
+        for (ConnectedComponents result : new ConnectedComponents[]{
+                EdgeBasedTarjanSCC.findComponentsRecursive(g, noUTurnFilter, false),
+                EdgeBasedTarjanSCC.findComponents(g, noUTurnFilter, false)}) {
+            assertEquals(3, result.getTotalComponents());
+            assertEquals(1, result.getComponents().size());
+            assertEquals(2, result.getBiggestComponent().size());
+            assertTrue(result.getBiggestComponent().contains(1));
+            assertTrue(result.getBiggestComponent().contains(2));
+        }
+    }
+
     @RepeatedTest(20)
     public void implicitVsExplicitRecursion() {
         doImplicitVsExplicit(true);
@@ -135,6 +135,30 @@ public class PrepareRoutingSubnetworksTest {
         assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, bikeEncoder));
     }
 
+    @Test
+    public void testPrepareSubnetworks_twoVehiclesConcurrently() {
+        EncodingManager em = createEncodingManager("car,bike");
+        FlagEncoder carEncoder = em.getEncoder("car");
+        FlagEncoder bikeEncoder = em.getEncoder("bike");
+        List<PrepareRoutingSubnetworks.PrepareJob> prepareJobs = Arrays.asList(
+                createJob(em, carEncoder, NO_TURN_COST_PROVIDER),
+                createJob(em, bikeEncoder, NO_TURN_COST_PROVIDER)
+        );
+        for (boolean parallelSCC : new boolean[]{false, true}) {
+            GraphHopperStorage g = createSubnetworkTestStorage(em);
+            EdgeIteratorState edge = GHUtility.getEdge(g, 3, 4);
+            GHUtility.setSpeed(10, false, false, carEncoder, edge);
+            GHUtility.setSpeed(5, false, false, bikeEncoder, edge);
+            PrepareRoutingSubnetworks instance = new PrepareRoutingSubnetworks(g, prepareJobs).
+                    setMinNetworkSize(5).
+                    setThreads(2).
+                    setParallelSCC(parallelSCC);
+            assertEquals(6, instance.doWork());
+            assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, carEncoder));
+            assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, bikeEncoder));
+        }
+    }
+
     @Test
     public void testPrepareSubnetwork_withTurnCosts() {
         EncodingManager em = createEncodingManager("car|turn_costs=true");
@@ -0,0 +1,131 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrafficWeightingTest {
+    private final CarFlagEncoder encoder = new CarFlagEncoder();
+    private final EncodingManager em = EncodingManager.create(encoder);
+    private final Weighting weighting = new FastestWeighting(encoder);
+    private GraphHopperStorage graph;
+    private TrafficOverlay overlay;
+
+    @BeforeEach
+    public void setUp() {
+        graph = new GraphBuilder(em).create();
+        // 0-1-2
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(1000));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(1000));
+        updateDistancesFor(graph, 0, 0.00, 0.00);
+        updateDistancesFor(graph, 1, 0.01, 0.01);
+        updateDistancesFor(graph, 2, 0.02, 0.02);
+        overlay = new TrafficOverlay(graph.getEdges());
+    }
+
+    @Test
+    public void testTrafficSpeeds() {
+        EdgeIteratorState edge = graph.getEdgeIteratorState(0, 1);
+        double weight = weighting.calcEdgeWeight(edge, false);
+        long millis = weighting.calcEdgeMillis(edge, false);
+        overlay.update(new int[]{GHUtility.createEdgeKey(0, false)}, new int[]{30}, false);
+        TrafficWeighting trafficWeighting = new TrafficWeighting(weighting, overlay.getSpeeds());
+        assertEquals(2 * weight, trafficWeighting.calcEdgeWeight(edge, false), 1.e-6);
+        assertEquals(2 * millis, trafficWeighting.calcEdgeMillis(edge, false));
+        // the other direction and the other edges are not affected
+        assertEquals(weight, trafficWeighting.calcEdgeWeight(edge, true), 1.e-6);
+        assertEquals(weight, trafficWeighting.calcEdgeWeight(graph.getEdgeIteratorState(0, 0), false), 1.e-6);
+        EdgeIteratorState reverseEdge = graph.getEdgeIteratorState(0, 0);
+        assertEquals(2 * weight, trafficWeighting.calcEdgeWeight(reverseEdge, true), 1.e-6);
+
+        // higher speeds are ignored and a speed of zero closes the edge
+        overlay.update(new int[]{GHUtility.createEdgeKey(0, false), GHUtility.createEdgeKey(1, true)}, new int[]{100, 0}, false);
+        TrafficWeighting newTrafficWeighting = new TrafficWeighting(weighting, overlay.getSpeeds());
+        assertEquals(weight, newTrafficWeighting.calcEdgeWeight(edge, false), 1.e-6);
+        assertEquals(weight, newTrafficWeighting.calcEdgeWeight(graph.getEdgeIteratorState(1, 2), false), 1.e-6);
+        assertEquals(Double.POSITIVE_INFINITY, newTrafficWeighting.calcEdgeWeight(graph.getEdgeIteratorState(1, 2), true));
+        assertEquals(2, overlay.getSpeeds().size());
+        // the previous snapshot does not change
+        assertEquals(2 * weight, trafficWeighting.calcEdgeWeight(edge, false), 1.e-6);
+
+        overlay.update(new int[]{GHUtility.createEdgeKey(1, false)}, new int[]{20}, true);
+        assertEquals(1, overlay.getSpeeds().size());
+        assertEquals(-1, overlay.getSpeeds().getSpeed(GHUtility.createEdgeKey(1, true)));
+        overlay.clear();
+        assertTrue(overlay.getSpeeds().isEmpty());
+
+        assertThrows(IllegalArgumentException.class, () -> overlay.update(new int[]{4}, new int[]{20}, false));
+        assertThrows(IllegalArgumentException.class, () -> overlay.update(new int[]{0}, new int[]{TrafficOverlay.MAX_SPEED + 1}, false));
+    }
+
+    @Test
+    public void testVirtualEdges() {
+        overlay.update(new int[]{GHUtility.createEdgeKey(0, false)}, new int[]{30}, false);
+        Snap snap = new LocationIndexTree(graph, graph.getDirectory()).prepareIndex().findClosest(0.005, 0.005, EdgeFilter.ALL_EDGES);
+        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        TrafficWeighting trafficWeighting = new TrafficWeighting(weighting, overlay.getSpeeds());
+        EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(snap.getClosestNode());
+        int slowerEdges = 0;
+        while (iter.next()) {
+            double weight = weighting.calcEdgeWeight(iter, false);
+            if (iter.getAdjNode() == 1) {
+                assertEquals(2 * weight, trafficWeighting.calcEdgeWeight(iter, false), 1.e-6);
+                slowerEdges++;
+            } else {
+                assertEquals(weight, trafficWeighting.calcEdgeWeight(iter, false), 1.e-6);
+            }
+            assertEquals(2 * weight, trafficWeighting.calcEdgeWeight(iter, iter.getAdjNode() != 1), 1.e-6);
+        }
+        assertEquals(1, slowerEdges);
+    }
+
+    @Test
+    public void testReadSpeeds() throws IOException {
+        assertEquals(3, overlay.update(new StringReader("# edge_id,speed,direction\n0,30\n\n1,20.4,backward\n"), false));
+        TrafficOverlay.Speeds speeds = overlay.getSpeeds();
+        assertEquals(30, speeds.getSpeed(GHUtility.createEdgeKey(0, false)));
+        assertEquals(30, speeds.getSpeed(GHUtility.createEdgeKey(0, true)));
+        assertEquals(-1, speeds.getSpeed(GHUtility.createEdgeKey(1, false)));
+        assertEquals(20, speeds.getSpeed(GHUtility.createEdgeKey(1, true)));
+        assertNotNull(speeds.getDate());
+
+        assertThrows(IllegalArgumentException.class, () -> overlay.update(new StringReader("0,30,sideways"), false));
+        assertThrows(IllegalArgumentException.class, () -> overlay.update(new StringReader("0;30"), false));
+        assertThrows(IllegalArgumentException.class, () -> overlay.update(new StringReader("a,30"), false));
+        // invalid input does not change the speeds
+        assertSame(speeds, overlay.getSpeeds());
+    }
+}
@@ -29,6 +29,8 @@ import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.shapes.BBox;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -122,16 +124,20 @@ public class GraphHopperStorageCHTest extends GraphHopperStorageTest {
         assertEquals(100, g.getLevel(30));
     }
 
-    @Test
-    public void testShortcutConnection() {
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testShortcutConnection(boolean compactAdjacency) {
         //   4 ------ 1 > 0
         //            ^ \
         //            3  2
-        graph = createGHStorage();
+        // nodes 0, 2 and 3 have no base edges, which is a special case for the compact adjacency
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false).setCompactAdjacency(compactAdjacency).create(defaultSize);
         EdgeExplorer baseCarOutExplorer = graph.createEdgeExplorer(carOutFilter);
         GHUtility.setSpeed(60, true, true, carEncoder, graph.edge(4, 1).setDistance(30));
         graph.freeze();
 
+        assertEquals(compactAdjacency, ((BaseGraph) graph.getBaseGraph()).isUsingCompactAdjacency());
+
         CHGraph lg = getGraph(graph);
         setIdentityLevels(lg);
         lg.shortcut(0, 1, PrepareEncoder.getScBwdDir(), 0, 12, 13);
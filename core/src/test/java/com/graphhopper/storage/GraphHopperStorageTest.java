@@ -28,8 +28,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.*;
 
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
 import static com.graphhopper.util.FetchMode.*;
@@ -323,6 +322,78 @@ public class GraphHopperStorageTest extends AbstractGraphStorageTester {
         assertEdge(g.getEdgeIteratorStateForKey(1), 0, 0, false, 0, 0);
     }
 
+    @Test
+    public void testCompactAdjacency() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        RAMDirectory dir = new RAMDirectory(defaultGraphLoc, true);
+        GraphHopperStorage g = GraphBuilder.start(encodingManager).setDir(dir).setCompactAdjacency(true).create();
+        GHUtility.buildRandomGraph(g, rnd, 200, 2.5, true, true, carAccessEnc, carAvSpeedEnc, null, 0.7, 0.8, 0.5);
+        // before freezing the linked edge lists are used
+        List<String> expected = getAdjacencies(g);
+        assertFalse(((BaseGraph) g.getBaseGraph()).isUsingCompactAdjacency());
+        g.freeze();
+        assertTrue(((BaseGraph) g.getBaseGraph()).isUsingCompactAdjacency());
+        assertEquals(expected, getAdjacencies(g), "seed: " + seed);
+
+        // changing the edge properties is still possible and visible via the compact adjacency
+        // the random graph might contain isolated nodes, so we use the base node of the first edge
+        EdgeIterator iter = g.createEdgeExplorer().setBaseNode(g.getEdgeIteratorState(0, Integer.MIN_VALUE).getBaseNode());
+        assertTrue(iter.next());
+        iter.setDistance(1234.5);
+        assertEquals(1234.5, g.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode()).getDistance(), 1.e-3);
+        expected = getAdjacencies(g);
+        g.flush();
+        g.close();
+
+        // the compact adjacency is not stored, but created again when loading a frozen graph
+        g = GraphBuilder.start(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true)).setCompactAdjacency(true).build();
+        assertTrue(g.loadExisting());
+        assertTrue(((BaseGraph) g.getBaseGraph()).isUsingCompactAdjacency());
+        assertEquals(expected, getAdjacencies(g), "seed: " + seed);
+        g.close();
+    }
+
+    @Test
+    public void testCompactAdjacencyWithIsolatedNodes() {
+        // 0   1 - 2 - 4   3   5
+        GraphHopperStorage g = GraphBuilder.start(encodingManager).setCompactAdjacency(true).create();
+        GHUtility.setSpeed(60, true, true, carEncoder, g.edge(1, 2).setDistance(10));
+        GHUtility.setSpeed(60, true, false, carEncoder, g.edge(2, 4).setDistance(10));
+        // the isolated nodes at the start and at the end of the offsets are the interesting cases
+        g.getNodeAccess().ensureNode(5);
+        List<String> expected = getAdjacencies(g);
+        g.freeze();
+        assertTrue(((BaseGraph) g.getBaseGraph()).isUsingCompactAdjacency());
+        assertEquals(expected, getAdjacencies(g));
+        EdgeExplorer explorer = g.createEdgeExplorer();
+        for (int node : new int[]{0, 3, 5})
+            assertEquals(0, GHUtility.count(explorer.setBaseNode(node)), "node " + node);
+        assertEquals(GHUtility.asSet(1, 4), GHUtility.getNeighbors(explorer.setBaseNode(2)));
+        assertEquals(0, GHUtility.count(g.createEdgeExplorer(carOutFilter).setBaseNode(4)));
+        g.close();
+    }
+
+    private List<String> getAdjacencies(Graph g) {
+        List<String> result = new ArrayList<>();
+        EdgeExplorer explorer = g.createEdgeExplorer();
+        EdgeExplorer outExplorer = g.createEdgeExplorer(carOutFilter);
+        for (int node = 0; node < g.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                EdgeIteratorState detached = iter.detach(true);
+                result.add(iter.getBaseNode() + "-" + iter.getAdjNode() + ", edge: " + iter.getEdge()
+                        + ", reverse: " + iter.get(REVERSE_STATE) + ", fwd: " + iter.get(carAccessEnc)
+                        + ", bwd: " + iter.getReverse(carAccessEnc) + ", distance: " + iter.getDistance()
+                        + ", detached: " + detached.getBaseNode() + "-" + detached.getAdjNode());
+            }
+            iter = outExplorer.setBaseNode(node);
+            while (iter.next())
+                result.add("out: " + iter.getBaseNode() + "-" + iter.getAdjNode() + ", edge: " + iter.getEdge());
+        }
+        return result;
+    }
+
     private void assertEdge(EdgeIteratorState edge, int base, int adj, boolean reverse, int edgeId, int key) {
         assertEquals(base, edge.getBaseNode());
         assertEquals(adj, edge.getAdjNode());
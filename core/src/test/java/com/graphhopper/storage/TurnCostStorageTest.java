@@ -24,18 +24,18 @@ import com.graphhopper.routing.util.BikeFlagEncoder;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.io.File;
+import java.util.*;
 
 import static com.graphhopper.util.GHUtility.getEdge;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TurnCostStorageTest {
 
@@ -161,4 +161,55 @@ public class TurnCostStorageTest {
         assertFalse(iterator.next());
     }
 
+    @Test
+    public void testIndexAfterFreeze() {
+        String location = "./target/turn-cost-index";
+        Helper.removeDir(new File(location));
+        FlagEncoder carEncoder = manager.getEncoder("car");
+        DecimalEncodedValue carEnc = manager.getDecimalEncodedValue(TurnCost.key("car"));
+        GraphHopperStorage g = new GraphBuilder(manager).setRAM(location, true).create();
+        Random rnd = new Random(123);
+        GHUtility.buildRandomGraph(g, rnd, 100, 2.2, true, true, carEncoder.getAccessEnc(), carEncoder.getAverageSpeedEnc(), 60.0, 0.8, 0.8, 0.8);
+        GHUtility.addRandomTurnCosts(g, 42, manager, carEncoder, 3, g.getTurnCostStorage());
+        TurnCostStorage turnCostStorage = g.getTurnCostStorage();
+        List<Double> expected = getAllTurnCosts(g, carEnc);
+        assertFalse(turnCostStorage.isUsingIndex());
+
+        g.freeze();
+        assertTrue(turnCostStorage.isUsingIndex());
+        assertEquals(expected, getAllTurnCosts(g, carEnc));
+
+        // changes after freeze are added to the index, even if it needs to grow
+        for (int edge = 0; edge < g.getEdges(); edge++) {
+            EdgeIteratorState edgeState = g.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            turnCostStorage.set(carEnc, edge, edgeState.getAdjNode(), edge, 2);
+        }
+        expected = getAllTurnCosts(g, carEnc);
+        for (int edge = 0; edge < g.getEdges(); edge++) {
+            EdgeIteratorState edgeState = g.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(2, turnCostStorage.get(carEnc, edge, edgeState.getAdjNode(), edge), 1.e-6);
+        }
+        g.flush();
+        g.close();
+
+        g = new GraphBuilder(manager).setRAM(location, true).build();
+        assertTrue(g.loadExisting());
+        assertTrue(g.getTurnCostStorage().isUsingIndex());
+        assertEquals(expected, getAllTurnCosts(g, carEnc));
+        g.close();
+        Helper.removeDir(new File(location));
+    }
+
+    private static List<Double> getAllTurnCosts(GraphHopperStorage g, DecimalEncodedValue turnCostEnc) {
+        List<Double> turnCosts = new ArrayList<>();
+        for (int node = 0; node < g.getNodes(); node++) {
+            EdgeIterator inIter = g.createEdgeExplorer().setBaseNode(node);
+            while (inIter.next()) {
+                EdgeIterator outIter = g.createEdgeExplorer().setBaseNode(node);
+                while (outIter.next())
+                    turnCosts.add(g.getTurnCostStorage().get(turnCostEnc, inIter.getEdge(), node, outIter.getEdge()));
+            }
+        }
+        return turnCosts;
+    }
 }
@@ -27,6 +27,7 @@ import com.graphhopper.util.shapes.GHPoint;
 import org.junit.jupiter.api.Test;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -613,4 +614,35 @@ public class LocationIndexTreeTest {
         assertEquals(2, idx.findClosest(1, -1, AccessFilter.allEdges(footEncoder.getAccessEnc())).getClosestNode());
         Helper.close((Closeable) g);
     }
+
+    @Test
+    public void testFindClosestBatch() {
+        FlagEncoder encoder = encodingManager.getEncoder("car");
+        GraphHopperStorage g = new GraphHopperStorage(new RAMDirectory(), encodingManager, false).create(100);
+        Random rand = new Random(123);
+        GHUtility.buildRandomGraph(g, rand, 500, 2.2, false, true, encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), 60d, 0.8, 0.8, 0);
+        LocationIndexTree idx = createIndexNoPrepare(g, 50).setSnapThreads(3);
+        idx.prepareIndex();
+
+        List<GHPoint> points = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            points.add(new GHPoint(49.399 + rand.nextDouble() * 0.012, 9.699 + rand.nextDouble() * 0.012));
+        // the filters can differ per point, here every second point has to snap to an edge with an even id
+        EdgeFilter evenFilter = edgeState -> edgeState.getEdge() % 2 == 0;
+        List<Snap> snaps = idx.findClosest(points, i -> i % 2 == 0 ? EdgeFilter.ALL_EDGES : evenFilter);
+        assertEquals(points.size(), snaps.size());
+        for (int i = 0; i < points.size(); i++) {
+            Snap expected = idx.findClosest(points.get(i).lat, points.get(i).lon, i % 2 == 0 ? EdgeFilter.ALL_EDGES : evenFilter);
+            Snap snap = snaps.get(i);
+            assertTrue(snap.isValid());
+            assertEquals(expected.getClosestNode(), snap.getClosestNode());
+            assertEquals(expected.getClosestEdge().getEdge(), snap.getClosestEdge().getEdge());
+            assertEquals(expected.getWayIndex(), snap.getWayIndex());
+            assertEquals(expected.getSnappedPosition(), snap.getSnappedPosition());
+            assertEquals(expected.getQueryDistance(), snap.getQueryDistance(), 1.e-6);
+            assertEquals(expected.getSnappedPoint(), snap.getSnappedPoint());
+        }
+        idx.close();
+        Helper.close(g);
+    }
 }
@@ -19,6 +19,8 @@ package com.graphhopper.util;
 
 import com.graphhopper.coll.GHIntLongHashMap;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.TurnCost;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
@@ -27,6 +29,10 @@ import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.storage.*;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -122,6 +128,81 @@ public class GHUtilityTest {
         GHUtility.sortDFS(g, createGraph());
     }
 
+    @Test
+    public void testHilbertIndex() {
+        assertEquals(0, GHUtility.hilbertXYToIndex(1, 0, 0));
+        assertEquals(1, GHUtility.hilbertXYToIndex(1, 0, 1));
+        assertEquals(2, GHUtility.hilbertXYToIndex(1, 1, 1));
+        assertEquals(3, GHUtility.hilbertXYToIndex(1, 1, 0));
+        assertEquals(2, GHUtility.hilbertXYToIndex(2, 1, 1));
+        assertEquals(3, GHUtility.hilbertXYToIndex(2, 0, 1));
+        assertEquals(10, GHUtility.hilbertXYToIndex(2, 3, 3));
+        assertEquals(15, GHUtility.hilbertXYToIndex(2, 3, 0));
+    }
+
+    @Test
+    public void testSortAlongHilbertCurve() {
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 10);
+        EncodingManager em = EncodingManager.create(encoder);
+        DecimalEncodedValue turnCostEnc = em.getDecimalEncodedValue(TurnCost.key(encoder.toString()));
+        GraphHopperStorage g = new GraphBuilder(em).create();
+        initUnsorted(g, encoder);
+        AllEdgesIterator iter = g.getAllEdges();
+        while (iter.next())
+            iter.setName("edge" + iter.getEdge());
+        g.getEdgeIteratorState(3, Integer.MIN_VALUE).setWayGeometry(Helper.createPointList(4.6, 1.5));
+        // edge 2: 1-0, edge 4: 1-2, edge 5: 8-1
+        g.getTurnCostStorage().set(turnCostEnc, 2, 1, 4, 3);
+        g.getTurnCostStorage().set(turnCostEnc, 5, 1, 2, 7);
+        List<String> edges = getEdgeDescriptions(g, encoder.getAccessEnc());
+
+        GHUtility.sortGraphAlongHilbertCurve(g);
+        assertEquals(9, g.getNodes());
+        assertEquals(6, g.getEdges());
+        NodeAccess na = g.getNodeAccess();
+        for (int node = 1; node < g.getNodes(); node++)
+            assertTrue(GHUtility.latLonToHilbertIndex(na.getLat(node - 1), na.getLon(node - 1), 31)
+                    < GHUtility.latLonToHilbertIndex(na.getLat(node), na.getLon(node), 31), "node: " + node);
+        assertEquals(edges, getEdgeDescriptions(g, encoder.getAccessEnc()));
+
+        // the turn costs need to be found using the new node and edge ids
+        int node1 = findNode(g, 2.5, 4.5);
+        assertEquals(3, g.getTurnCostStorage().get(turnCostEnc, findEdge(g, "edge2"), node1, findEdge(g, "edge4")), 1e-6);
+        assertEquals(7, g.getTurnCostStorage().get(turnCostEnc, findEdge(g, "edge5"), node1, findEdge(g, "edge2")), 1e-6);
+        assertEquals(0, g.getTurnCostStorage().get(turnCostEnc, findEdge(g, "edge4"), node1, findEdge(g, "edge2")), 1e-6);
+    }
+
+    private List<String> getEdgeDescriptions(Graph g, BooleanEncodedValue accessEnc) {
+        List<String> result = new ArrayList<>();
+        EdgeExplorer explorer = g.createEdgeExplorer();
+        NodeAccess na = g.getNodeAccess();
+        for (int node = 0; node < g.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                result.add(iter.getName() + ": " + na.getLat(node) + "," + na.getLon(node) + " -> "
+                        + na.getLat(iter.getAdjNode()) + "," + na.getLon(iter.getAdjNode()) + ", fwd: "
+                        + iter.get(accessEnc) + ", bwd: " + iter.getReverse(accessEnc) + ", geometry: "
+                        + iter.fetchWayGeometry(FetchMode.ALL));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private int findNode(Graph g, double lat, double lon) {
+        for (int node = 0; node < g.getNodes(); node++)
+            if (Math.abs(g.getNodeAccess().getLat(node) - lat) < 1e-6 && Math.abs(g.getNodeAccess().getLon(node) - lon) < 1e-6)
+                return node;
+        throw new IllegalArgumentException("node not found: " + lat + "," + lon);
+    }
+
+    private int findEdge(Graph g, String name) {
+        AllEdgesIterator iter = g.getAllEdges();
+        while (iter.next())
+            if (iter.getName().equals(name))
+                return iter.getEdge();
+        throw new IllegalArgumentException("edge not found: " + name);
+    }
+
     @Test
     public void testCopyWithSelfRef() {
         Graph g = initUnsorted(createGraph(), carEncoder);
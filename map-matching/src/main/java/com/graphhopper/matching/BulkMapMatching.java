@@ -0,0 +1,174 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.util.PMap;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Matches many traces concurrently with the threads of the given executor, which can be shared with other requests.
+ * The {@link MapMatching} instances are reused for all the traces of one call. The traces are read lazily from the
+ * given iterator and at most a few traces per thread are pending at any time, so arbitrarily many traces can be
+ * matched with bounded memory. The results are passed to the handler in the order in which the traces are finished,
+ * so they are not necessarily in the order of the input.
+ */
+public class BulkMapMatching {
+    private final GraphHopper graphHopper;
+    private final PMap hints;
+    private final ExecutorService executor;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double measurementErrorSigma = 50.0;
+
+    public BulkMapMatching(GraphHopper graphHopper, PMap hints, ExecutorService executor) {
+        this.graphHopper = graphHopper;
+        this.hints = hints;
+        this.executor = executor;
+        // fail early if the hints are invalid
+        new MapMatching(graphHopper, hints);
+    }
+
+    /**
+     * Sets the maximum number of traces of one call that are matched concurrently. This should not be larger than the
+     * number of threads of the executor.
+     */
+    public BulkMapMatching setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive, but was: " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @see MapMatching#setMeasurementErrorSigma(double)
+     */
+    public BulkMapMatching setMeasurementErrorSigma(double measurementErrorSigma) {
+        this.measurementErrorSigma = measurementErrorSigma;
+        return this;
+    }
+
+    /**
+     * Matches all the given traces. The handler is always called from the calling thread, either while the traces
+     * are read or after all of them were read. Traces that cannot be matched are passed to the handler together with
+     * the exception that occurred.
+     */
+    public void match(Iterator<List<Observation>> traces, Consumer<TraceResult> handler) {
+        // the executor threads are shared, so instead of thread locals we keep the idle MapMatching instances here
+        Queue<MapMatching> mapMatchings = new ConcurrentLinkedQueue<>();
+        CompletionService<TraceResult> completionService = new ExecutorCompletionService<>(executor);
+        Set<Future<TraceResult>> pending = new HashSet<>();
+        int maxPending = 2 * threads;
+        int index = 0;
+        try {
+            while (traces.hasNext()) {
+                if (pending.size() == maxPending)
+                    handler.accept(take(completionService, pending));
+                final int traceIndex = index++;
+                final List<Observation> observations = traces.next();
+                pending.add(completionService.submit(() -> {
+                    MapMatching mapMatching = mapMatchings.poll();
+                    if (mapMatching == null) {
+                        mapMatching = new MapMatching(graphHopper, hints);
+                        mapMatching.setMeasurementErrorSigma(measurementErrorSigma);
+                    }
+                    try {
+                        return new TraceResult(traceIndex, mapMatching.match(observations), null);
+                    } catch (Exception ex) {
+                        return new TraceResult(traceIndex, null, ex);
+                    } finally {
+                        mapMatchings.offer(mapMatching);
+                    }
+                }));
+                // pass on the traces that are already finished, so the results are streamed while we are reading
+                for (Future<TraceResult> future = completionService.poll(); future != null; future = completionService.poll()) {
+                    pending.remove(future);
+                    handler.accept(getResult(future));
+                }
+            }
+            while (!pending.isEmpty())
+                handler.accept(take(completionService, pending));
+        } finally {
+            // if reading the traces or the handler failed we do not keep the shared threads busy with this call
+            for (Future<TraceResult> future : pending)
+                future.cancel(true);
+        }
+    }
+
+    private static TraceResult take(CompletionService<TraceResult> completionService, Set<Future<TraceResult>> pending) {
+        try {
+            Future<TraceResult> future = completionService.take();
+            pending.remove(future);
+            return getResult(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static TraceResult getResult(Future<TraceResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public static class TraceResult {
+        private final int index;
+        private final MatchResult matchResult;
+        private final Exception error;
+
+        TraceResult(int index, MatchResult matchResult, Exception error) {
+            this.index = index;
+            this.matchResult = matchResult;
+            this.error = error;
+        }
+
+        /**
+         * @return the position of the trace in the input
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean hasError() {
+            return error != null;
+        }
+
+        /**
+         * @return the match result or null if the trace could not be matched
+         */
+        public MatchResult getMatchResult() {
+            return matchResult;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+    }
+}
@@ -26,8 +26,8 @@ import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.AStarBidirection;
 import com.graphhopper.routing.BidirRoutingAlgorithm;
-import com.graphhopper.routing.DijkstraBidirectionRef;
 import com.graphhopper.routing.Path;
+import com.graphhopper.routing.SearchStatePool;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.lm.LMApproximator;
@@ -337,9 +337,12 @@ public class MapMatching {
                 final double linearDistance = distanceCalc.calcDist(prevTimeStep.observation.getPoint().lat,
                         prevTimeStep.observation.getPoint().lon, timeStep.observation.getPoint().lat, timeStep.observation.getPoint().lon);
 
+                List<State> toCandidates = new ArrayList<>(timeStep.candidates);
                 for (State from : prevTimeStep.candidates) {
-                    for (State to : timeStep.candidates) {
-                        final Path path = createRouter().calcPath(from.getSnap().getClosestNode(), to.getSnap().getClosestNode(), from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE, to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE);
+                    List<Path> paths = calcTransitionPaths(from, toCandidates);
+                    for (int i = 0; i < toCandidates.size(); i++) {
+                        State to = toCandidates.get(i);
+                        final Path path = paths.get(i);
                         if (path.isFound()) {
                             double transitionLogProbability = probabilities.transitionLogProbability(path.getDistance(), linearDistance);
                             Transition<State> transition = new Transition<>(from, to);
@@ -381,30 +384,45 @@ public class MapMatching {
                 + ". If a match is expected consider increasing max_visited_nodes.");
     }
 
-    private BidirRoutingAlgorithm createRouter() {
-        BidirRoutingAlgorithm router;
-        if (landmarks != null) {
-            AStarBidirection algo = new AStarBidirection(queryGraph, weighting, TraversalMode.EDGE_BASED) {
-                @Override
-                protected void initCollections(int size) {
-                    super.initCollections(50);
-                }
-            };
-            LandmarkStorage lms = landmarks.getLandmarkStorage();
-            int activeLM = Math.min(8, lms.getLandmarkCount());
-            algo.setApproximation(LMApproximator.forLandmarks(queryGraph, lms, activeLM));
-            algo.setMaxVisitedNodes(maxVisitedNodes);
-            router = algo;
-        } else {
-            router = new DijkstraBidirectionRef(queryGraph, weighting, TraversalMode.EDGE_BASED) {
-                @Override
-                protected void initCollections(int size) {
-                    super.initCollections(50);
-                }
-            };
-            router.setMaxVisitedNodes(maxVisitedNodes);
+    /**
+     * Calculates the paths from the given candidate to all the given candidates of the next observation. Without
+     * landmarks a single Dijkstra search settles all target candidates. The landmark approximation depends on the
+     * target, so with landmarks we still run one search per candidate pair.
+     */
+    private List<Path> calcTransitionPaths(State from, List<State> toCandidates) {
+        int fromNode = from.getSnap().getClosestNode();
+        int fromOutEdge = from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE;
+        int[] toNodes = new int[toCandidates.size()];
+        int[] toInEdges = new int[toCandidates.size()];
+        for (int i = 0; i < toCandidates.size(); i++) {
+            State to = toCandidates.get(i);
+            toNodes[i] = to.getSnap().getClosestNode();
+            toInEdges[i] = to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE;
         }
-        return router;
+        if (landmarks == null) {
+            MultiTargetDijkstra dijkstra = new MultiTargetDijkstra(queryGraph, weighting);
+            dijkstra.setMaxVisitedNodes(maxVisitedNodes);
+            return dijkstra.calcPaths(fromNode, fromOutEdge, toNodes, toInEdges);
+        }
+        List<Path> paths = new ArrayList<>(toCandidates.size());
+        for (int i = 0; i < toCandidates.size(); i++)
+            paths.add(createRouter().calcPath(fromNode, toNodes[i], fromOutEdge, toInEdges[i]));
+        return paths;
+    }
+
+    private BidirRoutingAlgorithm createRouter() {
+        AStarBidirection algo = new AStarBidirection(queryGraph, weighting, TraversalMode.EDGE_BASED) {
+            @Override
+            protected void initCollections(int size) {
+                super.initCollections(50);
+            }
+        };
+        LandmarkStorage lms = landmarks.getLandmarkStorage();
+        int activeLM = Math.min(8, lms.getLandmarkCount());
+        algo.setApproximation(LMApproximator.forLandmarks(queryGraph, lms, activeLM));
+        algo.setMaxVisitedNodes(maxVisitedNodes);
+        algo.setSearchStatePool(SearchStatePool.getDefault());
+        return algo;
     }
 
     private List<EdgeMatch> prepareEdgeMatches(List<SequenceState<State, Observation, Path>> seq) {
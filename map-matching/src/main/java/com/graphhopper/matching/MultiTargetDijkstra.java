@@ -0,0 +1,155 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.PathExtractor;
+import com.graphhopper.routing.SPTEntry;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * An edge-based Dijkstra that calculates the paths from one source to several targets with a single search. The
+ * search stops as soon as all targets are settled or the maximum number of visited nodes is exceeded. Like for
+ * {@link com.graphhopper.routing.BidirRoutingAlgorithm#calcPath(int, int, int, int)} the first edge of the paths and
+ * the last edge of every path can be restricted.
+ * <p>
+ * Map matching needs the paths between all candidates of two consecutive observations, so using one search per source
+ * candidate instead of one search per candidate pair saves a lot of work.
+ */
+class MultiTargetDijkstra {
+    private final Graph graph;
+    private final Weighting weighting;
+    private final EdgeExplorer edgeExplorer;
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+    private int visitedNodes;
+    private boolean alreadyRun;
+
+    MultiTargetDijkstra(Graph graph, Weighting weighting) {
+        this.graph = graph;
+        this.weighting = weighting;
+        this.edgeExplorer = graph.createEdgeExplorer();
+    }
+
+    void setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+    }
+
+    int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @param fromOutEdge   the first edge of all paths or {@link EdgeIterator#ANY_EDGE}
+     * @param targetInEdges the last edge of the path to the target with the same index or {@link EdgeIterator#ANY_EDGE}
+     * @return the paths to all targets in the same order as the targets, the paths to targets that were not reached
+     * are not found
+     */
+    List<Path> calcPaths(int from, int fromOutEdge, int[] targets, int[] targetInEdges) {
+        if (targets.length != targetInEdges.length)
+            throw new IllegalArgumentException("There must be one target edge for every target, " + targets.length + " vs. " + targetInEdges.length);
+        if (alreadyRun)
+            throw new IllegalStateException("Create a new instance per call");
+        alreadyRun = true;
+
+        IntObjectMap<IntArrayList> targetsByNode = new GHIntObjectHashMap<>(targets.length);
+        for (int i = 0; i < targets.length; i++) {
+            IntArrayList targetsAtNode = targetsByNode.get(targets[i]);
+            if (targetsAtNode == null) {
+                targetsAtNode = new IntArrayList(2);
+                targetsByNode.put(targets[i], targetsAtNode);
+            }
+            targetsAtNode.add(i);
+        }
+        SPTEntry[] targetEntries = new SPTEntry[targets.length];
+        int remainingTargets = targets.length;
+
+        IntObjectMap<SPTEntry> entries = new GHIntObjectHashMap<>(50);
+        PriorityQueue<SPTEntry> heap = new PriorityQueue<>(50);
+        SPTEntry curr = new SPTEntry(from, 0);
+        while (true) {
+            visitedNodes++;
+            if (visitedNodes > maxVisitedNodes)
+                break;
+            // collect the targets when their entry is settled
+            IntArrayList targetsAtNode = targetsByNode.get(curr.adjNode);
+            if (targetsAtNode != null) {
+                for (int i = 0; i < targetsAtNode.size(); i++) {
+                    int target = targetsAtNode.get(i);
+                    if (targetEntries[target] == null && reachesTarget(curr, fromOutEdge, targetInEdges[target])) {
+                        targetEntries[target] = curr;
+                        remainingTargets--;
+                    }
+                }
+            }
+            if (remainingTargets == 0)
+                break;
+
+            EdgeIterator iter = edgeExplorer.setBaseNode(curr.adjNode);
+            while (iter.next()) {
+                if (fromOutEdge != ANY_EDGE && curr.parent == null && iter.getEdge() != fromOutEdge)
+                    continue;
+                double weight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, false, curr.edge) + curr.weight;
+                if (Double.isInfinite(weight))
+                    continue;
+                int traversalId = TraversalMode.EDGE_BASED.createTraversalId(iter, false);
+                SPTEntry entry = entries.get(traversalId);
+                if (entry == null) {
+                    entry = new SPTEntry(iter.getEdge(), iter.getAdjNode(), weight);
+                    entry.parent = curr;
+                    entries.put(traversalId, entry);
+                    heap.add(entry);
+                } else if (entry.weight > weight) {
+                    heap.remove(entry);
+                    entry.edge = iter.getEdge();
+                    entry.weight = weight;
+                    entry.parent = curr;
+                    heap.add(entry);
+                }
+            }
+            if (heap.isEmpty())
+                break;
+            curr = heap.poll();
+        }
+
+        List<Path> paths = new ArrayList<>(targets.length);
+        for (SPTEntry entry : targetEntries)
+            paths.add(entry == null ? new Path(graph) : PathExtractor.extractPath(graph, weighting, entry));
+        return paths;
+    }
+
+    private static boolean reachesTarget(SPTEntry entry, int fromOutEdge, int targetInEdge) {
+        if (entry.parent == null)
+            // the empty path only counts if the directions at the source and at the target are not restricted
+            return fromOutEdge == ANY_EDGE && targetInEdge == ANY_EDGE;
+        return targetInEdge == ANY_EDGE || entry.edge == targetInEdge;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.routing.DijkstraBidirectionRef;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultiTargetDijkstraTest {
+    private final CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 10);
+    private final EncodingManager encodingManager = EncodingManager.create(encoder);
+    private final GraphHopperStorage graph = new GraphBuilder(encodingManager).withTurnCosts(true).create();
+    private final Weighting weighting = new FastestWeighting(encoder, new DefaultTurnCostProvider(encoder, graph.getTurnCostStorage()));
+
+    @Test
+    public void testSmallGraph() {
+        // 0 - 1 - 2 - 3    5 - 6
+        //     |       |
+        //     4 ----- +
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(2, 3).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 4).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(4, 3).setDistance(300));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(5, 6).setDistance(100));
+        graph.freeze();
+
+        int[] targets = {3, 0, 6, 3, 4};
+        // the second path to node 3 has to arrive via the detour over node 4
+        int[] targetInEdges = {ANY_EDGE, ANY_EDGE, ANY_EDGE, 4, ANY_EDGE};
+        List<Path> paths = new MultiTargetDijkstra(graph, weighting).calcPaths(0, ANY_EDGE, targets, targetInEdges);
+        assertEquals(targets.length, paths.size());
+        assertEquals("[0, 1, 2, 3]", paths.get(0).calcNodes().toString());
+        // the source itself is reached with an empty path
+        assertTrue(paths.get(1).isFound());
+        assertEquals(0, paths.get(1).getWeight(), 1.e-6);
+        // node 6 is not reachable
+        assertFalse(paths.get(2).isFound());
+        assertEquals("[0, 1, 4, 3]", paths.get(3).calcNodes().toString());
+        assertEquals("[0, 1, 4]", paths.get(4).calcNodes().toString());
+        for (int i = 0; i < targets.length; i++)
+            assertSamePath(calcReferencePath(0, ANY_EDGE, targets[i], targetInEdges[i]), paths.get(i), "target " + i);
+    }
+
+    @Test
+    public void testMaxVisitedNodes() {
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(2, 3).setDistance(100));
+        graph.freeze();
+        MultiTargetDijkstra dijkstra = new MultiTargetDijkstra(graph, weighting);
+        dijkstra.setMaxVisitedNodes(2);
+        List<Path> paths = dijkstra.calcPaths(0, ANY_EDGE, new int[]{1, 3}, new int[]{ANY_EDGE, ANY_EDGE});
+        assertTrue(paths.get(0).isFound());
+        assertFalse(paths.get(1).isFound());
+        assertEquals(3, dijkstra.getVisitedNodes());
+        assertThrows(IllegalStateException.class, () -> dijkstra.calcPaths(0, ANY_EDGE, new int[]{1}, new int[]{ANY_EDGE}));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5})
+    public void testRandomGraph(long seed) {
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, encodingManager, encoder, 10, graph.getTurnCostStorage());
+        graph.freeze();
+        for (int query = 0; query < 20; query++) {
+            int source = rnd.nextInt(graph.getNodes());
+            int sourceOutEdge = getRandomEdge(rnd, source);
+            int[] targets = new int[5];
+            int[] targetInEdges = new int[targets.length];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = rnd.nextInt(graph.getNodes());
+                targetInEdges[i] = getRandomEdge(rnd, targets[i]);
+            }
+            List<Path> paths = new MultiTargetDijkstra(graph, weighting).calcPaths(source, sourceOutEdge, targets, targetInEdges);
+            for (int i = 0; i < targets.length; i++)
+                assertSamePath(calcReferencePath(source, sourceOutEdge, targets[i], targetInEdges[i]), paths.get(i),
+                        "seed: " + seed + ", source: " + source + ", sourceOutEdge: " + sourceOutEdge
+                                + ", target: " + targets[i] + ", targetInEdge: " + targetInEdges[i]);
+        }
+    }
+
+    private Path calcReferencePath(int source, int sourceOutEdge, int target, int targetInEdge) {
+        return new DijkstraBidirectionRef(graph, weighting, TraversalMode.EDGE_BASED).calcPath(source, target, sourceOutEdge, targetInEdge);
+    }
+
+    private int getRandomEdge(Random rnd, int node) {
+        // restrict the edge for every second path
+        if (rnd.nextBoolean())
+            return ANY_EDGE;
+        EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(node);
+        int edge = ANY_EDGE;
+        for (int count = 1; iter.next(); count++)
+            if (rnd.nextInt(count) == 0)
+                edge = iter.getEdge();
+        return edge;
+    }
+
+    private static void assertSamePath(Path expected, Path path, String message) {
+        assertEquals(expected.isFound(), path.isFound(), message);
+        if (expected.isFound())
+            // there can be several paths with the same weight, so we only compare the weights
+            assertEquals(expected.getWeight(), path.getWeight(), 1.e-3, message);
+    }
+}
@@ -92,8 +92,8 @@ public class GraphHopperGtfs extends GraphHopper {
         gtfsStorage = new GtfsStorage(getGraphHopperStorage().getDirectory());
         if (!getGtfsStorage().loadExisting()) {
             ensureWriteAccess();
-            getGtfsStorage().create();
             GraphHopperStorage graphHopperStorage = getGraphHopperStorage();
+            getGtfsStorage().create(graphHopperStorage.getEdges());
             LocationIndex streetNetworkIndex = getLocationIndex();
             try {
                 int idx = 0;
@@ -124,6 +124,7 @@ public class GraphHopperGtfs extends GraphHopper {
                     allReaders.put(id, gtfsReader);
                 });
                 interpolateTransfers(allReaders, allTransfers);
+                getGtfsStorage().flush();
             } catch (Exception e) {
                 throw new RuntimeException("Error while constructing transit network. Is your GTFS file valid? Please check log for possible causes.", e);
             }
@@ -22,16 +22,10 @@ import com.conveyal.gtfs.GTFSFeed;
 import com.conveyal.gtfs.model.Fare;
 import com.google.transit.realtime.GtfsRealtime;
 import com.graphhopper.storage.Directory;
-import org.mapdb.Bind;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
-import org.mapdb.HTreeMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.Serializable;
+import java.io.*;
 import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -117,9 +111,10 @@ public class GtfsStorage implements GtfsStorageI {
 	private Directory dir;
 	private Set<String> gtfsFeedIds;
 	private Map<String, GTFSFeed> gtfsFeeds = new HashMap<>();
-	private HTreeMap<Validity, Integer> operatingDayPatterns;
-	private Bind.MapWithModificationListener<FeedIdWithTimezone, Integer> timeZones;
+	private Map<Validity, Integer> operatingDayPatterns;
+	private Map<FeedIdWithTimezone, Integer> timeZones;
 	private Map<Integer, FeedIdWithTimezone> readableTimeZones;
+	private ScheduleStorage schedule;
 	private Map<Integer, byte[]> tripDescriptors;
 	private Map<Integer, Integer> stopSequences;
 
@@ -131,28 +126,37 @@ public class GtfsStorage implements GtfsStorageI {
 
 	private Map<FeedIdWithStopId, Integer> stationNodes;
 
+	// the sections of the tables in the transit schedule
+	private static final int FEED_IDS = 0, VALIDITIES = 1, TIME_ZONES = 2, STATION_NODES = 3, BOARD_EDGES = 4, ALIGHT_EDGES = 5, PLATFORM_DESCRIPTORS = 6;
+
 	public enum EdgeType {
 		HIGHWAY, ENTER_TIME_EXPANDED_NETWORK, LEAVE_TIME_EXPANDED_NETWORK, ENTER_PT, EXIT_PT, HOP, DWELL, BOARD, ALIGHT, OVERNIGHT, TRANSFER, WAIT, WAIT_ARRIVAL
     }
 
-	private DB data;
-
 	GtfsStorage(Directory dir) {
 		this.dir = dir;
 	}
 
 	boolean loadExisting() {
-		File file = new File(dir.getLocation() + "/transit_schedule");
-		if (!file.exists()) {
+		this.schedule = new ScheduleStorage(dir);
+		if (!schedule.loadExisting()) {
 			return false;
 		}
-		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().readOnly().make();
 		init();
+		// the tables which are only needed for some requests or for realtime updates are read on their first use
+		this.operatingDayPatterns = null;
+		this.stationNodes = null;
+		this.boardEdgesForTrip = null;
+		this.leaveEdgesForTrip = null;
+		this.gtfsFeedIds = readTable(FEED_IDS, GtfsStorage::readFeedIds);
+		this.timeZones = readTable(TIME_ZONES, GtfsStorage::readTimeZones);
+		updateReadableTimeZones();
+		schedule.setPlatformDescriptors(readTable(PLATFORM_DESCRIPTORS, GtfsStorage::readPlatformDescriptors));
 		for (String gtfsFeedId : this.gtfsFeedIds) {
 			File dbFile = new File(dir.getLocation() + "/" + gtfsFeedId);
 
 			if (!dbFile.exists()) {
-				throw new RuntimeException(String.format("The mapping of the gtfsFeeds in the transit_schedule DB does not reflect the files in %s. "
+				throw new RuntimeException(String.format("The mapping of the gtfsFeeds in the transit schedule does not reflect the files in %s. "
 								+ "dbFile %s is missing.",
 						dir.getLocation(), dbFile.getName()));
 			}
@@ -164,34 +168,200 @@ public class GtfsStorage implements GtfsStorageI {
 		return true;
 	}
 
-	void create() {
+	/**
+	 * @param firstPtEdge the first edge of the transit network, i.e. the number of edges of the street network
+	 */
+	void create(int firstPtEdge) {
 		this.dir.create();
-		final File file = new File(dir.getLocation() + "/transit_schedule");
-		try {
-			Files.deleteIfExists(file.toPath());
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
-		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().asyncWriteEnable().make();
+		this.schedule = new ScheduleStorage(dir);
+		this.schedule.create(firstPtEdge);
 		init();
 	}
 
     private void init() {
-		this.gtfsFeedIds = data.getHashSet("gtfsFeeds");
-		this.operatingDayPatterns = data.getHashMap("validities");
-		this.timeZones = data.getHashMap("timeZones");
+		this.gtfsFeedIds = new LinkedHashSet<>();
+		this.operatingDayPatterns = new HashMap<>();
+		this.timeZones = new HashMap<>();
+		this.readableTimeZones = Collections.emptyMap();
+		this.tripDescriptors = schedule.getTripDescriptors();
+		this.stopSequences = schedule.getStopSequences();
+		this.boardEdgesForTrip = new HashMap<>();
+		this.leaveEdgesForTrip = new HashMap<>();
+		this.stationNodes = new HashMap<>();
+		this.platformDescriptorsByEdge = schedule.getPlatformDescriptorByEdge();
+	}
+
+	/**
+	 * Stores everything that was added while building the transit network.
+	 */
+	void flush() {
+		List<byte[]> sections = new ArrayList<>();
+		sections.add(writeTable(out -> writeFeedIds(out, gtfsFeedIds)));
+		sections.add(writeTable(out -> writeValidities(out, getOperatingDayPatterns())));
+		sections.add(writeTable(out -> writeTimeZones(out, timeZones)));
+		sections.add(writeTable(out -> writeStationNodes(out, getStationNodes())));
+		sections.add(writeTable(out -> writeEdgesForTrip(out, getBoardEdgesForTrip())));
+		sections.add(writeTable(out -> writeEdgesForTrip(out, getAlightEdgesForTrip())));
+		sections.add(writeTable(out -> writePlatformDescriptors(out, schedule.getPlatformDescriptors())));
+		schedule.flush(sections);
+		updateReadableTimeZones();
+	}
+
+	private void updateReadableTimeZones() {
 		Map<Integer, FeedIdWithTimezone> readableTimeZones = new HashMap<>();
 		for (Map.Entry<FeedIdWithTimezone, Integer> entry : this.timeZones.entrySet()) {
 			readableTimeZones.put(entry.getValue(), entry.getKey());
 		}
-		Bind.mapInverse(this.timeZones, readableTimeZones);
 		this.readableTimeZones = Collections.unmodifiableMap(readableTimeZones);
-		this.tripDescriptors = data.getTreeMap("tripDescriptors");
-		this.stopSequences = data.getTreeMap("stopSequences");
-		this.boardEdgesForTrip = data.getHashMap("boardEdgesForTrip");
-		this.leaveEdgesForTrip = data.getHashMap("leaveEdgesForTrip");
-		this.stationNodes = data.getHashMap("stationNodes");
-		this.platformDescriptorsByEdge = data.getHashMap("routes");
+	}
+
+	private interface TableWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	private interface TableReader<T> {
+		T read(DataInputStream in) throws IOException;
+	}
+
+	private static byte[] writeTable(TableWriter writer) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			writer.write(out);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private <T> T readTable(int section, TableReader<T> reader) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(schedule.getTableSection(section)))) {
+			return reader.read(in);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void writeFeedIds(DataOutputStream out, Set<String> feedIds) throws IOException {
+		out.writeInt(feedIds.size());
+		for (String feedId : feedIds)
+			out.writeUTF(feedId);
+	}
+
+	private static Set<String> readFeedIds(DataInputStream in) throws IOException {
+		Set<String> feedIds = new LinkedHashSet<>();
+		for (int i = in.readInt(); i > 0; i--)
+			feedIds.add(in.readUTF());
+		return feedIds;
+	}
+
+	private static void writeValidities(DataOutputStream out, Map<Validity, Integer> validities) throws IOException {
+		// the validities are stored as the (primitive) words of their bit sets
+		out.writeInt(validities.size());
+		for (Map.Entry<Validity, Integer> entry : validities.entrySet()) {
+			out.writeInt(entry.getValue());
+			out.writeUTF(entry.getKey().zoneId.getId());
+			out.writeLong(entry.getKey().start.toEpochDay());
+			long[] words = entry.getKey().validity.toLongArray();
+			out.writeInt(words.length);
+			for (long word : words)
+				out.writeLong(word);
+		}
+	}
+
+	private static Map<Validity, Integer> readValidities(DataInputStream in) throws IOException {
+		Map<Validity, Integer> validities = new HashMap<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			int id = in.readInt();
+			ZoneId zoneId = ZoneId.of(in.readUTF());
+			LocalDate start = LocalDate.ofEpochDay(in.readLong());
+			long[] words = new long[in.readInt()];
+			for (int j = 0; j < words.length; j++)
+				words[j] = in.readLong();
+			validities.put(new Validity(BitSet.valueOf(words), zoneId, start), id);
+		}
+		return validities;
+	}
+
+	private static void writeTimeZones(DataOutputStream out, Map<FeedIdWithTimezone, Integer> timeZones) throws IOException {
+		out.writeInt(timeZones.size());
+		for (Map.Entry<FeedIdWithTimezone, Integer> entry : timeZones.entrySet()) {
+			out.writeInt(entry.getValue());
+			out.writeUTF(entry.getKey().feedId);
+			out.writeUTF(entry.getKey().zoneId.getId());
+		}
+	}
+
+	private static Map<FeedIdWithTimezone, Integer> readTimeZones(DataInputStream in) throws IOException {
+		Map<FeedIdWithTimezone, Integer> timeZones = new HashMap<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			int id = in.readInt();
+			timeZones.put(new FeedIdWithTimezone(in.readUTF(), ZoneId.of(in.readUTF())), id);
+		}
+		return timeZones;
+	}
+
+	private static void writeStationNodes(DataOutputStream out, Map<FeedIdWithStopId, Integer> stationNodes) throws IOException {
+		out.writeInt(stationNodes.size());
+		for (Map.Entry<FeedIdWithStopId, Integer> entry : stationNodes.entrySet()) {
+			out.writeUTF(entry.getKey().feedId);
+			out.writeUTF(entry.getKey().stopId);
+			out.writeInt(entry.getValue());
+		}
+	}
+
+	private static Map<FeedIdWithStopId, Integer> readStationNodes(DataInputStream in) throws IOException {
+		Map<FeedIdWithStopId, Integer> stationNodes = new HashMap<>();
+		for (int i = in.readInt(); i > 0; i--)
+			stationNodes.put(new FeedIdWithStopId(in.readUTF(), in.readUTF()), in.readInt());
+		return stationNodes;
+	}
+
+	private static void writeEdgesForTrip(DataOutputStream out, Map<String, int[]> edgesForTrip) throws IOException {
+		out.writeInt(edgesForTrip.size());
+		for (Map.Entry<String, int[]> entry : edgesForTrip.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeInt(entry.getValue().length);
+			for (int edge : entry.getValue())
+				out.writeInt(edge);
+		}
+	}
+
+	private static Map<String, int[]> readEdgesForTrip(DataInputStream in) throws IOException {
+		Map<String, int[]> edgesForTrip = new HashMap<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			String trip = in.readUTF();
+			int[] edges = new int[in.readInt()];
+			for (int j = 0; j < edges.length; j++)
+				edges[j] = in.readInt();
+			edgesForTrip.put(trip, edges);
+		}
+		return edgesForTrip;
+	}
+
+	private static void writePlatformDescriptors(DataOutputStream out, List<PlatformDescriptor> platformDescriptors) throws IOException {
+		out.writeInt(platformDescriptors.size());
+		for (PlatformDescriptor platformDescriptor : platformDescriptors) {
+			out.writeUTF(platformDescriptor.feed_id);
+			out.writeUTF(platformDescriptor.stop_id);
+			if (platformDescriptor instanceof RoutePlatform) {
+				out.writeBoolean(true);
+				out.writeUTF(((RoutePlatform) platformDescriptor).route_id);
+			} else {
+				out.writeBoolean(false);
+				out.writeInt(((RouteTypePlatform) platformDescriptor).route_type);
+			}
+		}
+	}
+
+	private static List<PlatformDescriptor> readPlatformDescriptors(DataInputStream in) throws IOException {
+		List<PlatformDescriptor> platformDescriptors = new ArrayList<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			String feedId = in.readUTF();
+			String stopId = in.readUTF();
+			platformDescriptors.add(in.readBoolean() ? PlatformDescriptor.route(feedId, stopId, in.readUTF())
+					: PlatformDescriptor.routeType(feedId, stopId, in.readInt()));
+		}
+		return platformDescriptors;
 	}
 
 	void loadGtfsFromZipFile(String id, ZipFile zipFile) {
@@ -219,7 +389,7 @@ public class GtfsStorage implements GtfsStorageI {
 	public void close() {
 		if (!isClosed) {
 			isClosed = true;
-			data.close();
+			schedule.close();
 			for (GTFSFeed feed : gtfsFeeds.values()) {
 				feed.close();
 			}
@@ -227,7 +397,9 @@ public class GtfsStorage implements GtfsStorageI {
 	}
 
     @Override
-	public Map<Validity, Integer> getOperatingDayPatterns() {
+	public synchronized Map<Validity, Integer> getOperatingDayPatterns() {
+		if (operatingDayPatterns == null)
+			operatingDayPatterns = readTable(VALIDITIES, GtfsStorage::readValidities);
         return operatingDayPatterns;
     }
 
@@ -252,12 +424,16 @@ public class GtfsStorage implements GtfsStorageI {
 	}
 
 	@Override
-	public Map<String, int[]> getBoardEdgesForTrip() {
+	public synchronized Map<String, int[]> getBoardEdgesForTrip() {
+		if (boardEdgesForTrip == null)
+			boardEdgesForTrip = readTable(BOARD_EDGES, GtfsStorage::readEdgesForTrip);
 		return boardEdgesForTrip;
 	}
 
 	@Override
-	public Map<String, int[]> getAlightEdgesForTrip() {
+	public synchronized Map<String, int[]> getAlightEdgesForTrip() {
+		if (leaveEdgesForTrip == null)
+			leaveEdgesForTrip = readTable(ALIGHT_EDGES, GtfsStorage::readEdgesForTrip);
 		return leaveEdgesForTrip;
 	}
 
@@ -276,7 +452,9 @@ public class GtfsStorage implements GtfsStorageI {
 	}
 
 	@Override
-	public Map<FeedIdWithStopId, Integer> getStationNodes() {
+	public synchronized Map<FeedIdWithStopId, Integer> getStationNodes() {
+		if (stationNodes == null)
+			stationNodes = readTable(STATION_NODES, GtfsStorage::readStationNodes);
 		return stationNodes;
 	}
 
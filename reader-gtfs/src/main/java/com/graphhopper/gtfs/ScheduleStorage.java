@@ -0,0 +1,364 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.gtfs;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Stores the schedule data of the transit edges in flat {@link DataAccess} arrays, so nothing needs to be deserialized
+ * when loading the graph or when reading the data of an edge during a query.
+ * <p>
+ * Every edge of the transit network has a fixed size record with its stop sequence, the id of its trip descriptor and
+ * the id of its platform descriptor. The records start at the first edge of the transit network, because the edges of
+ * the street network which are created before never have any of these values. The trip descriptors are stored once as byte blobs. The remaining (small) tables like the validities or
+ * the station nodes are stored as separate sections of another DataAccess, so every table can be read on its first use.
+ */
+class ScheduleStorage {
+    // stop sequence + 1, trip descriptor id + 1 and platform descriptor id + 1, so zero always means 'not set'
+    private static final int EDGE_BYTES = 12;
+    private static final int STOP_SEQUENCE = 0, TRIP_DESCRIPTOR = 4, PLATFORM_DESCRIPTOR = 8;
+    private static final int FORMAT_VERSION = 3;
+    private final DataAccess edges;
+    private final DataAccess tripDescriptorOffsets;
+    private final DataAccess tripDescriptors;
+    private final DataAccess tables;
+    private int firstEdge;
+    private int edgeCount;
+    private int tripDescriptorCount;
+    private long tripDescriptorBytes;
+    // only used while importing to store every trip descriptor only once
+    private final Map<ByteBuffer, Integer> tripDescriptorIds = new HashMap<>();
+    private final List<GtfsStorageI.PlatformDescriptor> platformDescriptors = new ArrayList<>();
+    private final Map<GtfsStorageI.PlatformDescriptor, Integer> platformDescriptorIds = new HashMap<>();
+
+    ScheduleStorage(Directory dir) {
+        edges = dir.find("gtfs_edges");
+        tripDescriptorOffsets = dir.find("gtfs_trip_descriptor_offsets");
+        tripDescriptors = dir.find("gtfs_trip_descriptors");
+        tables = dir.find("gtfs_tables");
+    }
+
+    /**
+     * @param firstEdge the first edge of the transit network, values cannot be set for the edges below it
+     */
+    void create(int firstEdge) {
+        if (firstEdge < 0)
+            throw new IllegalArgumentException("firstEdge must not be negative, but was: " + firstEdge);
+        this.firstEdge = firstEdge;
+        edgeCount = firstEdge;
+        edges.create(EDGE_BYTES * 1000);
+        tripDescriptorOffsets.create(8 * 1000);
+        tripDescriptors.create(1000);
+        tables.create(1000);
+    }
+
+    boolean loadExisting() {
+        if (!edges.loadExisting() || !tripDescriptorOffsets.loadExisting() || !tripDescriptors.loadExisting() || !tables.loadExisting())
+            return false;
+        if (edges.getHeader(0) != FORMAT_VERSION)
+            throw new IllegalStateException("Unsupported format version of the transit schedule: " + edges.getHeader(0) + ", expected: " + FORMAT_VERSION + ". Import the graph again.");
+        edgeCount = edges.getHeader(4);
+        tripDescriptorCount = edges.getHeader(8);
+        tripDescriptorBytes = bitsToLong(edges.getHeader(12), edges.getHeader(16));
+        firstEdge = edges.getHeader(20);
+        return true;
+    }
+
+    /**
+     * Stores the schedule. Every element of tableSections is a serialized table that can be read separately via
+     * {@link #getTableSection(int)}.
+     */
+    void flush(List<byte[]> tableSections) {
+        edges.setHeader(0, FORMAT_VERSION);
+        edges.setHeader(4, edgeCount);
+        edges.setHeader(8, tripDescriptorCount);
+        edges.setHeader(12, (int) (tripDescriptorBytes >>> 32));
+        edges.setHeader(16, (int) tripDescriptorBytes);
+        edges.setHeader(20, firstEdge);
+        // the table of contents: the number of sections followed by the end offset of every section
+        long pointer = 4 + 4L * tableSections.size();
+        tables.ensureCapacity(pointer);
+        tables.setInt(0, tableSections.size());
+        for (int i = 0; i < tableSections.size(); i++) {
+            byte[] section = tableSections.get(i);
+            tables.ensureCapacity(pointer + section.length);
+            writeBytes(tables, pointer, section);
+            pointer += section.length;
+            tables.setInt(4 + 4L * i, (int) pointer);
+        }
+        edges.flush();
+        tripDescriptorOffsets.flush();
+        tripDescriptors.flush();
+        tables.flush();
+    }
+
+    byte[] getTableSection(int section) {
+        int sections = tables.getInt(0);
+        if (section < 0 || section >= sections)
+            throw new IllegalArgumentException("Invalid table section " + section + ", the transit schedule has " + sections + " sections");
+        long start = section == 0 ? 4 + 4L * sections : tables.getInt(4 + 4L * (section - 1));
+        byte[] bytes = new byte[(int) (tables.getInt(4 + 4L * section) - start)];
+        readBytes(tables, start, bytes);
+        return bytes;
+    }
+
+    void close() {
+        edges.close();
+        tripDescriptorOffsets.close();
+        tripDescriptors.close();
+        tables.close();
+    }
+
+    /**
+     * @return the stop sequence of the given edge or null if it is not set
+     */
+    Integer getStopSequence(int edge) {
+        int value = getEdgeValue(edge, STOP_SEQUENCE);
+        return value == 0 ? null : value - 1;
+    }
+
+    void setStopSequence(int edge, int stopSequence) {
+        if (stopSequence < 0)
+            throw new IllegalArgumentException("stop_sequence must not be negative, but was: " + stopSequence);
+        setEdgeValue(edge, STOP_SEQUENCE, stopSequence + 1);
+    }
+
+    /**
+     * @return the serialized trip descriptor of the given edge or null if it is not set
+     */
+    byte[] getTripDescriptor(int edge) {
+        int id = getEdgeValue(edge, TRIP_DESCRIPTOR) - 1;
+        if (id < 0)
+            return null;
+        long offset = bitsToLong(tripDescriptorOffsets.getInt(8L * id), tripDescriptorOffsets.getInt(8L * id + 4));
+        long end = id + 1 == tripDescriptorCount ? tripDescriptorBytes
+                : bitsToLong(tripDescriptorOffsets.getInt(8L * (id + 1)), tripDescriptorOffsets.getInt(8L * (id + 1) + 4));
+        byte[] bytes = new byte[(int) (end - offset)];
+        readBytes(tripDescriptors, offset, bytes);
+        return bytes;
+    }
+
+    void setTripDescriptor(int edge, byte[] tripDescriptor) {
+        Integer id = tripDescriptorIds.get(ByteBuffer.wrap(tripDescriptor));
+        if (id == null) {
+            id = tripDescriptorCount++;
+            tripDescriptorIds.put(ByteBuffer.wrap(tripDescriptor), id);
+            tripDescriptorOffsets.ensureCapacity(8L * tripDescriptorCount);
+            tripDescriptorOffsets.setInt(8L * id, (int) (tripDescriptorBytes >>> 32));
+            tripDescriptorOffsets.setInt(8L * id + 4, (int) tripDescriptorBytes);
+            tripDescriptors.ensureCapacity(tripDescriptorBytes + tripDescriptor.length);
+            writeBytes(tripDescriptors, tripDescriptorBytes, tripDescriptor);
+            tripDescriptorBytes += tripDescriptor.length;
+        }
+        setEdgeValue(edge, TRIP_DESCRIPTOR, id + 1);
+    }
+
+    /**
+     * @return the platform descriptor of the given edge or null if it is not set
+     */
+    GtfsStorageI.PlatformDescriptor getPlatformDescriptor(int edge) {
+        int id = getEdgeValue(edge, PLATFORM_DESCRIPTOR) - 1;
+        return id < 0 ? null : platformDescriptors.get(id);
+    }
+
+    void setPlatformDescriptor(int edge, GtfsStorageI.PlatformDescriptor platformDescriptor) {
+        Integer id = platformDescriptorIds.get(platformDescriptor);
+        if (id == null) {
+            id = platformDescriptors.size();
+            platformDescriptors.add(platformDescriptor);
+            platformDescriptorIds.put(platformDescriptor, id);
+        }
+        setEdgeValue(edge, PLATFORM_DESCRIPTOR, id + 1);
+    }
+
+    List<GtfsStorageI.PlatformDescriptor> getPlatformDescriptors() {
+        return platformDescriptors;
+    }
+
+    void setPlatformDescriptors(List<GtfsStorageI.PlatformDescriptor> descriptors) {
+        platformDescriptors.clear();
+        platformDescriptorIds.clear();
+        for (GtfsStorageI.PlatformDescriptor descriptor : descriptors) {
+            platformDescriptorIds.put(descriptor, platformDescriptors.size());
+            platformDescriptors.add(descriptor);
+        }
+    }
+
+    /**
+     * @return one more than the largest edge for which a value was set
+     */
+    int getEdgeCount() {
+        return edgeCount;
+    }
+
+    private int getEdgeValue(int edge, int field) {
+        if (edge < firstEdge || edge >= edgeCount)
+            return 0;
+        return edges.getInt((long) (edge - firstEdge) * EDGE_BYTES + field);
+    }
+
+    private void setEdgeValue(int edge, int field, int value) {
+        if (edge < firstEdge)
+            throw new IllegalArgumentException("Invalid edge: " + edge + ", the transit network starts at edge " + firstEdge);
+        if (edge >= edgeCount) {
+            // the records of the edges we skip are still empty, because we never wrote behind the last edge
+            edges.ensureCapacity((long) (edge - firstEdge + 1) * EDGE_BYTES);
+            edgeCount = edge + 1;
+        }
+        edges.setInt((long) (edge - firstEdge) * EDGE_BYTES + field, value);
+    }
+
+    private static long bitsToLong(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    private static void writeBytes(DataAccess da, long pointer, byte[] bytes) {
+        int chunk = Math.min(da.getSegmentSize(), 1 << 16);
+        for (int i = 0; i < bytes.length; i += chunk) {
+            int length = Math.min(chunk, bytes.length - i);
+            da.setBytes(pointer + i, length == bytes.length ? bytes : Arrays.copyOfRange(bytes, i, i + length), length);
+        }
+    }
+
+    private static void readBytes(DataAccess da, long pointer, byte[] bytes) {
+        int chunk = Math.min(da.getSegmentSize(), 1 << 16);
+        byte[] buffer = bytes.length <= chunk ? bytes : new byte[chunk];
+        for (int i = 0; i < bytes.length; i += chunk) {
+            int length = Math.min(chunk, bytes.length - i);
+            da.getBytes(pointer + i, buffer, length);
+            if (buffer != bytes)
+                System.arraycopy(buffer, 0, bytes, i, length);
+        }
+    }
+
+    /**
+     * A map view of one of the values of the edges, which makes it possible to use this storage where a map is
+     * expected, e.g. in the GtfsReader.
+     */
+    abstract class EdgeMap<V> extends AbstractMap<Integer, V> {
+        abstract V getValue(int edge);
+
+        abstract void setValue(int edge, V value);
+
+        @Override
+        public V get(Object key) {
+            return key instanceof Integer ? getValue((Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public V put(Integer key, V value) {
+            V old = getValue(key);
+            setValue(key, value);
+            return old;
+        }
+
+        @Override
+        public Set<Entry<Integer, V>> entrySet() {
+            return new AbstractSet<Entry<Integer, V>>() {
+                @Override
+                public Iterator<Entry<Integer, V>> iterator() {
+                    return new Iterator<Entry<Integer, V>>() {
+                        int edge = next(firstEdge - 1);
+
+                        private int next(int edge) {
+                            for (edge++; edge < edgeCount; edge++)
+                                if (getValue(edge) != null)
+                                    return edge;
+                            return edgeCount;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return edge < edgeCount;
+                        }
+
+                        @Override
+                        public Entry<Integer, V> next() {
+                            if (!hasNext())
+                                throw new NoSuchElementException();
+                            Entry<Integer, V> entry = new SimpleImmutableEntry<>(edge, getValue(edge));
+                            edge = next(edge);
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (int edge = firstEdge; edge < edgeCount; edge++)
+                        if (getValue(edge) != null)
+                            size++;
+                    return size;
+                }
+            };
+        }
+    }
+
+    Map<Integer, Integer> getStopSequences() {
+        return new EdgeMap<Integer>() {
+            @Override
+            Integer getValue(int edge) {
+                return getStopSequence(edge);
+            }
+
+            @Override
+            void setValue(int edge, Integer value) {
+                setStopSequence(edge, value);
+            }
+        };
+    }
+
+    Map<Integer, byte[]> getTripDescriptors() {
+        return new EdgeMap<byte[]>() {
+            @Override
+            byte[] getValue(int edge) {
+                return getTripDescriptor(edge);
+            }
+
+            @Override
+            void setValue(int edge, byte[] value) {
+                setTripDescriptor(edge, value);
+            }
+        };
+    }
+
+    Map<Integer, GtfsStorageI.PlatformDescriptor> getPlatformDescriptorByEdge() {
+        return new EdgeMap<GtfsStorageI.PlatformDescriptor>() {
+            @Override
+            GtfsStorageI.PlatformDescriptor getValue(int edge) {
+                return getPlatformDescriptor(edge);
+            }
+
+            @Override
+            void setValue(int edge, GtfsStorageI.PlatformDescriptor value) {
+                setPlatformDescriptor(edge, value);
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.gtfs;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScheduleStorageTest {
+    private static final String DIR = "./target/schedule-storage-test";
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testStoreAndLoad() {
+        GtfsStorageI.PlatformDescriptor platform = GtfsStorageI.PlatformDescriptor.route("gtfs_0", "stop_a", "route_1");
+        GtfsStorageI.PlatformDescriptor otherPlatform = GtfsStorageI.PlatformDescriptor.routeType("gtfs_0", "stop_b", 3);
+
+        GHDirectory dir = new GHDirectory(DIR, DAType.RAM_STORE);
+        dir.create();
+        ScheduleStorage storage = new ScheduleStorage(dir);
+        // the edges below 5 belong to the street network
+        storage.create(5);
+        assertThrows(IllegalArgumentException.class, () -> storage.setStopSequence(4, 0));
+        storage.setStopSequence(5, 0);
+        storage.setStopSequence(3000, 7);
+        storage.setTripDescriptor(5, new byte[]{1, 2, 3});
+        storage.setTripDescriptor(6, new byte[]{1, 2, 3});
+        storage.setTripDescriptor(3000, new byte[]{4});
+        storage.getPlatformDescriptorByEdge().put(7, platform);
+        storage.getPlatformDescriptorByEdge().put(8, otherPlatform);
+        storage.getPlatformDescriptorByEdge().put(9, GtfsStorageI.PlatformDescriptor.route("gtfs_0", "stop_a", "route_1"));
+        // equal platform descriptors are only stored once
+        assertEquals(2, storage.getPlatformDescriptors().size());
+        storage.flush(Arrays.asList(new byte[]{42}, new byte[0], new byte[]{1, 2}));
+        storage.close();
+
+        ScheduleStorage loaded = new ScheduleStorage(new GHDirectory(DIR, DAType.RAM_STORE));
+        assertTrue(loaded.loadExisting());
+        loaded.setPlatformDescriptors(storage.getPlatformDescriptors());
+        assertArrayEquals(new byte[]{42}, loaded.getTableSection(0));
+        assertArrayEquals(new byte[0], loaded.getTableSection(1));
+        assertArrayEquals(new byte[]{1, 2}, loaded.getTableSection(2));
+        assertThrows(IllegalArgumentException.class, () -> loaded.getTableSection(3));
+        assertEquals(3001, loaded.getEdgeCount());
+        assertEquals(0, loaded.getStopSequence(5));
+        assertEquals(7, loaded.getStopSequence(3000));
+        assertNull(loaded.getStopSequence(6));
+        assertNull(loaded.getStopSequence(4));
+        assertNull(loaded.getTripDescriptor(0));
+        assertNull(loaded.getStopSequence(5000));
+        assertArrayEquals(new byte[]{1, 2, 3}, loaded.getTripDescriptor(5));
+        assertArrayEquals(new byte[]{1, 2, 3}, loaded.getTripDescriptor(6));
+        assertArrayEquals(new byte[]{4}, loaded.getTripDescriptor(3000));
+        assertNull(loaded.getTripDescriptor(7));
+        assertEquals(platform, loaded.getPlatformDescriptor(7));
+        assertEquals(otherPlatform, loaded.getPlatformDescriptor(8));
+        assertEquals(platform, loaded.getPlatformDescriptor(9));
+
+        Map<Integer, Integer> expectedStopSequences = new HashMap<>();
+        expectedStopSequences.put(5, 0);
+        expectedStopSequences.put(3000, 7);
+        assertEquals(expectedStopSequences, new HashMap<>(loaded.getStopSequences()));
+        assertEquals(Collections.singleton(3000), loaded.getTripDescriptors().keySet().stream().filter(e -> e > 6).collect(java.util.stream.Collectors.toSet()));
+        assertEquals(3, loaded.getPlatformDescriptorByEdge().size());
+        loaded.close();
+    }
+}
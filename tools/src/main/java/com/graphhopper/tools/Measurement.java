@@ -204,6 +204,8 @@ public class Measurement {
                 boolean isLM = false;
                 measureRouting(hopper, new QuerySettings("routing", count / 20, isCH, isLM).
                         withInstructions());
+                measureRouting(hopper, new QuerySettings("routing_quaternary_heap", count / 20, isCH, isLM).
+                        withInstructions().quaternaryHeap());
                 if (encoder.supportsTurnCosts())
                     measureRouting(hopper, new QuerySettings("routing_edge", count / 20, isCH, isLM).
                             withInstructions().edgeBased());
@@ -227,6 +229,8 @@ public class Measurement {
                 });
 
                 final int activeLMCount = 8;
+                measureRouting(hopper, new QuerySettings("routingLM" + activeLMCount + "_quaternary_heap", count / 4, isCH, isLM).
+                        withInstructions().activeLandmarks(activeLMCount).quaternaryHeap());
                 if (!blockAreaStr.isEmpty())
                     measureRouting(hopper, new QuerySettings("routingLM" + activeLMCount + "_block_area", count / 4, isCH, isLM).
                             withInstructions().activeLandmarks(activeLMCount).blockArea(blockAreaStr));
@@ -243,6 +247,8 @@ public class Measurement {
                     gcAndWait();
                     measureRouting(hopper, new QuerySettings("routingCH", count, isCH, isLM).
                             withInstructions().sod());
+                    measureRouting(hopper, new QuerySettings("routingCH_quaternary_heap", count, isCH, isLM).
+                            withInstructions().sod().quaternaryHeap());
                     measureRouting(hopper, new QuerySettings("routingCH_alt", count / 10, isCH, isLM).
                             withInstructions().sod().alternative());
                     measureRouting(hopper, new QuerySettings("routingCH_with_hints", count, isCH, isLM).
@@ -357,7 +363,7 @@ public class Measurement {
         private final int count;
         final boolean ch, lm;
         int activeLandmarks = -1;
-        boolean withInstructions, withPointHints, sod, edgeBased, simplify, pathDetails, alternative;
+        boolean withInstructions, withPointHints, sod, edgeBased, simplify, pathDetails, alternative, quaternaryHeap;
         String blockArea;
         int points = 2;
 
@@ -413,6 +419,11 @@ public class Measurement {
             return this;
         }
 
+        QuerySettings quaternaryHeap() {
+            quaternaryHeap = true;
+            return this;
+        }
+
         QuerySettings blockArea(String str) {
             blockArea = str;
             return this;
@@ -661,7 +672,8 @@ public class Measurement {
                     putObject("stall_on_demand", querySettings.sod).
                     putObject(Landmark.DISABLE, !querySettings.lm).
                     putObject(Landmark.ACTIVE_COUNT, querySettings.activeLandmarks).
-                    putObject("instructions", querySettings.withInstructions);
+                    putObject("instructions", querySettings.withInstructions).
+                    putObject(Parameters.Routing.QUATERNARY_HEAP, querySettings.quaternaryHeap);
 
             if (querySettings.alternative)
                 req.setAlgorithm(ALT_ROUTE);
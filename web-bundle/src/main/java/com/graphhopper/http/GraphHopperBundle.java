@@ -18,6 +18,7 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
@@ -29,6 +30,7 @@ import com.graphhopper.gtfs.GtfsStorage;
 import com.graphhopper.gtfs.PtRouter;
 import com.graphhopper.gtfs.PtRouterImpl;
 import com.graphhopper.http.health.GraphHopperHealthCheck;
+import com.graphhopper.isochrone.algorithm.GridTriangulator;
 import com.graphhopper.isochrone.algorithm.JTSTriangulator;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.GraphHopperConfigModule;
@@ -47,6 +49,8 @@ import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
@@ -196,6 +200,15 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         bootstrap.getObjectMapper().enable(MapperFeature.ALLOW_EXPLICIT_PROPERTY_RENAMING);
     }
 
+    private static MVTTileCache createTileCache(GraphHopperConfig config) {
+        String cacheDir = config.getString("mvt.cache.location", "");
+        MVTTileCache tileCache = new MVTTileCache(config.getLong("mvt.cache.max_megabytes", 64) << 20, cacheDir.isEmpty() ? null : new File(cacheDir));
+        String archive = config.getString("mvt.archive", "");
+        if (!archive.isEmpty())
+            tileCache.setArchive(MVTArchive.open(new File(archive)));
+        return tileCache;
+    }
+
     @Override
     public void run(GraphHopperBundleConfiguration configuration, Environment environment) {
         for (Object k : System.getProperties().keySet()) {
@@ -235,6 +248,18 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), environment.getObjectMapper());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        String trafficFile = configuration.getGraphHopperConfiguration().getString("traffic.file", "");
+        if (!trafficFile.isEmpty())
+            environment.lifecycle().manage(new TrafficFileLoader(graphHopper, new File(trafficFile),
+                    configuration.getGraphHopperConfiguration().getLong("traffic.refresh_seconds", 60)));
+        int mapMatchingThreads = MapMatchingResource.getBulkThreads(configuration.getGraphHopperConfiguration());
+        // the threads of the bulk map matching are shared by all requests and stopped together with the server
+        final ExecutorService mapMatchingExecutor = environment.lifecycle().executorService("map-matching-%d").
+                minThreads(mapMatchingThreads).maxThreads(mapMatchingThreads).build();
+        final IsochroneCache isochroneCache = new IsochroneCache(configuration.getGraphHopperConfiguration().getLong("isochrone.cache.max_entries", 1000),
+                configuration.getGraphHopperConfiguration().getLong("isochrone.cache.ttl_seconds", 600));
+        environment.metrics().register("isochrone.cache.size", (Gauge<Long>) isochroneCache::size);
+        environment.metrics().register("isochrone.cache.hits", (Gauge<Long>) isochroneCache::getHitCount);
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
@@ -243,9 +268,14 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
                 bind(graphHopper).to(GraphHopperAPI.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
+                bind(new GridTriangulator(configuration.getGraphHopperConfiguration().getDouble("isochrone.grid.resolution", 100),
+                        configuration.getGraphHopperConfiguration().getLong("isochrone.grid.max_size", 4_000_000))).to(GridTriangulator.class);
+                bind(createTileCache(configuration.getGraphHopperConfiguration())).to(MVTTileCache.class);
+                bind(isochroneCache).to(IsochroneCache.class);
                 bindFactory(PathDetailsBuilderFactoryFactory.class).to(PathDetailsBuilderFactory.class);
                 bindFactory(ProfileResolverFactory.class).to(ProfileResolver.class);
                 bindFactory(HasElevation.class).to(Boolean.class).named("hasElevation");
+                bind(mapMatchingExecutor).to(ExecutorService.class).named("mapMatchingExecutor");
                 bindFactory(LocationIndexFactory.class).to(LocationIndex.class);
                 bindFactory(TranslationMapFactory.class).to(TranslationMap.class);
                 bindFactory(EncodingManagerFactory.class).to(EncodingManager.class);
@@ -258,6 +288,10 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
         environment.jersey().register(IsochroneResource.class);
+        environment.jersey().register(MatrixResource.class);
+        // the traffic speeds can be changed by everyone who can access this endpoint, so it has to be enabled explicitly
+        if (configuration.getGraphHopperConfiguration().getBool("traffic.endpoint", false))
+            environment.jersey().register(TrafficResource.class);
         environment.jersey().register(MapMatchingResource.class);
         if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
             // These are pt-specific implementations of /route and /isochrone, but the same API.
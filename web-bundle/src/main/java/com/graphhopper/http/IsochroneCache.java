@@ -0,0 +1,95 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.graphhopper.util.JsonFeature;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caches the polygons created by the IsochroneResource. The cache holds a limited number of results that expire after
+ * a fixed time. The version of the graph is part of the key, so a result that is still being created from the old
+ * graph while the graph changes is never returned for the new one. Like for the {@link MVTTileCache} all results are
+ * dropped as soon as a result is requested for another version.
+ */
+public class IsochroneCache {
+    private final Cache<String, List<JsonFeature>> cache;
+    private final boolean enabled;
+    private String graphVersion;
+
+    /**
+     * @param maxEntries the maximum number of cached results, 0 disables the cache
+     * @param ttlSeconds the number of seconds after which a result is created again
+     */
+    public IsochroneCache(long maxEntries, long ttlSeconds) {
+        if (maxEntries < 0)
+            throw new IllegalArgumentException("maxEntries must not be negative, but was: " + maxEntries);
+        if (ttlSeconds <= 0)
+            throw new IllegalArgumentException("ttlSeconds must be positive, but was: " + ttlSeconds);
+        this.cache = CacheBuilder.newBuilder().
+                maximumSize(maxEntries).
+                expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).
+                recordStats().
+                build();
+        this.enabled = maxEntries > 0;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param graphVersion identifies the graph the polygons are created from, see MVTTileBuilder.getGraphVersion
+     * @param key          identifies the snapped points and all parameters the polygons depend on
+     * @param creator      creates the polygons if they are not cached yet
+     */
+    public List<JsonFeature> get(String graphVersion, String key, Supplier<List<JsonFeature>> creator) {
+        if (!enabled)
+            return creator.get();
+        checkGraphVersion(graphVersion);
+        String versionedKey = graphVersion + "|" + key;
+        List<JsonFeature> features = cache.getIfPresent(versionedKey);
+        if (features == null) {
+            features = creator.get();
+            cache.put(versionedKey, features);
+        }
+        return features;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the number of requests that were answered from the cache
+     */
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    private synchronized void checkGraphVersion(String graphVersion) {
+        if (graphVersion.equals(this.graphVersion))
+            return;
+        cache.invalidateAll();
+        this.graphVersion = graphVersion;
+    }
+}
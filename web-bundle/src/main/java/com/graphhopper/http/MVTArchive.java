@@ -0,0 +1,163 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only file with pre-generated vector tiles, see {@link MVTArchiveWriter}. The file is memory mapped and the
+ * tiles are returned as views of the mapped file, so serving a tile does not copy it to the heap.
+ * <p>
+ * The file starts with a header that contains the graph version and the details the tiles were created for, followed
+ * by an index sorted by the tile key (z, x, y) and the data of all tiles. Every index entry consists of the tile key,
+ * the offset of the tile relative to the start of the data and the length of the tile. Tiles without any roads are
+ * not stored.
+ */
+public class MVTArchive implements Closeable {
+    static final int MAGIC = 0x47484d56;
+    static final int FORMAT_VERSION = 1;
+    static final int MAX_ZOOM = 24;
+    // magic, format version, index offset and data offset
+    static final int PREFIX_SIZE = 24;
+    static final int INDEX_ENTRY_SIZE = 20;
+    static final int MAX_TILE_SIZE = 64 << 20;
+    // the data is mapped in overlapping segments, so every tile is contained in a single segment
+    private static final int SEGMENT_BITS = 30;
+    private final FileChannel channel;
+    private final String graphVersion;
+    private final List<String> details;
+    private final int minZoom;
+    private final int maxZoom;
+    private final int tiles;
+    private final ByteBuffer emptyTile;
+    private final MappedByteBuffer index;
+    private final MappedByteBuffer[] segments;
+
+    private MVTArchive(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        if (in.readInt() != MAGIC)
+            throw new IllegalArgumentException("Not a tile archive: " + file);
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION)
+            throw new IllegalArgumentException("Unsupported format version " + formatVersion + " of tile archive " + file + ", expected: " + FORMAT_VERSION);
+        long indexOffset = in.readLong();
+        long dataOffset = in.readLong();
+        graphVersion = in.readUTF();
+        String detailsStr = in.readUTF();
+        details = detailsStr.isEmpty() ? Collections.emptyList() : Arrays.asList(detailsStr.split(","));
+        minZoom = in.readInt();
+        maxZoom = in.readInt();
+        tiles = in.readInt();
+        byte[] emptyTileBytes = new byte[in.readInt()];
+        in.readFully(emptyTileBytes);
+        emptyTile = ByteBuffer.wrap(emptyTileBytes).asReadOnlyBuffer();
+
+        index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) INDEX_ENTRY_SIZE * tiles);
+        long dataLength = channel.size() - dataOffset;
+        segments = new MappedByteBuffer[(int) ((dataLength >>> SEGMENT_BITS) + 1)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            long size = Math.min(dataLength - start, (1L << SEGMENT_BITS) + MAX_TILE_SIZE);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + start, size);
+        }
+    }
+
+    public static MVTArchive open(File file) {
+        try {
+            return new MVTArchive(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open tile archive " + file, ex);
+        }
+    }
+
+    static long toKey(int z, int x, int y) {
+        return ((long) z << 56) | ((long) x << 28) | y;
+    }
+
+    /**
+     * @return the version of the graph the tiles were created from
+     */
+    public String getGraphVersion() {
+        return graphVersion;
+    }
+
+    /**
+     * @return the sorted names of the encoded values that are included in the tiles
+     */
+    public List<String> getDetails() {
+        return details;
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * @return the number of stored (non-empty) tiles
+     */
+    public int getTiles() {
+        return tiles;
+    }
+
+    /**
+     * @return a read-only view of the given tile or null if the zoom level is not contained in this archive
+     */
+    public ByteBuffer getTile(int z, int x, int y) {
+        if (z < minZoom || z > maxZoom)
+            return null;
+        long key = toKey(z, x, y);
+        int low = 0, high = tiles - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = index.getLong(mid * INDEX_ENTRY_SIZE);
+            if (midKey < key)
+                low = mid + 1;
+            else if (midKey > key)
+                high = mid - 1;
+            else
+                return getData(index.getLong(mid * INDEX_ENTRY_SIZE + 8), index.getInt(mid * INDEX_ENTRY_SIZE + 16));
+        }
+        return emptyTile.duplicate();
+    }
+
+    private ByteBuffer getData(long offset, int length) {
+        ByteBuffer buffer = segments[(int) (offset >>> SEGMENT_BITS)].duplicate();
+        int position = (int) (offset & ((1 << SEGMENT_BITS) - 1));
+        buffer.position(position);
+        buffer.limit(position + length);
+        return buffer.slice();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Writes the vector tiles of a range of zoom levels into a single file that can be served by the MVTResource, see
+ * {@link MVTArchive} for the format. The tiles can be added in any order. Tiles without any roads are not stored.
+ */
+public class MVTArchiveWriter {
+    private static final Logger logger = LoggerFactory.getLogger(MVTArchiveWriter.class);
+    private final File file;
+    private final File dataFile;
+    private final String graphVersion;
+    private final List<String> details;
+    private final int minZoom;
+    private final int maxZoom;
+    private final byte[] emptyTile = MVTTileBuilder.createEmptyTile();
+    private final LongArrayList keys = new LongArrayList();
+    private final LongArrayList offsets = new LongArrayList();
+    private final IntArrayList lengths = new IntArrayList();
+    private OutputStream dataOut;
+    private long dataLength;
+
+    public MVTArchiveWriter(File file, String graphVersion, Collection<String> details, int minZoom, int maxZoom) {
+        if (minZoom < MVTTileBuilder.MIN_ZOOM || maxZoom < minZoom || maxZoom > MVTArchive.MAX_ZOOM)
+            throw new IllegalArgumentException("Invalid zoom levels " + minZoom + "-" + maxZoom + ", use zoom levels between "
+                    + MVTTileBuilder.MIN_ZOOM + " and " + MVTArchive.MAX_ZOOM);
+        this.file = file;
+        this.dataFile = new File(file.getPath() + ".tmp");
+        this.graphVersion = graphVersion;
+        this.details = new ArrayList<>(details);
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        try {
+            dataOut = new BufferedOutputStream(new FileOutputStream(dataFile), 1 << 16);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Creates all tiles of the zoom levels of this archive that intersect the given bounds with the given number of
+     * threads and writes the archive.
+     *
+     * @return the number of stored tiles
+     */
+    public int writeTiles(MVTTileBuilder tileBuilder, BBox bounds, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<List<Object[]>> completionService = new ExecutorCompletionService<>(executor);
+        int maxPending = 2 * threads;
+        try {
+            for (int z = minZoom; z <= maxZoom; z++) {
+                StopWatch sw = new StopWatch().start();
+                final int zoom = z;
+                int minX = MVTTileBuilder.lon2x(bounds.minLon, z), maxX = MVTTileBuilder.lon2x(bounds.maxLon, z);
+                int minY = MVTTileBuilder.lat2y(bounds.maxLat, z), maxY = MVTTileBuilder.lat2y(bounds.minLat, z);
+                int pending = 0, tilesBefore = keys.size();
+                // one task per column of tiles to keep the overhead per task small
+                for (int x = minX; x <= maxX; x++) {
+                    if (pending == maxPending) {
+                        addAll(take(completionService));
+                        pending--;
+                    }
+                    final int column = x;
+                    completionService.submit(() -> {
+                        List<Object[]> tiles = new ArrayList<>();
+                        for (int y = minY; y <= maxY; y++) {
+                            byte[] tile = tileBuilder.createTile(zoom, column, y, details);
+                            if (!Arrays.equals(tile, emptyTile))
+                                tiles.add(new Object[]{zoom, column, y, tile});
+                        }
+                        return tiles;
+                    });
+                    pending++;
+                }
+                for (; pending > 0; pending--)
+                    addAll(take(completionService));
+                logger.info("zoom " + z + ": " + (keys.size() - tilesBefore) + " tiles of " + (long) (maxX - minX + 1) * (maxY - minY + 1)
+                        + " are not empty, took: " + sw.stop().getSeconds() + "s");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        finish();
+        return keys.size();
+    }
+
+    private void addAll(List<Object[]> tiles) {
+        for (Object[] tile : tiles)
+            add((int) tile[0], (int) tile[1], (int) tile[2], (byte[]) tile[3]);
+    }
+
+    private static List<Object[]> take(CompletionService<List<Object[]>> completionService) {
+        try {
+            return completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Adds the given tile to the archive. This method must not be called concurrently.
+     */
+    public void add(int z, int x, int y, byte[] tile) {
+        if (z < minZoom || z > maxZoom)
+            throw new IllegalArgumentException("Zoom level " + z + " is not in " + minZoom + "-" + maxZoom);
+        if (tile.length > MVTArchive.MAX_TILE_SIZE)
+            throw new IllegalArgumentException("Tile " + z + "/" + x + "/" + y + " is too big: " + tile.length);
+        try {
+            dataOut.write(tile);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        keys.add(MVTArchive.toKey(z, x, y));
+        offsets.add(dataLength);
+        lengths.add(tile.length);
+        dataLength += tile.length;
+    }
+
+    /**
+     * Writes the header and the index and moves the tiles behind them.
+     */
+    public void finish() {
+        try {
+            dataOut.close();
+            if (keys.size() > Integer.MAX_VALUE / MVTArchive.INDEX_ENTRY_SIZE)
+                throw new IllegalStateException("Too many tiles: " + keys.size());
+            int[] order = IndirectSort.mergesort(0, keys.size(), (i, j) -> Long.compare(keys.get(i), keys.get(j)));
+
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(headerBytes);
+            header.writeUTF(graphVersion);
+            header.writeUTF(String.join(",", details));
+            header.writeInt(minZoom);
+            header.writeInt(maxZoom);
+            header.writeInt(keys.size());
+            header.writeInt(emptyTile.length);
+            header.write(emptyTile);
+            header.flush();
+            long indexOffset = MVTArchive.PREFIX_SIZE + headerBytes.size();
+            long dataOffset = indexOffset + (long) MVTArchive.INDEX_ENTRY_SIZE * keys.size();
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+                out.writeInt(MVTArchive.MAGIC);
+                out.writeInt(MVTArchive.FORMAT_VERSION);
+                out.writeLong(indexOffset);
+                out.writeLong(dataOffset);
+                headerBytes.writeTo(out);
+                for (int i : order) {
+                    out.writeLong(keys.get(i));
+                    out.writeLong(offsets.get(i));
+                    out.writeInt(lengths.get(i));
+                }
+            }
+            try (FileChannel target = FileChannel.open(file.toPath(), StandardOpenOption.APPEND);
+                 FileChannel source = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+                for (long position = 0; position < dataLength; )
+                    position += source.transferTo(position, dataLength - position, target);
+            }
+            Files.delete(dataFile.toPath());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
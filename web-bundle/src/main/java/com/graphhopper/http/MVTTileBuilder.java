@@ -0,0 +1,200 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.StorableProperties;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
+import com.wdtinc.mapbox_vector_tile.VectorTile;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.IGeometryFilter;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.JtsAdapter;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.TileGeomResult;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.UserDataKeyValueMapConverter;
+import com.wdtinc.mapbox_vector_tile.build.MvtLayerBuild;
+import com.wdtinc.mapbox_vector_tile.build.MvtLayerParams;
+import com.wdtinc.mapbox_vector_tile.build.MvtLayerProps;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the vector tiles with the road network that are served by the MVTResource. This class is thread-safe, so
+ * it can also be used to create many tiles concurrently.
+ */
+public class MVTTileBuilder {
+    private static final Logger logger = LoggerFactory.getLogger(MVTTileBuilder.class);
+    /**
+     * Tiles with a smaller zoom level are always empty
+     */
+    public static final int MIN_ZOOM = 10;
+    private static final MvtLayerParams LAYER_PARAMS = new MvtLayerParams(256, 4096);
+    private final GraphHopper graphHopper;
+    private final EncodingManager encodingManager;
+
+    public MVTTileBuilder(GraphHopper graphHopper) {
+        this.graphHopper = graphHopper;
+        this.encodingManager = graphHopper.getEncodingManager();
+    }
+
+    /**
+     * @return a string that changes whenever the graph is imported again or updated, see GraphHopper.applyChanges
+     */
+    public static String getGraphVersion(GraphHopperStorage graph) {
+        StorableProperties properties = graph.getProperties();
+        String version = properties.get("datareader.import.date") + "_" + properties.get("datareader.data.date");
+        String updateDate = properties.get("datareader.update.date");
+        return updateDate.isEmpty() ? version : version + "_" + updateDate;
+    }
+
+    /**
+     * @return the tile that is created for an area without roads
+     */
+    public static byte[] createEmptyTile() {
+        return toBytes(MvtLayerBuild.newLayerBuilder("roads", LAYER_PARAMS), new MvtLayerProps());
+    }
+
+    private static byte[] toBytes(VectorTile.Tile.Layer.Builder layerBuilder, MvtLayerProps layerProps) {
+        MvtLayerBuild.writeProps(layerBuilder, layerProps);
+        return VectorTile.Tile.newBuilder().addLayers(layerBuilder.build()).build().toByteArray();
+    }
+
+    /**
+     * @param details the names of encoded values that should be added as attributes to the roads
+     */
+    public byte[] createTile(int zInfo, int xInfo, int yInfo, Collection<String> details) {
+        if (zInfo < MIN_ZOOM)
+            return VectorTile.Tile.newBuilder().build().toByteArray();
+
+        StopWatch totalSW = new StopWatch().start();
+        Coordinate nw = num2deg(xInfo, yInfo, zInfo);
+        Coordinate se = num2deg(xInfo + 1, yInfo + 1, zInfo);
+        LocationIndexTree locationIndex = (LocationIndexTree) graphHopper.getLocationIndex();
+        final NodeAccess na = graphHopper.getGraphHopperStorage().getNodeAccess();
+        BBox bbox = new BBox(nw.x, se.x, se.y, nw.y);
+        if (!bbox.isValid())
+            throw new IllegalStateException("Invalid bbox " + bbox);
+
+        final GeometryFactory geometryFactory = new GeometryFactory();
+        final IGeometryFilter acceptAllGeomFilter = geometry -> true;
+        final Envelope tileEnvelope = new Envelope(se, nw);
+        final UserDataKeyValueMapConverter converter = new UserDataKeyValueMapConverter();
+        if (!encodingManager.hasEncodedValue(RoadClass.KEY))
+            throw new IllegalStateException("You need to configure GraphHopper to store road_class, e.g. graph.encoded_values: road_class,max_speed,... ");
+
+        final EnumEncodedValue<RoadClass> roadClassEnc = encodingManager.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        final AtomicInteger edgeCounter = new AtomicInteger(0);
+        // in toFeatures addTags of the converter is called and layerProps is filled with keys&values => those need to be stored in the layerBuilder
+        // otherwise the decoding won't be successful and "undefined":"undefined" instead of "speed": 30 is the result
+        final MvtLayerProps layerProps = new MvtLayerProps();
+        final VectorTile.Tile.Layer.Builder layerBuilder = MvtLayerBuild.newLayerBuilder("roads", LAYER_PARAMS);
+
+        locationIndex.query(bbox, edgeId -> {
+            EdgeIteratorState edge = graphHopper.getGraphHopperStorage().getEdgeIteratorStateForKey(edgeId * 2);
+            LineString lineString;
+            RoadClass rc = edge.get(roadClassEnc);
+            if (zInfo >= 14) {
+                PointList pl = edge.fetchWayGeometry(FetchMode.ALL);
+                lineString = pl.toLineString(false);
+            } else if (rc == RoadClass.MOTORWAY
+                    || zInfo > 10 && (rc == RoadClass.PRIMARY || rc == RoadClass.TRUNK)
+                    || zInfo > 11 && (rc == RoadClass.SECONDARY)
+                    || zInfo > 12) {
+                double lat = na.getLat(edge.getBaseNode());
+                double lon = na.getLon(edge.getBaseNode());
+                double toLat = na.getLat(edge.getAdjNode());
+                double toLon = na.getLon(edge.getAdjNode());
+                lineString = geometryFactory.createLineString(new Coordinate[]{new Coordinate(lon, lat), new Coordinate(toLon, toLat)});
+            } else {
+                // skip edge for certain zoom
+                return;
+            }
+
+            edgeCounter.incrementAndGet();
+            Map<String, Object> map = new HashMap<>(2);
+            map.put("name", edge.getName());
+            for (String str : details) {
+                EncodedValue ev = encodingManager.getEncodedValue(str, EncodedValue.class);
+                if (ev instanceof EnumEncodedValue)
+                    map.put(ev.getName(), edge.get((EnumEncodedValue) ev).toString());
+                else if (ev instanceof DecimalEncodedValue)
+                    map.put(ev.getName(), edge.get((DecimalEncodedValue) ev));
+                else if (ev instanceof BooleanEncodedValue)
+                    map.put(ev.getName(), edge.get((BooleanEncodedValue) ev));
+                else if (ev instanceof IntEncodedValue)
+                    map.put(ev.getName(), edge.get((IntEncodedValue) ev));
+            }
+
+            lineString.setUserData(map);
+
+            // doing some AffineTransformation
+            TileGeomResult tileGeom = JtsAdapter.createTileGeom(lineString, tileEnvelope, geometryFactory, LAYER_PARAMS, acceptAllGeomFilter);
+            List<VectorTile.Tile.Feature> features = JtsAdapter.toFeatures(tileGeom.mvtGeoms, layerProps, converter);
+            layerBuilder.addAllFeatures(features);
+        });
+
+        byte[] bytes = toBytes(layerBuilder, layerProps);
+        totalSW.stop();
+        logger.debug("took: " + totalSW.getSeconds() + ", edges:" + edgeCounter.get());
+        return bytes;
+    }
+
+    /**
+     * @return the north-west corner of the given tile
+     */
+    public static Coordinate num2deg(int xInfo, int yInfo, int zoom) {
+        double n = Math.pow(2, zoom);
+        double lonDeg = xInfo / n * 360.0 - 180.0;
+        // unfortunately latitude numbers goes from north to south
+        double latRad = Math.atan(Math.sinh(Math.PI * (1 - 2 * yInfo / n)));
+        double latDeg = Math.toDegrees(latRad);
+        return new Coordinate(lonDeg, latDeg);
+    }
+
+    /**
+     * @return the x coordinate of the tile that contains the given longitude
+     */
+    public static int lon2x(double lon, int zoom) {
+        int n = 1 << zoom;
+        return Math.max(0, Math.min(n - 1, (int) Math.floor((lon + 180) / 360 * n)));
+    }
+
+    /**
+     * @return the y coordinate of the tile that contains the given latitude
+     */
+    public static int lat2y(double lat, int zoom) {
+        int n = 1 << zoom;
+        double latRad = Math.toRadians(lat);
+        double y = (1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * n;
+        return Math.max(0, Math.min(n - 1, (int) Math.floor(y)));
+    }
+}
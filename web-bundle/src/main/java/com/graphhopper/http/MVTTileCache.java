@@ -0,0 +1,151 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.graphhopper.util.Helper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Caches the vector tiles created by the MVTResource. The tiles are kept in a memory cache that evicts the least
+ * recently used tiles and optionally also in a directory, which survives restarts of the server. The cached tiles
+ * belong to one version of the graph. As soon as a tile is requested for another version all cached tiles are
+ * dropped. Additionally an archive with pre-generated tiles can be set, see {@link MVTArchiveWriter}.
+ */
+public class MVTTileCache {
+    private static final Logger logger = LoggerFactory.getLogger(MVTTileCache.class);
+    // the tiles of a graph version are stored in a sub directory with this prefix. Only these sub directories are
+    // removed when the graph version changes, so other files in the cache directory are never touched
+    private static final String VERSION_DIR_PREFIX = "graph-";
+    private final Cache<String, byte[]> memoryCache;
+    private final File cacheDir;
+    private String graphVersion;
+    private MVTArchive archive;
+    private boolean archiveOutdated;
+
+    /**
+     * @param maxBytes the maximum size of the tiles in the memory cache, 0 disables the memory cache
+     * @param cacheDir the directory to store the tiles in or null if the tiles should only be kept in memory
+     */
+    public MVTTileCache(long maxBytes, File cacheDir) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("maxBytes must not be negative, but was: " + maxBytes);
+        this.memoryCache = CacheBuilder.newBuilder().
+                maximumWeight(maxBytes).
+                weigher((String key, byte[] tile) -> tile.length).
+                build();
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Sets the archive with the pre-generated tiles that are used instead of the cached tiles when possible.
+     */
+    public MVTTileCache setArchive(MVTArchive archive) {
+        this.archive = archive;
+        return this;
+    }
+
+    /**
+     * @return the tile from the archive or null if there is no archive for the given graph version and details
+     */
+    public ByteBuffer getArchivedTile(String graphVersion, int z, int x, int y, Collection<String> details) {
+        if (archive == null || !archive.getDetails().equals(new ArrayList<>(details)))
+            return null;
+        if (!archive.getGraphVersion().equals(graphVersion)) {
+            if (!archiveOutdated) {
+                archiveOutdated = true;
+                logger.warn("The tile archive was created for graph " + archive.getGraphVersion() + " and cannot be used for "
+                        + graphVersion + ", create it again");
+            }
+            return null;
+        }
+        return archive.getTile(z, x, y);
+    }
+
+    /**
+     * @param graphVersion identifies the graph the tile is created from, see GraphHopperStorage.getProperties()
+     * @param details      the names of the encoded values included in the tile. These are used to build the cache key
+     *                     and file name, so the caller needs to make sure they are valid and in a well-defined order.
+     * @param tileCreator  creates the tile if it is not cached yet
+     */
+    public byte[] get(String graphVersion, int z, int x, int y, Collection<String> details, Supplier<byte[]> tileCreator) {
+        checkGraphVersion(graphVersion);
+        String key = z + "/" + x + "/" + y + (details.isEmpty() ? "" : "+" + String.join("+", details));
+        byte[] tile = memoryCache.getIfPresent(key);
+        if (tile != null)
+            return tile;
+
+        File file = cacheDir == null ? null : new File(new File(cacheDir, toDirName(graphVersion)), key + ".mvt");
+        if (file != null && file.exists()) {
+            try {
+                tile = Files.readAllBytes(file.toPath());
+            } catch (IOException ex) {
+                logger.warn("Cannot read cached tile " + file + ", " + ex.getMessage());
+            }
+        }
+        if (tile == null) {
+            tile = tileCreator.get();
+            if (file != null)
+                write(file, tile);
+        }
+        memoryCache.put(key, tile);
+        return tile;
+    }
+
+    private synchronized void checkGraphVersion(String graphVersion) {
+        if (graphVersion.equals(this.graphVersion))
+            return;
+        memoryCache.invalidateAll();
+        if (cacheDir != null) {
+            File[] versionDirs = cacheDir.listFiles((dir, name) -> name.startsWith(VERSION_DIR_PREFIX));
+            if (versionDirs != null)
+                for (File dir : versionDirs)
+                    if (dir.isDirectory() && !dir.getName().equals(toDirName(graphVersion)))
+                        Helper.removeDir(dir);
+        }
+        this.graphVersion = graphVersion;
+    }
+
+    private static void write(File file, byte[] tile) {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            // write to a temporary file first so concurrent requests never read an incomplete tile
+            File tmpFile = File.createTempFile("tile", ".tmp", file.getParentFile());
+            Files.write(tmpFile.toPath(), tile);
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            // the tile is still served, it is only created again next time
+            logger.warn("Cannot write tile " + file + ", " + ex.getMessage());
+        }
+    }
+
+    private static String toDirName(String graphVersion) {
+        return VERSION_DIR_PREFIX + (graphVersion.isEmpty() ? "unknown" : graphVersion.replaceAll("[^A-Za-z0-9_-]", "_"));
+    }
+}
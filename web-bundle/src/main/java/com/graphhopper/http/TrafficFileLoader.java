@@ -0,0 +1,84 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GraphHopper;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.util.Helper.UTF_CS;
+
+/**
+ * Loads the traffic speeds from a local file into the traffic overlay of GraphHopper and loads them again whenever
+ * the file is modified. The file replaces all traffic speeds, also the ones posted to the TrafficResource.
+ */
+public class TrafficFileLoader implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(TrafficFileLoader.class);
+    private final GraphHopper graphHopper;
+    private final File file;
+    private final long refreshSeconds;
+    private ScheduledExecutorService executor;
+    private long lastModified;
+
+    public TrafficFileLoader(GraphHopper graphHopper, File file, long refreshSeconds) {
+        if (refreshSeconds <= 0)
+            throw new IllegalArgumentException("traffic.refresh_seconds must be positive, but was: " + refreshSeconds);
+        this.graphHopper = graphHopper;
+        this.file = file;
+        this.refreshSeconds = refreshSeconds;
+    }
+
+    @Override
+    public void start() {
+        load();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "traffic-file-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::load, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    void load() {
+        long modified = file.lastModified();
+        if (modified == 0 || modified == lastModified)
+            return;
+        try (Reader reader = Files.newBufferedReader(file.toPath(), UTF_CS)) {
+            int edgeKeys = graphHopper.getTrafficOverlay().update(reader, true);
+            lastModified = modified;
+            logger.info("loaded traffic speeds of " + edgeKeys + " edge keys from " + file);
+        } catch (Exception ex) {
+            // keep the previous speeds, the file might be written right now
+            logger.warn("Cannot load traffic speeds from " + file + ", " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+}
@@ -5,7 +5,11 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
+import com.graphhopper.http.IsochroneCache;
+import com.graphhopper.http.MVTTileBuilder;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.GridTriangulator;
+import com.graphhopper.isochrone.algorithm.ReadableQuadEdge;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.ResponsePathSerializer;
@@ -23,6 +27,8 @@ import com.graphhopper.storage.GraphEdgeIdFinder;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.jersey.params.AbstractParam;
 import io.dropwizard.jersey.params.IntParam;
 import io.dropwizard.jersey.params.LongParam;
 import org.hibernate.validator.constraints.Range;
@@ -37,9 +43,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.*;
 import java.util.function.ToDoubleFunction;
 
 import static com.graphhopper.resources.IsochroneResource.ResponseType.geojson;
@@ -47,6 +51,7 @@ import static com.graphhopper.resources.RouteResource.errorIfLegacyParameters;
 import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
 import static com.graphhopper.routing.util.TraversalMode.EDGE_BASED;
 import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
+import static java.util.stream.Collectors.toList;
 
 @Path("isochrone")
 public class IsochroneResource {
@@ -55,17 +60,24 @@ public class IsochroneResource {
 
     private final GraphHopper graphHopper;
     private final Triangulator triangulator;
+    private final GridTriangulator gridTriangulator;
     private final ProfileResolver profileResolver;
+    private final IsochroneCache isochroneCache;
 
     @Inject
-    public IsochroneResource(GraphHopper graphHopper, Triangulator triangulator, ProfileResolver profileResolver) {
+    public IsochroneResource(GraphHopper graphHopper, Triangulator triangulator, GridTriangulator gridTriangulator,
+                             ProfileResolver profileResolver, IsochroneCache isochroneCache) {
         this.graphHopper = graphHopper;
         this.triangulator = triangulator;
+        this.gridTriangulator = gridTriangulator;
         this.profileResolver = profileResolver;
+        this.isochroneCache = isochroneCache;
     }
 
     public enum ResponseType {json, geojson}
 
+    public enum TriangulationType {delaunay, grid}
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response doGet(
@@ -73,14 +85,20 @@ public class IsochroneResource {
             @QueryParam("profile") String profileName,
             @QueryParam("buckets") @Range(min = 1, max = 20) @DefaultValue("1") IntParam nBuckets,
             @QueryParam("reverse_flow") @DefaultValue("false") boolean reverseFlow,
-            @QueryParam("point") @NotNull GHPointParam point,
+            @QueryParam("point") @NotNull List<GHPointParam> pointParams,
             @QueryParam("time_limit") @DefaultValue("600") LongParam timeLimitInSeconds,
             @QueryParam("distance_limit") @DefaultValue("-1") LongParam distanceLimitInMeter,
             @QueryParam("weight_limit") @DefaultValue("-1") LongParam weightLimit,
             @QueryParam("type") @DefaultValue("json") ResponseType respType,
             @QueryParam("tolerance") @DefaultValue("0") double toleranceInMeter,
-            @QueryParam("full_geometry") @DefaultValue("false") boolean fullGeometry) {
+            @QueryParam("full_geometry") @DefaultValue("false") boolean fullGeometry,
+            @QueryParam("partition") @DefaultValue("false") boolean partition,
+            @QueryParam("triangulation") @DefaultValue("delaunay") TriangulationType triangulationType,
+            @QueryParam("grid_resolution") @DefaultValue("-1") double gridResolutionInMeter) {
         StopWatch sw = new StopWatch().start();
+        if (pointParams.isEmpty())
+            throw new IllegalArgumentException("query param point must not be null");
+        List<GHPoint> points = pointParams.stream().map(AbstractParam::get).collect(toList());
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
         hintsMap.putObject(Parameters.CH.DISABLE, true);
@@ -100,89 +118,177 @@ public class IsochroneResource {
         BooleanEncodedValue inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileName));
         if (hintsMap.has(Parameters.Routing.BLOCK_AREA)) {
             GraphEdgeIdFinder.BlockArea blockArea = GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
-                    Collections.singletonList(point.get()), hintsMap, new FiniteWeightFilter(weighting));
+                    points, hintsMap, new FiniteWeightFilter(weighting));
             weighting = new BlockAreaWeighting(weighting, blockArea);
         }
-        Snap snap = locationIndex.findClosest(point.get().lat, point.get().lon, new DefaultSnapFilter(weighting, inSubnetworkEnc));
-        if (!snap.isValid())
-            throw new IllegalArgumentException("Point not found:" + point);
-        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        // with many points (e.g. all stores of a chain) a single search is much faster than one request per point
+        DefaultSnapFilter snapFilter = new DefaultSnapFilter(weighting, inSubnetworkEnc);
+        List<Snap> snaps = locationIndex.findClosest(points, i -> snapFilter);
+        for (int i = 0; i < snaps.size(); i++)
+            if (!snaps.get(i).isValid())
+                throw new IllegalArgumentException("Point not found:" + points.get(i));
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        final Weighting finalWeighting = weighting;
+        // the grid is much faster than the Delaunay triangulation, but the polygons are only as precise as its resolution
+        final Triangulator selectedTriangulator = triangulationType == TriangulationType.grid
+                ? (gridResolutionInMeter > 0 ? gridTriangulator.withResolution(gridResolutionInMeter) : gridTriangulator)
+                : triangulator;
+        // popular locations are requested again and again, so we skip the expensive triangulation for these
+        String cacheKey = createCacheKey(profileName, snaps, hintsMap);
+        List<JsonFeature> features = isochroneCache.get(MVTTileBuilder.getGraphVersion(graphHopper.getGraphHopperStorage()), cacheKey,
+                () -> createFeatures(selectedTriangulator, queryGraph, snaps, points, profile, finalWeighting, nBuckets.get(), reverseFlow,
+                        timeLimitInSeconds.get(), distanceLimitInMeter.get(), weightLimit.get(), respType, toleranceInMeter,
+                        fullGeometry, partition));
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+
+        sw.stop();
+        ObjectNode finalJson = null;
+        if (respType == geojson) {
+            json.put("type", "FeatureCollection");
+            json.putPOJO("features", features);
+            finalJson = json;
+        } else {
+            json.putPOJO("polygons", features);
+            final ObjectNode info = json.putObject("info");
+            info.putPOJO("copyrights", ResponsePathSerializer.COPYRIGHTS);
+            info.put("took", Math.round((float) sw.getMillis()));
+            finalJson = json;
+        }
+
+        logger.info("took: " + sw.getSeconds() + ", polygons: " + features.size());
+        return Response.ok(finalJson).header("X-GH-Took", "" + sw.getSeconds() * 1000).
+                build();
+    }
+
+    private List<JsonFeature> createFeatures(Triangulator triangulator, QueryGraph queryGraph, List<Snap> snaps,
+                                             List<GHPoint> points, Profile profile, Weighting weighting, int nBuckets,
+                                             boolean reverseFlow, long timeLimitInSeconds, long distanceLimitInMeter,
+                                             long weightLimit, ResponseType respType, double toleranceInMeter,
+                                             boolean fullGeometry, boolean partition) {
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
         ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
 
         double limit;
-        if (weightLimit.get() > 0) {
-            limit = weightLimit.get();
+        if (weightLimit > 0) {
+            limit = weightLimit;
             shortestPathTree.setWeightLimit(limit + Math.max(limit * 0.14, 2_000));
-        } else if (distanceLimitInMeter.get() > 0) {
-            limit = distanceLimitInMeter.get();
+        } else if (distanceLimitInMeter > 0) {
+            limit = distanceLimitInMeter;
             shortestPathTree.setDistanceLimit(limit + Math.max(limit * 0.14, 2_000));
         } else {
-            limit = timeLimitInSeconds.get() * 1000;
+            limit = timeLimitInSeconds * 1000;
             shortestPathTree.setTimeLimit(limit + Math.max(limit * 0.14, 200_000));
         }
         ArrayList<Double> zs = new ArrayList<>();
-        double delta = limit / nBuckets.get();
-        for (int i = 0; i < nBuckets.get(); i++) {
+        double delta = limit / nBuckets;
+        for (int i = 0; i < nBuckets; i++) {
             zs.add((i + 1) * delta);
         }
 
         ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
-        if (weightLimit.get() > 0) {
+        if (weightLimit > 0) {
             fz = l -> l.weight;
-        } else if (distanceLimitInMeter.get() > 0) {
+        } else if (distanceLimitInMeter > 0) {
             fz = l -> l.distance;
         } else {
             fz = l -> l.time;
         }
 
-        Triangulator.Result result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
+        Triangulator.Result result = triangulator.triangulate(snaps, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
 
         ContourBuilder contourBuilder = new ContourBuilder(result.triangulation);
-        ArrayList<Geometry> isochrones = new ArrayList<>();
-        for (Double z : zs) {
-            logger.info("Building contour z={}", z);
-            MultiPolygon isochrone = contourBuilder.computeIsoline(z, result.seedEdges);
-            if (!isochrone.isEmpty()) {
-                if (fullGeometry) {
-                    isochrones.add(isochrone);
-                } else {
-                    Polygon maxPolygon = heuristicallyFindMainConnectedComponent(isochrone, isochrone.getFactory().createPoint(new Coordinate(point.get().lon, point.get().lat)));
-                    isochrones.add(isochrone.getFactory().createPolygon(((LinearRing) maxPolygon.getExteriorRing())));
+        ArrayList<JsonFeature> features = new ArrayList<>();
+        if (partition) {
+            // every point gets the area that can be reached faster from it than from any other point
+            List<List<ReadableQuadEdge>> seedEdgesByOrigin = groupByOrigin(result.triangulation.getEdges(), points.size());
+            for (int bucket = 0; bucket < zs.size(); bucket++) {
+                for (int origin = 0; origin < points.size(); origin++) {
+                    if (seedEdgesByOrigin.get(origin).isEmpty())
+                        continue;
+                    final int o = origin;
+                    logger.info("Building contour z={}, origin={}", zs.get(bucket), origin);
+                    MultiPolygon isochrone = contourBuilder.computeIsoline(zs.get(bucket), seedEdgesByOrigin.get(origin), v -> Triangulator.getOrigin(v) == o);
+                    Geometry geometry = toGeometry(isochrone, points.get(origin), fullGeometry);
+                    if (geometry != null)
+                        features.add(createFeature(geometry, bucket, origin, respType));
                 }
             }
+        } else {
+            for (Double z : zs) {
+                logger.info("Building contour z={}", z);
+                MultiPolygon isochrone = contourBuilder.computeIsoline(z, result.seedEdges);
+                // the main component only makes sense around a single point
+                Geometry geometry = toGeometry(isochrone, points.get(0), fullGeometry || points.size() > 1);
+                if (geometry != null)
+                    features.add(createFeature(geometry, features.size(), -1, respType));
+            }
         }
-        ArrayList<JsonFeature> features = new ArrayList<>();
-        for (Geometry isochrone : isochrones) {
-            JsonFeature feature = new JsonFeature();
-            HashMap<String, Object> properties = new HashMap<>();
-            properties.put("bucket", features.size());
-            if (respType == geojson) {
-                properties.put("copyrights", ResponsePathSerializer.COPYRIGHTS);
+        logger.info("visited nodes:" + shortestPathTree.getVisitedNodes());
+        return features;
+    }
+
+    /**
+     * The snapped points are identified by the tower node or by the edge and the segment they were snapped to. Points
+     * snapped to the same segment share the key if their snapped positions differ by less than roughly ten meters. All
+     * other parameters, e.g. the profile, the limit and the number of buckets, are taken from the request hints.
+     */
+    static String createCacheKey(String profileName, List<Snap> snaps, PMap hints) {
+        StringBuilder sb = new StringBuilder(profileName);
+        for (Snap snap : snaps) {
+            sb.append('|');
+            if (snap.getSnappedPosition() == Snap.Position.TOWER) {
+                sb.append('n').append(snap.getClosestNode());
+            } else {
+                GHPoint snapped = snap.getSnappedPoint();
+                sb.append('e').append(snap.getClosestEdge().getEdge()).append(':').append(snap.getWayIndex()).
+                        append(':').append(Helper.round4(snapped.lat)).append(',').append(Helper.round4(snapped.lon));
             }
-            feature.setProperties(properties);
-            feature.setGeometry(isochrone);
-            features.add(feature);
         }
-        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        Map<String, Object> sortedHints = new TreeMap<>(hints.toMap());
+        // the snapped points are already part of the key
+        sortedHints.remove("point");
+        return sb.append('|').append(sortedHints).toString();
+    }
 
-        sw.stop();
-        ObjectNode finalJson = null;
+    private Geometry toGeometry(MultiPolygon isochrone, GHPoint point, boolean fullGeometry) {
+        if (isochrone.isEmpty())
+            return null;
+        if (fullGeometry)
+            return isochrone;
+        Polygon maxPolygon = heuristicallyFindMainConnectedComponent(isochrone, isochrone.getFactory().createPoint(new Coordinate(point.lon, point.lat)));
+        return isochrone.getFactory().createPolygon(((LinearRing) maxPolygon.getExteriorRing()));
+    }
+
+    private JsonFeature createFeature(Geometry isochrone, int bucket, int origin, ResponseType respType) {
+        JsonFeature feature = new JsonFeature();
+        HashMap<String, Object> properties = new HashMap<>();
+        properties.put("bucket", bucket);
+        if (origin >= 0)
+            properties.put("origin", origin);
         if (respType == geojson) {
-            json.put("type", "FeatureCollection");
-            json.putPOJO("features", features);
-            finalJson = json;
-        } else {
-            json.putPOJO("polygons", features);
-            final ObjectNode info = json.putObject("info");
-            info.putPOJO("copyrights", ResponsePathSerializer.COPYRIGHTS);
-            info.put("took", Math.round((float) sw.getMillis()));
-            finalJson = json;
+            properties.put("copyrights", ResponsePathSerializer.COPYRIGHTS);
         }
+        feature.setProperties(properties);
+        feature.setGeometry(isochrone);
+        return feature;
+    }
 
-        logger.info("took: " + sw.getSeconds() + ", visited nodes:" + shortestPathTree.getVisitedNodes());
-        return Response.ok(finalJson).header("X-GH-Took", "" + sw.getSeconds() * 1000).
-                build();
+    /**
+     * @return the edges of the triangulation for every origin that have at least one vertex reached from this origin
+     */
+    static List<List<ReadableQuadEdge>> groupByOrigin(Collection<ReadableQuadEdge> edges, int origins) {
+        List<List<ReadableQuadEdge>> result = new ArrayList<>(origins);
+        for (int i = 0; i < origins; i++)
+            result.add(new ArrayList<>());
+        for (ReadableQuadEdge edge : edges) {
+            int origOrigin = Triangulator.getOrigin(edge.orig());
+            int destOrigin = Triangulator.getOrigin(edge.dest());
+            if (origOrigin >= 0)
+                result.get(origOrigin).add(edge);
+            if (destOrigin >= 0 && destOrigin != origOrigin)
+                result.get(destOrigin).add(edge);
+        }
+        return result;
     }
 
     private Polygon heuristicallyFindMainConnectedComponent(MultiPolygon multiPolygon, Point point) {
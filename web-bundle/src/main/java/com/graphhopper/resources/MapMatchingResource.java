@@ -17,27 +17,38 @@
  */
 package com.graphhopper.resources;
 
+import com.carrotsearch.hppc.IntArrayList;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.ResponsePath;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.matching.*;
 import com.graphhopper.jackson.Gpx;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.util.*;
 import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
 
 import static com.graphhopper.util.Parameters.Details.PATH_DETAILS;
 import static com.graphhopper.util.Parameters.Routing.*;
@@ -56,11 +67,18 @@ public class MapMatchingResource {
     private final ProfileResolver profileResolver;
     private final TranslationMap trMap;
 
+    private final ExecutorService bulkExecutor;
+    private final int bulkThreads;
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+
     @Inject
-    public MapMatchingResource(GraphHopper graphHopper, ProfileResolver profileResolver, TranslationMap trMap) {
+    public MapMatchingResource(GraphHopper graphHopper, ProfileResolver profileResolver, TranslationMap trMap, GraphHopperConfig config,
+                               @Named("mapMatchingExecutor") ExecutorService bulkExecutor) {
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.trMap = trMap;
+        this.bulkExecutor = bulkExecutor;
+        this.bulkThreads = getBulkThreads(config);
     }
 
     @POST
@@ -98,18 +116,8 @@ public class MapMatchingResource {
         StopWatch sw = new StopWatch().start();
 
         PMap hints = createHintsMap(uriInfo.getQueryParameters());
-        // add values that are not in hints because they were explicitly listed in query params
-        hints.putObject(MAX_VISITED_NODES, maxVisitedNodes);
         String weightingVehicleLogStr = "weighting: " + hints.getString("weighting", "") + ", vehicle: " + hints.getString("vehicle", "");
-        if (Helper.isEmpty(profile)) {
-            // resolve profile and remove legacy vehicle/weighting parameters
-            // we need to explicitly disable CH here because map matching does not use it
-            PMap pMap = new PMap(hints).putObject(Parameters.CH.DISABLE, true);
-            profile = profileResolver.resolveProfile(pMap).getName();
-            removeLegacyParameters(hints);
-        }
-        hints.putObject("profile", profile);
-        errorIfLegacyParameters(hints);
+        profile = initHints(hints, profile, maxVisitedNodes);
 
         MapMatching matching = new MapMatching(graphHopper, hints);
         matching.setMeasurementErrorSigma(gpsAccuracy);
@@ -177,6 +185,162 @@ public class MapMatchingResource {
         }
     }
 
+    /**
+     * Matches many traces with one request. Every line of the request body is a JSON object like
+     * {"id": "my_trace", "points": [[lon, lat], [lon, lat], ...]}. The traces are matched in parallel and every
+     * result is written as a single line of JSON as soon as the trace is matched, so the results do not necessarily
+     * come in the order of the input. The index field of every result line is the position of the trace in the input.
+     * A line that cannot be parsed results in a line with only the index and a message, and the next line is matched.
+     */
+    @POST
+    @javax.ws.rs.Path("bulk")
+    @Consumes({"application/x-ndjson", MediaType.TEXT_PLAIN})
+    @Produces({"application/x-ndjson", MediaType.APPLICATION_JSON})
+    public Response matchBulk(
+            InputStream body,
+            @Context UriInfo uriInfo,
+            @QueryParam("elevation") @DefaultValue("false") boolean enableElevation,
+            @QueryParam("points_encoded") @DefaultValue("true") boolean pointsEncoded,
+            @QueryParam("profile") String profile,
+            @QueryParam("gps_accuracy") @DefaultValue("40") double gpsAccuracy,
+            @QueryParam(MAX_VISITED_NODES) @DefaultValue("3000") int maxVisitedNodes) {
+        PMap hints = createHintsMap(uriInfo.getQueryParameters());
+        String profileName = initHints(hints, profile, maxVisitedNodes);
+        BulkMapMatching bulkMatching = new BulkMapMatching(graphHopper, hints, bulkExecutor).
+                setMeasurementErrorSigma(gpsAccuracy).
+                setThreads(bulkThreads);
+
+        StreamingOutput out = output -> {
+            StopWatch sw = new StopWatch().start();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, Helper.UTF_CS));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS));
+            // the position in the input and the id of every trace that was passed to the bulk matching
+            IntArrayList inputIndexes = new IntArrayList();
+            List<String> ids = new ArrayList<>();
+            int[] inputLines = new int[1];
+            int[] errors = new int[1];
+            Iterator<List<Observation>> traces = new Iterator<List<Observation>>() {
+                BulkTrace next = findNext();
+
+                /**
+                 * Reads the lines until the next trace that can be parsed. For every line that cannot be parsed an
+                 * error line is written, so a single broken line does not abort the whole request.
+                 */
+                private BulkTrace findNext() {
+                    try {
+                        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                            if (line.trim().isEmpty())
+                                continue;
+                            int inputIndex = inputLines[0]++;
+                            try {
+                                BulkTrace trace = objectMapper.readValue(line, BulkTrace.class);
+                                if (trace.points == null)
+                                    throw new IllegalArgumentException("points are missing");
+                                inputIndexes.add(inputIndex);
+                                ids.add(trace.id);
+                                return trace;
+                            } catch (IOException | IllegalArgumentException ex) {
+                                errors[0]++;
+                                ObjectNode json = JsonNodeFactory.instance.objectNode();
+                                json.put("index", inputIndex);
+                                json.put("message", "Cannot parse trace " + inputIndex + ": " + ex.getMessage());
+                                writeLine(writer, json);
+                            }
+                        }
+                        return null;
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public List<Observation> next() {
+                    if (next == null)
+                        throw new NoSuchElementException();
+                    List<Observation> observations = next.points.stream().map(Observation::new).collect(Collectors.toList());
+                    next = findNext();
+                    return observations;
+                }
+            };
+            bulkMatching.match(traces, result -> {
+                ObjectNode json = JsonNodeFactory.instance.objectNode();
+                json.put("index", inputIndexes.get(result.getIndex()));
+                String id = ids.get(result.getIndex());
+                if (id != null)
+                    json.put("id", id);
+                if (result.hasError()) {
+                    errors[0]++;
+                    json.put("message", String.valueOf(result.getError().getMessage()));
+                } else {
+                    MatchResult matchResult = result.getMatchResult();
+                    json.put("distance", Helper.round(matchResult.getMatchLength(), 3));
+                    json.put("time", matchResult.getMatchMillis());
+                    json.put("original_distance", Helper.round(matchResult.getGpxEntriesLength(), 3));
+                    PointList points = matchResult.getMergedPath().calcPoints();
+                    json.putPOJO("points", pointsEncoded ? ResponsePathSerializer.encodePolyline(points, enableElevation, 1e5) : points.toLineString(enableElevation));
+                }
+                writeLine(writer, json);
+            });
+            writer.flush();
+            logger.info("bulk map matching, traces: " + inputLines[0] + ", errors: " + errors[0] + ", profile: " + profileName
+                    + ", took: " + sw.stop().getSeconds() + "s");
+        };
+        return Response.ok(out).type("application/x-ndjson").build();
+    }
+
+    private void writeLine(Writer writer, ObjectNode json) {
+        try {
+            writer.write(objectMapper.writeValueAsString(json));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @return the number of threads that match the traces of the bulk requests. They are shared by all requests.
+     */
+    public static int getBulkThreads(GraphHopperConfig config) {
+        int threads = config.getInt("map_matching.bulk_threads", Runtime.getRuntime().availableProcessors());
+        if (threads < 1)
+            throw new IllegalArgumentException("map_matching.bulk_threads must be positive, but was: " + threads);
+        return threads;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class BulkTrace {
+        @JsonProperty("id")
+        public String id;
+        @JsonProperty("points")
+        public List<GHPoint> points = new ArrayList<>();
+    }
+
+    /**
+     * Resolves the profile and adds the values that are not in the hints because they were explicitly listed in the
+     * query parameters.
+     *
+     * @return the name of the profile
+     */
+    private String initHints(PMap hints, String profile, int maxVisitedNodes) {
+        hints.putObject(MAX_VISITED_NODES, maxVisitedNodes);
+        if (Helper.isEmpty(profile)) {
+            // resolve profile and remove legacy vehicle/weighting parameters
+            // we need to explicitly disable CH here because map matching does not use it
+            PMap pMap = new PMap(hints).putObject(Parameters.CH.DISABLE, true);
+            profile = profileResolver.resolveProfile(pMap).getName();
+            removeLegacyParameters(hints);
+        }
+        hints.putObject("profile", profile);
+        errorIfLegacyParameters(hints);
+        return profile;
+    }
+
     private void removeLegacyParameters(PMap hints) {
         hints.remove("vehicle");
         hints.remove("weighting");
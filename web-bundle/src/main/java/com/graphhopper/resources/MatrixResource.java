@@ -0,0 +1,197 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.http.GHPointParam;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.routing.ManyToManyCH;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.jersey.params.AbstractParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.*;
+
+import static com.graphhopper.util.Parameters.Routing.SNAP_PREVENTION;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Calculates the weights, times and distances between many points with only |from_points| + |to_points| searches,
+ * see {@link ManyToManyCH}. The request and response format is the same as the one used by the
+ * GraphHopperMatrixWeb client, i.e. times are in seconds and distances in meters.
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    private final GraphHopper graphHopper;
+    private final long maxSize;
+
+    @Inject
+    public MatrixResource(GraphHopper graphHopper, GraphHopperConfig config) {
+        this.graphHopper = graphHopper;
+        this.maxSize = config.getLong("routing.matrix.max_size", 250_000);
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Request {
+        @JsonProperty("points")
+        public List<GHPoint> points = new ArrayList<>();
+        @JsonProperty("from_points")
+        public List<GHPoint> fromPoints = new ArrayList<>();
+        @JsonProperty("to_points")
+        public List<GHPoint> toPoints = new ArrayList<>();
+        @JsonProperty("out_arrays")
+        public List<String> outArrays = new ArrayList<>();
+        @JsonProperty("snap_preventions")
+        public List<String> snapPreventions = new ArrayList<>();
+        @JsonProperty("profile")
+        public String profile;
+        @JsonProperty("fail_fast")
+        public boolean failFast = true;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doGet(
+            @QueryParam("point") List<GHPointParam> pointParams,
+            @QueryParam("from_point") List<GHPointParam> fromPointParams,
+            @QueryParam("to_point") List<GHPointParam> toPointParams,
+            @QueryParam("out_array") List<String> outArrays,
+            @QueryParam(SNAP_PREVENTION) List<String> snapPreventions,
+            @QueryParam("profile") String profileName,
+            @QueryParam("fail_fast") @DefaultValue("true") boolean failFast) {
+        Request request = new Request();
+        request.points = pointParams.stream().map(AbstractParam::get).collect(toList());
+        request.fromPoints = fromPointParams.stream().map(AbstractParam::get).collect(toList());
+        request.toPoints = toPointParams.stream().map(AbstractParam::get).collect(toList());
+        request.outArrays = outArrays;
+        request.snapPreventions = snapPreventions;
+        request.profile = profileName;
+        request.failFast = failFast;
+        return doPost(request);
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull Request request) {
+        StopWatch sw = new StopWatch().start();
+        if (Helper.isEmpty(request.profile))
+            throw new IllegalArgumentException("You need to specify a profile to calculate a matrix, see docs/core/profiles.md");
+        List<GHPoint> fromPoints = request.fromPoints;
+        List<GHPoint> toPoints = request.toPoints;
+        if (!request.points.isEmpty()) {
+            if (!fromPoints.isEmpty() || !toPoints.isEmpty())
+                throw new IllegalArgumentException("Either use points or from_points/to_points, but not both");
+            fromPoints = request.points;
+            toPoints = request.points;
+        }
+        if ((long) fromPoints.size() * toPoints.size() > maxSize)
+            throw new IllegalArgumentException("Too many points: the matrix would have " + fromPoints.size() + " x "
+                    + toPoints.size() + " entries, but the maximum is " + maxSize + ", see routing.matrix.max_size");
+        Set<String> outArrays = request.outArrays.isEmpty() ? Collections.singleton("weights") : new HashSet<>(request.outArrays);
+        for (String outArray : outArrays)
+            if (!Arrays.asList("weights", "times", "distances").contains(outArray))
+                throw new IllegalArgumentException("Unknown out_array '" + outArray + "', use weights, times or distances");
+
+        ManyToManyCH.Result result = graphHopper.matrix(request.profile, fromPoints, toPoints, request.snapPreventions);
+
+        List<int[]> disconnected = new ArrayList<>();
+        for (int i = 0; i < result.getSources(); i++)
+            for (int j = 0; j < result.getTargets(); j++)
+                if (!result.isConnected(i, j))
+                    disconnected.add(new int[]{i, j});
+        if (request.failFast && !disconnected.isEmpty()) {
+            Map<String, Object> details = new HashMap<>(2);
+            details.put("from", disconnected.get(0)[0]);
+            details.put("to", disconnected.get(0)[1]);
+            throw new ConnectionNotFoundException("Connection between locations not found: " + disconnected.size()
+                    + " disconnected point pairs, use fail_fast=false to ignore them", details);
+        }
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (outArrays.contains("weights")) {
+            ArrayNode weights = json.putArray("weights");
+            for (int i = 0; i < result.getSources(); i++) {
+                ArrayNode row = weights.addArray();
+                for (int j = 0; j < result.getTargets(); j++) {
+                    if (result.isConnected(i, j))
+                        row.add(Helper.round(result.getWeight(i, j), 3));
+                    else
+                        row.addNull();
+                }
+            }
+        }
+        if (outArrays.contains("times")) {
+            ArrayNode times = json.putArray("times");
+            for (int i = 0; i < result.getSources(); i++) {
+                ArrayNode row = times.addArray();
+                for (int j = 0; j < result.getTargets(); j++) {
+                    if (result.isConnected(i, j))
+                        row.add(Math.round(result.getTime(i, j) / 1000d));
+                    else
+                        row.addNull();
+                }
+            }
+        }
+        if (outArrays.contains("distances")) {
+            ArrayNode distances = json.putArray("distances");
+            for (int i = 0; i < result.getSources(); i++) {
+                ArrayNode row = distances.addArray();
+                for (int j = 0; j < result.getTargets(); j++) {
+                    if (result.isConnected(i, j))
+                        row.add(Math.round(result.getDistance(i, j)));
+                    else
+                        row.addNull();
+                }
+            }
+        }
+        if (!disconnected.isEmpty()) {
+            ObjectNode hint = json.putArray("hints").addObject();
+            hint.put("message", "Connection between locations not found");
+            ArrayNode pointPairs = hint.putArray("point_pairs");
+            for (int[] pair : disconnected)
+                pointPairs.addArray().add(pair[0]).add(pair[1]);
+        }
+
+        sw.stop();
+        final ObjectNode info = json.putObject("info");
+        info.putPOJO("copyrights", ResponsePathSerializer.COPYRIGHTS);
+        info.put("took", Math.round(sw.getMillis()));
+        logger.info("from_points: " + fromPoints.size() + ", to_points: " + toPoints.size() + ", profile: " + request.profile
+                + ", took: " + sw.getSeconds() + ", visited nodes: " + result.getVisitedNodes());
+        return Response.ok(json).header("X-GH-Took", "" + sw.getSeconds() * 1000).build();
+    }
+}
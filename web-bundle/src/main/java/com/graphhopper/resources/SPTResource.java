@@ -1,5 +1,6 @@
 package com.graphhopper.resources;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
@@ -20,6 +21,7 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.jersey.params.AbstractParam;
 import io.dropwizard.jersey.params.LongParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,16 +33,14 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.io.*;
 import java.util.*;
 
 import static com.graphhopper.resources.RouteResource.errorIfLegacyParameters;
 import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
 import static com.graphhopper.routing.util.TraversalMode.EDGE_BASED;
 import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
+import static java.util.stream.Collectors.toList;
 
 /**
  * This resource provides the entire shortest path tree as response. In a simple CSV format discussed at #1577.
@@ -50,14 +50,6 @@ public class SPTResource {
 
     private static final Logger logger = LoggerFactory.getLogger(SPTResource.class);
 
-    public static class IsoLabelWithCoordinates {
-        public int nodeId = -1;
-        public int edgeId, prevEdgeId, prevNodeId = -1;
-        public int timeMillis, prevTimeMillis;
-        public int distance, prevDistance;
-        public GHPoint coordinate, prevCoordinate;
-    }
-
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final EncodingManager encodingManager;
@@ -77,11 +69,14 @@ public class SPTResource {
             @Context UriInfo uriInfo,
             @QueryParam("profile") String profileName,
             @QueryParam("reverse_flow") @DefaultValue("false") boolean reverseFlow,
-            @QueryParam("point") @NotNull GHPointParam point,
+            @QueryParam("point") @NotNull List<GHPointParam> pointParams,
             @QueryParam("columns") String columnsParam,
             @QueryParam("time_limit") @DefaultValue("600") LongParam timeLimitInSeconds,
             @QueryParam("distance_limit") @DefaultValue("-1") LongParam distanceInMeter) {
         StopWatch sw = new StopWatch().start();
+        if (pointParams.isEmpty())
+            throw new IllegalArgumentException("query param point must not be null");
+        List<GHPoint> points = pointParams.stream().map(AbstractParam::get).collect(toList());
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
         hintsMap.putObject(Parameters.CH.DISABLE, true);
@@ -101,13 +96,18 @@ public class SPTResource {
         BooleanEncodedValue inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileName));
         if (hintsMap.has(Parameters.Routing.BLOCK_AREA)) {
             GraphEdgeIdFinder.BlockArea blockArea = GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
-                    Collections.singletonList(point.get()), hintsMap, new FiniteWeightFilter(weighting));
+                    points, hintsMap, new FiniteWeightFilter(weighting));
             weighting = new BlockAreaWeighting(weighting, blockArea);
         }
-        Snap snap = locationIndex.findClosest(point.get().lat, point.get().lon, new DefaultSnapFilter(weighting, inSubnetworkEnc));
-        if (!snap.isValid())
-            throw new IllegalArgumentException("Point not found:" + point);
-        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        DefaultSnapFilter snapFilter = new DefaultSnapFilter(weighting, inSubnetworkEnc);
+        List<Snap> snaps = locationIndex.findClosest(points, i -> snapFilter);
+        for (int i = 0; i < snaps.size(); i++)
+            if (!snaps.get(i).isValid())
+                throw new IllegalArgumentException("Point not found:" + points.get(i));
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        IntArrayList startNodes = new IntArrayList(snaps.size());
+        for (Snap snap : snaps)
+            startNodes.add(snap.getClosestNode());
         NodeAccess nodeAccess = queryGraph.getNodeAccess();
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
         ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
@@ -135,6 +135,7 @@ public class SPTResource {
                 pathDetails.put(col, encodingManager.getEncodedValue(col, EncodedValue.class));
         }
 
+        // the rows are written while the tree is explored, so neither the labels nor the rows are collected in memory
         StreamingOutput out = output -> {
             try (Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS))) {
                 StringBuilder sb = new StringBuilder();
@@ -145,119 +146,105 @@ public class SPTResource {
                 }
                 sb.append(LINE_SEP);
                 writer.write(sb.toString());
-                shortestPathTree.search(snap.getClosestNode(), l -> {
-                    IsoLabelWithCoordinates label = isoLabelWithCoordinates(nodeAccess, l);
+                shortestPathTree.searchLabelIds(startNodes, id -> {
                     sb.setLength(0);
-                    for (int colIndex = 0; colIndex < columns.size(); colIndex++) {
-                        String col = columns.get(colIndex);
-                        if (colIndex > 0)
-                            sb.append(COL_SEP);
-
-                        switch (col) {
-                            case "node_id":
-                                sb.append(label.nodeId);
-                                continue;
-                            case "prev_node_id":
-                                sb.append(label.prevNodeId);
-                                continue;
-                            case "edge_id":
-                                sb.append(label.edgeId);
-                                continue;
-                            case "prev_edge_id":
-                                sb.append(label.prevEdgeId);
-                                continue;
-                            case "distance":
-                                sb.append(label.distance);
-                                continue;
-                            case "prev_distance":
-                                sb.append(label.prevCoordinate == null ? 0 : label.prevDistance);
-                                continue;
-                            case "time":
-                                sb.append(label.timeMillis);
-                                continue;
-                            case "prev_time":
-                                sb.append(label.prevCoordinate == null ? 0 : label.prevTimeMillis);
-                                continue;
-                            case "longitude":
-                                sb.append(Helper.round6(label.coordinate.lon));
-                                continue;
-                            case "prev_longitude":
-                                sb.append(label.prevCoordinate == null ? null : Helper.round6(label.prevCoordinate.lon));
-                                continue;
-                            case "latitude":
-                                sb.append(Helper.round6(label.coordinate.lat));
-                                continue;
-                            case "prev_latitude":
-                                sb.append(label.prevCoordinate == null ? null : Helper.round6(label.prevCoordinate.lat));
-                                continue;
-                        }
-
-                        if (!EdgeIterator.Edge.isValid(label.edgeId))
-                            continue;
-
-                        EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edgeId, label.nodeId);
-                        if (edge == null)
-                            continue;
-
-                        if (col.equals(Parameters.Details.STREET_NAME)) {
-                            sb.append(edge.getName().replaceAll(",", ""));
-                            continue;
-                        }
-
-                        EncodedValue ev = pathDetails.get(col);
-                        if (ev instanceof DecimalEncodedValue) {
-                            DecimalEncodedValue dev = (DecimalEncodedValue) ev;
-                            sb.append(reverseFlow ? edge.getReverse(dev) : edge.get(dev));
-                        } else if (ev instanceof EnumEncodedValue) {
-                            EnumEncodedValue eev = (EnumEncodedValue) ev;
-                            sb.append(reverseFlow ? edge.getReverse(eev) : edge.get(eev));
-                        } else if (ev instanceof BooleanEncodedValue) {
-                            BooleanEncodedValue eev = (BooleanEncodedValue) ev;
-                            sb.append(reverseFlow ? edge.getReverse(eev) : edge.get(eev));
-                        } else if (ev instanceof IntEncodedValue) {
-                            IntEncodedValue eev = (IntEncodedValue) ev;
-                            sb.append(reverseFlow ? edge.getReverse(eev) : edge.get(eev));
-                        } else {
-                            throw new IllegalArgumentException("Unknown property " + col);
-                        }
-                    }
+                    appendRow(sb, shortestPathTree, id, columns, pathDetails, queryGraph, nodeAccess, reverseFlow);
                     sb.append(LINE_SEP);
                     try {
                         writer.write(sb.toString());
                     } catch (IOException ex) {
-                        throw new RuntimeException(ex);
+                        throw new UncheckedIOException(ex);
                     }
                 });
 
                 logger.info("took: " + sw.stop().getSeconds() + ", visited nodes:" + shortestPathTree.getVisitedNodes() + ", " + uriInfo.getQueryParameters());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
             }
         };
         // Give media type explicitly since we are annotating CSV and JSON, because error messages are JSON.
         return Response.ok(out).type("text/csv").build();
     }
 
-    private IsoLabelWithCoordinates isoLabelWithCoordinates(NodeAccess na, ShortestPathTree.IsoLabel label) {
-        double lat = na.getLat(label.node);
-        double lon = na.getLon(label.node);
-        IsoLabelWithCoordinates isoLabelWC = new IsoLabelWithCoordinates();
-        isoLabelWC.nodeId = label.node;
-        isoLabelWC.coordinate = new GHPoint(lat, lon);
-        isoLabelWC.timeMillis = Math.round(label.time);
-        isoLabelWC.distance = (int) Math.round(label.distance);
-        isoLabelWC.edgeId = label.edge;
-        if (label.parent != null) {
-            ShortestPathTree.IsoLabel prevLabel = label.parent;
-            int prevNodeId = prevLabel.node;
-            double prevLat = na.getLat(prevNodeId);
-            double prevLon = na.getLon(prevNodeId);
-            isoLabelWC.prevNodeId = prevNodeId;
-            isoLabelWC.prevEdgeId = prevLabel.edge;
-            isoLabelWC.prevCoordinate = new GHPoint(prevLat, prevLon);
-            isoLabelWC.prevDistance = (int) Math.round(prevLabel.distance);
-            isoLabelWC.prevTimeMillis = Math.round(prevLabel.time);
+    private static void appendRow(StringBuilder sb, ShortestPathTree spt, int id, List<String> columns, Map<String, EncodedValue> pathDetails,
+                                  QueryGraph queryGraph, NodeAccess na, boolean reverseFlow) {
+        final String COL_SEP = ",";
+        int node = spt.getNode(id);
+        int edgeId = spt.getEdge(id);
+        int parent = spt.getParent(id);
+        for (int colIndex = 0; colIndex < columns.size(); colIndex++) {
+            String col = columns.get(colIndex);
+            if (colIndex > 0)
+                sb.append(COL_SEP);
+
+            switch (col) {
+                case "node_id":
+                    sb.append(node);
+                    continue;
+                case "prev_node_id":
+                    sb.append(parent < 0 ? -1 : spt.getNode(parent));
+                    continue;
+                case "edge_id":
+                    sb.append(edgeId);
+                    continue;
+                case "prev_edge_id":
+                    sb.append(parent < 0 ? 0 : spt.getEdge(parent));
+                    continue;
+                case "origin":
+                    sb.append(spt.getOrigin(id));
+                    continue;
+                case "distance":
+                    sb.append(Math.round(spt.getDistance(id)));
+                    continue;
+                case "prev_distance":
+                    sb.append(parent < 0 ? 0 : Math.round(spt.getDistance(parent)));
+                    continue;
+                case "time":
+                    sb.append(spt.getTime(id));
+                    continue;
+                case "prev_time":
+                    sb.append(parent < 0 ? 0 : spt.getTime(parent));
+                    continue;
+                case "longitude":
+                    sb.append(Helper.round6(na.getLon(node)));
+                    continue;
+                case "prev_longitude":
+                    sb.append(parent < 0 ? "null" : Helper.round6(na.getLon(spt.getNode(parent))));
+                    continue;
+                case "latitude":
+                    sb.append(Helper.round6(na.getLat(node)));
+                    continue;
+                case "prev_latitude":
+                    sb.append(parent < 0 ? "null" : Helper.round6(na.getLat(spt.getNode(parent))));
+                    continue;
+            }
+
+            if (!EdgeIterator.Edge.isValid(edgeId))
+                continue;
+
+            EdgeIteratorState edge = queryGraph.getEdgeIteratorState(edgeId, node);
+            if (edge == null)
+                continue;
+
+            if (col.equals(Parameters.Details.STREET_NAME)) {
+                sb.append(edge.getName().replaceAll(",", ""));
+                continue;
+            }
+
+            EncodedValue ev = pathDetails.get(col);
+            if (ev instanceof DecimalEncodedValue) {
+                DecimalEncodedValue dev = (DecimalEncodedValue) ev;
+                sb.append(reverseFlow ? edge.getReverse(dev) : edge.get(dev));
+            } else if (ev instanceof EnumEncodedValue) {
+                EnumEncodedValue eev = (EnumEncodedValue) ev;
+                sb.append(reverseFlow ? edge.getReverse(eev) : edge.get(eev));
+            } else if (ev instanceof BooleanEncodedValue) {
+                BooleanEncodedValue eev = (BooleanEncodedValue) ev;
+                sb.append(reverseFlow ? edge.getReverse(eev) : edge.get(eev));
+            } else if (ev instanceof IntEncodedValue) {
+                IntEncodedValue eev = (IntEncodedValue) ev;
+                sb.append(reverseFlow ? edge.getReverse(eev) : edge.get(eev));
+            } else {
+                throw new IllegalArgumentException("Unknown property " + col);
+            }
         }
-        return isoLabelWC;
     }
 }
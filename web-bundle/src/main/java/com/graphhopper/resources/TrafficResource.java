@@ -0,0 +1,90 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.weighting.TrafficOverlay;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import static com.graphhopper.util.Helper.UTF_CS;
+
+/**
+ * Updates the traffic speeds that are used for flexible and hybrid routing requests without importing the graph
+ * again. The speeds are posted as lines like <code>edge_id,speed[,forward|backward]</code>, see
+ * {@link TrafficOverlay#update(java.io.Reader, boolean)}.
+ */
+@Path("traffic")
+@Produces(MediaType.APPLICATION_JSON)
+public class TrafficResource {
+
+    private final GraphHopper graphHopper;
+
+    @Inject
+    public TrafficResource(GraphHopper graphHopper) {
+        this.graphHopper = graphHopper;
+    }
+
+    public static class Info {
+        public int edge_keys;
+        public String date;
+        public Integer updated_edge_keys;
+        public Long took;
+    }
+
+    @GET
+    public Info doGet() {
+        return toInfo(graphHopper.getTrafficOverlay().getSpeeds());
+    }
+
+    /**
+     * @param replace true if all traffic speeds not contained in the posted ones should be removed
+     */
+    @POST
+    @Consumes({MediaType.TEXT_PLAIN, "text/csv"})
+    public Info doPost(InputStream speeds, @QueryParam("replace") @DefaultValue("false") boolean replace) throws IOException {
+        StopWatch sw = new StopWatch().start();
+        TrafficOverlay overlay = graphHopper.getTrafficOverlay();
+        int updated = overlay.update(new InputStreamReader(speeds, UTF_CS), replace);
+        Info info = toInfo(overlay.getSpeeds());
+        info.updated_edge_keys = updated;
+        info.took = sw.stop().getMillis();
+        return info;
+    }
+
+    @DELETE
+    public Info doDelete() {
+        TrafficOverlay overlay = graphHopper.getTrafficOverlay();
+        overlay.clear();
+        return toInfo(overlay.getSpeeds());
+    }
+
+    private static Info toInfo(TrafficOverlay.Speeds speeds) {
+        Info info = new Info();
+        info.edge_keys = speeds.size();
+        info.date = speeds.getDate() == null ? null : Helper.createFormatter().format(speeds.getDate());
+        return info;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.util.JsonFeature;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsochroneCacheTest {
+
+    @Test
+    public void testCache() {
+        IsochroneCache cache = new IsochroneCache(2, 600);
+        AtomicInteger created = new AtomicInteger();
+        Supplier<List<JsonFeature>> creator = () -> {
+            JsonFeature feature = new JsonFeature();
+            feature.setId("" + created.incrementAndGet());
+            return Collections.singletonList(feature);
+        };
+        assertEquals("1", cache.get("v1", "a", creator).get(0).getId());
+        assertEquals("1", cache.get("v1", "a", creator).get(0).getId());
+        assertEquals("2", cache.get("v1", "b", creator).get(0).getId());
+        assertEquals("2", cache.get("v1", "b", creator).get(0).getId());
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getHitCount());
+        // a new graph version invalidates all results
+        assertEquals("3", cache.get("v2", "a", creator).get(0).getId());
+        assertEquals(1, cache.size());
+        assertEquals(3, created.get());
+    }
+
+    @Test
+    public void testGraphChangesWhileCreating() {
+        IsochroneCache cache = new IsochroneCache(10, 600);
+        List<JsonFeature> oldFeatures = Collections.singletonList(new JsonFeature());
+        List<JsonFeature> newFeatures = Collections.singletonList(new JsonFeature());
+        // another request for the new graph version arrives while the result for the old version is created
+        assertSame(oldFeatures, cache.get("v1", "a", () -> {
+            assertSame(newFeatures, cache.get("v2", "a", () -> newFeatures));
+            return oldFeatures;
+        }));
+        // the late result for the old version must not replace the one for the new version
+        assertSame(newFeatures, cache.get("v2", "a", () -> fail("the result should be cached")));
+    }
+
+    @Test
+    public void testDisabled() {
+        IsochroneCache cache = new IsochroneCache(0, 600);
+        assertFalse(cache.isEnabled());
+        AtomicInteger created = new AtomicInteger();
+        Supplier<List<JsonFeature>> creator = () -> {
+            created.incrementAndGet();
+            return Collections.emptyList();
+        };
+        cache.get("v1", "a", creator);
+        cache.get("v1", "a", creator);
+        assertEquals(2, created.get());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MVTArchiveTest {
+    private static final File DIR = new File("./target/mvt-archive-test");
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(DIR);
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        DIR.mkdirs();
+        File file = new File(DIR, "tiles.gh-mvt");
+        MVTArchiveWriter writer = new MVTArchiveWriter(file, "2021-03-01", Arrays.asList("max_speed", "road_class"), 12, 14);
+        // the order does not matter
+        writer.add(14, 8000, 6000, new byte[]{1, 2, 3});
+        writer.add(12, 2000, 1500, new byte[]{4});
+        writer.add(14, 7999, 6001, new byte[]{5, 6});
+        writer.add(13, 4000, 3000, new byte[]{7, 8, 9, 10});
+        assertThrows(IllegalArgumentException.class, () -> writer.add(15, 16000, 12000, new byte[]{1}));
+        writer.finish();
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        try (MVTArchive archive = MVTArchive.open(file)) {
+            assertEquals("2021-03-01", archive.getGraphVersion());
+            assertEquals(Arrays.asList("max_speed", "road_class"), archive.getDetails());
+            assertEquals(12, archive.getMinZoom());
+            assertEquals(14, archive.getMaxZoom());
+            assertEquals(4, archive.getTiles());
+            assertArrayEquals(new byte[]{1, 2, 3}, toBytes(archive.getTile(14, 8000, 6000)));
+            assertArrayEquals(new byte[]{4}, toBytes(archive.getTile(12, 2000, 1500)));
+            assertArrayEquals(new byte[]{5, 6}, toBytes(archive.getTile(14, 7999, 6001)));
+            assertArrayEquals(new byte[]{7, 8, 9, 10}, toBytes(archive.getTile(13, 4000, 3000)));
+            // every call returns a new view
+            assertArrayEquals(new byte[]{1, 2, 3}, toBytes(archive.getTile(14, 8000, 6000)));
+            // missing tiles are empty
+            assertArrayEquals(MVTTileBuilder.createEmptyTile(), toBytes(archive.getTile(14, 8000, 6001)));
+            // ... unless the zoom level is not contained in the archive
+            assertNull(archive.getTile(15, 16000, 12000));
+        }
+    }
+
+    @Test
+    public void testTileCacheUsesMatchingArchive() throws IOException {
+        DIR.mkdirs();
+        File file = new File(DIR, "tiles.gh-mvt");
+        MVTArchiveWriter writer = new MVTArchiveWriter(file, "v1", Collections.singletonList("road_class"), 10, 10);
+        writer.add(10, 500, 400, new byte[]{1});
+        writer.finish();
+        try (MVTArchive archive = MVTArchive.open(file)) {
+            MVTTileCache cache = new MVTTileCache(1 << 20, null).setArchive(archive);
+            assertArrayEquals(new byte[]{1}, toBytes(cache.getArchivedTile("v1", 10, 500, 400, Collections.singletonList("road_class"))));
+            assertNull(cache.getArchivedTile("v1", 10, 500, 400, Collections.emptyList()));
+            assertNull(cache.getArchivedTile("v2", 10, 500, 400, Collections.singletonList("road_class")));
+            assertNull(cache.getArchivedTile("v1", 11, 1000, 800, Collections.singletonList("road_class")));
+        }
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
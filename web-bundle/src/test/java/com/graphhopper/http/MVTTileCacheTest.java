@@ -0,0 +1,95 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MVTTileCacheTest {
+    private static final File DIR = new File("./target/mvt-tile-cache-test");
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(DIR);
+    }
+
+    @Test
+    public void testMemoryCache() {
+        MVTTileCache cache = new MVTTileCache(1 << 20, null);
+        AtomicInteger created = new AtomicInteger();
+        Supplier<byte[]> creator = () -> new byte[]{(byte) created.incrementAndGet()};
+        assertArrayEquals(new byte[]{1}, cache.get("v1", 14, 1, 2, Collections.emptyList(), creator));
+        assertArrayEquals(new byte[]{1}, cache.get("v1", 14, 1, 2, Collections.emptyList(), creator));
+        // the details are part of the key
+        assertArrayEquals(new byte[]{2}, cache.get("v1", 14, 1, 2, Arrays.asList("max_speed", "road_class"), creator));
+        assertArrayEquals(new byte[]{2}, cache.get("v1", 14, 1, 2, Arrays.asList("max_speed", "road_class"), creator));
+        assertArrayEquals(new byte[]{3}, cache.get("v1", 14, 2, 1, Collections.emptyList(), creator));
+        // a new graph version invalidates all tiles
+        assertArrayEquals(new byte[]{4}, cache.get("v2", 14, 1, 2, Collections.emptyList(), creator));
+        assertEquals(4, created.get());
+    }
+
+    @Test
+    public void testDiskCache() {
+        AtomicInteger created = new AtomicInteger();
+        Supplier<byte[]> creator = () -> new byte[]{(byte) created.incrementAndGet()};
+        MVTTileCache cache = new MVTTileCache(0, DIR);
+        assertArrayEquals(new byte[]{1}, cache.get("2021-03-01T10:00:00Z", 15, 3, 4, Collections.singletonList("surface"), creator));
+        assertArrayEquals(new byte[]{1}, cache.get("2021-03-01T10:00:00Z", 15, 3, 4, Collections.singletonList("surface"), creator));
+        assertEquals(1, created.get());
+
+        // the tiles on disk survive a restart
+        cache = new MVTTileCache(0, DIR);
+        assertArrayEquals(new byte[]{1}, cache.get("2021-03-01T10:00:00Z", 15, 3, 4, Collections.singletonList("surface"), creator));
+        assertEquals(1, created.get());
+
+        // ... but not a new graph
+        cache = new MVTTileCache(0, DIR);
+        assertArrayEquals(new byte[]{2}, cache.get("2021-03-02T10:00:00Z", 15, 3, 4, Collections.singletonList("surface"), creator));
+        assertEquals(1, DIR.listFiles().length);
+    }
+
+    @Test
+    public void testDiskCacheKeepsUnrelatedFiles() throws IOException {
+        Supplier<byte[]> creator = () -> new byte[]{1};
+        MVTTileCache cache = new MVTTileCache(0, DIR);
+        cache.get("v1", 15, 3, 4, Collections.emptyList(), creator);
+        File otherFile = new File(DIR, "notes.txt");
+        Files.write(otherFile.toPath(), new byte[]{42});
+        File otherDir = new File(DIR, "other");
+        assertTrue(otherDir.mkdir());
+
+        cache.get("v2", 15, 3, 4, Collections.emptyList(), creator);
+        assertTrue(otherFile.exists());
+        assertTrue(otherDir.exists());
+        assertEquals(3, DIR.listFiles().length);
+    }
+}
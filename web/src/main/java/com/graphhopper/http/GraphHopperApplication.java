@@ -19,6 +19,7 @@ package com.graphhopper.http;
 
 import com.graphhopper.http.cli.ImportCommand;
 import com.graphhopper.http.cli.MatchCommand;
+import com.graphhopper.http.cli.TilesCommand;
 import com.graphhopper.http.resources.RootResource;
 import com.graphhopper.navigation.NavigateResource;
 import io.dropwizard.Application;
@@ -41,6 +42,7 @@ public final class GraphHopperApplication extends Application<GraphHopperServerC
         bootstrap.addBundle(new RealtimeBundle());
         bootstrap.addCommand(new ImportCommand());
         bootstrap.addCommand(new MatchCommand());
+        bootstrap.addCommand(new TilesCommand());
         bootstrap.addBundle(new AssetsBundle("/com/graphhopper/maps/", "/maps/", "index.html"));
         // see this link even though its outdated?! // https://www.webjars.org/documentation#dropwizard
         bootstrap.addBundle(new AssetsBundle("/META-INF/resources/webjars", "/webjars/", null, "webjars"));
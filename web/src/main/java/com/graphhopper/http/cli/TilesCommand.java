@@ -0,0 +1,92 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http.cli;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.GraphHopperManaged;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.MVTArchiveWriter;
+import com.graphhopper.http.MVTTileBuilder;
+import com.graphhopper.util.StopWatch;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.io.File;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Creates all vector tiles of the road network for the given zoom levels and writes them into an archive that can be
+ * served by the /mvt end point, see mvt.archive in config-example.yml
+ */
+public class TilesCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    public TilesCommand() {
+        super("tiles", "creates an archive with the vector tiles of the road network for the /mvt end point");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--output")
+                .type(File.class)
+                .required(true)
+                .help("the archive file to write");
+        subparser.addArgument("--min_zoom")
+                .type(Integer.class)
+                .setDefault(10);
+        subparser.addArgument("--max_zoom")
+                .type(Integer.class)
+                .setDefault(16);
+        subparser.addArgument("--details")
+                .type(String.class)
+                .setDefault("")
+                .help("comma separated list of encoded values that are added to every road, e.g. road_class,max_speed");
+        subparser.addArgument("--threads")
+                .type(Integer.class)
+                .setDefault(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace args, GraphHopperServerConfiguration configuration) {
+        final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), bootstrap.getObjectMapper());
+        GraphHopper hopper = graphHopperManaged.getGraphHopper();
+        hopper.importOrLoad();
+        try {
+            // the details must be sorted like in the MVTResource, otherwise the archive is not used
+            Set<String> details = new TreeSet<>();
+            for (String detail : args.getString("details").split(",")) {
+                if (detail.trim().isEmpty())
+                    continue;
+                if (!hopper.getEncodingManager().hasEncodedValue(detail.trim()))
+                    throw new IllegalArgumentException("Unknown encoded value: " + detail);
+                details.add(detail.trim());
+            }
+            StopWatch sw = new StopWatch().start();
+            MVTArchiveWriter writer = new MVTArchiveWriter(args.get("output"), MVTTileBuilder.getGraphVersion(hopper.getGraphHopperStorage()),
+                    details, args.getInt("min_zoom"), args.getInt("max_zoom"));
+            int tiles = writer.writeTiles(new MVTTileBuilder(hopper), hopper.getGraphHopperStorage().getBounds(), args.getInt("threads"));
+            System.out.println("wrote " + tiles + " tiles to " + args.get("output") + ", took: " + sw.stop().getSeconds() + "s");
+        } finally {
+            hopper.close();
+        }
+    }
+}
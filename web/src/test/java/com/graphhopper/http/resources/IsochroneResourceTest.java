@@ -116,6 +116,119 @@ public class IsochroneResourceTest {
         assertFalse(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
     }
 
+    @Test
+    public void requestGrid() {
+        Response rsp = clientTarget(app, "/isochrone")
+                .queryParam("profile", "fast_car")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("time_limit", 5 * 60)
+                .queryParam("buckets", 2)
+                .queryParam("type", "geojson")
+                .queryParam("triangulation", "grid")
+                .queryParam("grid_resolution", 50)
+                .request().buildGet().invoke();
+        assertEquals(200, rsp.getStatus());
+        JsonFeatureCollection featureCollection = rsp.readEntity(JsonFeatureCollection.class);
+
+        // the polygons are coarser, but similar to the ones of the Delaunay triangulation, see requestByTimeLimit
+        assertEquals(2, featureCollection.getFeatures().size());
+        Geometry polygon0 = featureCollection.getFeatures().get(0).getGeometry();
+        Geometry polygon1 = featureCollection.getFeatures().get(1).getGeometry();
+
+        assertTrue(polygon0.contains(geometryFactory.createPoint(new Coordinate(1.587224, 42.5386))));
+        assertFalse(polygon0.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+
+        assertTrue(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+        assertFalse(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
+    }
+
+    @Test
+    public void requestGridTooLarge() {
+        Response rsp = clientTarget(app, "/isochrone")
+                .queryParam("profile", "fast_car")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("time_limit", 5 * 60)
+                .queryParam("triangulation", "grid")
+                .queryParam("grid_resolution", 0.1)
+                .request().buildGet().invoke();
+        assertEquals(400, rsp.getStatus());
+        JsonNode json = rsp.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("The grid would be too large"), json.toString());
+    }
+
+    @Test
+    public void requestCached() {
+        WebTarget target = clientTarget(app, "/isochrone")
+                .queryParam("profile", "fast_car")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("time_limit", 4 * 60)
+                .queryParam("type", "geojson");
+        long size = getCacheGauge("isochrone.cache.size");
+        long hits = getCacheGauge("isochrone.cache.hits");
+        JsonFeatureCollection first = target.request().get(JsonFeatureCollection.class);
+        assertEquals(size + 1, getCacheGauge("isochrone.cache.size"));
+        assertEquals(hits, getCacheGauge("isochrone.cache.hits"));
+        JsonFeatureCollection second = target.request().get(JsonFeatureCollection.class);
+        assertEquals(size + 1, getCacheGauge("isochrone.cache.size"));
+        assertEquals(hits + 1, getCacheGauge("isochrone.cache.hits"));
+        assertEquals(1, first.getFeatures().size());
+        assertTrue(first.getFeatures().get(0).getGeometry().equalsExact(second.getFeatures().get(0).getGeometry()));
+
+        // the parameters are part of the cache key
+        JsonFeatureCollection buckets = target.queryParam("buckets", 2).request().get(JsonFeatureCollection.class);
+        assertEquals(2, buckets.getFeatures().size());
+        JsonFeatureCollection reverse = target.queryParam("reverse_flow", true).request().get(JsonFeatureCollection.class);
+        assertEquals(1, reverse.getFeatures().size());
+        assertFalse(first.getFeatures().get(0).getGeometry().equalsExact(reverse.getFeatures().get(0).getGeometry()));
+        assertEquals(size + 3, getCacheGauge("isochrone.cache.size"));
+        assertEquals(hits + 1, getCacheGauge("isochrone.cache.hits"));
+    }
+
+    private static long getCacheGauge(String name) {
+        return (Long) app.getEnvironment().metrics().getGauges().get(name).getValue();
+    }
+
+    @Test
+    public void requestPartition() {
+        Response rsp = clientTarget(app, "/isochrone")
+                .queryParam("profile", "fast_car")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("point", "42.558012,1.589756")
+                .queryParam("time_limit", 5 * 60)
+                .queryParam("partition", true)
+                .queryParam("type", "geojson")
+                .request().buildGet().invoke();
+        assertEquals(200, rsp.getStatus());
+        JsonFeatureCollection featureCollection = rsp.readEntity(JsonFeatureCollection.class);
+
+        assertEquals(2, featureCollection.getFeatures().size());
+        assertEquals(0, featureCollection.getFeatures().get(0).getProperties().get("origin"));
+        assertEquals(1, featureCollection.getFeatures().get(1).getProperties().get("origin"));
+        Geometry polygon0 = featureCollection.getFeatures().get(0).getGeometry();
+        Geometry polygon1 = featureCollection.getFeatures().get(1).getGeometry();
+
+        assertTrue(polygon0.contains(geometryFactory.createPoint(new Coordinate(1.573792, 42.531073))));
+        assertFalse(polygon0.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+        assertTrue(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+        assertFalse(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.573792, 42.531073))));
+        // the service areas of the two points do not overlap
+        assertTrue(polygon0.intersection(polygon1).getArea() < 0.01 * Math.min(polygon0.getArea(), polygon1.getArea()));
+
+        // without partition we get a single polygon that contains both service areas
+        rsp = clientTarget(app, "/isochrone")
+                .queryParam("profile", "fast_car")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("point", "42.558012,1.589756")
+                .queryParam("time_limit", 5 * 60)
+                .queryParam("type", "geojson")
+                .request().buildGet().invoke();
+        featureCollection = rsp.readEntity(JsonFeatureCollection.class);
+        assertEquals(1, featureCollection.getFeatures().size());
+        Geometry union = featureCollection.getFeatures().get(0).getGeometry();
+        assertTrue(union.contains(geometryFactory.createPoint(new Coordinate(1.573792, 42.531073))));
+        assertTrue(union.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+    }
+
     @Test
     public void requestByDistanceLimit() {
         Response rsp = clientTarget(app, "/isochrone")
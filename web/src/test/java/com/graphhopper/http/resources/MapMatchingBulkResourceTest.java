@@ -0,0 +1,129 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.api.GraphHopperWeb;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.http.util.TestUtils;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MapMatchingBulkResourceTest {
+    private static final String DIR = "./target/andorra-bulk-matching-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("map_matching.bulk_threads", 2).
+                setProfiles(Collections.singletonList(new Profile("fast_car").setVehicle("car").setWeighting("fastest")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testBulk() throws IOException {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        List<double[]> routes = Arrays.asList(
+                new double[]{42.5093, 1.5274, 42.5369, 1.5624},
+                new double[]{42.5126, 1.5410, 42.5093, 1.5274},
+                new double[]{42.5369, 1.5624, 42.5126, 1.5410});
+        GraphHopperWeb routeClient = new GraphHopperWeb(TestUtils.clientUrl(app, "/route"));
+        List<Double> distances = new ArrayList<>();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < routes.size(); i++) {
+            double[] r = routes.get(i);
+            GHResponse rsp = routeClient.route(new GHRequest(r[0], r[1], r[2], r[3]).setProfile("fast_car"));
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            ResponsePath path = rsp.getBest();
+            distances.add(path.getDistance());
+            body.append(createTrace(objectMapper, "trace_" + i, path.getPoints())).append("\n");
+        }
+        // a trace far away from the road network cannot be matched
+        body.append("{\"id\": \"outside\", \"points\": [[10.0, 50.0], [10.01, 50.01]]}\n");
+
+        Response response = clientTarget(app, "/match/bulk")
+                .queryParam("profile", "fast_car")
+                .queryParam("points_encoded", "false")
+                .request().post(Entity.entity(body.toString(), "application/x-ndjson"));
+        assertEquals(200, response.getStatus());
+        String[] lines = response.readEntity(String.class).split("\n");
+        assertEquals(4, lines.length);
+        Set<Integer> indices = new HashSet<>();
+        for (String line : lines) {
+            JsonNode json = objectMapper.readTree(line);
+            int index = json.get("index").asInt();
+            assertTrue(indices.add(index), "duplicate result for trace " + index);
+            if (index == 3) {
+                assertEquals("outside", json.get("id").asText());
+                assertTrue(json.has("message"), json.toString());
+                continue;
+            }
+            assertEquals("trace_" + index, json.get("id").asText());
+            assertFalse(json.has("message"), json.toString());
+            assertEquals(distances.get(index), json.get("original_distance").asDouble(), 5);
+            // the matched route does not necessarily start and end exactly at the first and last observation
+            assertEquals(distances.get(index), json.get("distance").asDouble(), 0.15 * distances.get(index));
+            assertTrue(json.get("points").get("coordinates").size() > 1, json.toString());
+        }
+    }
+
+    private static String createTrace(ObjectMapper objectMapper, String id, PointList points) throws IOException {
+        List<double[]> coordinates = new ArrayList<>();
+        for (GHPoint p : points)
+            coordinates.add(new double[]{p.getLon(), p.getLat()});
+        Map<String, Object> trace = new HashMap<>();
+        trace.put("id", id);
+        trace.put("points", coordinates);
+        return objectMapper.writeValueAsString(trace);
+    }
+}
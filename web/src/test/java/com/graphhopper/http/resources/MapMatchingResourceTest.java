@@ -21,6 +21,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GraphHopperApplication;
 import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.ResponsePathDeserializer;
 import com.graphhopper.util.Helper;
 import io.dropwizard.testing.junit5.DropwizardAppExtension;
@@ -36,7 +37,10 @@ import org.locationtech.jts.io.WKTReader;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -127,6 +131,31 @@ public class MapMatchingResourceTest {
         assertTrue(message.asText().startsWith("No tracks found"));
     }
 
+    @Test
+    public void testBulkWithBrokenLine() throws IOException {
+        String points = "[[12.3607,51.34365],[12.36418,51.34443],[12.36379,51.34538],[12.36082,51.34471],[12.36188,51.34278]]";
+        String body = "{\"id\":\"first\",\"points\":" + points + "}\n"
+                + "{\"id\":\"broken\",\"points\":[[12.36\n"
+                + "{\"id\":\"last\",\"points\":" + points + "}\n";
+        final Response response = app.client().target("http://localhost:8080/match/bulk?profile=fast_car")
+                .request()
+                .buildPost(Entity.entity(body, "application/x-ndjson"))
+                .invoke();
+        assertEquals(200, response.getStatus());
+        Map<Integer, JsonNode> results = new HashMap<>();
+        for (String line : response.readEntity(String.class).split("\n")) {
+            JsonNode json = Jackson.newObjectMapper().readTree(line);
+            results.put(json.get("index").asInt(), json);
+        }
+        // the broken line does not stop the stream, the lines before and after it are still matched
+        assertEquals(3, results.size());
+        assertTrue(results.get(1).get("message").asText().startsWith("Cannot parse trace 1"), results.get(1).toString());
+        assertEquals("first", results.get(0).get("id").asText());
+        assertEquals(811.56, results.get(0).get("distance").asDouble(), 1);
+        assertEquals("last", results.get(2).get("id").asText());
+        assertEquals(811.56, results.get(2).get("distance").asDouble(), 1);
+    }
+
     private LineString readWktLineString(String wkt) {
         WKTReader wktReader = new WKTReader();
         LineString expectedGeometry = null;
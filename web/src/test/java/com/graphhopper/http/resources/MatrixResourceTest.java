@@ -0,0 +1,155 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.api.GraphHopperMatrixWeb;
+import com.graphhopper.api.GraphHopperWeb;
+import com.graphhopper.api.MatrixResponse;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.http.util.TestUtils;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Arrays;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/andorra-matrix-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("routing.matrix.max_size", 9).
+                setProfiles(Arrays.asList(
+                        new Profile("fast_car").setVehicle("car").setWeighting("fastest"),
+                        new Profile("short_car").setVehicle("car").setWeighting("shortest"))).
+                setCHProfiles(Arrays.asList(new CHProfile("fast_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testGet() {
+        JsonNode json = clientTarget(app, "/matrix")
+                .queryParam("profile", "fast_car")
+                .queryParam("point", "42.5093,1.5274")
+                .queryParam("point", "42.5126,1.5410")
+                .queryParam("point", "42.5369,1.5624")
+                .queryParam("out_array", "times")
+                .queryParam("out_array", "distances")
+                .request().buildGet().invoke().readEntity(JsonNode.class);
+        assertFalse(json.has("weights"));
+        JsonNode distances = json.get("distances");
+        assertEquals(3, distances.size());
+        assertEquals(3, distances.get(0).size());
+        assertEquals(0, distances.get(1).get(1).asLong());
+
+        // compare with the route endpoint
+        GHResponse rsp = new GraphHopperWeb(TestUtils.clientUrl(app, "/route")).route(new GHRequest(
+                Arrays.asList(new GHPoint(42.5093, 1.5274), new GHPoint(42.5369, 1.5624))).setProfile("fast_car"));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(rsp.getBest().getDistance(), distances.get(0).get(2).asDouble(), 1);
+        assertEquals(rsp.getBest().getTime() / 1000.0, json.get("times").get(0).get(2).asDouble(), 1);
+    }
+
+    @Test
+    public void testMatrixClient() {
+        GraphHopperMatrixWeb matrixWeb = new GraphHopperMatrixWeb(TestUtils.clientUrl(app, "/matrix"));
+        GHMRequest request = new GHMRequest();
+        request.putHint("profile", "fast_car");
+        request.setFromPoints(Arrays.asList(new GHPoint(42.5093, 1.5274), new GHPoint(42.5126, 1.5410)));
+        request.setToPoints(Arrays.asList(new GHPoint(42.5369, 1.5624), new GHPoint(42.5126, 1.5410), new GHPoint(42.5093, 1.5274)));
+        request.addOutArray("weights");
+        request.addOutArray("distances");
+        MatrixResponse rsp = matrixWeb.route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(0, rsp.getDistance(0, 2), 1);
+        assertEquals(0, rsp.getDistance(1, 1), 1);
+        assertTrue(rsp.getDistance(0, 1) > 1000, "unexpected distance: " + rsp.getDistance(0, 1));
+        assertTrue(rsp.getWeight(0, 0) > rsp.getWeight(1, 0));
+    }
+
+    @Test
+    public void testMissingCHProfile() {
+        Response response = clientTarget(app, "/matrix")
+                .queryParam("profile", "short_car")
+                .queryParam("point", "42.5093,1.5274")
+                .queryParam("point", "42.5126,1.5410")
+                .request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("Cannot find CH preparation for the requested profile: 'short_car'"), json.toString());
+    }
+
+    @Test
+    public void testPointOutOfBounds() {
+        Response response = clientTarget(app, "/matrix")
+                .queryParam("profile", "fast_car")
+                .queryParam("from_point", "42.5093,1.5274")
+                .queryParam("to_point", "52.5126,1.5410")
+                .request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("Point 1 is out of bounds"), json.toString());
+    }
+
+    @Test
+    public void testTooManyPoints() {
+        Response response = clientTarget(app, "/matrix")
+                .queryParam("profile", "fast_car")
+                .queryParam("from_point", "42.5093,1.5274")
+                .queryParam("from_point", "42.5126,1.5410")
+                .queryParam("to_point", "42.5369,1.5624")
+                .queryParam("to_point", "42.5126,1.5410")
+                .queryParam("to_point", "42.5093,1.5274")
+                .queryParam("to_point", "42.5369,1.5624")
+                .queryParam("to_point", "42.5126,1.5410")
+                .request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("the matrix would have 2 x 5 entries, but the maximum is 9"), json.toString());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.*;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.util.Collections;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MvtArchiveResourceTest {
+    private static final String DIR = "./target/andorra-mvt-archive-gh/";
+    private static final String ARCHIVE = DIR + "tiles.gh-mvt";
+    private static byte[] expectedTile;
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        Helper.removeDir(new File(DIR));
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("graph.encoded_values", "road_class,max_speed").
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                setProfiles(Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest")));
+
+        // create the archive like the tiles command does before the server is started
+        GraphHopper hopper = new GraphHopperManaged(config.getGraphHopperConfiguration(), new ObjectMapper()).getGraphHopper();
+        hopper.importOrLoad();
+        MVTTileBuilder tileBuilder = new MVTTileBuilder(hopper);
+        BBox bounds = hopper.getGraphHopperStorage().getBounds();
+        new MVTArchiveWriter(new File(ARCHIVE), MVTTileBuilder.getGraphVersion(hopper.getGraphHopperStorage()),
+                Collections.singletonList("road_class"), 14, 15).writeTiles(tileBuilder, bounds, 2);
+        expectedTile = tileBuilder.createTile(15, 16522, 12102, Collections.singletonList("road_class"));
+        hopper.close();
+
+        config.getGraphHopperConfiguration().putObject("mvt.archive", ARCHIVE);
+        return config;
+    }
+
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testArchivedTile() {
+        assertTrue(new File(ARCHIVE).length() > expectedTile.length);
+        byte[] tile = clientTarget(app, "/mvt/15/16522/12102.mvt?details=road_class").request().get(byte[].class);
+        assertArrayEquals(expectedTile, tile);
+        // the tiles with other details are created on demand
+        byte[] otherTile = clientTarget(app, "/mvt/15/16522/12102.mvt?details=road_class&details=max_speed").request().get(byte[].class);
+        assertTrue(otherTile.length > tile.length);
+        // tiles outside of the graph bounds are empty
+        assertArrayEquals(MVTTileBuilder.createEmptyTile(), clientTarget(app, "/mvt/15/100/100.mvt?details=road_class").request().get(byte[].class));
+    }
+}
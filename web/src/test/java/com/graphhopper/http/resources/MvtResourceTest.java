@@ -40,13 +40,13 @@ import javax.ws.rs.core.Response;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static com.graphhopper.http.util.TestUtils.clientTarget;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -64,6 +64,7 @@ public class MvtResourceTest {
                 putObject("prepare.min_network_size", 0).
                 putObject("datareader.file", "../core/files/andorra.osm.pbf").
                 putObject("graph.location", DIR).
+                putObject("mvt.cache.location", DIR + "tiles").
                 setProfiles(Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest")));
         return config;
     }
@@ -108,6 +109,15 @@ public class MvtResourceTest {
         assertEquals("primary", attributes(geometry).get("road_class"));
     }
 
+    @Test
+    public void testCachedTile() {
+        byte[] tile = clientTarget(app, "/mvt/15/16522/12102.mvt?details=road_class&details=max_speed").request().get(byte[].class);
+        assertTrue(new File(DIR + "tiles").isDirectory());
+        // the order of the details does not matter and unknown details are ignored
+        assertArrayEquals(tile, clientTarget(app, "/mvt/15/16522/12102.mvt?details=max_speed&details=road_class&details=xyz").request().get(byte[].class));
+        assertFalse(Arrays.equals(tile, clientTarget(app, "/mvt/15/16522/12102.mvt").request().get(byte[].class)));
+    }
+
     private Map<String, Object> attributes(Geometry g) {
         return (Map<String, Object>) g.getUserData();
     }
@@ -33,8 +33,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import javax.ws.rs.core.Response;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import static com.graphhopper.http.util.TestUtils.clientTarget;
 import static org.junit.jupiter.api.Assertions.*;
@@ -89,6 +94,21 @@ public class SPTResourceTest {
         assertEquals(41, Integer.parseInt(row[prevTimeIndex]) / 1000);
     }
 
+    @Test
+    public void requestSPTWithMultiplePoints() {
+        Response rsp = clientTarget(app, "/spt?profile=car_without_turncosts&point=42.531073,1.573792&point=42.558012,1.589756" +
+                "&time_limit=300&columns=origin,time").request().buildGet().invoke();
+        String[] lines = rsp.readEntity(String.class).split("\n");
+        assertEquals("origin,time", lines[0]);
+        // both points are start nodes of the same search
+        assertEquals("0,0", lines[1]);
+        assertEquals("1,0", lines[2]);
+        Set<String> origins = new HashSet<>();
+        for (int i = 1; i < lines.length; i++)
+            origins.add(lines[i].split(",")[0]);
+        assertEquals(new HashSet<>(Arrays.asList("0", "1")), origins);
+    }
+
     @Test
     public void requestSPTEdgeBased() {
         Response rsp = clientTarget(app, "/spt?profile=car_with_turncosts&point=42.531073,1.573792&time_limit=300&columns=prev_node_id,edge_id,node_id,time,distance").request().buildGet().invoke();
@@ -118,6 +138,16 @@ public class SPTResourceTest {
         assertTrue(Double.isInfinite(Double.parseDouble(row[2])));
     }
 
+    @Test
+    public void requestGzippedSPT() throws IOException {
+        String path = "/spt?profile=car_without_turncosts&point=42.531073,1.573792&time_limit=300";
+        String expected = clientTarget(app, path).request().buildGet().invoke().readEntity(String.class);
+        Response rsp = clientTarget(app, path).request().header("Accept-Encoding", "gzip").buildGet().invoke();
+        assertEquals(200, rsp.getStatus());
+        assertEquals("gzip", rsp.getHeaderString("Content-Encoding"));
+        assertEquals(expected, Helper.isToString(new GZIPInputStream(rsp.readEntity(InputStream.class))));
+    }
+
     @Test
     public void missingPoint() {
         Response rsp = clientTarget(app, "/spt").request().buildGet().invoke();
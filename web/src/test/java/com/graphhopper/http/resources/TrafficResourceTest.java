@@ -0,0 +1,87 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Collections;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class TrafficResourceTest {
+    private static final String DIR = "./target/andorra-traffic-gh/";
+    private static final String ROUTE = "/route?profile=car&point=42.554851,1.536198&point=42.510071,1.548128&details=edge_id&instructions=false";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("traffic.endpoint", true).
+                setProfiles(Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest")));
+        return config;
+    }
+
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testUpdateSpeeds() {
+        JsonNode path = clientTarget(app, ROUTE).request().get(JsonNode.class).get("paths").get(0);
+        long time = path.get("time").asLong();
+        StringBuilder speeds = new StringBuilder("# edge_id,speed\n");
+        for (JsonNode detail : path.get("details").get("edge_id"))
+            speeds.append(detail.get(2).asInt()).append(",5\n");
+
+        JsonNode info = clientTarget(app, "/traffic").request().post(Entity.entity(speeds.toString(), MediaType.TEXT_PLAIN), JsonNode.class);
+        int edgeKeys = info.get("edge_keys").asInt();
+        assertTrue(edgeKeys > 10, "edge keys: " + edgeKeys);
+        assertEquals(edgeKeys, info.get("updated_edge_keys").asInt());
+        assertEquals(edgeKeys, clientTarget(app, "/traffic").request().get(JsonNode.class).get("edge_keys").asInt());
+        long trafficTime = clientTarget(app, ROUTE).request().get(JsonNode.class).get("paths").get(0).get("time").asLong();
+        assertTrue(trafficTime > time, trafficTime + " vs. " + time);
+
+        Response response = clientTarget(app, "/traffic").request().post(Entity.entity("1,fast", MediaType.TEXT_PLAIN));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Invalid number in line 1"));
+
+        assertEquals(0, clientTarget(app, "/traffic").request().delete(JsonNode.class).get("edge_keys").asInt());
+        assertEquals(time, clientTarget(app, ROUTE).request().get(JsonNode.class).get("paths").get(0).get("time").asLong());
+    }
+}